@@ -23,12 +23,12 @@ package org.xacml4j.v20;
  */
 
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.InputStream;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
-import org.xacml4j.v30.CompositeDecisionRule;
 import org.xacml4j.v30.RequestContext;
 import org.xacml4j.v30.ResponseContext;
 import org.xacml4j.v30.XacmlPolicyTestSupport;
@@ -39,10 +39,12 @@ import org.xacml4j.v30.spi.function.FunctionProviderBuilder;
 import org.xacml4j.v30.spi.pip.DefaultPolicyInformationPointCacheProvider;
 import org.xacml4j.v30.spi.pip.PolicyInformationPointBuilder;
 import org.xacml4j.v30.spi.repository.InMemoryPolicyRepository;
+import org.xacml4j.v30.spi.repository.PolicyImportResult;
 import org.xacml4j.v30.spi.repository.PolicyRepository;
 
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
 public class RSA2008PerformanceTestCase extends XacmlPolicyTestSupport
 {
@@ -61,22 +63,25 @@ public class RSA2008PerformanceTestCase extends XacmlPolicyTestSupport
 				.withDefaultAlgorithms()
 				.create());
 
-		ImmutableList<Supplier<InputStream>> policyStreams = ImmutableList.of(
-				_getPolicy("XacmlPolicySet-01-top-level.xml"),
-				_getPolicy("XacmlPolicySet-02a-CDA.xml"),
-				_getPolicy("XacmlPolicySet-02b-N.xml"),
-				_getPolicy("XacmlPolicySet-02c-N-PermCollections.xml"),
-				_getPolicy("XacmlPolicySet-02d-prog-note.xml"),
-				_getPolicy("XacmlPolicySet-02e-MA.xml"),
-				_getPolicy("XacmlPolicySet-02f-emergency.xml"),
-				_getPolicy("XacmlPolicySet-03-N-RPS-med-rec-vrole.xml"),
-				_getPolicy("XacmlPolicySet-04-N-PPS-PRD-004.xml"));
-
-		ImmutableList.Builder<CompositeDecisionRule> policies = ImmutableList.builder();
-		for (Supplier<InputStream> policyStream : policyStreams) {
-			policies.add(repository.importPolicy(policyStream));
+		ImmutableList<String> policyNames = ImmutableList.of(
+				"XacmlPolicySet-01-top-level.xml",
+				"XacmlPolicySet-02a-CDA.xml",
+				"XacmlPolicySet-02b-N.xml",
+				"XacmlPolicySet-02c-N-PermCollections.xml",
+				"XacmlPolicySet-02d-prog-note.xml",
+				"XacmlPolicySet-02e-MA.xml",
+				"XacmlPolicySet-02f-emergency.xml",
+				"XacmlPolicySet-03-N-RPS-med-rec-vrole.xml",
+				"XacmlPolicySet-04-N-PPS-PRD-004.xml");
+
+		ImmutableMap.Builder<String, Supplier<InputStream>> policyStreams = ImmutableMap.builder();
+		for (String name : policyNames) {
+			policyStreams.put(name, _getPolicy(name));
 		}
 
+		PolicyImportResult policies = repository.importPolicies(policyStreams.build());
+		assertTrue(policies.getFailures().toString(), policies.isSuccessful());
+
 		pdp = PolicyDecisionPointBuilder.builder("testPdp")
 			.policyRepository(repository)
 			.pip(
@@ -85,7 +90,7 @@ public class RSA2008PerformanceTestCase extends XacmlPolicyTestSupport
 					.defaultResolvers()
 					.withCacheProvider(new DefaultPolicyInformationPointCacheProvider(0, 0))
 					.build())
-			.rootPolicy(policies.build().get(0))
+			.rootPolicy(policies.getImported().get(0))
 			.build();
 
 		requests = new RequestContext[5][4];
@@ -62,11 +62,20 @@ public class DOMUtil
 
 	private static TransformerFactory transformerFactory;
 	private static DocumentBuilderFactory documentBuilderFactory;
+	private static DocumentBuilderFactory contentBuilderFactory;
 
 	static{
 		try{
 			transformerFactory = TransformerFactory.newInstance();
 			documentBuilderFactory = DocumentBuilderFactory.newInstance();
+			contentBuilderFactory = DocumentBuilderFactory.newInstance();
+			contentBuilderFactory.setNamespaceAware(true);
+			contentBuilderFactory.setXIncludeAware(false);
+			contentBuilderFactory.setExpandEntityReferences(false);
+			contentBuilderFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+			contentBuilderFactory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+			contentBuilderFactory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+			contentBuilderFactory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
 		}catch(Exception e){
 			e.printStackTrace(System.err);
 		}
@@ -237,11 +246,47 @@ public class DOMUtil
 	}
 
 	public static Node parseXml(InputSource src)
+	{
+		return parseXml(documentBuilderFactory, src);
+	}
+
+	/**
+	 * Parses XML content supplied with a request or
+	 * by a content resolver. Content is parsed namespace
+	 * aware, document type declarations and external
+	 * entities are rejected
+	 *
+	 * @param src an XML document
+	 * @return {@link Document} or {@code null}
+	 * if a given source is {@code null}
+	 * @exception IllegalArgumentException if a given
+	 * document can not be parsed
+	 */
+	public static Document parseContent(InputStream src)
+	{
+		if(src == null){
+			return null;
+		}
+		return (Document)parseXml(contentBuilderFactory, new InputSource(src));
+	}
+
+	/**
+	 * @see #parseContent(InputStream)
+	 */
+	public static Document parseContent(String src)
+	{
+		if(src == null){
+			return null;
+		}
+		return (Document)parseXml(contentBuilderFactory, new InputSource(new StringReader(src)));
+	}
+
+	private static Node parseXml(DocumentBuilderFactory factory, InputSource src)
 	{
 		Preconditions.checkNotNull(src);
 		DocumentBuilder documentBuilder = null;
 		try {
-			documentBuilder = documentBuilderFactory.newDocumentBuilder();
+			documentBuilder = factory.newDocumentBuilder();
 		} catch (ParserConfigurationException e) {
 			throw new IllegalStateException(String.format("Failed to build %s",
 					DocumentBuilder.class.getName()), e);
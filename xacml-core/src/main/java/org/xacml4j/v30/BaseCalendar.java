@@ -23,21 +23,51 @@ package org.xacml4j.v30;
  */
 
 import java.io.Serializable;
-import java.util.GregorianCalendar;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Calendar;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.xml.datatype.DatatypeConfigurationException;
-import javax.xml.datatype.DatatypeConstants;
 import javax.xml.datatype.DatatypeFactory;
 import javax.xml.datatype.XMLGregorianCalendar;
 
 import com.google.common.base.Preconditions;
 
+/**
+ * A base class for XML schema date/time values.
+ * <p>
+ * Values are kept as an {@link OffsetDateTime} together with
+ * its epoch second, comparisons and arithmetic do not require
+ * {@link XMLGregorianCalendar} instances. A value without an explicit
+ * timezone is treated as UTC. Dates are represented by their starting
+ * instant and times by an instant on the XPath reference date
+ * (1972-12-31), see XPath 2.0 functions and operators, section 10.4.
+ *
+ * @param <T> a concrete calendar type
+ */
 public abstract class BaseCalendar <T extends BaseCalendar<?>>
 	implements Serializable, Comparable<T>
 {
 	private static final long serialVersionUID = -1896156800821765849L;
 
-	protected XMLGregorianCalendar calendar;
+	/**
+	 * A reference date used to represent
+	 * time values as instants
+	 */
+	protected static final LocalDate REFERENCE_DATE = LocalDate.of(1972, 12, 31);
+
+	private static final String YEAR = "(-?(?:[1-9]\\d{3,}|0\\d{3}))-(\\d{2})-(\\d{2})";
+	private static final String TIME = "(\\d{2}):(\\d{2}):(\\d{2})(?:\\.(\\d+))?";
+	private static final String TIMEZONE = "(Z|[+-]\\d{2}:\\d{2})?";
+
+	private static final Pattern DATE_PATTERN = Pattern.compile(YEAR + TIMEZONE);
+	private static final Pattern TIME_PATTERN = Pattern.compile(TIME + TIMEZONE);
+	private static final Pattern DATETIME_PATTERN = Pattern.compile(YEAR + "T" + TIME + TIMEZONE);
 
 	private static DatatypeFactory df = null;
 
@@ -48,90 +78,233 @@ public abstract class BaseCalendar <T extends BaseCalendar<?>>
 		}
 	}
 
-	protected BaseCalendar(XMLGregorianCalendar calendar){
-		Preconditions.checkNotNull(calendar);
-		this.calendar =  calendar;
+	protected final OffsetDateTime value;
+	private final long epochSecond;
+	private final int fractionDigits;
+
+	protected BaseCalendar(OffsetDateTime value, int fractionDigits){
+		Preconditions.checkNotNull(value);
+		Preconditions.checkArgument(fractionDigits >= 0);
+		this.value = value;
+		this.epochSecond = value.toEpochSecond();
+		this.fractionDigits = fractionDigits;
 	}
 
 	/**
-	 * Creates an {@link XMLGregorianCalendar} from given object
+	 * Parses an XML schema date from a given object
 	 *
-	 * @param v a representation of {@link XMLGregorianCalendar}
-	 * @return {@link XMLGregorianCalendar}
+	 * @param v a {@link String}, {@link Calendar},
+	 * {@link OffsetDateTime} or {@link XMLGregorianCalendar} instance
+	 * @return {@link OffsetDateTime} at the start of the date
 	 */
-	private static XMLGregorianCalendar parseXmlCalendar(Object v){
-		XMLGregorianCalendar c = null;
-		if(String.class.isInstance(v)){
-			c = df.newXMLGregorianCalendar((String)v);
-		}
-		if(XMLGregorianCalendar.class.isInstance(v)){
-			c = (XMLGregorianCalendar)((XMLGregorianCalendar)v).clone();
+	protected static OffsetDateTime parseDate(Object v){
+		Preconditions.checkNotNull(v);
+		OffsetDateTime c = toOffsetDateTime(v);
+		if(c != null){
+			return c.toLocalDate().atStartOfDay().atOffset(c.getOffset());
 		}
-		if(c.getTimezone() == DatatypeConstants.FIELD_UNDEFINED){
-			c.setTimezone(0);
+		Matcher m = match(DATE_PATTERN, v, "date");
+		try{
+			return OffsetDateTime.of(
+					toDate(m, 1), LocalTime.MIDNIGHT, toOffset(m.group(4)));
+		}catch(DateTimeException e){
+			throw invalid(m, "date", e);
 		}
-		return c;
 	}
 
-	protected static XMLGregorianCalendar parseDate(Object v){
+	/**
+	 * Parses an XML schema dateTime from a given object
+	 *
+	 * @param v a {@link String}, {@link Calendar},
+	 * {@link OffsetDateTime} or {@link XMLGregorianCalendar} instance
+	 * @return {@link OffsetDateTime}
+	 */
+	protected static OffsetDateTime parseDateTime(Object v){
 		Preconditions.checkNotNull(v);
-		XMLGregorianCalendar c = null;
-		if(GregorianCalendar.class.isInstance(v)){
-			c = df.newXMLGregorianCalendar((GregorianCalendar)v);
-			c = df.newXMLGregorianCalendarDate(
-					c.getYear(),
-					c.getMonth(),
-					c.getDay(),
-					c.getTimezone());
+		OffsetDateTime c = toOffsetDateTime(v);
+		if(c != null){
 			return c;
 		}
-		c = parseXmlCalendar(v);
-		Preconditions.checkArgument(c.getXMLSchemaType().equals(DatatypeConstants.DATE));
-		return c;
+		Matcher m = match(DATETIME_PATTERN, v, "dateTime");
+		try{
+			return toDateTime(toDate(m, 1), m, 4, m.group(8));
+		}catch(DateTimeException e){
+			throw invalid(m, "dateTime", e);
+		}
 	}
 
-	protected static XMLGregorianCalendar parseDateTime(Object v){
+	/**
+	 * Parses an XML schema time from a given object
+	 *
+	 * @param v a {@link String}, {@link Calendar},
+	 * {@link OffsetDateTime} or {@link XMLGregorianCalendar} instance
+	 * @return {@link OffsetDateTime} on the reference date
+	 */
+	protected static OffsetDateTime parseTime(Object v){
 		Preconditions.checkNotNull(v);
-		XMLGregorianCalendar c = null;
-		if(GregorianCalendar.class.isInstance(v)){
-			return df.newXMLGregorianCalendar((GregorianCalendar)v);
+		OffsetDateTime c = toOffsetDateTime(v);
+		if(c != null){
+			return OffsetDateTime.of(REFERENCE_DATE,
+					c.toLocalTime().withNano(0), c.getOffset());
+		}
+		Matcher m = match(TIME_PATTERN, v, "time");
+		try{
+			OffsetDateTime t = toDateTime(REFERENCE_DATE, m, 1, m.group(5));
+			return t.toLocalTime().atDate(REFERENCE_DATE).atOffset(t.getOffset());
+		}catch(DateTimeException e){
+			throw invalid(m, "time", e);
 		}
-		c = parseXmlCalendar(v);
-		Preconditions.checkArgument(c.getXMLSchemaType().equals(DatatypeConstants.DATETIME));
-		return c;
 	}
 
-	protected static XMLGregorianCalendar parseTime(Object v){
-		Preconditions.checkNotNull(v);
-		XMLGregorianCalendar c = null;
-		if(GregorianCalendar.class.isInstance(v)){
-			c = df.newXMLGregorianCalendar((GregorianCalendar)v);
-			c = df.newXMLGregorianCalendarTime(
-					c.getHour(),
-					c.getMinute(),
-					c.getSecond(),
-					c.getTimezone());
-			return c;
+	/**
+	 * Gets number of fractional second digits
+	 * in the lexical representation of a given object
+	 *
+	 * @param v a source object
+	 * @return number of fractional second digits
+	 */
+	protected static int parseFractionDigits(Object v){
+		if(v instanceof Calendar){
+			return 3;
+		}
+		if(v instanceof OffsetDateTime){
+			int nano = ((OffsetDateTime)v).getNano();
+			int digits = (nano == 0)?0:9;
+			while(nano != 0 && nano % 10 == 0){
+				nano /= 10;
+				digits--;
+			}
+			return digits;
+		}
+		String s = toLexical(v);
+		int dot = s.indexOf('.');
+		if(dot < 0){
+			return 0;
+		}
+		int end = dot + 1;
+		while(end < s.length() &&
+				Character.isDigit(s.charAt(end))){
+			end++;
+		}
+		return end - dot - 1;
+	}
+
+	private static String toLexical(Object v){
+		if(v instanceof XMLGregorianCalendar){
+			return ((XMLGregorianCalendar)v).toXMLFormat();
+		}
+		Preconditions.checkArgument(v instanceof String,
+				"Unsupported calendar value type=\"%s\"", v.getClass());
+		return ((String)v).trim();
+	}
+
+	private static Matcher match(Pattern p, Object v, String type){
+		String s = toLexical(v);
+		Matcher m = p.matcher(s);
+		Preconditions.checkArgument(m.matches(),
+				"Given value=\"%s\" does not represent type=\"%s\"", s, type);
+		return m;
+	}
+
+	/**
+	 * Creates an exception for a lexically valid value
+	 * with out of range fields, for an example "2002-02-30"
+	 */
+	private static IllegalArgumentException invalid(Matcher m,
+			String type, DateTimeException cause){
+		return new IllegalArgumentException(String.format(
+				"Given value=\"%s\" does not represent type=\"%s\"",
+				m.group(), type), cause);
+	}
+
+	private static LocalDate toDate(Matcher m, int group){
+		int year = Integer.parseInt(m.group(group));
+		if(year == 0){
+			throw new DateTimeException("Year 0000 is not allowed");
+		}
+		return LocalDate.of(
+				year,
+				Integer.parseInt(m.group(group + 1)),
+				Integer.parseInt(m.group(group + 2)));
+	}
+
+	private static OffsetDateTime toDateTime(LocalDate date,
+			Matcher m, int group, String timezone){
+		int hour = Integer.parseInt(m.group(group));
+		int minute = Integer.parseInt(m.group(group + 1));
+		int second = Integer.parseInt(m.group(group + 2));
+		String fraction = m.group(group + 3);
+		int nano = 0;
+		if(fraction != null){
+			String digits = (fraction.length() > 9)?
+					fraction.substring(0, 9):fraction;
+			nano = Integer.parseInt(digits);
+			for(int i = digits.length(); i < 9; i++){
+				nano *= 10;
+			}
 		}
-		c = parseXmlCalendar(v);
-		Preconditions.checkArgument(c.getXMLSchemaType().equals(DatatypeConstants.TIME));
-		return c;
+		ZoneOffset offset = toOffset(timezone);
+		if(hour == 24){
+			Preconditions.checkArgument(minute == 0 && second == 0 && nano == 0,
+					"Invalid time=\"%s\"", m.group());
+			return OffsetDateTime.of(date.plusDays(1), LocalTime.MIDNIGHT, offset);
+		}
+		return OffsetDateTime.of(date, LocalTime.of(hour, minute, second, nano), offset);
 	}
 
+	private static ZoneOffset toOffset(String timezone){
+		if(timezone == null ||
+				timezone.equals("Z")){
+			return ZoneOffset.UTC;
+		}
+		int sign = (timezone.charAt(0) == '-')?-1:1;
+		int hours = Integer.parseInt(timezone.substring(1, 3));
+		int minutes = Integer.parseInt(timezone.substring(4, 6));
+		Preconditions.checkArgument(hours < 14 || (hours == 14 && minutes == 0),
+				"Invalid timezone=\"%s\"", timezone);
+		return ZoneOffset.ofHoursMinutes(sign * hours, sign * minutes);
+	}
+
+	private static OffsetDateTime toOffsetDateTime(Object v){
+		if(v instanceof OffsetDateTime){
+			return (OffsetDateTime)v;
+		}
+		if(v instanceof Calendar){
+			return fromCalendar((Calendar)v);
+		}
+		return null;
+	}
+
+	private static OffsetDateTime fromCalendar(Calendar c){
+		int offset = c.get(Calendar.ZONE_OFFSET) + c.get(Calendar.DST_OFFSET);
+		return OffsetDateTime.ofInstant(c.toInstant(),
+				ZoneOffset.ofTotalSeconds(offset / 1000));
+	}
+
+	/**
+	 * Converts this value to {@link XMLGregorianCalendar}
+	 *
+	 * @return {@link XMLGregorianCalendar}
+	 */
 	public XMLGregorianCalendar toCalendar(){
-		return (XMLGregorianCalendar)calendar.clone();
+		return df.newXMLGregorianCalendar(toXacmlString());
+	}
+
+	/**
+	 * Gets timezone offset in minutes
+	 *
+	 * @return timezone offset in minutes
+	 */
+	public int getTimezoneOffset(){
+		return value.getOffset().getTotalSeconds() / 60;
 	}
 
 	public T add(BaseDuration<?> d){
-		XMLGregorianCalendar c = (XMLGregorianCalendar)calendar.clone();
-		c.add(d.getDuration());
-		return makeCalendar(c);
+		return makeCalendar(d.addTo(value, false), fractionDigits);
 	}
 
 	public T subtract(BaseDuration<?> d){
-		XMLGregorianCalendar c = (XMLGregorianCalendar)calendar.clone();
-		c.add(d.getDuration().negate());
-		return makeCalendar(c);
+		return makeCalendar(d.addTo(value, true), fractionDigits);
 	}
 
 	@Override
@@ -146,25 +319,23 @@ public abstract class BaseCalendar <T extends BaseCalendar<?>>
 			return false;
 		}
 		BaseCalendar<?> c = (BaseCalendar<?>)o;
-		return calendar.equals(c.calendar);
+		return epochSecond == c.epochSecond &&
+				value.getNano() == c.value.getNano();
 	}
 
 	@Override
-	public int compareTo(T v) {
-		int r = calendar.compare(v.calendar);
-		if (r == DatatypeConstants.INDETERMINATE) {
-			throw new IllegalArgumentException(String.format(
-					"Can't compare a=\"%s\" with b=\"%s\", "
-							+ "result is INDETERMINATE", calendar,
-					v.calendar));
+	public int compareTo(T o) {
+		BaseCalendar<?> v = o;
+		int r = Long.compare(epochSecond, v.epochSecond);
+		if(r == 0){
+			r = Integer.compare(value.getNano(), v.value.getNano());
 		}
-		return r == DatatypeConstants.EQUAL ? 0
-				: ((r == DatatypeConstants.GREATER) ? 1 : -1);
+		return Integer.signum(r);
 	}
 
 	@Override
 	public int hashCode(){
-		return calendar.hashCode();
+		return 31 * Long.hashCode(epochSecond) + value.getNano();
 	}
 
 	@Override
@@ -173,8 +344,63 @@ public abstract class BaseCalendar <T extends BaseCalendar<?>>
 	}
 
 	public String toXacmlString(){
-		return calendar.toXMLFormat();
+		StringBuilder b = new StringBuilder(32);
+		formatValue(b);
+		int offset = value.getOffset().getTotalSeconds() / 60;
+		if(offset == 0){
+			return b.append('Z').toString();
+		}
+		b.append(offset < 0?'-':'+');
+		offset = Math.abs(offset);
+		appendPadded(b, offset / 60, 2);
+		b.append(':');
+		appendPadded(b, offset % 60, 2);
+		return b.toString();
+	}
+
+	/**
+	 * Appends lexical representation of this value
+	 * without a timezone to the given builder
+	 *
+	 * @param b a string builder
+	 */
+	protected abstract void formatValue(StringBuilder b);
+
+	protected final void formatDate(StringBuilder b){
+		int year = value.getYear();
+		if(year < 0){
+			b.append('-');
+		}
+		appendPadded(b, Math.abs(year), 4);
+		b.append('-');
+		appendPadded(b, value.getMonthValue(), 2);
+		b.append('-');
+		appendPadded(b, value.getDayOfMonth(), 2);
+	}
+
+	protected final void formatTime(StringBuilder b){
+		appendPadded(b, value.getHour(), 2);
+		b.append(':');
+		appendPadded(b, value.getMinute(), 2);
+		b.append(':');
+		appendPadded(b, value.getSecond(), 2);
+		if(fractionDigits > 0){
+			StringBuilder nanos = new StringBuilder(9);
+			appendPadded(nanos, value.getNano(), 9);
+			b.append('.');
+			for(int i = 0; i < fractionDigits; i++){
+				b.append(i < 9?nanos.charAt(i):'0');
+			}
+		}
+	}
+
+	private static void appendPadded(StringBuilder b, int v, int digits){
+		String s = Integer.toString(v);
+		for(int i = s.length(); i < digits; i++){
+			b.append('0');
+		}
+		b.append(s);
 	}
 
-	protected abstract T makeCalendar(XMLGregorianCalendar c);
+	protected abstract T makeCalendar(OffsetDateTime v, int fractionDigits);
 }
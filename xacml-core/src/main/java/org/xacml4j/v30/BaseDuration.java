@@ -23,20 +23,26 @@ package org.xacml4j.v30;
  */
 
 import java.io.Serializable;
+import java.time.OffsetDateTime;
 
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeFactory;
 import javax.xml.datatype.Duration;
 
-import com.google.common.base.Preconditions;
-
+/**
+ * A base class for XML schema duration values.
+ * <p>
+ * Concrete durations keep a numeric representation,
+ * {@link Duration} instances are only created on demand
+ * via {@link #toXmlDuration()}
+ *
+ * @param <T> a concrete duration type
+ */
 public abstract class BaseDuration <T extends BaseDuration<?>>
 	implements Comparable<T>, Serializable
 {
 	private static final long serialVersionUID = 6573551346951236604L;
 
-	private final Duration value;
-
 	protected static DatatypeFactory df = null;
 
 	static{
@@ -46,81 +52,65 @@ public abstract class BaseDuration <T extends BaseDuration<?>>
 		}
 	}
 
-	protected BaseDuration(Duration value){
-		Preconditions.checkNotNull(value);
-		this.value = value;
-	}
-
-	protected static Duration parseDuration(Object any)
-	{
-		if(String.class.isInstance(any)){
-			return df.newDuration((String)any);
-		}
-		return (Duration)any;
+	protected BaseDuration(){
 	}
 
 	public final boolean isPositive(){
-		return value.getSign() == 1;
+		return signum() == 1;
 	}
 
 	public final boolean isNegative(){
-		return value.getSign() == -1;
+		return signum() == -1;
 	}
 
 	public final boolean isZero(){
-		return value.getSign() == 0;
+		return signum() == 0;
 	}
 
-	final Duration getDuration(){
-		return value;
+	/**
+	 * Converts this duration to {@link Duration}
+	 *
+	 * @return {@link Duration}
+	 */
+	public final Duration toXmlDuration(){
+		return df.newDuration(toXacmlString());
 	}
 
 	@Override
 	public final String toString(){
-		return value.toString();
-	}
-
-	public final String toXacmlString(){
-		return value.toString();
-	}
-
-	@Override
-	public final int hashCode(){
-		return value.hashCode();
+		return toXacmlString();
 	}
 
-	@Override
-	public final boolean equals(Object o){
-		if(o == null){
-			return false;
-		}
-		if(o == this){
-			return true;
-		}
-		if(!(o instanceof BaseDuration)){
-			return false;
-		}
-		BaseDuration<?> d = (BaseDuration<?>)o;
-		return value.equals(d.value);
-	}
-
-	@Override
-	public final int compareTo(T o) {
-		return value.compare(o.getDuration());
-	}
-
-	public final T add(T d){
-		return makeDuration(getDuration().add(d.getDuration()));
-	}
-
-	public final T subtract(T d){
-		return makeDuration(getDuration().subtract(d.getDuration()));
-	}
-
-	public final T negate(){
-		return makeDuration(getDuration().negate());
-	}
-
-	protected abstract T makeDuration(Duration d);
-
+	/**
+	 * Gets canonical lexical representation
+	 * of this duration
+	 *
+	 * @return a canonical lexical representation
+	 */
+	public abstract String toXacmlString();
+
+	/**
+	 * Gets sign of this duration
+	 *
+	 * @return -1, 0 or 1 if this duration
+	 * is negative, zero or positive
+	 */
+	protected abstract int signum();
+
+	/**
+	 * Adds or subtracts this duration to/from
+	 * a given date and time
+	 *
+	 * @param v a date and time
+	 * @param negate a flag indicating if this
+	 * duration needs to be subtracted
+	 * @return a resulting date and time
+	 */
+	abstract OffsetDateTime addTo(OffsetDateTime v, boolean negate);
+
+	public abstract T add(T d);
+
+	public abstract T subtract(T d);
+
+	public abstract T negate();
 }
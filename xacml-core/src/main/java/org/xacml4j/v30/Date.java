@@ -22,6 +22,7 @@ package org.xacml4j.v30;
  * #L%
  */
 
+import java.time.OffsetDateTime;
 import java.util.GregorianCalendar;
 
 import javax.xml.datatype.XMLGregorianCalendar;
@@ -31,14 +32,18 @@ public final class Date extends BaseCalendar<Date>
 	private static final long serialVersionUID = -79539790774966290L;
 
 	public Date(XMLGregorianCalendar value) {
-		super(value);
+		this(parseDate(value));
+	}
+
+	private Date(OffsetDateTime value) {
+		super(value, 0);
 	}
 
 	/**
 	 * Creates {@link Date} from a given
 	 * object instance, supported types are:
 	 * {@link String}, {@link GregorianCalendar},
-	 * {@link XMLGregorianCalendar}
+	 * {@link OffsetDateTime}, {@link XMLGregorianCalendar}
 	 *
 	 * @return {@link Date} instance
 	 */
@@ -47,19 +52,25 @@ public final class Date extends BaseCalendar<Date>
 	}
 
 	public int getYear(){
-		return calendar.getYear();
+		return value.getYear();
 	}
 
 	public int getMonth(){
-		return calendar.getMonth();
+		return value.getMonthValue();
 	}
 
 	public int getDay(){
-		return calendar.getDay();
+		return value.getDayOfMonth();
+	}
+
+	@Override
+	protected void formatValue(StringBuilder b) {
+		formatDate(b);
 	}
 
 	@Override
-	protected Date makeCalendar(XMLGregorianCalendar c) {
-		return new Date(c);
+	protected Date makeCalendar(OffsetDateTime v, int fractionDigits) {
+		return new Date(v.toLocalDate()
+				.atStartOfDay().atOffset(v.getOffset()));
 	}
 }
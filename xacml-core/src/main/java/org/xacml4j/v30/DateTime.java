@@ -22,72 +22,82 @@ package org.xacml4j.v30;
  * #L%
  */
 
+import java.time.OffsetDateTime;
 import java.util.GregorianCalendar;
 
-import javax.xml.datatype.DatatypeConstants;
 import javax.xml.datatype.XMLGregorianCalendar;
 
-import com.google.common.base.Preconditions;
-
 public final class DateTime extends
 	BaseCalendar<DateTime>
 {
 	private static final long serialVersionUID = 1085808268199675887L;
 
 	public DateTime(XMLGregorianCalendar value) {
-		super(value);
-		Preconditions.checkArgument(
-				value.getXMLSchemaType().equals(DatatypeConstants.DATETIME),
-				"Given value=\"%s\" does " + "not represent type=\"%s\"",
-				value.toXMLFormat(), DatatypeConstants.DATETIME);
+		this(parseDateTime(value), parseFractionDigits(value));
+	}
+
+	private DateTime(OffsetDateTime value, int fractionDigits) {
+		super(value, fractionDigits);
 	}
 
 	/**
 	 * Creates {@link DateTime} from a given
 	 * object instance, supported types are:
 	 * {@link String}, {@link GregorianCalendar},
-	 * {@link XMLGregorianCalendar}
+	 * {@link OffsetDateTime}, {@link XMLGregorianCalendar}
 	 *
 	 * @return {@link DateTime} instance
 	 */
 	public static DateTime create(Object v){
-		return new DateTime(parseDateTime(v));
+		return new DateTime(parseDateTime(v), parseFractionDigits(v));
 	}
 
 	public int getYear(){
-		return calendar.getYear();
+		return value.getYear();
 	}
 
 	public int getMonth(){
-		return calendar.getMonth();
+		return value.getMonthValue();
 	}
 
 	public int getDay(){
-		return calendar.getDay();
+		return value.getDayOfMonth();
 	}
 
 	public int getHour(){
-		return calendar.getHour();
+		return value.getHour();
 	}
 
 	public int getMinute(){
-		return calendar.getMinute();
+		return value.getMinute();
 	}
 
 	public int getSecond(){
-		return calendar.getSecond();
+		return value.getSecond();
 	}
 
 	public int getMillisecond(){
-		return calendar.getMillisecond();
+		return value.getNano() / 1000000;
 	}
 
-	public int getTimezoneOffset(){
-		return calendar.getTimezone();
+	/**
+	 * Converts this value to {@link OffsetDateTime}
+	 *
+	 * @return {@link OffsetDateTime}
+	 */
+	public OffsetDateTime toOffsetDateTime(){
+		return value;
+	}
+
+	@Override
+	protected void formatValue(StringBuilder b) {
+		formatDate(b);
+		b.append('T');
+		formatTime(b);
 	}
 
 	@Override
-	protected DateTime makeCalendar(XMLGregorianCalendar c) {
-		return new DateTime(c);
+	protected DateTime makeCalendar(OffsetDateTime v, int fractionDigits) {
+		return new DateTime(v, fractionDigits);
 	}
 }
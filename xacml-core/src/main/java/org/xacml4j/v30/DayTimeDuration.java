@@ -22,6 +22,11 @@ package org.xacml4j.v30;
  * #L%
  */
 
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import javax.xml.datatype.DatatypeConstants;
 import javax.xml.datatype.Duration;
 
@@ -32,10 +37,30 @@ public final class DayTimeDuration
 {
 	private static final long serialVersionUID = -7792873011027722382L;
 
+	private static final Pattern PATTERN = Pattern.compile(
+			"(-)?P(?:(\\d+)D)?(?:(T)(?:(\\d+)H)?(?:(\\d+)M)?(?:(\\d+)(?:\\.(\\d+))?S)?)?");
+
+	private final java.time.Duration value;
+
+	private DayTimeDuration(java.time.Duration value) {
+		Preconditions.checkNotNull(value);
+		this.value = value;
+	}
+
 	public DayTimeDuration(Duration value) {
-		super(value);
 		Preconditions.checkArgument(!value.isSet(DatatypeConstants.YEARS) &&
 				!value.isSet(DatatypeConstants.MONTHS));
+		BigDecimal seconds = (BigDecimal)value.getField(DatatypeConstants.SECONDS);
+		java.time.Duration d = java.time.Duration
+				.ofDays(value.getDays())
+				.plusHours(value.getHours())
+				.plusMinutes(value.getMinutes());
+		if(seconds != null){
+			d = d.plusSeconds(seconds.longValue())
+					.plusNanos(seconds.remainder(BigDecimal.ONE)
+							.movePointRight(9).longValue());
+		}
+		this.value = (value.getSign() < 0)?d.negated():d;
 	}
 
 	public DayTimeDuration(boolean positive,
@@ -43,23 +68,43 @@ public final class DayTimeDuration
 			int hours,
 			int minutes,
 			int seconds) {
-		this(df.newDurationDayTime(positive, days, hours, minutes, seconds));
+		this(of(positive, days, hours, minutes, seconds, 0));
+	}
+
+	private static java.time.Duration of(boolean positive,
+			long days, long hours, long minutes, long seconds, long nanos){
+		java.time.Duration d = java.time.Duration
+				.ofDays(days)
+				.plusHours(hours)
+				.plusMinutes(minutes)
+				.plusSeconds(seconds)
+				.plusNanos(nanos);
+		return positive?d:d.negated();
 	}
 
 	public final int getDays(){
-		return getDuration().getDays();
+		return (int)value.abs().toDays();
 	}
 
 	public final int getHours(){
-		return getDuration().getHours();
+		return value.abs().toHoursPart();
 	}
 
 	public final int getMinutes(){
-		return getDuration().getMinutes();
+		return value.abs().toMinutesPart();
 	}
 
 	public final int getSeconds(){
-		return getDuration().getSeconds();
+		return value.abs().toSecondsPart();
+	}
+
+	/**
+	 * Converts this duration to {@link java.time.Duration}
+	 *
+	 * @return {@link java.time.Duration}
+	 */
+	public java.time.Duration toJavaDuration(){
+		return value;
 	}
 
 	/**
@@ -69,14 +114,118 @@ public final class DayTimeDuration
 	 */
 	public static DayTimeDuration parse(Object any){
 		if(any instanceof DayTimeDuration){
-			return new DayTimeDuration(((DayTimeDuration)any).getDuration());
+			return (DayTimeDuration)any;
+		}
+		if(any instanceof java.time.Duration){
+			return new DayTimeDuration((java.time.Duration)any);
+		}
+		if(any instanceof Duration){
+			return new DayTimeDuration((Duration)any);
+		}
+		Preconditions.checkArgument(any instanceof String,
+				"Unsupported duration value type=\"%s\"", any);
+		String s = ((String)any).trim();
+		Matcher m = PATTERN.matcher(s);
+		Preconditions.checkArgument(m.matches() &&
+				(m.group(2) != null || m.group(3) != null) &&
+				(m.group(3) == null ||
+					m.group(4) != null || m.group(5) != null || m.group(6) != null),
+				"Given value=\"%s\" does not represent dayTimeDuration", s);
+		long nanos = 0;
+		String fraction = m.group(7);
+		if(fraction != null){
+			nanos = new BigDecimal("0." + fraction)
+					.movePointRight(9).longValue();
+		}
+		return new DayTimeDuration(of(m.group(1) == null,
+				toLong(m.group(2)), toLong(m.group(4)),
+				toLong(m.group(5)), toLong(m.group(6)), nanos));
+	}
+
+	private static long toLong(String v){
+		return (v == null)?0:Long.parseLong(v);
+	}
+
+	@Override
+	public String toXacmlString(){
+		if(value.isZero()){
+			return "PT0S";
+		}
+		java.time.Duration d = value.abs();
+		StringBuilder b = new StringBuilder(24);
+		if(value.isNegative()){
+			b.append('-');
+		}
+		b.append('P');
+		if(d.toDays() > 0){
+			b.append(d.toDays()).append('D');
+		}
+		if(d.toHoursPart() == 0 &&
+				d.toMinutesPart() == 0 &&
+				d.toSecondsPart() == 0 &&
+				d.toNanosPart() == 0){
+			return b.toString();
+		}
+		b.append('T');
+		if(d.toHoursPart() > 0){
+			b.append(d.toHoursPart()).append('H');
 		}
-		Duration d = parseDuration(any);
-		return new DayTimeDuration(d);
+		if(d.toMinutesPart() > 0){
+			b.append(d.toMinutesPart()).append('M');
+		}
+		if(d.toSecondsPart() > 0 || d.toNanosPart() > 0){
+			b.append(BigDecimal.valueOf(d.toSecondsPart())
+					.add(BigDecimal.valueOf(d.toNanosPart(), 9))
+					.stripTrailingZeros()
+					.toPlainString()).append('S');
+		}
+		return b.toString();
 	}
 
 	@Override
-	protected DayTimeDuration makeDuration(Duration d){
-		return new DayTimeDuration(d);
+	protected int signum(){
+		return value.isZero()?0:(value.isNegative()?-1:1);
+	}
+
+	@Override
+	OffsetDateTime addTo(OffsetDateTime v, boolean negate){
+		return v.plus(negate?value.negated():value);
+	}
+
+	@Override
+	public DayTimeDuration add(DayTimeDuration d){
+		return new DayTimeDuration(value.plus(d.value));
+	}
+
+	@Override
+	public DayTimeDuration subtract(DayTimeDuration d){
+		return new DayTimeDuration(value.minus(d.value));
+	}
+
+	@Override
+	public DayTimeDuration negate(){
+		return new DayTimeDuration(value.negated());
+	}
+
+	@Override
+	public int compareTo(DayTimeDuration o) {
+		return Integer.signum(value.compareTo(o.value));
+	}
+
+	@Override
+	public int hashCode(){
+		return value.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object o){
+		if(o == this){
+			return true;
+		}
+		if(!(o instanceof DayTimeDuration)){
+			return false;
+		}
+		DayTimeDuration d = (DayTimeDuration)o;
+		return value.equals(d.value);
 	}
 }
@@ -61,11 +61,23 @@ public final class Entity extends AttributeContainer
 
 	private final static Logger log = LoggerFactory.getLogger(Entity.class);
 
-	private final Document content;
+	/**
+	 * Content in the serialized form or {@code null}
+	 * if content was supplied as DOM
+	 */
+	private final String xmlContent;
+
+	/**
+	 * Content DOM, parsed from {@link #xmlContent} on first use.
+	 * DOM is not thread safe even for reads, each copy of this
+	 * entity shares serialized content and parses its own DOM
+	 */
+	private volatile Document content;
 
 	private Entity(Builder b) {
 		super(b);
-		this.content = DOMUtil.copyNode(b.content);
+		this.xmlContent = b.xmlContent;
+		this.content = b.content;
 	}
 
 	public static Builder builder(){
@@ -89,12 +101,39 @@ public final class Entity extends AttributeContainer
 
 	/**
 	 * Gets content as {@link Node}
-	 * instance
+	 * instance, returned DOM is owned
+	 * by this entity and must not be modified
 	 *
 	 * @return a {@link Node} instance or {@code null}
+	 * @exception IllegalArgumentException if serialized
+	 * content is not well-formed
 	 */
 	public Node getContent(){
-		return content;
+		Document v = content;
+		if(v == null &&
+				xmlContent != null){
+			synchronized(this){
+				v = content;
+				if(v == null){
+					v = (Document)DOMUtil.stringToNode(xmlContent);
+					this.content = v;
+				}
+			}
+		}
+		return v;
+	}
+
+	/**
+	 * Gets content in the serialized form if
+	 * this entity was built from the serialized
+	 * content, such content can be evaluated by
+	 * {@link org.xacml4j.v30.spi.xpath.StreamingXPathEvaluator}
+	 * without parsing it to DOM
+	 *
+	 * @return an XML string or {@code null}
+	 */
+	public String getXmlContent(){
+		return xmlContent;
 	}
 
 	/**
@@ -103,7 +142,7 @@ public final class Entity extends AttributeContainer
 	 * @return {@code true} if entity has content; returns {@code false} otherwise
 	 */
 	public boolean hasContent(){
-		return content != null;
+		return xmlContent != null || content != null;
 	}
 
 	public BagOfAttributeExp getAttributeValues(
@@ -115,6 +154,7 @@ public final class Entity extends AttributeContainer
 	{
 		try
 		{
+			Node content = getContent();
 			Node contextNode = content;
 			Collection<AttributeExp> v = getAttributeValues(
 						(contextSelectorId == null?CONTENT_SELECTOR:contextSelectorId),
@@ -234,13 +274,14 @@ public final class Entity extends AttributeContainer
 	public String toString(){
 		return MoreObjects.toStringHelper(this)
 		                  .add("attributes", attributes)
-		                  .add("content", (content != null)?DOMUtil.toString(content.getDocumentElement()):content)
+		                  .add("content", (xmlContent != null)?xmlContent:
+		                	  (content != null)?DOMUtil.toString(content.getDocumentElement()):null)
 		                  .toString();
 	}
 
 	@Override
 	public int hashCode(){
-		return Objects.hashCode(attributes, content);
+		return Objects.hashCode(attributes);
 	}
 
 	@Override
@@ -252,17 +293,84 @@ public final class Entity extends AttributeContainer
 			return false;
 		}
 		Entity a = (Entity) o;
-		return Objects.equal(attributes, a.attributes) &&
-				DOMUtil.isEqual(content, a.content);
+		if(!Objects.equal(attributes, a.attributes)){
+			return false;
+		}
+		if(xmlContent != null &&
+				xmlContent.equals(a.xmlContent)){
+			return true;
+		}
+		return DOMUtil.isEqual(getContent(), a.getContent());
 	}
 
 	public static class Builder
 		extends AttributeContainer.Builder<Builder>
 	{
-		private Node content;
+		private Document content;
+		private String xmlContent;
 
+		/**
+		 * Sets content DOM. A given document or
+		 * a document element is not copied, entity
+		 * takes ownership of its document and such
+		 * document must not be modified afterwards.
+		 * Any other node is copied to the new document
+		 *
+		 * @param node a content node
+		 * @return {@link Builder}
+		 */
 		public Builder content(Node node) {
-			this.content = DOMUtil.copyNode(node);
+			this.content = toDocument(node);
+			this.xmlContent = null;
+			return this;
+		}
+
+		private static Document toDocument(Node node){
+			if(node == null){
+				return null;
+			}
+			if(node.getNodeType() == Node.DOCUMENT_NODE){
+				return (Document)node;
+			}
+			Document doc = node.getOwnerDocument();
+			if(doc != null &&
+					doc.getDocumentElement() == node){
+				return doc;
+			}
+			return DOMUtil.copyNode(node);
+		}
+
+		/**
+		 * Sets content in the serialized form,
+		 * content is parsed to DOM only if
+		 * {@link Entity#getContent()} is called.
+		 * Content is not checked here, callers unmarshalling
+		 * untrusted content should reject malformed content via
+		 * {@link org.xacml4j.v30.spi.xpath.StreamingXPathEvaluator#checkWellFormed(String)},
+		 * otherwise malformed content fails selector evaluation
+		 * with {@link org.xacml4j.v30.pdp.XPathEvaluationException}
+		 *
+		 * @param xml an XML string
+		 * @return {@link Builder}
+		 */
+		public Builder xmlContent(String xml) {
+			this.xmlContent = xml;
+			this.content = null;
+			return this;
+		}
+
+		/**
+		 * Shares serialized content of a given entity
+		 * without copying it, a copy parses its own DOM
+		 * on first use. Content supplied as DOM is copied
+		 *
+		 * @param a an entity
+		 * @return {@link Builder}
+		 */
+		public Builder contentOf(Entity a){
+			Preconditions.checkNotNull(a);
+			this.xmlContent = a.xmlContent;
+			this.content = (a.xmlContent == null)?DOMUtil.copyNode(a.content):null;
 			return this;
 		}
 
@@ -270,10 +378,19 @@ public final class Entity extends AttributeContainer
 			return copyOf(a, Predicates.<Attribute>alwaysTrue());
 		}
 
+		/**
+		 * Copies attributes matching a given filter
+		 * from a given entity, serialized content is
+		 * shared with a given entity without copying it
+		 *
+		 * @param a an entity
+		 * @param f an attribute filter
+		 * @return {@link Builder}
+		 */
 		public Builder copyOf(Entity a,
 				Predicate<Attribute> f){
 			Preconditions.checkNotNull(a);
-			content(a.getContent());
+			contentOf(a);
 			attributes(Collections2.filter(a.getAttributes(), f));
 			return this;
 		}
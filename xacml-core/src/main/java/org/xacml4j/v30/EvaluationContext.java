@@ -97,6 +97,18 @@ public interface EvaluationContext
 	 */
 	Calendar getCurrentDateTime();
 
+	/**
+	 * Gets request current date/time, date/time
+	 * values are created on the first access.
+	 * Default implementation creates request time
+	 * from {@link #getCurrentDateTime()}
+	 *
+	 * @return {@link RequestTime} instance
+	 */
+	default RequestTime getRequestTime(){
+		return RequestTime.create(getCurrentDateTime());
+	}
+
 	/**
 	 * Tests if function parameters
 	 * need to be validate at runtime
@@ -166,6 +166,32 @@ public class IPAddress implements Serializable
 		return range;
 	}
 
+	/**
+	 * Tests if a given address belongs to the network
+	 * defined by this address and mask and its port
+	 * range is within this address port range. An address
+	 * without a mask defines a network of a single host.
+	 *
+	 * @param a an IP address
+	 * @return {@code true} if a given address
+	 * belongs to this network
+	 */
+	public boolean contains(IPAddress a){
+		if(isV4Address() != a.isV4Address()){
+			return false;
+		}
+		byte[] n = address.getAddress();
+		byte[] c = a.address.getAddress();
+		byte[] m = (mask != null)?mask.getAddress():null;
+		for(int i = 0; i < n.length; i++){
+			int b = (m != null)?m[i]:0xff;
+			if((n[i] & b) != (c[i] & b)){
+				return false;
+			}
+		}
+		return range.contains(a.range);
+	}
+
 	@Override
 	public String toString(){
 		return toXacmlString();
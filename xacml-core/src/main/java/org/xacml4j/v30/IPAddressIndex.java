@@ -0,0 +1,219 @@
+package org.xacml4j.v30;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import java.net.InetAddress;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * An immutable index over a set of {@link IPAddress} networks.
+ * <p>
+ * Networks with a contiguous mask, or without a mask, are
+ * stored in a binary prefix trie keyed by the network address
+ * bits, one trie per address family. A lookup walks the trie
+ * along the candidate address bits and checks port ranges
+ * of the networks found on the path, the cost of a lookup
+ * does not depend on the number of indexed networks.
+ * Networks with a non-contiguous mask are checked linearly.
+ * <p>
+ * {@link #contains(IPAddress)} is equivalent to testing
+ * {@link IPAddress#contains(IPAddress)} against every
+ * indexed network.
+ */
+public final class IPAddressIndex
+{
+	private final Node v4;
+	private final Node v6;
+	private final List<IPAddress> unindexed;
+	private final int size;
+
+	private IPAddressIndex(Iterable<IPAddress> addresses){
+		Preconditions.checkNotNull(addresses);
+		this.v4 = new Node();
+		this.v6 = new Node();
+		Collection<IPAddress> other = new LinkedList<IPAddress>();
+		int count = 0;
+		for(IPAddress a : addresses){
+			count++;
+			byte[] bytes = a.getAddress().getAddress();
+			int prefix = getPrefixLength(a.getMask(), bytes.length);
+			if(prefix < 0){
+				other.add(a);
+				continue;
+			}
+			Node n = a.isV4Address()?v4:v6;
+			for(int i = 0; i < prefix; i++){
+				n = n.getOrAddChild(bit(bytes, i));
+			}
+			n.add(a.getRange());
+		}
+		this.unindexed = ImmutableList.copyOf(other);
+		this.size = count;
+	}
+
+	/**
+	 * Creates an index over a given networks
+	 *
+	 * @param addresses a networks to index
+	 * @return {@link IPAddressIndex}
+	 */
+	public static IPAddressIndex of(Iterable<IPAddress> addresses){
+		return new IPAddressIndex(addresses);
+	}
+
+	/**
+	 * Gets number of indexed networks
+	 *
+	 * @return number of indexed networks
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * Tests if a given address belongs to
+	 * at least one of the indexed networks
+	 *
+	 * @param a an IP address
+	 * @return {@code true} if a given address
+	 * belongs to one of the indexed networks
+	 */
+	public boolean contains(IPAddress a){
+		Preconditions.checkNotNull(a);
+		byte[] bytes = a.getAddress().getAddress();
+		PortRange range = a.getRange();
+		Node n = a.isV4Address()?v4:v6;
+		int bits = bytes.length * 8;
+		for(int i = 0; n != null; i++){
+			if(n.matches(range)){
+				return true;
+			}
+			n = (i < bits)?n.getChild(bit(bytes, i)):null;
+		}
+		for(IPAddress network : unindexed){
+			if(network.contains(a)){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets prefix length of a given mask
+	 *
+	 * @param mask a network mask or {@code null}
+	 * @param length an address length in bytes
+	 * @return prefix length or {@code -1} if
+	 * a given mask is not contiguous
+	 */
+	private static int getPrefixLength(InetAddress mask, int length){
+		if(mask == null){
+			return length * 8;
+		}
+		byte[] bytes = mask.getAddress();
+		int prefix = 0;
+		while(prefix < bytes.length * 8 &&
+				bit(bytes, prefix) == 1){
+			prefix++;
+		}
+		for(int i = prefix; i < bytes.length * 8; i++){
+			if(bit(bytes, i) == 1){
+				return -1;
+			}
+		}
+		return prefix;
+	}
+
+	private static int bit(byte[] bytes, int i){
+		return (bytes[i >> 3] >> (7 - (i & 7))) & 1;
+	}
+
+	@Override
+	public String toString(){
+		return MoreObjects.toStringHelper(this)
+				.add("size", size)
+				.add("unindexed", unindexed.size())
+				.toString();
+	}
+
+	private final static class Node
+	{
+		private Node zero;
+		private Node one;
+		private boolean anyPort;
+		private List<PortRange> ranges;
+
+		Node getChild(int bit){
+			return (bit == 0)?zero:one;
+		}
+
+		Node getOrAddChild(int bit){
+			Node n = getChild(bit);
+			if(n == null){
+				n = new Node();
+				if(bit == 0){
+					this.zero = n;
+				}else{
+					this.one = n;
+				}
+			}
+			return n;
+		}
+
+		void add(PortRange range){
+			if(range.isUnbound()){
+				this.anyPort = true;
+				this.ranges = null;
+				return;
+			}
+			if(anyPort){
+				return;
+			}
+			if(ranges == null){
+				this.ranges = new LinkedList<PortRange>();
+			}
+			ranges.add(range);
+		}
+
+		boolean matches(PortRange range){
+			if(anyPort){
+				return true;
+			}
+			if(ranges == null){
+				return false;
+			}
+			for(PortRange r : ranges){
+				if(r.contains(range)){
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
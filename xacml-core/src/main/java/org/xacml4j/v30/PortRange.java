@@ -193,9 +193,20 @@ public final class PortRange implements Serializable
 		(!isUpperBounded() || port <= upperBound);
 	}
 
+	/**
+	 * Tests if a given range is in this range,
+	 * an unbound end of a given range is only
+	 * contained by an unbound end of this range
+	 *
+	 * @param range a port range
+	 * @return {@code true} if a given range
+	 * is in this range
+	 */
 	public boolean contains(PortRange range){
-		return contains(range.getLowerBound()) &&
-		contains(range.getUpperBound());
+		return (!isLowerBounded() ||
+				(range.isLowerBounded() && lowerBound <= range.lowerBound)) &&
+				(!isUpperBounded() ||
+				(range.isUpperBounded() && range.upperBound <= upperBound));
 	}
 
 	/**
@@ -179,16 +179,15 @@ public final class RFC822Name implements Serializable
 		this.fqName = this.localPart + '@' + this.domainPart;
 	}
 
+	/**
+	 * Tests if this name matches a given
+	 * rfc822Name-match pattern, see {@link RFC822NamePattern}
+	 *
+	 * @param pattern a pattern
+	 * @return {@code true} if this name matches a given pattern
+	 */
 	public boolean matches(String pattern){
-		int pos = pattern.indexOf('@');
-		if(pos != -1){
-			RFC822Name n = RFC822Name.parse(pattern);
-			return n.equals(this);
-		}
-		if (pattern.charAt(0) == '.') {
-             return domainPart.endsWith(pattern.toLowerCase());
-		}
-		return domainPart.equalsIgnoreCase(pattern);
+		return RFC822NamePattern.compile(pattern).matches(this);
 	}
 
 	public String getLocalPart(){
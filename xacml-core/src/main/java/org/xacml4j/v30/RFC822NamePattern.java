@@ -0,0 +1,94 @@
+package org.xacml4j.v30;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+/**
+ * A compiled pattern of XACML rfc822Name-match function.
+ * <p>
+ * A pattern is either a mailbox matching a name with the same
+ * local part and domain, a domain matching all names on a given
+ * host or a domain starting with a dot matching all names in
+ * a given domain. A pattern is parsed and normalized once,
+ * {@link RFC822Name} values are already normalized. Constant
+ * patterns of a policy are compiled once when a policy is built
+ */
+public final class RFC822NamePattern
+{
+	private final String pattern;
+	private final RFC822Name mailbox;
+	private final String domain;
+	private final boolean subdomains;
+
+	private RFC822NamePattern(String pattern){
+		Preconditions.checkNotNull(pattern);
+		Preconditions.checkArgument(!pattern.isEmpty(),
+				"Given rfc822Name pattern is empty");
+		this.pattern = pattern;
+		if(pattern.indexOf('@') != -1){
+			this.mailbox = RFC822Name.parse(pattern);
+			this.domain = null;
+			this.subdomains = false;
+			return;
+		}
+		this.mailbox = null;
+		this.domain = pattern.toLowerCase();
+		this.subdomains = (pattern.charAt(0) == '.');
+	}
+
+	/**
+	 * Compiles a given rfc822Name-match pattern
+	 *
+	 * @param pattern a pattern
+	 * @return {@link RFC822NamePattern}
+	 * @exception IllegalArgumentException if a given
+	 * pattern is not a valid pattern
+	 */
+	public static RFC822NamePattern compile(String pattern){
+		return new RFC822NamePattern(pattern);
+	}
+
+	/**
+	 * Tests if a given name matches this pattern
+	 *
+	 * @param name a name
+	 * @return {@code true} if a given name matches this pattern
+	 */
+	public boolean matches(RFC822Name name){
+		if(mailbox != null){
+			return mailbox.equals(name);
+		}
+		return subdomains?
+				name.getDomainPart().endsWith(domain):
+				name.getDomainPart().equals(domain);
+	}
+
+	@Override
+	public String toString(){
+		return MoreObjects.toStringHelper(this)
+				.add("pattern", pattern)
+				.toString();
+	}
+}
@@ -0,0 +1,182 @@
+package org.xacml4j.v30;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+import org.xacml4j.v30.types.DateExp;
+import org.xacml4j.v30.types.DateTimeExp;
+import org.xacml4j.v30.types.TimeExp;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+/**
+ * A current date and time of an access decision request.
+ * <p>
+ * The clock is read only when the current date/time is
+ * requested for the first time, the XACML environment
+ * values are created on demand and then shared by all
+ * evaluation contexts using this instance, e.g. all
+ * individual requests of a multiple decision request
+ */
+public final class RequestTime
+{
+	private final Clock clock;
+
+	private volatile OffsetDateTime now;
+	private volatile DateTimeExp dateTime;
+	private volatile DateExp date;
+	private volatile TimeExp time;
+	private volatile Calendar calendar;
+
+	private RequestTime(Clock clock){
+		Preconditions.checkNotNull(clock);
+		this.clock = clock;
+	}
+
+	/**
+	 * Creates request time using system UTC clock
+	 *
+	 * @return {@link RequestTime}
+	 */
+	public static RequestTime create(){
+		return new RequestTime(Clock.systemUTC());
+	}
+
+	/**
+	 * Creates request time using a given clock
+	 *
+	 * @param clock a clock
+	 * @return {@link RequestTime}
+	 */
+	public static RequestTime create(Clock clock){
+		return new RequestTime(clock);
+	}
+
+	/**
+	 * Creates request time fixed to
+	 * a given date/time and its time-zone
+	 *
+	 * @param now a current date/time
+	 * @return {@link RequestTime}
+	 */
+	public static RequestTime create(Calendar now){
+		Preconditions.checkNotNull(now);
+		return new RequestTime(Clock.fixed(
+				now.toInstant(), now.getTimeZone().toZoneId()));
+	}
+
+	/**
+	 * Gets current date and time, the clock
+	 * is read on the first invocation
+	 *
+	 * @return {@link OffsetDateTime}
+	 */
+	public OffsetDateTime getNow(){
+		OffsetDateTime v = now;
+		if(v == null){
+			synchronized(this){
+				v = now;
+				if(v == null){
+					v = OffsetDateTime.now(clock);
+					this.now = v;
+				}
+			}
+		}
+		return v;
+	}
+
+	/**
+	 * Gets current date and time as XACML
+	 * {@code dateTime} value
+	 *
+	 * @return {@link DateTimeExp}
+	 */
+	public DateTimeExp getDateTime(){
+		DateTimeExp v = dateTime;
+		if(v == null){
+			v = DateTimeExp.of(DateTime.create(getNow()));
+			this.dateTime = v;
+		}
+		return v;
+	}
+
+	/**
+	 * Gets current date as XACML
+	 * {@code date} value
+	 *
+	 * @return {@link DateExp}
+	 */
+	public DateExp getDate(){
+		DateExp v = date;
+		if(v == null){
+			v = DateExp.of(Date.valueOf(getNow()));
+			this.date = v;
+		}
+		return v;
+	}
+
+	/**
+	 * Gets current time as XACML
+	 * {@code time} value
+	 *
+	 * @return {@link TimeExp}
+	 */
+	public TimeExp getTime(){
+		TimeExp v = time;
+		if(v == null){
+			v = TimeExp.of(Time.valueOf(getNow()));
+			this.time = v;
+		}
+		return v;
+	}
+
+	/**
+	 * Gets current date and time as {@link Calendar},
+	 * an instance is created on the first invocation
+	 * and must not be modified by the callers
+	 *
+	 * @return {@link Calendar}
+	 */
+	public Calendar toCalendar(){
+		Calendar v = calendar;
+		if(v == null){
+			v = GregorianCalendar.from(getNow().toZonedDateTime());
+			this.calendar = v;
+		}
+		return v;
+	}
+
+	@Override
+	public String toString(){
+		return MoreObjects
+				.toStringHelper(this)
+				.add("clock", clock)
+				.add("now", now)
+				.toString();
+	}
+}
@@ -22,6 +22,8 @@ package org.xacml4j.v30;
  * #L%
  */
 
+import java.time.OffsetDateTime;
+import java.util.Calendar;
 import java.util.GregorianCalendar;
 
 import javax.xml.datatype.DatatypeConstants;
@@ -33,50 +35,94 @@ public class Time extends BaseCalendar<Time>
 {
 	private static final long serialVersionUID = -5881356998754053591L;
 
+	/**
+	 * {@code false} if this time was created from
+	 * {@link XMLGregorianCalendar} without a timezone
+	 */
+	private final boolean timezoneSet;
+
 	public Time(XMLGregorianCalendar value) {
-		super(value);
+		this(parseTime(value), parseFractionDigits(value), isTimezoneSet(value));
+	}
+
+	private Time(OffsetDateTime value, int fractionDigits, boolean timezoneSet) {
+		super(value, fractionDigits);
+		this.timezoneSet = timezoneSet;
 	}
 
 	/**
 	 * Creates {@link Time} from a given
 	 * object instance, supported types are:
 	 * {@link String}, {@link GregorianCalendar},
-	 * {@link XMLGregorianCalendar}
+	 * {@link OffsetDateTime}, {@link XMLGregorianCalendar}
 	 *
 	 * @param v source time object
 	 * @return {@link Time} instance
 	 */
 	public static Time valueOf(Object v){
-		return new Time(parseTime(v));
+		return new Time(parseTime(v),
+				(v instanceof Calendar || v instanceof OffsetDateTime)?0:parseFractionDigits(v),
+				isTimezoneSet(v));
+	}
+
+	private static boolean isTimezoneSet(Object v){
+		return !(v instanceof XMLGregorianCalendar) ||
+				((XMLGregorianCalendar)v).getTimezone() != DatatypeConstants.FIELD_UNDEFINED;
 	}
 
 	public int getHour(){
-		return calendar.getHour();
+		return value.getHour();
 	}
 
 	public int getMinute(){
-		return calendar.getMinute();
+		return value.getMinute();
 	}
 
 	public int getSecond(){
-		return calendar.getSecond();
+		return value.getSecond();
 	}
 
 	public int getMillisecond(){
-		return calendar.getMillisecond();
+		return value.getNano() / 1000000;
 	}
 
+	@Override
 	public int getTimezoneOffset(){
 		Preconditions.checkState(isTimezoneSet());
-		return calendar.getTimezone();
+		return super.getTimezoneOffset();
 	}
 
+	/**
+	 * Tests if this time has a timezone, a time
+	 * parsed from a string without an explicit
+	 * timezone is treated as UTC time. A time created
+	 * from {@link XMLGregorianCalendar} without a timezone
+	 * has no timezone and is compared as UTC time
+	 *
+	 * @return {@code true} if this time has a timezone
+	 */
 	public boolean isTimezoneSet(){
-		return calendar.getTimezone() != DatatypeConstants.FIELD_UNDEFINED;
+		return timezoneSet;
+	}
+
+	@Override
+	public String toXacmlString(){
+		if(timezoneSet){
+			return super.toXacmlString();
+		}
+		StringBuilder b = new StringBuilder(16);
+		formatValue(b);
+		return b.toString();
+	}
+
+	@Override
+	protected void formatValue(StringBuilder b) {
+		formatTime(b);
 	}
 
 	@Override
-	protected Time makeCalendar(XMLGregorianCalendar c) {
-		return new Time(c);
+	protected Time makeCalendar(OffsetDateTime v, int fractionDigits) {
+		return new Time(v.toLocalTime().atDate(REFERENCE_DATE)
+				.atOffset(v.getOffset()), fractionDigits, timezoneSet);
 	}
 }
@@ -25,6 +25,7 @@ package org.xacml4j.v30;
 import java.util.regex.Pattern;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.Range;
 
 public class VersionMatch
 {
@@ -40,6 +41,7 @@ public class VersionMatch
 
 	private final String pattern;
     private final Pattern compiledPattern;
+    private final Range<Version> range;
 
 	/**
      * Constructs version match constraint
@@ -67,6 +69,7 @@ public class VersionMatch
     	}
         this.pattern = versionMatchPattern;
         this.compiledPattern = Pattern.compile(convertVersionMatchToJavaRE(versionMatchPattern));
+        this.range = toRange(versionMatchPattern);
     }
 
     /**
@@ -81,6 +84,71 @@ public class VersionMatch
     	return compiledPattern.matcher(version.getValue()).matches();
     }
 
+    /**
+     * Gets a range of versions which contains all
+     * versions matching this constraint. A constraint
+     * without wildcards is a single version range, a range
+     * of a constraint with wildcards is bounded by numbers
+     * preceding the first wildcard, i.e. '1.2.+' and '1.2.*.1'
+     * are in the range of ['1.2', '1.3'). A range may contain
+     * versions not matching this constraint, such versions
+     * are rejected via {@link #match(Version)}
+     *
+     * @return a range of versions
+     */
+    public Range<Version> getRange() {
+    	return range;
+    }
+
+    /**
+     * A helper method to convert a given
+     * version match constraint to a range of
+     * versions matching the constraint
+     *
+     * @param pattern an XACML version match constraint
+     * @return a range of versions
+     */
+    private static Range<Version> toRange(String pattern)
+    {
+    	String[] components = DOT_PATTERN.split(pattern);
+    	int prefix = 0;
+    	while(prefix < components.length &&
+    			!components[prefix].equals("*") &&
+    			!components[prefix].equals("+")){
+    		prefix++;
+    	}
+    	if(prefix == 0){
+    		return Range.all();
+    	}
+    	try{
+    		if(prefix == components.length){
+    			return Range.singleton(Version.parse(pattern));
+    		}
+    		StringBuilder lower = new StringBuilder();
+    		StringBuilder upper = new StringBuilder();
+    		for(int i = 0; i < prefix; i++){
+    			if(i > 0){
+    				lower.append('.');
+    				upper.append('.');
+    			}
+    			int v = Integer.parseInt(components[i]);
+    			lower.append(v);
+    			if(i == prefix - 1){
+    				if(v == Integer.MAX_VALUE){
+    					return Range.atLeast(Version.parse(lower.toString()));
+    				}
+    				v++;
+    			}
+    			upper.append(v);
+    		}
+    		return Range.closedOpen(
+    				Version.parse(lower.toString()),
+    				Version.parse(upper.toString()));
+    	}catch(IllegalArgumentException e){
+    		return Range.all();
+    	}
+    }
+
     /**
      * A helper method to convert XACML version
      * match regular expression to java regular
@@ -22,6 +22,10 @@ package org.xacml4j.v30;
  * #L%
  */
 
+import java.time.OffsetDateTime;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import javax.xml.datatype.DatatypeConstants;
 import javax.xml.datatype.Duration;
 
@@ -31,38 +35,129 @@ public final class YearMonthDuration extends BaseDuration<YearMonthDuration>
 {
 	private static final long serialVersionUID = -1840184626138996986L;
 
+	private static final Pattern PATTERN = Pattern.compile("(-)?P(?:(\\d+)Y)?(?:(\\d+)M)?");
+
+	private final int months;
+
+	private YearMonthDuration(int months) {
+		this.months = months;
+	}
+
 	public YearMonthDuration(Duration v) {
-		super(v);
 		Preconditions.checkArgument(!(v.isSet(DatatypeConstants.DAYS)
 				|| v.isSet(DatatypeConstants.HOURS)
 				|| v.isSet(DatatypeConstants.MINUTES)
 				|| v.isSet(DatatypeConstants.SECONDS)),
 				"Given XML duration value=\"%s\" does " +
 				"not represents YearMonth duration", v.toString());
+		this.months = v.getSign() * Math.addExact(
+				Math.multiplyExact(v.getYears(), 12), v.getMonths());
 	}
 
 	public YearMonthDuration(boolean positive, int years, int  months) {
-		this(df.newDurationYearMonth(positive, years, months));
+		this((positive?1:-1) * Math.addExact(Math.multiplyExact(years, 12), months));
 	}
 
 	public int getYears(){
-		return getDuration().getYears();
+		return Math.abs(months) / 12;
 	}
 
 	public final int getMonths(){
-		return getDuration().getMonths();
+		return Math.abs(months) % 12;
+	}
+
+	/**
+	 * Gets total number of months
+	 * in this duration
+	 *
+	 * @return a signed number of months
+	 */
+	public int toTotalMonths(){
+		return months;
 	}
 
 	public static YearMonthDuration create(Object any){
 		if(any instanceof YearMonthDuration){
 			return (YearMonthDuration)any;
 		}
-		Duration d = parseDuration(any);
-		return new YearMonthDuration(d);
+		if(any instanceof Duration){
+			return new YearMonthDuration((Duration)any);
+		}
+		Preconditions.checkArgument(any instanceof String,
+				"Unsupported duration value type=\"%s\"", any);
+		String s = ((String)any).trim();
+		Matcher m = PATTERN.matcher(s);
+		Preconditions.checkArgument(m.matches() &&
+				(m.group(2) != null || m.group(3) != null),
+				"Given value=\"%s\" does not represent yearMonthDuration", s);
+		int years = (m.group(2) == null)?0:Integer.parseInt(m.group(2));
+		int months = (m.group(3) == null)?0:Integer.parseInt(m.group(3));
+		return new YearMonthDuration(m.group(1) == null, years, months);
+	}
+
+	@Override
+	public String toXacmlString(){
+		if(months == 0){
+			return "P0M";
+		}
+		StringBuilder b = new StringBuilder(12);
+		if(months < 0){
+			b.append('-');
+		}
+		b.append('P');
+		if(getYears() > 0){
+			b.append(getYears()).append('Y');
+		}
+		if(getMonths() > 0){
+			b.append(getMonths()).append('M');
+		}
+		return b.toString();
+	}
+
+	@Override
+	protected int signum(){
+		return Integer.signum(months);
+	}
+
+	@Override
+	OffsetDateTime addTo(OffsetDateTime v, boolean negate){
+		return v.plusMonths(negate?-(long)months:months);
+	}
+
+	@Override
+	public YearMonthDuration add(YearMonthDuration d){
+		return new YearMonthDuration(Math.addExact(months, d.months));
 	}
 
 	@Override
-	protected YearMonthDuration makeDuration(Duration d){
-		return new YearMonthDuration(d);
+	public YearMonthDuration subtract(YearMonthDuration d){
+		return new YearMonthDuration(Math.subtractExact(months, d.months));
+	}
+
+	@Override
+	public YearMonthDuration negate(){
+		return new YearMonthDuration(Math.negateExact(months));
+	}
+
+	@Override
+	public int compareTo(YearMonthDuration o) {
+		return Integer.signum(Integer.compare(months, o.months));
+	}
+
+	@Override
+	public int hashCode(){
+		return months;
+	}
+
+	@Override
+	public boolean equals(Object o){
+		if(o == this){
+			return true;
+		}
+		if(!(o instanceof YearMonthDuration)){
+			return false;
+		}
+		YearMonthDuration d = (YearMonthDuration)o;
+		return months == d.months;
 	}
 }
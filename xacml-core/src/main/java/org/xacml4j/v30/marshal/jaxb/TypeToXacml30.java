@@ -230,7 +230,7 @@ public interface TypeToXacml30 extends TypeCapability
 				Entity entity = ((EntityExp)v).getValue();
 				if(entity.getContent() != null){
 					ContentType content = new ContentType();
-					content.getContent().add(DOMUtil.copyNode(entity.getContent()));
+					content.getContent().add(DOMUtil.getElementNode(entity.getContent()));
 					xacml30.getContent().add(XACML30_FACTORY.createContent(content));
 				}
 				for(Attribute a : entity.getAttributes()){
@@ -49,6 +49,13 @@ public class Apply implements Expression
 	private final FunctionSpec spec;
 	private final List<Expression> arguments;
 
+	/**
+	 * An evaluation of this application prepared when
+	 * it is built or {@code null}, see {@link IPAddressNetworkIsIn}
+	 * and {@link RFC822NameMatch}
+	 */
+	private final CompiledApply compiled;
+
 	private final int hashCode;
 
 	/**
@@ -61,9 +68,15 @@ public class Apply implements Expression
 	{
 		this.spec = b.func;
 		this.arguments = b.paramsBuilder.build();
+		this.compiled = compile(spec, arguments);
 		this.hashCode = Objects.hashCode(spec, arguments);
 	}
 
+	private static CompiledApply compile(FunctionSpec spec, List<Expression> arguments){
+		CompiledApply c = IPAddressNetworkIsIn.create(spec, arguments);
+		return (c != null)?c:RFC822NameMatch.create(spec, arguments);
+	}
+
 	/**
 	 * Creates {@link Apply} builder with
 	 * a given function
@@ -110,6 +123,9 @@ public class Apply implements Expression
 		throws EvaluationException
 	{
 		try{
+			if(compiled != null){
+				return compiled.evaluate(context);
+			}
 			return spec.invoke(context, arguments);
 		}catch(EvaluationException e){
 			throw e;
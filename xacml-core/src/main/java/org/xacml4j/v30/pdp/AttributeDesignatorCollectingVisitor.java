@@ -0,0 +1,370 @@
+package org.xacml4j.v30.pdp;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xacml4j.v30.AttributeDesignatorKey;
+import org.xacml4j.v30.AttributeExp;
+import org.xacml4j.v30.AttributeSelectorKey;
+import org.xacml4j.v30.BagOfAttributeExp;
+import org.xacml4j.v30.CompositeDecisionRule;
+import org.xacml4j.v30.EvaluationContext;
+import org.xacml4j.v30.MatchResult;
+import org.xacml4j.v30.Status;
+import org.xacml4j.v30.spi.repository.PolicyReferenceResolver;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * A {@link PolicyVisitor} implementation to collect
+ * {@link AttributeDesignatorKey} and {@link AttributeSelectorKey}
+ * instances referenced by targets, conditions and variable
+ * definitions of a given
+ * policy subtree, policy references are followed via
+ * {@link PolicyReferenceResolver}. If an evaluation context
+ * is given, rules, policies and policy sets with a target
+ * which does not match attributes present in the request
+ * are not reachable and are skipped
+ */
+final class AttributeDesignatorCollectingVisitor
+	extends PolicyVisitorSupport
+	implements DefaultExpressionVisitor
+{
+	private final static Logger log = LoggerFactory.getLogger(AttributeDesignatorCollectingVisitor.class);
+
+	private final PolicyReferenceResolver resolver;
+	private final Set<AttributeDesignatorKey> keys;
+	private final Set<AttributeSelectorKey> selectors;
+	private final Set<CompositeDecisionRule> visited;
+	private final EvaluationContext context;
+	private final Predicate<AttributeDesignatorKey> inRequest;
+
+	/**
+	 * A rule, policy or policy set which
+	 * subtree is being skipped or {@code null}
+	 */
+	private Object skipped;
+
+	private AttributeDesignatorCollectingVisitor(
+			PolicyReferenceResolver resolver,
+			EvaluationContext context,
+			Predicate<AttributeDesignatorKey> inRequest){
+		this.resolver = resolver;
+		this.context = context;
+		this.inRequest = inRequest;
+		this.keys = new LinkedHashSet<AttributeDesignatorKey>();
+		this.selectors = new LinkedHashSet<AttributeSelectorKey>();
+		this.visited = new HashSet<CompositeDecisionRule>();
+	}
+
+	/**
+	 * Collects attribute designators which may be
+	 * needed to evaluate a given policy subtree
+	 *
+	 * @param rule a root of the policy subtree
+	 * @param resolver a policy reference resolver
+	 * @return a set of {@link AttributeDesignatorKey}
+	 */
+	public static Set<AttributeDesignatorKey> collect(
+			CompositeDecisionRule rule,
+			PolicyReferenceResolver resolver)
+	{
+		Preconditions.checkNotNull(rule);
+		Preconditions.checkNotNull(resolver);
+		AttributeDesignatorCollectingVisitor v = new AttributeDesignatorCollectingVisitor(
+				resolver, null, null);
+		v.visit(rule);
+		return ImmutableSet.copyOf(v.keys);
+	}
+
+	/**
+	 * Collects attribute selectors which may be
+	 * needed to evaluate a given policy subtree
+	 *
+	 * @param rule a root of the policy subtree
+	 * @param resolver a policy reference resolver
+	 * @return a set of {@link AttributeSelectorKey}
+	 */
+	public static Set<AttributeSelectorKey> collectSelectors(
+			CompositeDecisionRule rule,
+			PolicyReferenceResolver resolver)
+	{
+		Preconditions.checkNotNull(rule);
+		Preconditions.checkNotNull(resolver);
+		AttributeDesignatorCollectingVisitor v = new AttributeDesignatorCollectingVisitor(
+				resolver, null, null);
+		v.visit(rule);
+		return ImmutableSet.copyOf(v.selectors);
+	}
+
+	/**
+	 * Collects attribute designators which may be needed
+	 * to evaluate a given policy subtree for a given request,
+	 * targets are matched only against designators present
+	 * in the request, other designators are never resolved
+	 *
+	 * @param rule a root of the policy subtree
+	 * @param resolver a policy reference resolver
+	 * @param context a request evaluation context
+	 * @param inRequest a predicate to test if
+	 * designator values are present in the request
+	 * @return a set of {@link AttributeDesignatorKey}
+	 */
+	public static Set<AttributeDesignatorKey> collect(
+			CompositeDecisionRule rule,
+			PolicyReferenceResolver resolver,
+			EvaluationContext context,
+			Predicate<AttributeDesignatorKey> inRequest)
+	{
+		Preconditions.checkNotNull(rule);
+		Preconditions.checkNotNull(resolver);
+		Preconditions.checkNotNull(context);
+		Preconditions.checkNotNull(inRequest);
+		AttributeDesignatorCollectingVisitor v = new AttributeDesignatorCollectingVisitor(
+				resolver, new DelegatingEvaluationContext(context) {
+					@Override
+					public void setEvaluationStatus(Status status) {
+						// a status of the request evaluation is not affected
+					}
+				}, inRequest);
+		v.visit(rule);
+		return ImmutableSet.copyOf(v.keys);
+	}
+
+	@Override
+	public void visitEnter(Rule rule) {
+		enter(rule, rule.getTarget());
+	}
+
+	@Override
+	public void visitLeave(Rule rule) {
+		leave(rule);
+	}
+
+	@Override
+	public void visitEnter(Policy policy) {
+		enter(policy, policy.getTarget());
+	}
+
+	@Override
+	public void visitLeave(Policy policy) {
+		leave(policy);
+	}
+
+	@Override
+	public void visitEnter(PolicySet policySet) {
+		enter(policySet, policySet.getTarget());
+	}
+
+	@Override
+	public void visitLeave(PolicySet policySet) {
+		leave(policySet);
+	}
+
+	private void enter(Object rule, Target target) {
+		if(skipped == null &&
+				!isReachable(target)){
+			if(log.isDebugEnabled()){
+				log.debug("Target=\"{}\" does not match, skipping=\"{}\"", target, rule);
+			}
+			this.skipped = rule;
+		}
+	}
+
+	private void leave(Object rule) {
+		if(skipped == rule){
+			this.skipped = null;
+		}
+	}
+
+	/**
+	 * Tests if a given target may match the request, a target
+	 * does not match if any of its {@link MatchAnyOf} elements
+	 * has all {@link MatchAllOf} elements with a {@link Match}
+	 * not matching attributes present in the request
+	 *
+	 * @param target a target or {@code null}
+	 * @return {@code false} if a target can not match
+	 */
+	private boolean isReachable(Target target) {
+		if(context == null ||
+				target == null){
+			return true;
+		}
+		for(MatchAnyOf anyOf : target.getAnyOf()){
+			boolean reachable = anyOf.getAllOf().isEmpty();
+			for(MatchAllOf allOf : anyOf.getAllOf()){
+				if(!isNoMatch(allOf)){
+					reachable = true;
+					break;
+				}
+			}
+			if(!reachable){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isNoMatch(MatchAllOf allOf) {
+		for(Match m : allOf.getMatch()){
+			if(m.getReference() instanceof AttributeDesignator &&
+					inRequest.apply(((AttributeDesignator)m.getReference()).getReferenceKey()) &&
+					m.match(context) == MatchResult.NOMATCH){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void visitEnter(Match match) {
+		if(skipped != null){
+			return;
+		}
+		if(match.getReference() instanceof AttributeDesignator){
+			keys.add(((AttributeDesignator)match.getReference()).getReferenceKey());
+		}
+		if(match.getReference() instanceof AttributeSelector){
+			selectors.add(((AttributeSelector)match.getReference()).getReferenceKey());
+		}
+	}
+
+	@Override
+	public void visitEnter(Condition condition) {
+		if(skipped == null){
+			condition.getExpression().accept(this);
+		}
+	}
+
+	@Override
+	public void visitEnter(VariableDefinition var) {
+		if(skipped == null){
+			var.getExpression().accept(this);
+		}
+	}
+
+	@Override
+	public void visitEnter(PolicyIDReference ref) {
+		if(skipped != null){
+			return;
+		}
+		try{
+			visit(resolver.resolve(ref));
+		}catch(Exception e){
+			if(log.isDebugEnabled()){
+				log.debug("Failed to resolve reference=\"{}\"", ref, e);
+			}
+		}
+	}
+
+	@Override
+	public void visitEnter(PolicySetIDReference ref) {
+		if(skipped != null){
+			return;
+		}
+		try{
+			visit(resolver.resolve(ref));
+		}catch(Exception e){
+			if(log.isDebugEnabled()){
+				log.debug("Failed to resolve reference=\"{}\"", ref, e);
+			}
+		}
+	}
+
+	private void visit(CompositeDecisionRule rule){
+		if(rule != null &&
+				visited.add(rule)){
+			rule.accept(this);
+		}
+	}
+
+	@Override
+	public void visitEnter(AttributeDesignator v) {
+		if(skipped == null){
+			keys.add(v.getReferenceKey());
+		}
+	}
+
+	@Override
+	public void visitLeave(AttributeDesignator v) {
+	}
+
+	@Override
+	public void visitEnter(Apply v) {
+	}
+
+	@Override
+	public void visitLeave(Apply v) {
+	}
+
+	@Override
+	public void visitEnter(BagOfAttributeExp v) {
+	}
+
+	@Override
+	public void visitLeave(BagOfAttributeExp v) {
+	}
+
+	@Override
+	public void visitEnter(AttributeExp v) {
+	}
+
+	@Override
+	public void visitLeave(AttributeExp v) {
+	}
+
+	@Override
+	public void visitEnter(AttributeSelector v) {
+		if(skipped == null){
+			selectors.add(v.getReferenceKey());
+		}
+	}
+
+	@Override
+	public void visitLeave(AttributeSelector v) {
+	}
+
+	@Override
+	public void visitEnter(VariableReference var) {
+	}
+
+	@Override
+	public void visitLeave(VariableReference var) {
+	}
+
+	@Override
+	public void visitEnter(FunctionReference v) {
+	}
+
+	@Override
+	public void visitLeave(FunctionReference v) {
+	}
+}
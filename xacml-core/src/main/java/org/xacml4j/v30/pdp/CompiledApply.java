@@ -0,0 +1,45 @@
+package org.xacml4j.v30.pdp;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import org.xacml4j.v30.EvaluationContext;
+import org.xacml4j.v30.EvaluationException;
+import org.xacml4j.v30.ValueExpression;
+
+/**
+ * An evaluation of an {@link Apply} prepared once when a
+ * policy is built, e.g. a function applied to constant
+ * arguments compiled to the evaluation specific form
+ */
+interface CompiledApply
+{
+	/**
+	 * Evaluates a compiled function application
+	 *
+	 * @param context an evaluation context
+	 * @return {@link ValueExpression}
+	 * @throws EvaluationException if an evaluation fails
+	 */
+	ValueExpression evaluate(EvaluationContext context)
+		throws EvaluationException;
+}
@@ -0,0 +1,124 @@
+package org.xacml4j.v30.pdp;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.xacml4j.v30.AttributeSelectorKey;
+import org.xacml4j.v30.CategoryId;
+import org.xacml4j.v30.spi.xpath.SimpleXPath;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Simple attribute selector paths seen by a decision point
+ * grouped by a category. Once a path was used by policies
+ * it is extracted together with all other known paths of the
+ * same category in a single pass over the serialized request
+ * content, see {@link org.xacml4j.v30.spi.xpath.StreamingXPathEvaluator}
+ */
+final class ContentSelectorPaths
+{
+	private final ConcurrentMap<CategoryId, Set<SimpleXPath>> paths;
+	private final Cache<String, Optional<SimpleXPath>> compiled;
+
+	ContentSelectorPaths(){
+		this.paths = new ConcurrentHashMap<CategoryId, Set<SimpleXPath>>();
+		this.compiled = CacheBuilder.newBuilder()
+				.maximumSize(1024)
+				.build();
+	}
+
+	/**
+	 * Compiles a given XPath expression to {@link SimpleXPath}
+	 *
+	 * @param path an XPath expression
+	 * @return {@link SimpleXPath} or {@link Optional#absent()}
+	 * if a given expression is not a simple path
+	 */
+	Optional<SimpleXPath> compile(String path){
+		Optional<SimpleXPath> p = compiled.getIfPresent(path);
+		if(p == null){
+			p = SimpleXPath.parse(path);
+			compiled.put(path, p);
+		}
+		return p;
+	}
+
+	/**
+	 * Adds a given path to the paths of a given category
+	 *
+	 * @param category a category
+	 * @param path a path
+	 */
+	void add(CategoryId category, SimpleXPath path){
+		Preconditions.checkNotNull(category);
+		Preconditions.checkNotNull(path);
+		Set<SimpleXPath> v = paths.get(category);
+		if(v == null){
+			Set<SimpleXPath> newPaths = Collections.newSetFromMap(
+					new ConcurrentHashMap<SimpleXPath, Boolean>());
+			v = paths.putIfAbsent(category, newPaths);
+			v = (v == null)?newPaths:v;
+		}
+		v.add(path);
+	}
+
+	/**
+	 * Adds simple paths of given selectors, i.e. selectors
+	 * referenced by the domain policy, to extract them in the
+	 * first pass over content instead of passing over content
+	 * again for each newly seen path
+	 *
+	 * @param selectors attribute selectors
+	 */
+	void addAll(Iterable<AttributeSelectorKey> selectors){
+		for(AttributeSelectorKey ref : selectors){
+			if(ref.getContextSelectorId() != null){
+				continue;
+			}
+			Optional<SimpleXPath> path = compile(ref.getPath());
+			if(path.isPresent()){
+				add(ref.getCategory(), path.get());
+			}
+		}
+	}
+
+	/**
+	 * Gets all known paths of a given category
+	 *
+	 * @param category a category
+	 * @return a collection of paths
+	 */
+	Collection<SimpleXPath> get(CategoryId category){
+		Set<SimpleXPath> v = paths.get(category);
+		return (v == null)?Collections.<SimpleXPath>emptySet():v;
+	}
+}
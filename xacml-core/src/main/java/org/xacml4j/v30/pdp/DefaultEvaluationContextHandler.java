@@ -22,11 +22,16 @@ package org.xacml4j.v30.pdp;
  * #L%
  */
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.ExecutorService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,7 +50,12 @@ import org.xacml4j.v30.Entity;
 import org.xacml4j.v30.EvaluationContext;
 import org.xacml4j.v30.EvaluationException;
 import org.xacml4j.v30.Status;
+import org.xacml4j.v30.spi.pip.AttributeResolver;
+import org.xacml4j.v30.spi.pip.AttributeSet;
+import org.xacml4j.v30.spi.pip.Content;
 import org.xacml4j.v30.spi.pip.PolicyInformationPoint;
+import org.xacml4j.v30.spi.xpath.SimpleXPath;
+import org.xacml4j.v30.spi.xpath.StreamingXPathEvaluator;
 import org.xacml4j.v30.spi.xpath.XPathProvider;
 import org.xacml4j.v30.types.TypeToString;
 import org.xacml4j.v30.types.XPathExp;
@@ -53,6 +63,9 @@ import org.xacml4j.v30.types.XacmlTypes;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.io.ByteSource;
 
 class DefaultEvaluationContextHandler
 	implements EvaluationContextHandler
@@ -66,7 +79,13 @@ class DefaultEvaluationContextHandler
 
 	private RequestContextCallback requestCallback;
 
-	private Map<CategoryId, Node> contentCache;
+	private Map<CategoryId, Content> contentCache;
+	private Map<CategoryId, Node> parsedContent;
+	private Map<AttributeDesignatorKey, AttributeSet> prefetched;
+	private Map<AttributeDesignatorKey, AttributeSet> resolvedWith;
+
+	private ContentSelectorPaths selectorPaths;
+	private Map<CategoryId, Map<SimpleXPath, List<String>>> streamedContent;
 
 	private Stack<AttributeDesignatorKey> designatorResolutionStack;
 	private Stack<AttributeSelectorKey> selectorResolutionStack;
@@ -76,15 +95,30 @@ class DefaultEvaluationContextHandler
 			RequestContextCallback requestCallback,
 			XPathProvider xpathProvider,
 			PolicyInformationPoint pip)
+	{
+		this(requestCallback, xpathProvider, pip, new ContentSelectorPaths());
+	}
+
+	DefaultEvaluationContextHandler(
+			RequestContextCallback requestCallback,
+			XPathProvider xpathProvider,
+			PolicyInformationPoint pip,
+			ContentSelectorPaths selectorPaths)
 	{
 		Preconditions.checkNotNull(xpathProvider);
 		Preconditions.checkNotNull(pip);
 		Preconditions.checkNotNull(requestCallback);
+		Preconditions.checkNotNull(selectorPaths);
 
 		this.xpathProvider = xpathProvider;
 		this.pip = pip;
 		this.requestCallback = requestCallback;
-		this.contentCache = new HashMap<CategoryId, Node>();
+		this.selectorPaths = selectorPaths;
+		this.streamedContent = new HashMap<CategoryId, Map<SimpleXPath, List<String>>>();
+		this.contentCache = new HashMap<CategoryId, Content>();
+		this.parsedContent = new HashMap<CategoryId, Node>();
+		this.prefetched = new HashMap<AttributeDesignatorKey, AttributeSet>();
+		this.resolvedWith = new HashMap<AttributeDesignatorKey, AttributeSet>();
 		this.selectorResolutionStack = new Stack<AttributeSelectorKey>();
 		this.designatorResolutionStack = new Stack<AttributeDesignatorKey>();
 		this.contentResolutionStack = new Stack<CategoryId>();
@@ -113,13 +147,31 @@ class DefaultEvaluationContextHandler
 			}
 		}
 
+		AttributeSet attributes = getInScope(context, key, prefetched.get(key));
+		if(attributes == null){
+			attributes = getInScope(context, key, resolvedWith.get(key));
+		}
+		if(attributes != null){
+			v = attributes.get(key.getAttributeId());
+			context.setDecisionCacheTTL(attributes.getDescriptor().getPreferredCacheTTL());
+			if(log.isDebugEnabled()){
+				log.debug("Resolved designator=\"{}\" " +
+						"from prefetched value=\"{}\"", key, v);
+			}
+			return v;
+		}
 		Preconditions.checkState(
 				!designatorResolutionStack.contains(key),
 				"Cyclic designator=\"%s\" resolution detected", key);
 		try
 		{
 			designatorResolutionStack.push(key);
-			v = pip.resolve(context, key);
+			attributes = pip.resolveAttributes(context, key);
+			if(attributes == null){
+				return null;
+			}
+			putResolvedWith(attributes);
+			v = attributes.get(key.getAttributeId());
 			if(log.isDebugEnabled()){
 				log.debug("Resolved designator=\"{}\" " +
 						"from PIP to value=\"{}\"", key, v);
@@ -136,6 +188,123 @@ class DefaultEvaluationContextHandler
 	}
 
 
+	/**
+	 * Remembers all attributes of a given attribute set
+	 * resolved by the single resolver invocation, other
+	 * attributes of the same set are resolved without
+	 * consulting PIP again
+	 *
+	 * @param attributes an attribute set
+	 */
+	private void putResolvedWith(AttributeSet attributes)
+	{
+		for(AttributeDesignatorKey k : attributes.getAttributeKeys()){
+			resolvedWith.put(k, attributes);
+			if(k.getIssuer() != null){
+				resolvedWith.put(AttributeDesignatorKey
+						.builder()
+						.from(k)
+						.issuer(null)
+						.build(), attributes);
+			}
+		}
+	}
+
+	/**
+	 * Gets an attribute set resolved ahead of the evaluation or
+	 * along with other designator, an attribute set is used only
+	 * if its resolver is the first resolver matching a given
+	 * designator in the current evaluation scope, i.e. a policy
+	 * scoped resolver may shadow a resolver used to produce it
+	 *
+	 * @param context an evaluation context
+	 * @param key an attribute designator
+	 * @param attributes an attribute set or {@code null}
+	 * @return {@link AttributeSet} or {@code null}
+	 */
+	private AttributeSet getInScope(EvaluationContext context,
+			AttributeDesignatorKey key, AttributeSet attributes)
+	{
+		if(attributes == null){
+			return null;
+		}
+		AttributeResolver r = Iterables.getFirst(
+				pip.getRegistry().getMatchingAttributeResolvers(context, key), null);
+		if(r == null ||
+				!r.getDescriptor().getId().equals(attributes.getDescriptor().getId())){
+			return null;
+		}
+		return attributes;
+	}
+
+	/**
+	 * Resolves given designators not present in the request
+	 * via {@link PolicyInformationPoint#prefetch} before the
+	 * evaluation begins. Designators which failed to prefetch
+	 * are resolved lazily as usual
+	 *
+	 * @param context an evaluation context
+	 * @param keys attribute designators
+	 * @param executor an executor used to invoke resolvers
+	 */
+	void prefetch(
+			EvaluationContext context,
+			Collection<AttributeDesignatorKey> keys,
+			ExecutorService executor)
+	{
+		Collection<AttributeDesignatorKey> missing = getUnresolved(keys);
+		if(missing.isEmpty()){
+			return;
+		}
+		try
+		{
+			setPrefetched(pip.prefetch(context, missing, executor));
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}catch(Exception e){
+			if(log.isDebugEnabled()){
+				log.debug("Failed to prefetch designators", e);
+			}
+		}
+	}
+
+	/**
+	 * Gets given designators not present in the request
+	 *
+	 * @param keys attribute designators
+	 * @return a collection of designators
+	 * not present in the request
+	 */
+	Collection<AttributeDesignatorKey> getUnresolved(
+			Collection<AttributeDesignatorKey> keys)
+	{
+		Collection<AttributeDesignatorKey> missing = new LinkedList<AttributeDesignatorKey>();
+		for(AttributeDesignatorKey key : keys){
+			Entity entity = requestCallback.getEntity(key.getCategory());
+			if(entity != null &&
+					!entity.getAttributeValues(key.getAttributeId(),
+							key.getDataType(), key.getIssuer()).isEmpty()){
+				continue;
+			}
+			missing.add(key);
+		}
+		return missing;
+	}
+
+	/**
+	 * Sets designators resolved ahead of the evaluation
+	 *
+	 * @param attributes resolved {@link AttributeSet} by designator
+	 */
+	void setPrefetched(Map<AttributeDesignatorKey, AttributeSet> attributes)
+	{
+		prefetched.putAll(attributes);
+		if(log.isDebugEnabled()){
+			log.debug("Prefetched=\"{}\" designators",
+					prefetched.size());
+		}
+	}
+
 	@Override
 	public BagOfAttributeExp resolve(
 			EvaluationContext context,
@@ -164,13 +333,13 @@ class DefaultEvaluationContextHandler
 	 *
 	 * @param context an evaluation context
 	 * @param category an attribute category
-	 * @return {@link BagOfAttributeExp}
+	 * @return {@link Content} or {@code null}
 	 * @exception Exception
 	 */
-	private Node doGetContent(EvaluationContext context, CategoryId category)
+	private Content doGetContent(EvaluationContext context, CategoryId category)
 		throws Exception
 	{
-		Node content = null;
+		Content content = null;
 		if(contentCache.containsKey(category)){
 			content = contentCache.get(category);
 			if(log.isDebugEnabled()){
@@ -184,7 +353,7 @@ class DefaultEvaluationContextHandler
 		try
 		{
 			contentResolutionStack.push(category);
-			content = pip.resolve(context, category);
+			content = pip.resolveContent(context, category);
 			if(log.isDebugEnabled()){
 				log.debug("Resolved content=\"{}\" " +
 						"from PIP", content);
@@ -196,6 +365,27 @@ class DefaultEvaluationContextHandler
 		}
 	}
 
+	/**
+	 * Gets category content resolved via {@link PolicyInformationPoint}
+	 * as DOM, serialized content is parsed once per evaluation
+	 *
+	 * @param category an attribute category
+	 * @param content a resolved content or {@code null}
+	 * @return {@link Node} or {@code null}
+	 */
+	private Node doGetContentNode(CategoryId category, Content content)
+	{
+		if(content == null){
+			return null;
+		}
+		Node node = parsedContent.get(category);
+		if(node == null){
+			node = content.getContent();
+			parsedContent.put(category, node);
+		}
+		return node;
+	}
+
 	private BagOfAttributeExp doResolve(
 			EvaluationContext context,
 			AttributeSelectorKey ref) throws EvaluationException
@@ -203,10 +393,22 @@ class DefaultEvaluationContextHandler
 		try
 		{
 			Entity entity = requestCallback.getEntity(ref.getCategory());
-			Node content = (entity != null)?entity.getContent():null;
-			if(content == null){
-				content = doGetContent(context, ref.getCategory());
+			Content resolved = null;
+			if(entity == null ||
+					!entity.hasContent()){
+				resolved = doGetContent(context, ref.getCategory());
 			}
+			List<String> streamed = doStream(entity, resolved, ref);
+			if(streamed != null){
+				if(log.isDebugEnabled()){
+					log.debug("Found=\"{}\" values via streaming xpath=\"{}\" and category=\"{}\"",
+							new Object[]{streamed.size(), ref.getPath(), ref.getCategory()});
+				}
+				return toBag(ref, streamed);
+			}
+			Node content = (resolved != null)?
+					doGetContentNode(ref.getCategory(), resolved):
+						(entity != null)?entity.getContent():null;
 			Node contextNode = content;
 			Collection<AttributeExp> v = entity.getAttributeValues(
 						(ref.getContextSelectorId() == null?CONTENT_SELECTOR:ref.getContextSelectorId()),
@@ -265,6 +467,79 @@ class DefaultEvaluationContextHandler
 		}
 	}
 
+	/**
+	 * Evaluates a given simple selector without compiling it to
+	 * XPath expression, serialized request content or serialized
+	 * content resolved via {@link PolicyInformationPoint} is read
+	 * without parsing it to DOM, content DOM is walked once.
+	 * On the first selector of a category all known simple paths
+	 * of the category are extracted in a single pass, see
+	 * {@link ContentSelectorPaths}
+	 *
+	 * @param entity a request entity or {@code null}
+	 * @param resolved a content resolved via PIP or {@code null}
+	 * @param ref an attribute selector
+	 * @return selected values or {@code null} if a given
+	 * selector is not a simple path or content DOM is
+	 * not namespace aware
+	 * @throws EvaluationException if content can not be read
+	 * @throws IOException if serialized content can not be read
+	 */
+	private List<String> doStream(Entity entity, Content resolved, AttributeSelectorKey ref)
+		throws EvaluationException, IOException
+	{
+		if(entity == null &&
+				resolved == null){
+			return null;
+		}
+		if(entity != null &&
+				!entity.getAttributeValues(
+				(ref.getContextSelectorId() == null?CONTENT_SELECTOR:ref.getContextSelectorId()),
+						XacmlTypes.XPATH).isEmpty()){
+			return null;
+		}
+		Optional<SimpleXPath> path = selectorPaths.compile(ref.getPath());
+		if(!path.isPresent()){
+			return null;
+		}
+		selectorPaths.add(ref.getCategory(), path.get());
+		Map<SimpleXPath, List<String>> values = streamedContent.get(ref.getCategory());
+		if(values == null ||
+				!values.containsKey(path.get())){
+			Collection<SimpleXPath> paths = ImmutableSet.<SimpleXPath>builder()
+					.addAll(selectorPaths.get(ref.getCategory()))
+					.add(path.get())
+					.build();
+			String xml = (entity != null)?entity.getXmlContent():null;
+			ByteSource resolvedXml = (xml == null && resolved != null)?resolved.getXmlContent():null;
+			try{
+				if(xml != null){
+					values = StreamingXPathEvaluator.evaluate(new StringReader(xml), paths);
+				}else if(resolvedXml != null){
+					InputStream in = resolvedXml.openStream();
+					try{
+						values = StreamingXPathEvaluator.evaluate(in, paths);
+					}finally{
+						in.close();
+					}
+				}else{
+					Node content = (resolved != null)?
+							doGetContentNode(ref.getCategory(), resolved):entity.getContent();
+					if(content == null ||
+							!StreamingXPathEvaluator.isNamespaceAware(content)){
+						return null;
+					}
+					values = StreamingXPathEvaluator.evaluate(content, paths);
+				}
+			}catch(org.xacml4j.v30.spi.xpath.XPathEvaluationException e){
+				throw new AttributeReferenceEvaluationException(
+						Status.processingError().build(), ref, e.getMessage());
+			}
+			streamedContent.put(ref.getCategory(), values);
+		}
+		return values.get(path.get());
+	}
+
 	/**
 	 * Converts a given node list to the {@link BagOfAttributeExp}
 	 *
@@ -279,7 +554,7 @@ class DefaultEvaluationContextHandler
 			AttributeSelectorKey ref, NodeList nodeSet)
 		throws EvaluationException
 	{
-		Collection<AttributeExp> values = new LinkedList<AttributeExp>();
+		Collection<String> values = new LinkedList<String>();
 		for(int i = 0; i< nodeSet.getLength(); i++)
 		{
 			Node n = nodeSet.item(i);
@@ -301,6 +576,26 @@ class DefaultEvaluationContextHandler
 					throw new AttributeReferenceEvaluationException(ref,
 							"Unsupported DOM node type=\"%d\"", n.getNodeType());
 			}
+			values.add(v);
+		}
+		return toBag(ref, values);
+	}
+
+	/**
+	 * Converts given node values to the {@link BagOfAttributeExp}
+	 *
+	 * @param ref an attribute selector
+	 * @param nodeValues node values
+	 * @return {@link BagOfAttributeExp}
+	 * @throws EvaluationException
+	 */
+	private BagOfAttributeExp toBag(
+			AttributeSelectorKey ref, Collection<String> nodeValues)
+		throws EvaluationException
+	{
+		Collection<AttributeExp> values = new LinkedList<AttributeExp>();
+		for(String v : nodeValues)
+		{
 			try
 			{
 				Optional<TypeToString> toString = TypeToString.Types.getIndex().get(ref.getDataType());
@@ -311,8 +606,8 @@ class DefaultEvaluationContextHandler
 				}
 				AttributeExp value = toString.get().fromString(v);
 				if(log.isDebugEnabled()){
-					log.debug("Node of type=\"{}\" " +
-							"converted attribute=\"{}\"", n.getNodeType(), value);
+					log.debug("Node value=\"{}\" " +
+							"converted attribute=\"{}\"", v, value);
 				}
 				values.add(value);
 			}catch(Exception e){
@@ -372,7 +667,8 @@ class DefaultEvaluationContextHandler
 			Node content = (entity != null)?entity.getContent():null;
 			try{
 				if(content == null){
-					content = doGetContent(context, xpath.getCategory());
+					content = doGetContentNode(xpath.getCategory(),
+							doGetContent(context, xpath.getCategory()));
 				}
 			}catch(Exception e){
 				throw new XPathEvaluationException(xpath.getPath(), e);
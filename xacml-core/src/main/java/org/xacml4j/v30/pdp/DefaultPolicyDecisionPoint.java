@@ -104,15 +104,19 @@ final class DefaultPolicyDecisionPoint
 	public ResponseContext decide(RequestContext request)
 	{
 		MDCSupport.setPdpContext(this);
+		PolicyDecisionPointContext context = null;
 		try
 		{
-			PolicyDecisionPointContext context = factory.createContext(this);
+			context = factory.createContext(this);
 			RequestContextHandler chain = context.getRequestHandlers();
 			return ResponseContext
 					.builder()
 					.results(chain.handle(request, context))
 					.build();
 		}finally{
+			if(context != null){
+				context.close();
+			}
 			MDCSupport.cleanPdpContext();
 		}
 	}
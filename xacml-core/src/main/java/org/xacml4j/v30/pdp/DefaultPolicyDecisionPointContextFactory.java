@@ -22,16 +22,27 @@ package org.xacml4j.v30.pdp;
  * #L%
  */
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xacml4j.v30.AttributeDesignatorKey;
 import org.xacml4j.v30.CompositeDecisionRule;
 import org.xacml4j.v30.EvaluationContext;
 import org.xacml4j.v30.RequestContext;
+import org.xacml4j.v30.RequestTime;
 import org.xacml4j.v30.Result;
 import org.xacml4j.v30.XPathVersion;
 import org.xacml4j.v30.spi.audit.PolicyDecisionAuditor;
 import org.xacml4j.v30.spi.pdp.PolicyDecisionCache;
 import org.xacml4j.v30.spi.pdp.RequestContextHandlerChain;
+import org.xacml4j.v30.spi.pip.AttributeSet;
 import org.xacml4j.v30.spi.pip.PolicyInformationPoint;
 import org.xacml4j.v30.spi.repository.DefaultPolicyReferenceResolver;
 import org.xacml4j.v30.spi.repository.PolicyReferenceResolver;
@@ -39,19 +50,26 @@ import org.xacml4j.v30.spi.repository.PolicyRepository;
 import org.xacml4j.v30.spi.xpath.XPathProvider;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableSet;
 
 final class DefaultPolicyDecisionPointContextFactory
 	implements PolicyDecisionPointContextFactory
 {
+	private final static Logger log = LoggerFactory.getLogger(DefaultPolicyDecisionPointContextFactory.class);
+
 	private final static Random RND = new Random();
 	
 	private PolicyInformationPoint pip;
 	private PolicyDecisionAuditor decisionAuditor;
 	private PolicyDecisionCache decisionCache;
 	private XPathProvider xpathProvider;
-	private PolicyReferenceResolver policyReferenceResolver;
+	private DefaultPolicyReferenceResolver policyReferenceResolver;
 	private CompositeDecisionRule policyDomain;
 	private RequestContextHandlerChain requestHandlers;
+	private ContentSelectorPaths selectorPaths = new ContentSelectorPaths();
+	private ExecutorService prefetchExecutor;
+	private Set<AttributeDesignatorKey> prefetchKeys;
 
 	private boolean decisionCacheEnabled = true;
 	private boolean decisionAuditEnabled = true;
@@ -81,6 +99,8 @@ final class DefaultPolicyDecisionPointContextFactory
 		this.decisionAuditor = auditor;
 		this.decisionCache = cache;
 		this.requestHandlers = handlerChain;
+		this.selectorPaths.addAll(AttributeDesignatorCollectingVisitor.collectSelectors(
+				policyDomain, policyReferenceResolver));
 	}
 
 	@Override
@@ -92,6 +112,34 @@ final class DefaultPolicyDecisionPointContextFactory
 		this.decisionCacheTTL = (ttl > 0)?ttl:0;
 	}
 
+	/**
+	 * Enables concurrent resolution of the attribute
+	 * designators reachable in the domain policy for
+	 * a given request before the evaluation begins
+	 *
+	 * @param executor an executor used to invoke
+	 * attribute resolvers or {@code null} to disable
+	 */
+	public void setPrefetchExecutor(ExecutorService executor){
+		setPrefetchExecutor(executor, null);
+	}
+
+	/**
+	 * Enables concurrent resolution of given attribute
+	 * designators before the evaluation begins
+	 *
+	 * @param executor an executor used to invoke
+	 * attribute resolvers or {@code null} to disable
+	 * @param keys attribute designators to prefetch or
+	 * {@code null} to prefetch designators reachable
+	 * in the domain policy for a given request
+	 */
+	public void setPrefetchExecutor(ExecutorService executor,
+			Set<AttributeDesignatorKey> keys){
+		this.prefetchExecutor = executor;
+		this.prefetchKeys = (keys != null)?ImmutableSet.copyOf(keys):null;
+	}
+
 	public void setValidaFunctionParametersAtRuntime(
 			boolean validate){
 		this.validateFuncParamsAtRuntime = validate;
@@ -111,8 +159,17 @@ final class DefaultPolicyDecisionPointContextFactory
 	public PolicyDecisionPointContext createContext(final PolicyDecisionCallback pdp)
 	{
 		final String correlationId = Long.toHexString(RND.nextLong());
+		final RequestTime requestTime = RequestTime.create();
+		final PolicyReferenceResolver resolver = policyReferenceResolver.pin();
 		return new PolicyDecisionPointContext() {
 
+			/**
+			 * Evaluation contexts of the individual
+			 * requests with attributes resolved in bulk
+			 */
+			private final Map<RequestContext, EvaluationContext> prefetched =
+					new HashMap<RequestContext, EvaluationContext>();
+
 			@Override
 			public boolean isDecisionCacheEnabled(){
 				return decisionCacheEnabled;
@@ -164,20 +221,123 @@ final class DefaultPolicyDecisionPointContextFactory
 				return correlationId;
 			}
 
+			@Override
+			public void prefetch(Collection<RequestContext> requests)
+			{
+				if(prefetchExecutor == null){
+					return;
+				}
+				Map<EvaluationContext, Collection<AttributeDesignatorKey>> keys =
+						new LinkedHashMap<EvaluationContext, Collection<AttributeDesignatorKey>>();
+				Map<EvaluationContext, DefaultEvaluationContextHandler> handlers =
+						new HashMap<EvaluationContext, DefaultEvaluationContextHandler>();
+				for(RequestContext request : requests){
+					if(request.containsRepeatingCategories() ||
+							request.containsRequestReferences() ||
+							prefetched.containsKey(request) ||
+							isDecisionCached(request)){
+						continue;
+					}
+					DefaultEvaluationContextHandler handler = createHandler(request);
+					EvaluationContext context = createEvaluationContext(handler);
+					keys.put(context, handler.getUnresolved(getPrefetchKeys(context, handler)));
+					handlers.put(context, handler);
+					prefetched.put(request, context);
+				}
+				try
+				{
+					for(Map.Entry<EvaluationContext, Map<AttributeDesignatorKey, AttributeSet>> e :
+						pip.prefetch(keys, prefetchExecutor).entrySet()){
+						handlers.get(e.getKey()).setPrefetched(e.getValue());
+					}
+				}catch(InterruptedException e){
+					Thread.currentThread().interrupt();
+				}catch(Exception e){
+					if(log.isDebugEnabled()){
+						log.debug("Failed to prefetch designators", e);
+					}
+				}
+			}
+
 			@Override
 			public EvaluationContext createEvaluationContext(RequestContext request)
 			{
 				Preconditions.checkArgument(!request.containsRepeatingCategories());
 				Preconditions.checkArgument(!request.containsRequestReferences());
+				EvaluationContext context = prefetched.remove(request);
+				if(context != null){
+					return context;
+				}
+				DefaultEvaluationContextHandler handler = createHandler(request);
+				context = createEvaluationContext(handler);
+				if(prefetchExecutor != null){
+					handler.prefetch(context, getPrefetchKeys(context, handler), prefetchExecutor);
+				}
+				return context;
+			}
+
+			@Override
+			public void close()
+			{
+				if(!prefetched.isEmpty()){
+					if(log.isDebugEnabled()){
+						log.debug("Releasing=\"{}\" prefetched " +
+								"requests which were not evaluated", prefetched.size());
+					}
+					prefetched.clear();
+				}
+			}
+
+			/**
+			 * Tests if a decision for a given request is
+			 * cached, attributes of such request are not
+			 * prefetched as the request is not evaluated
+			 */
+			private boolean isDecisionCached(RequestContext request)
+			{
+				return decisionCacheEnabled &&
+						decisionCache.getDecision(request) != null;
+			}
+
+			/**
+			 * Gets attribute designators to prefetch for a
+			 * given request, designators of rules and policies
+			 * which targets do not match the request are skipped
+			 */
+			private Set<AttributeDesignatorKey> getPrefetchKeys(
+					EvaluationContext context,
+					final DefaultEvaluationContextHandler handler)
+			{
+				if(prefetchKeys != null){
+					return prefetchKeys;
+				}
+				return AttributeDesignatorCollectingVisitor.collect(
+						policyDomain, resolver, context,
+						new Predicate<AttributeDesignatorKey>() {
+							@Override
+							public boolean apply(AttributeDesignatorKey key) {
+								return handler.getUnresolved(
+										ImmutableSet.of(key)).isEmpty();
+							}
+						});
+			}
+
+			private DefaultEvaluationContextHandler createHandler(RequestContext request)
+			{
 				RequestContextCallback callback = new DefaultRequestContextCallback(request);
-				EvaluationContextHandler handler = new DefaultEvaluationContextHandler(
-						callback, xpathProvider, pip);
+				return new DefaultEvaluationContextHandler(
+						callback, xpathProvider, pip, selectorPaths);
+			}
+
+			private EvaluationContext createEvaluationContext(DefaultEvaluationContextHandler handler)
+			{
 				return new RootEvaluationContext(
 						validateFuncParamsAtRuntime,
 						decisionCacheTTL,
 						defaultXPathVersion,
-						policyReferenceResolver,
-						handler);
+						resolver,
+						handler,
+						requestTime);
 			}
 		};
 	}
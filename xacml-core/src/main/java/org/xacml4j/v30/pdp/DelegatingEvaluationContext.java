@@ -41,6 +41,7 @@ import org.xacml4j.v30.EvaluationContext;
 import org.xacml4j.v30.EvaluationException;
 import org.xacml4j.v30.Obligation;
 import org.xacml4j.v30.PolicyResolutionException;
+import org.xacml4j.v30.RequestTime;
 import org.xacml4j.v30.Status;
 import org.xacml4j.v30.ValueExpression;
 import org.xacml4j.v30.XPathVersion;
@@ -199,6 +200,11 @@ abstract class DelegatingEvaluationContext implements EvaluationContext
 		return delegate.getCurrentDateTime();
 	}
 
+	@Override
+	public RequestTime getRequestTime() {
+		return delegate.getRequestTime();
+	}
+
 	/**
 	 * Delegates call to {@link EvaluationContext} instance
 	 */
@@ -0,0 +1,130 @@
+package org.xacml4j.v30.pdp;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.List;
+
+import org.xacml4j.v30.AttributeExp;
+import org.xacml4j.v30.BagOfAttributeExp;
+import org.xacml4j.v30.EvaluationContext;
+import org.xacml4j.v30.EvaluationException;
+import org.xacml4j.v30.Expression;
+import org.xacml4j.v30.IPAddress;
+import org.xacml4j.v30.IPAddressIndex;
+import org.xacml4j.v30.types.BooleanExp;
+import org.xacml4j.v30.types.IPAddressExp;
+import org.xacml4j.v30.types.XacmlTypes;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Evaluates an {@link Apply} of the network is in function
+ * against a constant bag of networks, either a bag value or an
+ * {@link Apply} of the ipAddress-bag function with constant arguments.
+ * Networks are indexed via {@link IPAddressIndex} once when a policy
+ * is built instead of scanning a bag on each evaluation
+ */
+final class IPAddressNetworkIsIn
+	implements CompiledApply
+{
+	static final String FUNCTION_ID = "urn:xacml4j:names:tc:xacml:1.0:function:ipAddress-network-is-in";
+	static final String BAG_FUNCTION_ID = "urn:oasis:names:tc:xacml:2.0:function:ipAddress-bag";
+
+	private final Expression address;
+	private final IPAddressIndex index;
+
+	private IPAddressNetworkIsIn(Expression address, IPAddressIndex index){
+		this.address = address;
+		this.index = index;
+	}
+
+	/**
+	 * Creates an indexed evaluation of a given function
+	 * application if a given application is a network is in
+	 * function applied to a constant bag of networks
+	 *
+	 * @param spec a function
+	 * @param arguments function arguments
+	 * @return {@link IPAddressNetworkIsIn} or {@code null}
+	 * if a given application can not be indexed
+	 */
+	static IPAddressNetworkIsIn create(FunctionSpec spec, List<Expression> arguments)
+	{
+		if(arguments.size() != 2){
+			return null;
+		}
+		Iterable<? extends Expression> networks = getConstantNetworks(arguments.get(1));
+		if(networks == null ||
+				!FUNCTION_ID.equals(spec.getId())){
+			return null;
+		}
+		ImmutableList.Builder<IPAddress> b = ImmutableList.builder();
+		for(Expression n : networks){
+			if(!(n instanceof IPAddressExp)){
+				return null;
+			}
+			b.add(((IPAddressExp)n).getValue());
+		}
+		return new IPAddressNetworkIsIn(arguments.get(0), IPAddressIndex.of(b.build()));
+	}
+
+	private static Iterable<? extends Expression> getConstantNetworks(Expression e)
+	{
+		if(e instanceof BagOfAttributeExp){
+			BagOfAttributeExp bag = (BagOfAttributeExp)e;
+			return XacmlTypes.IPADDRESS.equals(bag.getDataType())?
+					bag.<AttributeExp>values():null;
+		}
+		if(e instanceof Apply &&
+				BAG_FUNCTION_ID.equals(((Apply)e).getFunctionId())){
+			return ((Apply)e).getArguments();
+		}
+		return null;
+	}
+
+	/**
+	 * Tests if an address evaluated in a given
+	 * context belongs to one of the indexed networks
+	 *
+	 * @param context an evaluation context
+	 * @return {@link BooleanExp}
+	 * @throws EvaluationException if an address
+	 * evaluation fails
+	 */
+	@Override
+	public BooleanExp evaluate(EvaluationContext context)
+		throws EvaluationException
+	{
+		IPAddressExp v = (IPAddressExp)address.evaluate(context);
+		return BooleanExp.valueOf(index.contains(v.getValue()));
+	}
+
+	@Override
+	public String toString(){
+		return MoreObjects.toStringHelper(this)
+		                  .add("address", address)
+		                  .add("networks", index.size())
+		                  .toString();
+	}
+}
@@ -0,0 +1,130 @@
+package org.xacml4j.v30.pdp;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.Collection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xacml4j.v30.AttributeExp;
+import org.xacml4j.v30.BagOfAttributeExp;
+import org.xacml4j.v30.EvaluationContext;
+import org.xacml4j.v30.EvaluationException;
+import org.xacml4j.v30.IPAddress;
+import org.xacml4j.v30.IPAddressIndex;
+import org.xacml4j.v30.MatchResult;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+
+/**
+ * A {@link Matchable} replacing a group of {@link MatchAllOf}
+ * instances of the same {@link MatchAnyOf}, each one consisting
+ * of a single network match against the same attribute reference.
+ * An attribute reference is evaluated once and every attribute value
+ * is looked up in {@link IPAddressIndex} instead of evaluating each
+ * match one by one
+ */
+final class IPAddressNetworkMatch implements Matchable
+{
+	private final static Logger log = LoggerFactory.getLogger(IPAddressNetworkMatch.class);
+
+	static final String FUNCTION_ID = "urn:xacml4j:names:tc:xacml:1.0:function:ipAddress-network-match";
+
+	private final AttributeReference attributeRef;
+	private final Collection<MatchAllOf> allOfs;
+	private final IPAddressIndex index;
+
+	IPAddressNetworkMatch(AttributeReference ref, Iterable<MatchAllOf> allOfs){
+		Preconditions.checkNotNull(ref);
+		this.attributeRef = ref;
+		this.allOfs = ImmutableList.copyOf(allOfs);
+		ImmutableList.Builder<IPAddress> networks = ImmutableList.builder();
+		for(MatchAllOf allOf : this.allOfs){
+			Match m = allOf.getNetworkMatch();
+			Preconditions.checkArgument(m != null && ref.equals(m.getReference()));
+			networks.add((IPAddress)m.getAttributeValue().getValue());
+		}
+		this.index = IPAddressIndex.of(networks.build());
+	}
+
+	/**
+	 * Tests if given matches of {@link MatchAllOf} consist
+	 * of a single network match and can be indexed
+	 *
+	 * @param matches a matches
+	 * @return {@code true} if given matches can be indexed
+	 */
+	static boolean isIndexable(Collection<Match> matches){
+		if(matches.size() != 1){
+			return false;
+		}
+		return Iterables.getOnlyElement(matches).isNetworkMatch();
+	}
+
+	@Override
+	public MatchResult match(EvaluationContext context)
+	{
+		try
+		{
+			BagOfAttributeExp attributes = attributeRef.evaluate(context);
+			if(log.isDebugEnabled()){
+				log.debug("Evaluated attribute reference=\"{}\" to " +
+						"bag=\"{}\"", attributeRef, attributes);
+			}
+			for(AttributeExp v : attributes.values()){
+				if(index.contains((IPAddress)v.getValue())){
+					if(log.isDebugEnabled()){
+						log.debug("Attribute value=\"{}\" " +
+								"matches one of the networks", v);
+					}
+					return MatchResult.MATCH;
+				}
+			}
+			return MatchResult.NOMATCH;
+		}catch(EvaluationException e){
+			if(log.isDebugEnabled()){
+				log.debug("Match evaluation failed with an exception", e);
+			}
+			context.setEvaluationStatus(e.getStatus());
+			return MatchResult.INDETERMINATE;
+		}
+	}
+
+	@Override
+	public void accept(PolicyVisitor v) {
+		for(MatchAllOf m : allOfs){
+			m.accept(v);
+		}
+	}
+
+	@Override
+	public String toString(){
+		return MoreObjects.toStringHelper(this)
+		                  .add("Reference", attributeRef)
+		                  .add("AllOf", allOfs)
+		                  .toString();
+	}
+}
@@ -29,6 +29,7 @@ import org.xacml4j.v30.AttributeExpType;
 import org.xacml4j.v30.BagOfAttributeExp;
 import org.xacml4j.v30.EvaluationContext;
 import org.xacml4j.v30.EvaluationException;
+import org.xacml4j.v30.IPAddress;
 import org.xacml4j.v30.MatchResult;
 import org.xacml4j.v30.ValueType;
 
@@ -44,6 +45,12 @@ public class Match implements PolicyElement, Matchable
 	private final AttributeReference attributeRef;
 	private final FunctionSpec predicate;
 
+	/**
+	 * A compiled constant pattern of rfc822Name-match
+	 * or {@code null}, see {@link RFC822NameMatch}
+	 */
+	private final RFC822NameMatch rfc822NameMatch;
+
 	/**
 	 * Constructs match.
 	 *
@@ -74,6 +81,7 @@ public class Match implements PolicyElement, Matchable
 		this.value = b.attr;
 		this.predicate = b.predicate;
 		this.attributeRef = b.attrRef;
+		this.rfc822NameMatch = RFC822NameMatch.create(predicate, value, attributeRef);
 	}
 
 	public static Builder builder(){
@@ -106,6 +114,22 @@ public class Match implements PolicyElement, Matchable
 		return attributeRef;
 	}
 
+	/**
+	 * Tests if this match is a match of an IP address
+	 * against a network, see {@link IPAddressNetworkMatch}.
+	 * Method uses only the state of this instance, it is
+	 * safe to call it while this instance is constructed
+	 * by the enclosing {@link MatchAllOf}
+	 *
+	 * @return {@code true} if this is a network match
+	 */
+	final boolean isNetworkMatch(){
+		return predicate != null &&
+				value != null &&
+				IPAddressNetworkMatch.FUNCTION_ID.equals(predicate.getId()) &&
+				value.getValue() instanceof IPAddress;
+	}
+
 	@Override
 	public MatchResult match(EvaluationContext context)
 	{
@@ -117,7 +141,8 @@ public class Match implements PolicyElement, Matchable
 						"bag=\"{}\"", attributeRef, attributes);
 			}
 			for(AttributeExp v : attributes.values()){
-				AttributeExp match = predicate.invoke(context, value, v);
+				AttributeExp match = (rfc822NameMatch != null)?
+						rfc822NameMatch.matches(v):predicate.invoke(context, value, v);
 				if((Boolean)match.getValue()){
 					if(log.isDebugEnabled()){
 						log.debug("Attribute value=\"{}\" " +
@@ -34,6 +34,7 @@ import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 
 public class MatchAllOf implements PolicyElement, Matchable
 {
@@ -41,6 +42,13 @@ public class MatchAllOf implements PolicyElement, Matchable
 
 	private final Collection<Match> matches;
 
+	/**
+	 * A single network match of this
+	 * instance or {@code null}, see
+	 * {@link IPAddressNetworkMatch}
+	 */
+	private final Match networkMatch;
+
 	/**
 	 * Constructs a {@link MatchAllOf} with
 	 * a given builder
@@ -50,6 +58,8 @@ public class MatchAllOf implements PolicyElement, Matchable
 	private MatchAllOf(Builder b){
 		this.matches = b.matches.build();
 		Preconditions.checkArgument(matches.size() >= 1);
+		this.networkMatch = IPAddressNetworkMatch.isIndexable(matches)?
+				Iterables.getOnlyElement(matches):null;
 	}
 
 	public static Builder builder(){
@@ -60,6 +70,16 @@ public class MatchAllOf implements PolicyElement, Matchable
 		return matches;
 	}
 
+	/**
+	 * Gets a single network match of this instance
+	 *
+	 * @return {@link Match} or {@code null} if this
+	 * instance can not be indexed by {@link IPAddressNetworkMatch}
+	 */
+	final Match getNetworkMatch(){
+		return networkMatch;
+	}
+
 	@Override
 	public MatchResult match(EvaluationContext context)
 	{
@@ -23,6 +23,9 @@ package org.xacml4j.v30.pdp;
  */
 
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,6 +36,8 @@ import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
 
 public class MatchAnyOf
 	implements PolicyElement, Matchable
@@ -41,9 +46,55 @@ public class MatchAnyOf
 
 	private final Collection<MatchAllOf> allOfs;
 
+	/**
+	 * Matchables evaluated by this instance, same as
+	 * {@link #allOfs} except that network matches against
+	 * the same attribute are grouped into a single
+	 * {@link IPAddressNetworkMatch}
+	 */
+	private final Collection<Matchable> matchables;
+
 	private MatchAnyOf(Builder b){
 		this.allOfs = b.allMatchAllOfs.build();
 		Preconditions.checkArgument(allOfs.size() >= 1, "At least one MatchAllOf instance is required");
+		this.matchables = indexNetworkMatches(allOfs);
+	}
+
+	/**
+	 * Groups {@link MatchAllOf} instances consisting of a single
+	 * network match by an attribute reference, a group is replaced
+	 * by {@link IPAddressNetworkMatch} at the position of the first
+	 * instance of the group
+	 */
+	private static Collection<Matchable> indexNetworkMatches(Collection<MatchAllOf> allOfs)
+	{
+		ListMultimap<AttributeReference, MatchAllOf> groups = LinkedListMultimap.create();
+		for(MatchAllOf m : allOfs){
+			if(m.getNetworkMatch() != null){
+				groups.put(m.getNetworkMatch().getReference(), m);
+			}
+		}
+		if(groups.size() == groups.keySet().size()){
+			return ImmutableList.<Matchable>copyOf(allOfs);
+		}
+		ImmutableList.Builder<Matchable> b = ImmutableList.builder();
+		Set<AttributeReference> indexed = new HashSet<AttributeReference>();
+		for(MatchAllOf m : allOfs){
+			if(m.getNetworkMatch() == null){
+				b.add(m);
+				continue;
+			}
+			AttributeReference ref = m.getNetworkMatch().getReference();
+			List<MatchAllOf> group = groups.get(ref);
+			if(group.size() == 1){
+				b.add(m);
+				continue;
+			}
+			if(indexed.add(ref)){
+				b.add(new IPAddressNetworkMatch(ref, group));
+			}
+		}
+		return b.build();
 	}
 
 	public Collection<MatchAllOf> getAllOf(){
@@ -58,7 +109,7 @@ public class MatchAnyOf
 	public MatchResult match(EvaluationContext context)
 	{
 		MatchResult state = MatchResult.NOMATCH;
-		for(Matchable m : allOfs){
+		for(Matchable m : matchables){
 			MatchResult result = m.match(context);
 			if(result == MatchResult.INDETERMINATE){
 				if(log.isDebugEnabled()){
@@ -24,11 +24,14 @@ package org.xacml4j.v30.pdp;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import javax.management.NotCompliantMBeanException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xacml4j.v30.AttributeDesignatorKey;
 import org.xacml4j.v30.CompositeDecisionRule;
 import org.xacml4j.v30.pdp.profiles.MultipleResourcesHandler;
 import org.xacml4j.v30.spi.audit.NoAuditPolicyDecisionPointAuditor;
@@ -43,6 +46,7 @@ import org.xacml4j.v30.spi.xpath.DefaultXPathProvider;
 import org.xacml4j.v30.spi.xpath.XPathProvider;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
 
 public final class PolicyDecisionPointBuilder
 {
@@ -57,6 +61,8 @@ public final class PolicyDecisionPointBuilder
 	private CompositeDecisionRule rootPolicy;
 	private List<RequestContextHandler> handlers;
 	private int defaultDecisionCacheTTL;
+	private ExecutorService prefetchExecutor;
+	private Set<AttributeDesignatorKey> prefetchKeys;
 
 	private PolicyDecisionPointBuilder(String id){
 		this();
@@ -130,6 +136,43 @@ public final class PolicyDecisionPointBuilder
 		return this;
 	}
 	
+	/**
+	 * Enables prefetch of the attribute designators referenced
+	 * by the root policy, designators not present in the request
+	 * are resolved concurrently before the evaluation begins.
+	 * Designators of rules and policies with a target not matching
+	 * attributes present in the request are not prefetched, see
+	 * {@link #attributePrefetch(ExecutorService, Iterable)}
+	 *
+	 * @param executor an executor used to invoke attribute resolvers
+	 * @return {@link PolicyDecisionPointBuilder}
+	 */
+	public PolicyDecisionPointBuilder attributePrefetch(
+			ExecutorService executor){
+		Preconditions.checkNotNull(executor);
+		this.prefetchExecutor = executor;
+		this.prefetchKeys = null;
+		return this;
+	}
+
+	/**
+	 * Enables prefetch of given attribute designators, designators
+	 * not present in the request are resolved concurrently before
+	 * the evaluation begins
+	 *
+	 * @param executor an executor used to invoke attribute resolvers
+	 * @param designators attribute designators to prefetch
+	 * @return {@link PolicyDecisionPointBuilder}
+	 */
+	public PolicyDecisionPointBuilder attributePrefetch(
+			ExecutorService executor,
+			Iterable<AttributeDesignatorKey> designators){
+		Preconditions.checkNotNull(executor);
+		this.prefetchExecutor = executor;
+		this.prefetchKeys = ImmutableSet.copyOf(designators);
+		return this;
+	}
+
 	public PolicyDecisionPointBuilder xpathProvider(
 			XPathProvider xpath){
 		Preconditions.checkNotNull(xpath);
@@ -151,6 +194,7 @@ public final class PolicyDecisionPointBuilder
 				rootPolicy, 
 				repository, decisionAuditor,  decisionCache, xpathProvider, pip, chain);
 		factory.setDefaultDecisionCacheTTL(defaultDecisionCacheTTL);
+		factory.setPrefetchExecutor(prefetchExecutor, prefetchKeys);
 		try{
 			return new DefaultPolicyDecisionPoint(id, factory);
 		}catch(NotCompliantMBeanException e){
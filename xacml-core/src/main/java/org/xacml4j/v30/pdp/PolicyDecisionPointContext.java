@@ -22,6 +22,8 @@ package org.xacml4j.v30.pdp;
  * #L%
  */
 
+import java.util.Collection;
+
 import org.xacml4j.v30.CompositeDecisionRule;
 import org.xacml4j.v30.EvaluationContext;
 import org.xacml4j.v30.RequestContext;
@@ -50,6 +52,27 @@ public interface PolicyDecisionPointContext
 	 */
 	EvaluationContext createEvaluationContext(RequestContext req);
 	
+	/**
+	 * Notifies this context that given individual
+	 * requests are going to be evaluated, implementation
+	 * may resolve attributes for all given requests in
+	 * bulk before their evaluation, default implementation
+	 * does nothing
+	 *
+	 * @param requests individual access decision requests
+	 */
+	default void prefetch(Collection<RequestContext> requests){
+	}
+
+	/**
+	 * Releases resources held by this context once
+	 * all individual requests are evaluated, i.e.
+	 * attributes prefetched for requests which were
+	 * not evaluated, default implementation does nothing
+	 */
+	default void close(){
+	}
+	
 	/**
 	 * Gets root policy for authorization domain
 	 * 
@@ -0,0 +1,134 @@
+package org.xacml4j.v30.pdp;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.List;
+
+import org.xacml4j.v30.AttributeExp;
+import org.xacml4j.v30.EvaluationContext;
+import org.xacml4j.v30.EvaluationException;
+import org.xacml4j.v30.Expression;
+import org.xacml4j.v30.RFC822NamePattern;
+import org.xacml4j.v30.types.BooleanExp;
+import org.xacml4j.v30.types.RFC822NameExp;
+import org.xacml4j.v30.types.StringExp;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Evaluates an {@link Apply} of the rfc822Name-match function
+ * with a constant pattern, a pattern is compiled once when
+ * a policy is built instead of on each evaluation
+ */
+final class RFC822NameMatch
+	implements CompiledApply
+{
+	static final String FUNCTION_ID = "urn:oasis:names:tc:xacml:1.0:function:rfc822Name-match";
+
+	private final RFC822NamePattern pattern;
+	private final Expression name;
+
+	private RFC822NameMatch(RFC822NamePattern pattern, Expression name){
+		this.pattern = pattern;
+		this.name = name;
+	}
+
+	/**
+	 * Creates a compiled evaluation of a given function
+	 * application if a given application is rfc822Name-match
+	 * function applied to a constant pattern
+	 *
+	 * @param spec a function
+	 * @param arguments function arguments
+	 * @return {@link RFC822NameMatch} or {@code null}
+	 * if a given application can not be compiled
+	 */
+	static RFC822NameMatch create(FunctionSpec spec, List<Expression> arguments)
+	{
+		return (arguments.size() == 2)?
+				create(spec, arguments.get(0), arguments.get(1)):null;
+	}
+
+	/**
+	 * @see #create(FunctionSpec, List)
+	 *
+	 * @param spec a function
+	 * @param pattern a pattern argument
+	 * @param name a name argument
+	 * @return {@link RFC822NameMatch} or {@code null}
+	 */
+	static RFC822NameMatch create(FunctionSpec spec, Expression pattern, Expression name)
+	{
+		RFC822NamePattern p = compile(spec, pattern);
+		return (p != null)?new RFC822NameMatch(p, name):null;
+	}
+
+	/**
+	 * Compiles a given constant pattern of rfc822Name-match
+	 * function, an invalid pattern is not compiled and is
+	 * reported by the function when it is evaluated
+	 *
+	 * @param spec a function
+	 * @param pattern a function pattern argument
+	 * @return {@link RFC822NamePattern} or {@code null}
+	 * if a given function is not rfc822Name-match or given
+	 * pattern is not a valid constant pattern
+	 */
+	private static RFC822NamePattern compile(FunctionSpec spec, Expression pattern)
+	{
+		if(!(pattern instanceof StringExp) ||
+				!FUNCTION_ID.equals(spec.getId())){
+			return null;
+		}
+		try{
+			return RFC822NamePattern.compile(((StringExp)pattern).getValue());
+		}catch(IllegalArgumentException e){
+			return null;
+		}
+	}
+
+	/**
+	 * Tests if a given name matches a compiled pattern
+	 *
+	 * @param v a name
+	 * @return {@link BooleanExp}
+	 */
+	BooleanExp matches(AttributeExp v){
+		return BooleanExp.valueOf(pattern.matches(((RFC822NameExp)v).getValue()));
+	}
+
+	@Override
+	public BooleanExp evaluate(EvaluationContext context)
+		throws EvaluationException
+	{
+		return matches((AttributeExp)name.evaluate(context));
+	}
+
+	@Override
+	public String toString(){
+		return MoreObjects.toStringHelper(this)
+		                  .add("pattern", pattern)
+		                  .add("name", name)
+		                  .toString();
+	}
+}
@@ -48,6 +48,7 @@ import org.xacml4j.v30.EvaluationContext;
 import org.xacml4j.v30.EvaluationException;
 import org.xacml4j.v30.Obligation;
 import org.xacml4j.v30.PolicyResolutionException;
+import org.xacml4j.v30.RequestTime;
 import org.xacml4j.v30.Status;
 import org.xacml4j.v30.ValueExpression;
 import org.xacml4j.v30.XPathVersion;
@@ -64,6 +65,8 @@ public final class RootEvaluationContext implements EvaluationContext {
 
 	protected final Logger log = LoggerFactory.getLogger(RootEvaluationContext.class);
 
+	private final static TimeZone UTC = TimeZone.getTimeZone("UTC");
+
 	private final XPathVersion defaultXPathVersion;
 	private final EvaluationContextHandler contextHandler;
 	private final PolicyReferenceResolver resolver;
@@ -72,8 +75,7 @@ public final class RootEvaluationContext implements EvaluationContext {
 	private final Map<String, Advice> permitAdvices;
 	private final Map<String, Obligation> permitObligations;
 	private final List<CompositeDecisionRuleIDReference> evaluatedPolicies;
-	private final TimeZone timezone;
-	private final Calendar currentDateTime;
+	private final RequestTime requestTime;
 	private final Map<AttributeDesignatorKey, BagOfAttributeExp> designatorCache;
 	private final Map<AttributeSelectorKey, BagOfAttributeExp> selectorCache;
 	private final Ticker ticker = Ticker.systemTicker();
@@ -88,16 +90,31 @@ public final class RootEvaluationContext implements EvaluationContext {
 			XPathVersion defaultXPathVersion,
 			PolicyReferenceResolver referenceResolver,
 			EvaluationContextHandler contextHandler) {
+		this(validateFuncParamsAtRuntime,
+				defaultDecisionCacheTTL,
+				defaultXPathVersion,
+				referenceResolver,
+				contextHandler,
+				RequestTime.create());
+	}
+
+	public RootEvaluationContext(
+			boolean validateFuncParamsAtRuntime,
+			int defaultDecisionCacheTTL,
+			XPathVersion defaultXPathVersion,
+			PolicyReferenceResolver referenceResolver,
+			EvaluationContextHandler contextHandler,
+			RequestTime requestTime) {
 		Preconditions.checkNotNull(contextHandler);
 		Preconditions.checkNotNull(referenceResolver);
+		Preconditions.checkNotNull(requestTime);
 		this.denyAdvices = new LinkedHashMap<String, Advice>();
 		this.denyObligations = new LinkedHashMap<String, Obligation>();
 		this.permitAdvices = new LinkedHashMap<String, Advice>();
 		this.permitObligations = new LinkedHashMap<String, Obligation>();
 		this.contextHandler = contextHandler;
 		this.resolver = referenceResolver;
-		this.timezone = TimeZone.getTimeZone("UTC");
-		this.currentDateTime = Calendar.getInstance(timezone);
+		this.requestTime = requestTime;
 		this.evaluatedPolicies = new LinkedList<CompositeDecisionRuleIDReference>();
 		this.designatorCache = new HashMap<AttributeDesignatorKey, BagOfAttributeExp>(128);
 		this.selectorCache = new HashMap<AttributeSelectorKey, BagOfAttributeExp>(128);
@@ -173,13 +190,17 @@ public final class RootEvaluationContext implements EvaluationContext {
 
 	@Override
 	public TimeZone getTimeZone(){
-		Preconditions.checkState(timezone != null);
-		return timezone;
+		return UTC;
 	}
 
 	@Override
 	public final Calendar getCurrentDateTime() {
-		return currentDateTime;
+		return requestTime.toCalendar();
+	}
+
+	@Override
+	public final RequestTime getRequestTime() {
+		return requestTime;
 	}
 
 	@Override
@@ -446,8 +467,7 @@ public final class RootEvaluationContext implements EvaluationContext {
 				.add("permitAdvices", permitAdvices)
 				.add("permitObligations", permitObligations)
 				.add("evaluatedPolicies", evaluatedPolicies)
-				.add("timezone", timezone)
-				.add("currentDateTime", currentDateTime)
+				.add("requestTime", requestTime)
 				.add("designatorCache", designatorCache)
 				.add("selectorCache", selectorCache)
 				.add("ticker", ticker)
@@ -468,8 +488,7 @@ public final class RootEvaluationContext implements EvaluationContext {
 				permitAdvices,
 				permitObligations,
 				evaluatedPolicies,
-				timezone,
-				currentDateTime,
+				requestTime,
 				designatorCache,
 				selectorCache,
 				validateFuncParamsAtRuntime,
@@ -495,8 +514,7 @@ public final class RootEvaluationContext implements EvaluationContext {
 			&& Objects.equal(permitAdvices, c.permitAdvices)
 			&& Objects.equal(permitObligations, c.permitObligations)
 			&& Objects.equal(evaluatedPolicies, c.evaluatedPolicies)
-			&& Objects.equal(timezone, c.timezone)
-			&& Objects.equal(currentDateTime, c.currentDateTime)
+			&& Objects.equal(requestTime, c.requestTime)
 			&& Objects.equal(designatorCache, c.designatorCache)
 			&& Objects.equal(selectorCache, c.selectorCache)
 			&& Objects.equal(validateFuncParamsAtRuntime, c.validateFuncParamsAtRuntime)
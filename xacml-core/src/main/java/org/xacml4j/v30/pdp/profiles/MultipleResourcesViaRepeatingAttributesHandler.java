@@ -60,13 +60,19 @@ final class MultipleResourcesViaRepeatingAttributesHandler extends AbstractReque
 			}
 			byCategory.add(new LinkedHashSet<Category>(attributes));
 		}
-		Collection<Result> results = new LinkedList<Result>();
-		Set<List<Category>> cartesian = Sets.cartesianProduct(byCategory);
-		for(List<Category> requestAttr : cartesian){
-			results.addAll(handleNext(RequestContext
+		Collection<RequestContext> requests = new LinkedList<RequestContext>();
+		for(List<Category> requestAttr : Sets.cartesianProduct(byCategory)){
+			requests.add(RequestContext
 					.builder()
 					.copyOf(request, requestAttr)
-					.build(), context));
+					.build());
+		}
+		if(requests.size() > 1){
+			context.prefetch(requests);
+		}
+		Collection<Result> results = new LinkedList<Result>();
+		for(RequestContext req : requests){
+			results.addAll(handleNext(req, context));
 		}
 		return results;
 	}
@@ -90,13 +90,20 @@ final class MultipleResourcesViaXPathExpressionHandler extends AbstractRequestCo
 				all.add(getAttributes(request, attribute, xpathProvider));
 			}
 			Set<List<Category>> cartesian = Sets.cartesianProduct(all);
-			List<Result> results = new LinkedList<Result>();
+			List<RequestContext> requests = new LinkedList<RequestContext>();
 			for(List<Category> requestAttr : cartesian)
 			{
 				RequestContext req = RequestContext.builder().copyOf(request, requestAttr).build();
 				if(log.isDebugEnabled()){
 					log.debug("Created request=\"{}\"", req);
 				}
+				requests.add(req);
+			}
+			if(requests.size() > 1){
+				context.prefetch(requests);
+			}
+			List<Result> results = new LinkedList<Result>();
+			for(RequestContext req : requests){
 				results.addAll(handleNext(req, context));
 			}
 			return results;
@@ -167,7 +174,7 @@ final class MultipleResourcesViaXPathExpressionHandler extends AbstractRequestCo
 		return Category
 				.builder(attributes.getCategoryId())
 				.id(attributes.getId())
-				.entity(Entity.builder().content(e.getContent()).attributes(newAttributes).build())
+				.entity(Entity.builder().contentOf(e).attributes(newAttributes).build())
 				.build();
 	}
 }
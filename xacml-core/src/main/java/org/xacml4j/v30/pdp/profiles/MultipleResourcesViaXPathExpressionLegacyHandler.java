@@ -104,7 +104,7 @@ final class MultipleResourcesViaXPathExpressionLegacyHandler
 				}
 				attributes.add(Category
 						.builder(attrs.getCategoryId())
-						.entity(Entity.builder().content(entity.getContent()).attributes(resourceAttr).build())
+						.entity(Entity.builder().contentOf(entity).attributes(resourceAttr).build())
 						.build());
 				continue;
 			}
@@ -24,6 +24,8 @@ package org.xacml4j.v30.policy.function;
 
 import org.xacml4j.v30.AttributeExp;
 import org.xacml4j.v30.BagOfAttributeExp;
+import org.xacml4j.v30.IPAddress;
+import org.xacml4j.v30.IPAddressIndex;
 import org.xacml4j.v30.spi.function.XacmlFuncParam;
 import org.xacml4j.v30.spi.function.XacmlFuncParamVarArg;
 import org.xacml4j.v30.spi.function.XacmlFuncReturnType;
@@ -657,6 +659,33 @@ public class BagFunctions
 		return containsImpl(v, bag);
 	}
 
+	/**
+	 * Tests if a given address belongs to at least one
+	 * of the networks in a given bag, see
+	 * {@link IPAddress#contains(IPAddress)}. A constant bag
+	 * of networks is indexed via {@link IPAddressIndex} when
+	 * a policy is built and is not evaluated by this function
+	 *
+	 * @param v an IP address
+	 * @param bag a bag of networks
+	 * @return {@link BooleanExp#TRUE} if a given
+	 * address belongs to one of the networks
+	 */
+	@XacmlFuncSpec(id="urn:xacml4j:names:tc:xacml:1.0:function:ipAddress-network-is-in")
+	@XacmlFuncReturnType(typeId="http://www.w3.org/2001/XMLSchema#boolean")
+	public static BooleanExp ipAddressNetworkIsIn(
+			@XacmlFuncParam(typeId="urn:oasis:names:tc:xacml:2.0:data-type:ipAddress")IPAddressExp v,
+			@XacmlFuncParam(typeId="urn:oasis:names:tc:xacml:2.0:data-type:ipAddress", isBag=true)
+			BagOfAttributeExp bag)
+	{
+		for(IPAddressExp network : bag.<IPAddressExp>values()){
+			if(network.getValue().contains(v.getValue())){
+				return BooleanExp.TRUE;
+			}
+		}
+		return BooleanExp.FALSE;
+	}
+
 	@XacmlFuncSpec(id="urn:oasis:names:tc:xacml:2.0:function:ipAddress-bag")
 	@XacmlFuncReturnType(typeId="urn:oasis:names:tc:xacml:2.0:data-type:ipAddress", isBag=true)
 	public static BagOfAttributeExp ipAddressBag(
@@ -22,13 +22,13 @@ package org.xacml4j.v30.policy.function;
  * #L%
  */
 
-import javax.security.auth.x500.X500Principal;
-
+import org.xacml4j.v30.RFC822NamePattern;
 import org.xacml4j.v30.spi.function.XacmlFuncParam;
 import org.xacml4j.v30.spi.function.XacmlFuncReturnType;
 import org.xacml4j.v30.spi.function.XacmlFuncSpec;
 import org.xacml4j.v30.spi.function.XacmlFunctionProvider;
 import org.xacml4j.v30.types.BooleanExp;
+import org.xacml4j.v30.types.IPAddressExp;
 import org.xacml4j.v30.types.RFC822NameExp;
 import org.xacml4j.v30.types.StringExp;
 import org.xacml4j.v30.types.X500NameExp;
@@ -47,7 +47,8 @@ public class SpecialMatchFunctions
 			@XacmlFuncParam(typeId="http://www.w3.org/2001/XMLSchema#string")StringExp pattern,
 			@XacmlFuncParam(typeId="urn:oasis:names:tc:xacml:1.0:data-type:rfc822Name")RFC822NameExp rfc822Name)
 	{
-		 return BooleanExp.valueOf(rfc822Name.getValue().matches(pattern.getValue()));
+		 return BooleanExp.valueOf(RFC822NamePattern.compile(pattern.getValue())
+				 .matches(rfc822Name.getValue()));
 	}
 
 	@XacmlFuncSpec(id="urn:oasis:names:tc:xacml:1.0:function:x500Name-match")
@@ -57,8 +58,27 @@ public class SpecialMatchFunctions
 			@XacmlFuncParam(typeId="urn:oasis:names:tc:xacml:1.0:data-type:x500Name")X500NameExp a,
 			@XacmlFuncParam(typeId="urn:oasis:names:tc:xacml:1.0:data-type:x500Name")X500NameExp b)
 	{
-		 String n0 = a.getValue().getName(X500Principal.CANONICAL);
-		 String n1 = b.getValue().getName(X500Principal.CANONICAL);
-		 return BooleanExp.valueOf(n1.endsWith(n0));
+		 return BooleanExp.valueOf(a.matches(b));
+	}
+
+	/**
+	 * Tests if a given address belongs to a given network,
+	 * see {@link org.xacml4j.v30.IPAddress#contains(org.xacml4j.v30.IPAddress)}.
+	 * Target matches using this function against the same
+	 * attribute are looked up via a single index, see {@link org.xacml4j.v30.IPAddressIndex}
+	 *
+	 * @param network a network
+	 * @param address an address
+	 * @return {@link BooleanExp#TRUE} if a given
+	 * address belongs to a given network
+	 */
+	@XacmlFuncSpec(id="urn:xacml4j:names:tc:xacml:1.0:function:ipAddress-network-match")
+	@XacmlFuncReturnType(typeId="http://www.w3.org/2001/XMLSchema#boolean")
+	public static
+			BooleanExp ipAddressNetworkMatch(
+			@XacmlFuncParam(typeId="urn:oasis:names:tc:xacml:2.0:data-type:ipAddress")IPAddressExp network,
+			@XacmlFuncParam(typeId="urn:oasis:names:tc:xacml:2.0:data-type:ipAddress")IPAddressExp address)
+	{
+		 return BooleanExp.valueOf(network.getValue().contains(address.getValue()));
 	}
 }
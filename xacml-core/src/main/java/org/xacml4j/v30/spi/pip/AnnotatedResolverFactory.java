@@ -24,6 +24,7 @@ package org.xacml4j.v30.spi.pip;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
@@ -45,6 +46,8 @@ import org.xacml4j.v30.types.XacmlTypes;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteSource;
 import com.google.common.reflect.TypeToken;
 
 class AnnotatedResolverFactory
@@ -52,9 +55,11 @@ class AnnotatedResolverFactory
 	private  final static Logger log = LoggerFactory.getLogger(AnnotatedResolverFactory.class);
 
 	private final static TypeToken<?> ATTR_RESOLVER_RETURN_TYPE;
+	private final static TypeToken<?> BATCH_ATTR_RESOLVER_RETURN_TYPE;
 
 	static{
 		ATTR_RESOLVER_RETURN_TYPE = new TypeToken<Map<String, BagOfAttributeExp>>(){};
+		BATCH_ATTR_RESOLVER_RETURN_TYPE = new TypeToken<List<Map<String, BagOfAttributeExp>>>(){};
 	}
 
 	/**
@@ -112,6 +117,7 @@ class AnnotatedResolverFactory
 				d.issuer(),
 				Categories.parse(d.category()));
 		b.cache(d.cacheTTL());
+		b.negativeCache(d.negativeCacheTTL());
 		XacmlAttributeDescriptor[] attributes = d.attributes();
 		if(attributes == null ||
 				attributes.length == 0){
@@ -127,19 +133,26 @@ class AnnotatedResolverFactory
 			b.attribute(attr.id(), type.get());
 
 		}
-		Pair<Boolean, List<AttributeReferenceKey>> info = parseResolverMethodParams(m);
-		b.keys(info.getSecond());
 		TypeToken<?> returnType = TypeToken.of(m.getGenericReturnType());
 		if(log.isDebugEnabled()){
 			log.debug("Attribute resolver id=\"{}\" return type=\"{}\"",
 					d.id(), returnType.toString());
 		}
-		if(!ATTR_RESOLVER_RETURN_TYPE.equals(returnType)){
+		boolean batch = BATCH_ATTR_RESOLVER_RETURN_TYPE.equals(returnType);
+		if(!batch &&
+				!ATTR_RESOLVER_RETURN_TYPE.equals(returnType)){
 			throw new XacmlSyntaxException(
-					"Attribute resolver method=\"%s\"  must return=\"%s\"",
-					m.getName(), ATTR_RESOLVER_RETURN_TYPE.toString());
+					"Attribute resolver method=\"%s\"  must return=\"%s\" or \"%s\"",
+					m.getName(), ATTR_RESOLVER_RETURN_TYPE.toString(),
+					BATCH_ATTR_RESOLVER_RETURN_TYPE.toString());
 		}
+		Pair<Boolean, List<AttributeReferenceKey>> info = parseResolverMethodParams(m, batch);
+		b.keys(info.getSecond());
 		AttributeResolverDescriptor descriptor = b.build();
+		if(batch){
+			return new AnnotatedBatchAttributeResolver(descriptor,
+					new BatchInvocation<Map<String, BagOfAttributeExp>>(instance, m, info.getFirst()));
+		}
 		return new AnnotatedAttributeResolver(descriptor,
 				new Invocation(instance, m, info.getFirst()));
 	}
@@ -155,49 +168,64 @@ class AnnotatedResolverFactory
 				d.id(), d.name(),
 				Categories.parse(d.category()));
 		b.cache(d.cacheTTL());
-		Pair<Boolean, List<AttributeReferenceKey>> info = parseResolverMethodParams(m);
+		Pair<Boolean, List<AttributeReferenceKey>> info = parseResolverMethodParams(m, false);
 		b.keys(info.getSecond());
-		if(!m.getReturnType().isAssignableFrom(Node.class)){
+		if(!m.getReturnType().isAssignableFrom(Node.class) &&
+				!m.getReturnType().equals(byte[].class) &&
+				!ByteSource.class.isAssignableFrom(m.getReturnType())){
 			throw new XacmlSyntaxException(
-					"Attribute resolver method=\"%s\" " +
-					"must return=\"%s\"", m.getName(),
-					Node.class.getName());
+					"Content resolver method=\"%s\" " +
+					"must return=\"%s\", \"byte[]\" or \"%s\"", m.getName(),
+					Node.class.getName(), ByteSource.class.getName());
 		}
 		ContentResolverDescriptor descriptor = b.build();
 		return new AnnotatedContentResolver(descriptor,
 				new Invocation(instance, m, info.getFirst()));
 	}
 
-	private Pair<Boolean, List<AttributeReferenceKey>> parseResolverMethodParams(Method m)
+	/**
+	 * Parses resolver method parameters, parameters of the
+	 * batch resolver method are lists of the keys and
+	 * resolver contexts
+	 *
+	 * @param m a resolver method
+	 * @param batch a flag indicating batch resolver method
+	 * @return a pair of flag indicating if resolver
+	 * context is required and a list of resolver keys
+	 * @throws XacmlSyntaxException
+	 */
+	private Pair<Boolean, List<AttributeReferenceKey>> parseResolverMethodParams(Method m, boolean batch)
 		throws XacmlSyntaxException
 	{
 		List<AttributeReferenceKey> keys = new LinkedList<AttributeReferenceKey>();
 		Class<?>[] types = m.getParameterTypes();
+		Class<?> keyType = batch?List.class:BagOfAttributeExp.class;
+		Class<?> contextType = batch?List.class:ResolverContext.class;
 		boolean needPipContext = false;
-		int  i = 0;
-		for(Annotation[] p : m.getParameterAnnotations())
+		Annotation[][] annotations = m.getParameterAnnotations();
+		for(int i = 0; i < annotations.length; i++)
 		{
+			Annotation[] p = annotations[i];
 			if(p.length == 0 && i != 0){
 				throw new XacmlSyntaxException(
 						"Only first parameter of the resolver method=\"%s\" " +
 						"can be without annotation", m.getName());
 			}
 			if(p.length == 0 && i == 0) {
-				if(!types[i].equals(ResolverContext.class)){
+				if(!types[i].equals(contextType)){
 					throw new XacmlSyntaxException(
 							"Resolver parameter without annotation at index=\"%d\" must be of type=\"%s\"",
-							i, ResolverContext.class);
+							i, contextType);
 				}
 				needPipContext = true;
 				continue;
 			}
-			if(p.length > 0 &&
-					p[0] instanceof XacmlAttributeDesignator)
+			if(p[0] instanceof XacmlAttributeDesignator)
 			{
-				if(!(types[i].equals(BagOfAttributeExp.class))){
+				if(!(types[i].equals(keyType))){
 					throw new XacmlSyntaxException(
 							"Resolver method=\"%s\" parameter at index=\"%d\" must be of type=\"%s\"",
-							m.getName(), i, BagOfAttributeExp.class.getName());
+							m.getName(), i, keyType.getName());
 				}
 				XacmlAttributeDesignator ref = (XacmlAttributeDesignator)p[0];
 				Optional<AttributeExpType> type = XacmlTypes.getType(ref.dataType());
@@ -214,15 +242,14 @@ class AnnotatedResolverFactory
 						.build());
 				continue;
 			}
-			if(p.length > 0 &&
-					p[0] instanceof XacmlAttributeSelector)
+			if(p[0] instanceof XacmlAttributeSelector)
 			{
-				if(!(types[i].equals(BagOfAttributeExp.class))){
+				if(!(types[i].equals(keyType))){
 					throw new XacmlSyntaxException(
 							"Resolver method=\"%s\" " +
 							"request key parameter " +
 							"at index=\"%d\" must be of type=\"%s\"",
-							m.getName(), i, BagOfAttributeExp.class.getName());
+							m.getName(), i, keyType.getName());
 				}
 				XacmlAttributeSelector ref = (XacmlAttributeSelector)p[0];
 				Optional<AttributeExpType> type = XacmlTypes.getType(ref.dataType());
@@ -239,10 +266,9 @@ class AnnotatedResolverFactory
 						.build());
 				continue;
 			}
-			i++;
 			throw new XacmlSyntaxException(
 						"Unknown annotation of type=\"%s\" found",
-						types[0].getClass());
+						p[0].annotationType());
 		}
 		return new Pair<Boolean, List<AttributeReferenceKey>>(needPipContext, keys);
 	}
@@ -277,6 +303,45 @@ class AnnotatedResolverFactory
 		}
 	}
 
+	/**
+	 * An invocation of the batch resolver method, each
+	 * key is passed to the method as a list of the key
+	 * values of each resolver context
+	 */
+	public static final class BatchInvocation <T>
+	{
+		private final Method m;
+		private final Object instance;
+		private final boolean requiresContext;
+
+		public BatchInvocation(
+				Object instance,
+				Method m,
+				boolean requiresContext){
+			this.instance = instance;
+			this.m = m;
+			this.requiresContext = requiresContext;
+		}
+
+		@SuppressWarnings("unchecked")
+		public List<T> invoke(List<ResolverContext> contexts) throws Exception
+		{
+			int offset = requiresContext?1:0;
+			Object[] params = new Object[m.getParameterTypes().length];
+			if (requiresContext) {
+				params[0] = contexts;
+			}
+			for (int i = offset; i < params.length; i++) {
+				List<BagOfAttributeExp> keys = new ArrayList<BagOfAttributeExp>(contexts.size());
+				for (ResolverContext context : contexts) {
+					keys.add(context.getKeys().get(i - offset));
+				}
+				params[i] = keys;
+			}
+			return (List<T>)m.invoke(instance, params);
+		}
+	}
+
 	/**
 	 * An implementation {@link AttributeResolver} for
 	 * annotated resolver classes
@@ -302,20 +367,50 @@ class AnnotatedResolverFactory
 		}
 	}
 
+	/**
+	 * An implementation {@link BatchAttributeResolver} for
+	 * annotated batch resolver methods
+	 */
+	private static final class AnnotatedBatchAttributeResolver
+		extends BaseAttributeResolver
+		implements BatchAttributeResolver
+	{
+		private BatchInvocation<Map<String, BagOfAttributeExp>> invocation;
+
+		public AnnotatedBatchAttributeResolver(
+				AttributeResolverDescriptor descriptor,
+				BatchInvocation<Map<String, BagOfAttributeExp>> invocation) {
+			super(descriptor);
+			this.invocation = invocation;
+		}
+
+		@Override
+		protected Map<String, BagOfAttributeExp> doResolve(
+				ResolverContext context) throws Exception {
+			return invocation.invoke(ImmutableList.of(context)).get(0);
+		}
+
+		@Override
+		protected List<Map<String, BagOfAttributeExp>> doResolve(
+				List<ResolverContext> contexts) throws Exception {
+			return invocation.invoke(contexts);
+		}
+	}
+
 	private static final class AnnotatedContentResolver
 		extends BaseContentResolver
 	{
-		private Invocation<Node> invocation;
+		private Invocation<Object> invocation;
 
 		public AnnotatedContentResolver(
 				ContentResolverDescriptor descriptor,
-				Invocation<Node> invocation) {
+				Invocation<Object> invocation) {
 			super(descriptor);
 			this.invocation = invocation;
 		}
 
 		@Override
-		protected Node doResolve(ResolverContext context)
+		protected Object doResolve(ResolverContext context)
 				throws Exception {
 			return invocation.invoke(context);
 		}
@@ -27,6 +27,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.xacml4j.v30.AttributeDesignatorKey;
 import org.xacml4j.v30.AttributeExpType;
@@ -49,6 +50,11 @@ public final class AttributeResolverDescriptorBuilder
 	private String issuer;
 	private List<AttributeReferenceKey> keys;
 	private int preferredCacheTTL = 0;
+	private int negativeCacheTTL = 0;
+	private long timeout = 0;
+	private int maxConcurrentInvocations = 0;
+	private int circuitBreakerThreshold = 0;
+	private long circuitBreakerResetTimeout = 0;
 
 	private AttributeResolverDescriptorBuilder(
 			String id,
@@ -126,6 +132,66 @@ public final class AttributeResolverDescriptorBuilder
 		return this;
 	}
 
+	/**
+	 * Enables caching of empty or failed
+	 * resolutions for a given period
+	 *
+	 * @param ttl a TTL in seconds
+	 * @return {@link AttributeResolverDescriptorBuilder}
+	 */
+	public AttributeResolverDescriptorBuilder negativeCache(int ttl){
+		this.negativeCacheTTL = ttl;
+		return this;
+	}
+
+	/**
+	 * Limits duration of a single resolver invocation,
+	 * an invocation exceeding a given timeout is abandoned
+	 * and treated as failed
+	 *
+	 * @param timeout a timeout
+	 * @param unit a timeout unit
+	 * @return {@link AttributeResolverDescriptorBuilder}
+	 */
+	public AttributeResolverDescriptorBuilder timeout(long timeout, TimeUnit unit){
+		Preconditions.checkArgument(timeout >= 0);
+		this.timeout = unit.toMillis(timeout);
+		return this;
+	}
+
+	/**
+	 * Limits a number of concurrent resolver invocations,
+	 * an invocation exceeding the limit fails immediately
+	 *
+	 * @param max a maximum number of concurrent invocations
+	 * @return {@link AttributeResolverDescriptorBuilder}
+	 */
+	public AttributeResolverDescriptorBuilder maxConcurrentInvocations(int max){
+		Preconditions.checkArgument(max >= 0);
+		this.maxConcurrentInvocations = max;
+		return this;
+	}
+
+	/**
+	 * Enables circuit breaker, after a given number of
+	 * consecutive failures resolver invocations fail
+	 * immediately until a given reset timeout elapses
+	 *
+	 * @param threshold a number of consecutive failures
+	 * @param resetTimeout a period after which a trial
+	 * invocation is let through
+	 * @param unit a reset timeout unit
+	 * @return {@link AttributeResolverDescriptorBuilder}
+	 */
+	public AttributeResolverDescriptorBuilder circuitBreaker(int threshold,
+			long resetTimeout, TimeUnit unit){
+		Preconditions.checkArgument(threshold > 0);
+		Preconditions.checkArgument(resetTimeout >= 0);
+		this.circuitBreakerThreshold = threshold;
+		this.circuitBreakerResetTimeout = unit.toMillis(resetTimeout);
+		return this;
+	}
+
 	public AttributeResolverDescriptorBuilder attribute(
 			String attributeId,
 			AttributeExpType dataType){
@@ -170,7 +236,9 @@ public final class AttributeResolverDescriptorBuilder
 		private Map<AttributeDesignatorKey, AttributeDescriptor> attributesByKey;
 
 		AttributeResolverDescriptorImpl() {
-			super(id, name, category, keys, preferredCacheTTL);
+			super(id, name, category, keys, preferredCacheTTL, negativeCacheTTL,
+					timeout, maxConcurrentInvocations,
+					circuitBreakerThreshold, circuitBreakerResetTimeout);
 			this.attributesById = ImmutableMap.copyOf(
 					AttributeResolverDescriptorBuilder.this.attributesById);
 			this.attributesByKey = ImmutableMap.copyOf(
@@ -0,0 +1,165 @@
+package org.xacml4j.v30.spi.pip;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xacml4j.v30.AttributeExp;
+import org.xacml4j.v30.AttributeExpType;
+import org.xacml4j.v30.BagOfAttributeExp;
+import org.xacml4j.v30.types.TypeToString;
+import org.xacml4j.v30.types.XacmlTypes;
+
+import com.google.common.base.Optional;
+
+/**
+ * A compact binary encoding of {@link BagOfAttributeExp}
+ * instances, a data type identifier is written once per
+ * codec instance and referenced by its index afterwards,
+ * values are written in their XACML string form
+ */
+final class BagOfAttributeExpCodec
+{
+	/**
+	 * A maximum length of an encoded string or
+	 * a number of values in an encoded bag
+	 */
+	static final int MAX_LENGTH = 16 * 1024 * 1024;
+
+	private final Map<AttributeExpType, Integer> typeIndex;
+	private final List<AttributeExpType> types;
+
+	BagOfAttributeExpCodec(){
+		this.typeIndex = new HashMap<AttributeExpType, Integer>();
+		this.types = new ArrayList<AttributeExpType>();
+	}
+
+	void write(DataOutput out, BagOfAttributeExp bag) throws IOException
+	{
+		AttributeExpType type = bag.getDataType();
+		Integer index = typeIndex.get(type);
+		if(index == null){
+			typeIndex.put(type, typeIndex.size());
+			out.writeInt(-1);
+			writeString(out, type.getDataTypeId());
+		}else{
+			out.writeInt(index);
+		}
+		TypeToString toString = getToString(type);
+		out.writeInt(bag.size());
+		for(AttributeExp v : bag.values()){
+			writeString(out, toString.toString(v));
+		}
+	}
+
+	BagOfAttributeExp read(DataInput in) throws IOException
+	{
+		int index = in.readInt();
+		AttributeExpType type;
+		if(index < 0){
+			String typeId = readString(in);
+			Optional<AttributeExpType> t = XacmlTypes.getType(typeId);
+			if(!t.isPresent()){
+				throw new IOException(String.format(
+						"Unknown data type=\"%s\"", typeId));
+			}
+			type = t.get();
+			types.add(type);
+		}else{
+			if(index >= types.size()){
+				throw new IOException(String.format(
+						"Invalid data type index=\"%d\"", index));
+			}
+			type = types.get(index);
+		}
+		TypeToString toString = getToString(type);
+		int size = readLength(in);
+		List<AttributeExp> values = new ArrayList<AttributeExp>(size);
+		for(int i = 0; i < size; i++){
+			values.add(toString.fromString(readString(in)));
+		}
+		return type.bagOf(values);
+	}
+
+	/**
+	 * Tests if values of a given bag can be
+	 * encoded by this codec
+	 *
+	 * @param bag a bag
+	 * @return {@code true} if bag values can be encoded
+	 */
+	static boolean isSupported(BagOfAttributeExp bag)
+	{
+		return TypeToString.Types.getIndex().get(bag.getDataType()).isPresent();
+	}
+
+	private static TypeToString getToString(AttributeExpType type) throws IOException
+	{
+		Optional<TypeToString> toString = TypeToString.Types.getIndex().get(type);
+		if(!toString.isPresent()){
+			throw new IOException(String.format(
+					"Unsupported data type=\"%s\"", type.getDataTypeId()));
+		}
+		return toString.get();
+	}
+
+	static void writeString(DataOutput out, String v) throws IOException
+	{
+		byte[] b = v.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(b.length);
+		out.write(b);
+	}
+
+	static String readString(DataInput in) throws IOException
+	{
+		byte[] b = new byte[readLength(in)];
+		in.readFully(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads a string length or a number of values
+	 * and validates it against {@link #MAX_LENGTH}
+	 *
+	 * @param in an input
+	 * @return a length
+	 * @throws IOException if an I/O error occurs or
+	 * a length is negative or exceeds {@link #MAX_LENGTH}
+	 */
+	static int readLength(DataInput in) throws IOException
+	{
+		int length = in.readInt();
+		if(length < 0 || length > MAX_LENGTH){
+			throw new IOException(String.format(
+					"Invalid length=\"%d\"", length));
+		}
+		return length;
+	}
+}
@@ -24,9 +24,12 @@ package org.xacml4j.v30.spi.pip;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 import static org.xacml4j.v30.pdp.MetricsSupport.getOrCreate;
 import static org.xacml4j.v30.pdp.MetricsSupport.name;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -37,9 +40,13 @@ import org.xacml4j.v30.BagOfAttributeExp;
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableList;
 
 /**
- * A base implementation of {@link AttributeResolver}
+ * A base implementation of {@link AttributeResolver}.
+ * Subclasses supporting bulk queries may implement
+ * {@link BatchAttributeResolver} and override
+ * {@link #doResolve(List)}
  *
  * @author Giedrius Trumpickas
  */
@@ -51,6 +58,7 @@ public abstract class BaseAttributeResolver implements AttributeResolver
 
 	private final Timer timer;
 	private final Histogram histogram;
+	private final ResolverMetrics metrics;
 	private AtomicInteger preferredCacheTTL;
 
 	protected BaseAttributeResolver(
@@ -68,6 +76,7 @@ public abstract class BaseAttributeResolver implements AttributeResolver
 				descriptor.getId(), "timer"));
 		this.histogram = registry.histogram(name("pip.AttributeResolver",
 				descriptor.getId(), "histogram"));
+		this.metrics = new ResolverMetrics(descriptor.getId());
 	}
 
 	@Override
@@ -102,6 +111,51 @@ public abstract class BaseAttributeResolver implements AttributeResolver
 		}
 	}
 
+	/**
+	 * Resolves attributes for each of the given
+	 * resolver contexts via {@link #doResolve(List)}
+	 *
+	 * @param contexts resolver contexts
+	 * @return a list of {@link AttributeSet} in the
+	 * same order as given resolver contexts
+	 * @throws Exception if an error occurs
+	 */
+	public final List<AttributeSet> resolve(
+			List<ResolverContext> contexts) throws Exception
+	{
+		for(ResolverContext context : contexts){
+			checkArgument(context.getDescriptor().getId().equals(descriptor.getId()));
+		}
+		if(log.isDebugEnabled()){
+			log.debug("Retrieving=\"{}\" attribute sets via resolver id=\"{}\" name=\"{}\"",
+					new Object[]{contexts.size(), descriptor.getId(), descriptor.getName()});
+		}
+		Timer.Context timerCtx = timer.time();
+		try
+		{
+			List<Map<String, BagOfAttributeExp>> values = doResolve(contexts);
+			checkState(values.size() == contexts.size(),
+					"Resolver id=\"%s\" returned=\"%s\" results for=\"%s\" contexts",
+					descriptor.getId(), values.size(), contexts.size());
+			ImmutableList.Builder<AttributeSet> b = ImmutableList.builder();
+			for(int i = 0; i < contexts.size(); i++){
+				b.add(AttributeSet
+						.builder(descriptor)
+						.attributes(values.get(i))
+						.ticker(contexts.get(i).getTicker())
+						.build());
+			}
+			return b.build();
+		}catch(Exception e){
+			if(log.isDebugEnabled()){
+				log.debug(e.getMessage(), e);
+			}
+			throw e;
+		}finally{
+			histogram.update(timerCtx.stop());
+		}
+	}
+
 	/**
 	 * Performs actual attribute resolution
 	 *
@@ -113,6 +167,26 @@ public abstract class BaseAttributeResolver implements AttributeResolver
 	protected abstract Map<String, BagOfAttributeExp> doResolve(
 			ResolverContext context) throws Exception;
 
+	/**
+	 * Performs actual attribute resolution for multiple
+	 * resolver contexts, a default implementation invokes
+	 * {@link #doResolve(ResolverContext)} for each context
+	 *
+	 * @param contexts resolver contexts
+	 * @return a list of resolved attribute maps in the
+	 * same order as given resolver contexts
+	 * @throws Exception if an error occurs
+	 */
+	protected List<Map<String, BagOfAttributeExp>> doResolve(
+			List<ResolverContext> contexts) throws Exception
+	{
+		List<Map<String, BagOfAttributeExp>> values = new ArrayList<Map<String, BagOfAttributeExp>>(contexts.size());
+		for(ResolverContext context : contexts){
+			values.add(doResolve(context));
+		}
+		return values;
+	}
+
 	@Override
 	public final int getPreferredCacheTTL() {
 		return descriptor.getPreferredCacheTTL();
@@ -125,4 +199,59 @@ public abstract class BaseAttributeResolver implements AttributeResolver
 			this.preferredCacheTTL.set(ttl);
 		}
 	}
+
+	@Override
+	public final long getCacheHitCount() {
+		return metrics.getCacheHitCount();
+	}
+
+	@Override
+	public final long getCacheMissCount() {
+		return metrics.getCacheMissCount();
+	}
+
+	@Override
+	public final double getCacheHitRatio() {
+		return metrics.getCacheHitRatio();
+	}
+
+	@Override
+	public final long getStaleHitCount() {
+		return metrics.getStaleHitCount();
+	}
+
+	@Override
+	public final long getNegativeCacheHitCount() {
+		return metrics.getNegativeCacheHitCount();
+	}
+
+	@Override
+	public final long getCoalescedWaitCount() {
+		return metrics.getCoalescedWaitCount();
+	}
+
+	@Override
+	public final long getFallbackCount() {
+		return metrics.getFallbackCount();
+	}
+
+	@Override
+	public final long getErrorCount() {
+		return metrics.getErrorCount();
+	}
+
+	@Override
+	public final double getErrorRatio() {
+		return metrics.getErrorRatio();
+	}
+
+	@Override
+	public final double getMeanMissLatency() {
+		return metrics.getMeanMissLatency();
+	}
+
+	@Override
+	public final double get99thPercentileMissLatency() {
+		return metrics.get99thPercentileMissLatency();
+	}
 }
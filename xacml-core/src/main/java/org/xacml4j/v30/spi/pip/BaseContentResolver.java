@@ -22,13 +22,20 @@ package org.xacml4j.v30.spi.pip;
  * #L%
  */
 
+import static org.xacml4j.v30.pdp.MetricsSupport.getOrCreate;
+import static org.xacml4j.v30.pdp.MetricsSupport.name;
+
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Node;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.base.Preconditions;
+import com.google.common.io.ByteSource;
 
 /**
  * A base class for {@link ContentResolver} implementations
@@ -41,6 +48,9 @@ public abstract class BaseContentResolver implements ContentResolver
 
 	private ContentResolverDescriptor descriptor;
 
+	private final Timer timer;
+	private final Histogram histogram;
+	private final ResolverMetrics metrics;
 	private AtomicInteger preferredCacheTTL;
 
 
@@ -53,6 +63,12 @@ public abstract class BaseContentResolver implements ContentResolver
 						super.getPreferredCacheTTL(): preferredCacheTTL.get();
 			}
 		};
+		final MetricRegistry registry = getOrCreate();
+		this.timer = registry.timer(name("pip.ContentResolver",
+				descriptor.getId(), "timer"));
+		this.histogram = registry.histogram(name("pip.ContentResolver",
+				descriptor.getId(), "histogram"));
+		this.metrics = new ResolverMetrics(descriptor.getId());
 	}
 
 	@Override
@@ -70,21 +86,41 @@ public abstract class BaseContentResolver implements ContentResolver
 					descriptor.getId(),
 					descriptor.getName());
 		}
-		return Content.builder()
+		Content.Builder b = Content.builder()
 				.resolver(this)
-				.content(doResolve(context))
-				.ticker(context.getTicker())
-				.build();
+				.ticker(context.getTicker());
+		Timer.Context timerCtx = timer.time();
+		try
+		{
+			Object v = doResolve(context);
+			if(v instanceof byte[]){
+				return b.xmlContent((byte[])v).build();
+			}
+			if(v instanceof ByteSource){
+				return b.xmlContent((ByteSource)v).build();
+			}
+			return b.content((Node)v).build();
+		}catch(Exception e){
+			if(log.isDebugEnabled()){
+				log.debug(e.getMessage(), e);
+			}
+			throw e;
+		}finally{
+			histogram.update(timerCtx.stop());
+		}
 	}
 
 	/**
-	 * Performs an actual content resolution
+	 * Performs an actual content resolution, content
+	 * can be resolved as DOM or in the serialized form
+	 * as {@code byte[]} or {@link ByteSource}
 	 *
 	 * @param context a policy information context
-	 * @return {@link Node} a resolved content or {@code null}
+	 * @return {@link Node}, {@code byte[]} or {@link ByteSource}
+	 * a resolved content or {@code null}
 	 * @throws Exception if an error occurs
 	 */
-	abstract Node doResolve(
+	abstract Object doResolve(
 			ResolverContext context)
 		throws Exception;
 
@@ -101,4 +137,59 @@ public abstract class BaseContentResolver implements ContentResolver
 			this.preferredCacheTTL.set(ttl);
 		}
 	}
+
+	@Override
+	public final long getCacheHitCount() {
+		return metrics.getCacheHitCount();
+	}
+
+	@Override
+	public final long getCacheMissCount() {
+		return metrics.getCacheMissCount();
+	}
+
+	@Override
+	public final double getCacheHitRatio() {
+		return metrics.getCacheHitRatio();
+	}
+
+	@Override
+	public final long getStaleHitCount() {
+		return metrics.getStaleHitCount();
+	}
+
+	@Override
+	public final long getNegativeCacheHitCount() {
+		return metrics.getNegativeCacheHitCount();
+	}
+
+	@Override
+	public final long getCoalescedWaitCount() {
+		return metrics.getCoalescedWaitCount();
+	}
+
+	@Override
+	public final long getFallbackCount() {
+		return metrics.getFallbackCount();
+	}
+
+	@Override
+	public final long getErrorCount() {
+		return metrics.getErrorCount();
+	}
+
+	@Override
+	public final double getErrorRatio() {
+		return metrics.getErrorRatio();
+	}
+
+	@Override
+	public final double getMeanMissLatency() {
+		return metrics.getMeanMissLatency();
+	}
+
+	@Override
+	public final double get99thPercentileMissLatency() {
+		return metrics.get99thPercentileMissLatency();
+	}
 }
@@ -22,10 +22,47 @@ package org.xacml4j.v30.spi.pip;
  * #L%
  */
 
+import java.util.concurrent.TimeUnit;
+
 import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
 
+/**
+ * A base implementation of {@link PolicyInformationPointCacheProvider}.
+ * An implementation never returns an expired entry, see
+ * {@link #isExpired(AttributeSet, Ticker)}. A non empty attribute
+ * set is returned for the stale grace period after it expires
+ * so it can be served while it is refreshed in background
+ */
 public abstract class BasePolicyInformationPointCacheProvider implements PolicyInformationPointCacheProvider {
 
+	private final int staleGracePeriod;
+
+	protected BasePolicyInformationPointCacheProvider() {
+		this(0);
+	}
+
+	/**
+	 * Creates a cache provider with a given stale grace period
+	 *
+	 * @param staleGracePeriod a period in seconds after resolver
+	 * preferred cache TTL during which an attribute set is still returned
+	 */
+	protected BasePolicyInformationPointCacheProvider(int staleGracePeriod) {
+		Preconditions.checkArgument(staleGracePeriod >= 0);
+		this.staleGracePeriod = staleGracePeriod;
+	}
+
+	/**
+	 * Gets a period in seconds after resolver preferred
+	 * cache TTL during which an attribute set is still returned
+	 *
+	 * @return a stale grace period in seconds
+	 */
+	public final int getStaleGracePeriod() {
+		return staleGracePeriod;
+	}
+
 	@Override
 	public final Content getContent(ResolverContext context) {
 		return context.getDescriptor().isCacheable() ? doGetContent(context) : null;
@@ -44,19 +81,60 @@ public abstract class BasePolicyInformationPointCacheProvider implements PolicyI
 
 	@Override
 	public final AttributeSet getAttributes(ResolverContext context) {
-		return context.getDescriptor().isCacheable() ? doGetAttributes(context) : null;
+		ResolverDescriptor d = context.getDescriptor();
+		return (d.isCacheable() || d.getNegativeCacheTTL() > 0) ? doGetAttributes(context) : null;
 	}
 
+	/**
+	 * Puts a given attribute set to the cache, an empty
+	 * attribute set is cached only if resolver descriptor
+	 * enables negative caching
+	 *
+	 * @param context a resolver context
+	 * @param v an attribute set
+	 */
 	@Override
 	public final void putAttributes(ResolverContext context, AttributeSet v) {
 		Preconditions.checkArgument(context.getDescriptor().getId().equals(v.getDescriptor().getId()),
 				"Attribute set descriptor Id \"%s\" must match resolver context descriptor Id \"%s\"",
 				v.getDescriptor().getId(), context.getDescriptor().getId());
-		if (context.getDescriptor().isCacheable()) {
+		ResolverDescriptor d = context.getDescriptor();
+		if (v.isEmpty() ? d.getNegativeCacheTTL() > 0 : d.isCacheable()) {
 			doPutAttributes(context, v);
 		}
 	}
 
+	/**
+	 * Tests if a given attribute set can no longer be returned, a non
+	 * empty attribute set expires once resolver preferred cache TTL and
+	 * the stale grace period elapse, an empty attribute set expires once
+	 * resolver negative cache TTL elapses
+	 *
+	 * @param v an attribute set
+	 * @param ticker a ticker
+	 * @return {@code true} if a given attribute set is expired
+	 */
+	protected final boolean isExpired(AttributeSet v, Ticker ticker) {
+		AttributeResolverDescriptor d = v.getDescriptor();
+		long ttl = v.isEmpty() ? d.getNegativeCacheTTL() :
+				(long) d.getPreferredCacheTTL() + staleGracePeriod;
+		return ticker.read() - v.getCreatedTime() >= TimeUnit.SECONDS.toNanos(ttl);
+	}
+
+	/**
+	 * Tests if a given content can no longer
+	 * be returned, content expires once resolver
+	 * preferred cache TTL elapses
+	 *
+	 * @param v a content
+	 * @param ticker a ticker
+	 * @return {@code true} if a given content is expired
+	 */
+	protected final boolean isExpired(Content v, Ticker ticker) {
+		return ticker.read() - v.getTimestamp() >=
+				TimeUnit.SECONDS.toNanos(v.getDescriptor().getPreferredCacheTTL());
+	}
+
 	protected abstract Content doGetContent(ResolverContext context);
 
 	protected abstract AttributeSet doGetAttributes(ResolverContext context);
@@ -39,6 +39,11 @@ public abstract class BaseResolverDescriptor
 	private CategoryId category;
 	private List<AttributeReferenceKey> keyRefs;
 	private int cacheTTL;
+	private int negativeCacheTTL;
+	private long timeout;
+	private int maxConcurrentInvocations;
+	private int circuitBreakerThreshold;
+	private long circuitBreakerResetTimeout;
 
 	protected BaseResolverDescriptor(String id,
 			String name,
@@ -53,6 +58,31 @@ public abstract class BaseResolverDescriptor
 			CategoryId category,
 			List<AttributeReferenceKey> keys,
 			int preferredCacheTTL) {
+		this(id, name, category, keys, preferredCacheTTL, 0);
+	}
+
+	protected BaseResolverDescriptor(
+			String id,
+			String name,
+			CategoryId category,
+			List<AttributeReferenceKey> keys,
+			int preferredCacheTTL,
+			int negativeCacheTTL) {
+		this(id, name, category, keys, preferredCacheTTL, negativeCacheTTL,
+				0, 0, 0, 0);
+	}
+
+	protected BaseResolverDescriptor(
+			String id,
+			String name,
+			CategoryId category,
+			List<AttributeReferenceKey> keys,
+			int preferredCacheTTL,
+			int negativeCacheTTL,
+			long timeout,
+			int maxConcurrentInvocations,
+			int circuitBreakerThreshold,
+			long circuitBreakerResetTimeout) {
 		Preconditions.checkNotNull(id);
 		Preconditions.checkNotNull(name);
 		Preconditions.checkNotNull(category);
@@ -61,6 +91,11 @@ public abstract class BaseResolverDescriptor
 		this.category = category;
 		this.keyRefs = ImmutableList.copyOf(keys);
 		this.cacheTTL = (preferredCacheTTL < 0)?0:preferredCacheTTL;
+		this.negativeCacheTTL = (negativeCacheTTL < 0)?0:negativeCacheTTL;
+		this.timeout = (timeout < 0)?0:timeout;
+		this.maxConcurrentInvocations = (maxConcurrentInvocations < 0)?0:maxConcurrentInvocations;
+		this.circuitBreakerThreshold = (circuitBreakerThreshold < 0)?0:circuitBreakerThreshold;
+		this.circuitBreakerResetTimeout = (circuitBreakerResetTimeout < 0)?0:circuitBreakerResetTimeout;
 	}
 
 	@Override
@@ -84,6 +119,31 @@ public abstract class BaseResolverDescriptor
 		return cacheTTL;
 	}
 
+	@Override
+	public int getNegativeCacheTTL() {
+		return negativeCacheTTL;
+	}
+
+	@Override
+	public long getTimeout() {
+		return timeout;
+	}
+
+	@Override
+	public int getMaxConcurrentInvocations() {
+		return maxConcurrentInvocations;
+	}
+
+	@Override
+	public int getCircuitBreakerThreshold() {
+		return circuitBreakerThreshold;
+	}
+
+	@Override
+	public long getCircuitBreakerResetTimeout() {
+		return circuitBreakerResetTimeout;
+	}
+
 	@Override
 	public final CategoryId getCategory() {
 		return category;
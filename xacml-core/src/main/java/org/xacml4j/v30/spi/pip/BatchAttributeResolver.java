@@ -0,0 +1,46 @@
+package org.xacml4j.v30.spi.pip;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.List;
+
+/**
+ * An optional extension of {@link AttributeResolver}
+ * capable to resolve attributes for multiple sets
+ * of keys in one call, i.e. via a bulk query
+ */
+public interface BatchAttributeResolver
+	extends AttributeResolver
+{
+	/**
+	 * Resolves attributes for each of the given
+	 * resolver contexts in one call
+	 *
+	 * @param contexts resolver contexts
+	 * @return a list of {@link AttributeSet} in the
+	 * same order as given resolver contexts
+	 * @throws Exception if an error occurs
+	 */
+	List<AttributeSet> resolve(
+			List<ResolverContext> contexts) throws Exception;
+}
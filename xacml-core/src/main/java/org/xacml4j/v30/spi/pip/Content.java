@@ -22,34 +22,115 @@ package org.xacml4j.v30.spi.pip;
  * #L%
  */
 
-import org.w3c.dom.Element;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
 import org.w3c.dom.Node;
 import org.xacml4j.util.DOMUtil;
 
 import com.google.common.base.MoreObjects;
-import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Ticker;
-
+import com.google.common.io.ByteSource;
+
+/**
+ * A content resolved by {@link ContentResolver}. Content
+ * is either a DOM node or a serialized XML document, serialized
+ * content is parsed only if {@link #getContent()} is called
+ *
+ * @author Giedrius Trumpickas
+ */
 public final class Content
 {
-	private Node content;
-	private ContentResolverDescriptor d;
-	private long timestamp;
+	private final Node content;
+	private final ByteSource xmlContent;
+	private final ContentResolverDescriptor d;
+	private final long timestamp;
 
 	private Content(Builder b)
 	{
 		this.content = b.content;
+		this.xmlContent = b.xmlContent;
 		this.d = b.d;
 		this.timestamp = b.ticker.read();
 	}
 
+	private Content(Content c, ByteSource xmlContent)
+	{
+		this.content = null;
+		this.xmlContent = xmlContent;
+		this.d = c.d;
+		this.timestamp = c.timestamp;
+	}
+
 	public static Builder builder(){
 		return new Builder();
 	}
 
+	/**
+	 * Gets content as {@link Node}. Serialized
+	 * content is parsed to the new document on
+	 * each call, a returned document is not shared
+	 * and is safe to use by a single evaluation
+	 *
+	 * @return a {@link Node} instance or {@code null}
+	 */
 	public Node getContent(){
-		return content;
+		if(content != null ||
+				xmlContent == null){
+			return content;
+		}
+		InputStream in = null;
+		try{
+			in = xmlContent.openStream();
+			return DOMUtil.parseContent(in);
+		}catch(IOException e){
+			throw new IllegalStateException(String.format(
+					"Failed to read content of resolver id=\"%s\"", d.getId()), e);
+		}finally{
+			if(in != null){
+				try{
+					in.close();
+				}catch(IOException e){
+					// ignore
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets content in the serialized form, such content
+	 * can be evaluated by {@link org.xacml4j.v30.spi.xpath.StreamingXPathEvaluator}
+	 * without parsing it to DOM
+	 *
+	 * @return {@link ByteSource} or {@code null}
+	 * if content was supplied as DOM
+	 */
+	public ByteSource getXmlContent(){
+		return xmlContent;
+	}
+
+	/**
+	 * Gets this content in the serialized form,
+	 * a returned content keeps the timestamp of
+	 * this content
+	 *
+	 * @return {@link Content} in the serialized form
+	 */
+	public Content toSerialized(){
+		if(xmlContent != null ||
+				content == null){
+			return this;
+		}
+		try{
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			DOMUtil.serializeToXml(content, out);
+			return new Content(this, ByteSource.wrap(out.toByteArray()));
+		}catch(Exception e){
+			throw new IllegalArgumentException(String.format(
+					"Failed to serialize content of resolver id=\"%s\"", d.getId()), e);
+		}
 	}
 
 	public long getTimestamp(){
@@ -64,7 +145,8 @@ public final class Content
 	public String toString(){
 		return MoreObjects.toStringHelper(this)
 		                  .add("id", d.getId())
-		                  .add("content", DOMUtil.toString((Element)content))
+		                  .add("content", (content != null)?
+		                		  DOMUtil.nodeToString(content):xmlContent)
 		                  .toString();
 	}
 
@@ -73,10 +155,39 @@ public final class Content
 		private Ticker ticker = Ticker.systemTicker();
 		private ContentResolverDescriptor d;
 		private Node content;
+		private ByteSource xmlContent;
 
 		public Builder content(Node node) {
 			Preconditions.checkNotNull(node);
 			this.content = node;
+			this.xmlContent = null;
+			return this;
+		}
+
+		/**
+		 * Sets content in the serialized form,
+		 * a given array is copied
+		 *
+		 * @param xml an XML document
+		 * @return {@link Builder}
+		 */
+		public Builder xmlContent(byte[] xml) {
+			Preconditions.checkNotNull(xml);
+			return xmlContent(ByteSource.wrap(xml.clone()));
+		}
+
+		/**
+		 * Sets content in the serialized form, a given
+		 * source is read each time content is used and
+		 * must return the same document on each read
+		 *
+		 * @param xml an XML document source
+		 * @return {@link Builder}
+		 */
+		public Builder xmlContent(ByteSource xml) {
+			Preconditions.checkNotNull(xml);
+			this.xmlContent = xml;
+			this.content = null;
 			return this;
 		}
 
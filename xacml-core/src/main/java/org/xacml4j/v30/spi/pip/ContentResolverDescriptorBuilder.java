@@ -24,6 +24,7 @@ package org.xacml4j.v30.spi.pip;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.xacml4j.v30.AttributeDesignatorKey;
 import org.xacml4j.v30.AttributeExpType;
@@ -41,6 +42,10 @@ public final class ContentResolverDescriptorBuilder
 	private CategoryId category;
 	private List<AttributeReferenceKey> keys;
 	private int cacheTTL;
+	private long timeout = 0;
+	private int maxConcurrentInvocations = 0;
+	private int circuitBreakerThreshold = 0;
+	private long circuitBreakerResetTimeout = 0;
 
 	private ContentResolverDescriptorBuilder(String id, String name, CategoryId category)
 	{
@@ -100,6 +105,54 @@ public final class ContentResolverDescriptorBuilder
 		return this;
 	}
 
+	/**
+	 * Limits duration of a single resolver invocation,
+	 * an invocation exceeding a given timeout is abandoned
+	 * and treated as failed
+	 *
+	 * @param timeout a timeout
+	 * @param unit a timeout unit
+	 * @return {@link ContentResolverDescriptorBuilder}
+	 */
+	public ContentResolverDescriptorBuilder timeout(long timeout, TimeUnit unit){
+		Preconditions.checkArgument(timeout >= 0);
+		this.timeout = unit.toMillis(timeout);
+		return this;
+	}
+
+	/**
+	 * Limits a number of concurrent resolver invocations,
+	 * an invocation exceeding the limit fails immediately
+	 *
+	 * @param max a maximum number of concurrent invocations
+	 * @return {@link ContentResolverDescriptorBuilder}
+	 */
+	public ContentResolverDescriptorBuilder maxConcurrentInvocations(int max){
+		Preconditions.checkArgument(max >= 0);
+		this.maxConcurrentInvocations = max;
+		return this;
+	}
+
+	/**
+	 * Enables circuit breaker, after a given number of
+	 * consecutive failures resolver invocations fail
+	 * immediately until a given reset timeout elapses
+	 *
+	 * @param threshold a number of consecutive failures
+	 * @param resetTimeout a period after which a trial
+	 * invocation is let through
+	 * @param unit a reset timeout unit
+	 * @return {@link ContentResolverDescriptorBuilder}
+	 */
+	public ContentResolverDescriptorBuilder circuitBreaker(int threshold,
+			long resetTimeout, TimeUnit unit){
+		Preconditions.checkArgument(threshold > 0);
+		Preconditions.checkArgument(resetTimeout >= 0);
+		this.circuitBreakerThreshold = threshold;
+		this.circuitBreakerResetTimeout = unit.toMillis(resetTimeout);
+		return this;
+	}
+
 	public ContentResolverDescriptor build(){
 		return new ContentResolverDescriptorImpl();
 	}
@@ -109,7 +162,9 @@ public final class ContentResolverDescriptorBuilder
 	{
 
 		public ContentResolverDescriptorImpl() {
-			super(id, name, category, keys, cacheTTL);
+			super(id, name, category, keys, cacheTTL, 0,
+					timeout, maxConcurrentInvocations,
+					circuitBreakerThreshold, circuitBreakerResetTimeout);
 		}
 
 		@Override
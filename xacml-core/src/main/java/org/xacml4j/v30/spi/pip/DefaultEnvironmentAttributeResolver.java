@@ -23,15 +23,12 @@ package org.xacml4j.v30.spi.pip;
  */
 
 
-import java.util.Calendar;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.xacml4j.v30.BagOfAttributeExp;
 import org.xacml4j.v30.Categories;
-import org.xacml4j.v30.types.DateExp;
-import org.xacml4j.v30.types.DateTimeExp;
-import org.xacml4j.v30.types.TimeExp;
+import org.xacml4j.v30.RequestTime;
 import org.xacml4j.v30.types.XacmlTypes;
 
 
@@ -57,14 +54,14 @@ class DefaultEnvironmentAttributeResolver extends BaseAttributeResolver
 	@Override
 	protected Map<String, BagOfAttributeExp> doResolve(
 			ResolverContext context) throws Exception {
-		Calendar currentDateTime = context.getCurrentDateTime();
+		RequestTime requestTime = context.getRequestTime();
 		Map<String, BagOfAttributeExp> v = new HashMap<String, BagOfAttributeExp>();
 		v.put("urn:oasis:names:tc:xacml:1.0:environment:current-time",
-					TimeExp.of(currentDateTime).toBag());
+					requestTime.getTime().toBag());
 		v.put("urn:oasis:names:tc:xacml:1.0:environment:current-date",
-					DateExp.of(currentDateTime).toBag());
+					requestTime.getDate().toBag());
 		v.put("urn:oasis:names:tc:xacml:1.0:environment:current-dateTime",
-					DateTimeExp.of(currentDateTime).toBag());
+					requestTime.getDateTime().toBag());
 		return v;
 	}
 }
@@ -22,17 +22,46 @@ package org.xacml4j.v30.spi.pip;
  * #L%
  */
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Node;
+import org.xacml4j.util.Pair;
 import org.xacml4j.v30.AttributeDesignatorKey;
 import org.xacml4j.v30.BagOfAttributeExp;
 import org.xacml4j.v30.CategoryId;
 import org.xacml4j.v30.EvaluationContext;
 import org.xacml4j.v30.EvaluationException;
 
+import com.codahale.metrics.Timer;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * A default implementation of {@link PolicyInformationPoint}
@@ -43,10 +72,57 @@ public class DefaultPolicyInformationPoint
 		implements PolicyInformationPoint {
 	private final static Logger log = LoggerFactory.getLogger(DefaultPolicyInformationPoint.class);
 
+	/**
+	 * A default prefetch timeout in milliseconds
+	 */
+	private final static long DEFAULT_PREFETCH_TIMEOUT = 5000;
+
+	/**
+	 * A default maximum number of threads used to invoke
+	 * a resolver without a concurrent invocations limit
+	 */
+	private final static int DEFAULT_RESOLVER_THREADS = 16;
+
 	private String id;
 	private PolicyInformationPointCacheProvider cache;
 	private ResolverRegistry registry;
 
+	/**
+	 * Resolutions in progress, concurrent misses for
+	 * the same resolver and keys wait on a single resolution
+	 */
+	private final ConcurrentMap<ResolverCacheKey, FutureTask<AttributeSet>> attributeLookups;
+	private final ConcurrentMap<ResolverCacheKey, FutureTask<Content>> contentLookups;
+
+	/**
+	 * Executor used to refresh cached attributes
+	 * in background or {@code null} if disabled
+	 */
+	private Executor refreshExecutor;
+	private double refreshAheadFactor = 1.0;
+	private final Set<ResolverCacheKey> refreshes;
+
+	/**
+	 * Guards of resolvers with invocation timeout,
+	 * concurrency limit or circuit breaker settings
+	 */
+	private final ConcurrentMap<String, ResolverGuard> guards;
+	private Executor resolverExecutor;
+
+	/**
+	 * Bounded pools owned by this PIP used to invoke
+	 * resolvers with an invocation timeout if an
+	 * executor is not set
+	 */
+	private final ConcurrentMap<String, ExecutorService> executors;
+	private volatile boolean closed;
+	private long prefetchTimeout = DEFAULT_PREFETCH_TIMEOUT;
+
+	/**
+	 * Cache and latency metrics by resolver id
+	 */
+	private final ConcurrentMap<String, ResolverMetrics> metrics;
+
 	public DefaultPolicyInformationPoint(String id,
 	                                     ResolverRegistry resolvers,
 	                                     PolicyInformationPointCacheProvider cache) {
@@ -56,6 +132,65 @@ public class DefaultPolicyInformationPoint
 		this.id = id;
 		this.cache = cache;
 		this.registry = resolvers;
+		this.attributeLookups = new ConcurrentHashMap<ResolverCacheKey, FutureTask<AttributeSet>>();
+		this.contentLookups = new ConcurrentHashMap<ResolverCacheKey, FutureTask<Content>>();
+		this.refreshes = Sets.newConcurrentHashSet();
+		this.guards = new ConcurrentHashMap<String, ResolverGuard>();
+		this.executors = new ConcurrentHashMap<String, ExecutorService>();
+		this.metrics = new ConcurrentHashMap<String, ResolverMetrics>();
+	}
+
+	/**
+	 * Sets an executor used to invoke resolvers with
+	 * an invocation timeout, by default each such resolver
+	 * is invoked via its own pool of daemon threads bounded
+	 * by the resolver concurrent invocations limit. A given
+	 * executor is not shut down by {@link #close()}
+	 *
+	 * @param executor an executor or {@code null}
+	 * to use default executor
+	 */
+	public void setResolverExecutor(Executor executor) {
+		this.resolverExecutor = executor;
+	}
+
+	/**
+	 * Sets a maximum time to wait for prefetched
+	 * attributes, resolutions not completed in time
+	 * are cancelled and designators are resolved
+	 * lazily during the evaluation
+	 *
+	 * @param timeout a timeout
+	 * @param unit a timeout unit
+	 */
+	public void setPrefetchTimeout(long timeout, TimeUnit unit) {
+		Preconditions.checkArgument(timeout > 0);
+		this.prefetchTimeout = unit.toMillis(timeout);
+	}
+
+	/**
+	 * Sets an executor used to refresh cached
+	 * attributes asynchronously, refresh ahead and
+	 * stale while revalidate modes require an executor
+	 *
+	 * @param executor an executor or {@code null}
+	 * to disable asynchronous refresh
+	 */
+	public void setRefreshExecutor(Executor executor) {
+		this.refreshExecutor = executor;
+	}
+
+	/**
+	 * Sets a fraction of the resolver preferred cache TTL
+	 * after which a cached attribute set is refreshed in
+	 * background while cached value is still served,
+	 * {@code 1.0} disables refresh ahead
+	 *
+	 * @param factor a fraction of the cache TTL in (0, 1]
+	 */
+	public void setRefreshAheadFactor(double factor) {
+		Preconditions.checkArgument(factor > 0 && factor <= 1.0);
+		this.refreshAheadFactor = factor;
 	}
 
 	@Override
@@ -77,36 +212,81 @@ public class DefaultPolicyInformationPoint
 			}
 			return null;
 		}
-		for (AttributeResolver r : resolvers) {
+		AttributeSet attributes = resolve(context, ref, resolvers);
+		return (attributes != null) ? attributes.get(ref.getAttributeId()) : ref.getDataType().emptyBag();
+	}
+
+	@Override
+	public AttributeSet resolveAttributes(
+			EvaluationContext context,
+			AttributeDesignatorKey ref) throws Exception {
+		if (log.isDebugEnabled()) {
+			log.debug("Trying to resolve designator=\"{}\"", ref);
+		}
+		return resolve(context, ref, registry.getMatchingAttributeResolvers(context, ref));
+	}
+
+	/**
+	 * Resolves a given designator via the first of given
+	 * resolvers which resolves to the non empty attribute set
+	 *
+	 * @param context an evaluation context
+	 * @param ref an attribute designator
+	 * @param resolvers matching resolvers
+	 * @return {@link AttributeSet} or {@code null}
+	 * @throws Exception if an error occurs
+	 */
+	private AttributeSet resolve(EvaluationContext context,
+	                             AttributeDesignatorKey ref,
+	                             Iterable<AttributeResolver> resolvers) throws Exception {
+		Iterator<AttributeResolver> it = resolvers.iterator();
+		while (it.hasNext()) {
+			AttributeResolver r = it.next();
 			AttributeResolverDescriptor d = r.getDescriptor();
 			Preconditions.checkState(d.canResolve(ref));
+			ResolverMetrics m = getMetrics(d);
 			ResolverContext rContext = createContext(context, d);
 			AttributeSet attributes = null;
-			if (d.isCacheable()) {
+			if (d.isCacheable() ||
+					d.getNegativeCacheTTL() > 0) {
 				if (log.isDebugEnabled()) {
 					log.debug("Trying to find resolver id=\"{}\" values in cache", d.getId());
 				}
 				attributes = cache.getAttributes(rContext);
 				if (attributes != null &&
-						!isExpired(attributes, context)) {
+						isUsable(attributes, context, r, rContext)) {
+					if (attributes.isEmpty()) {
+						if (log.isDebugEnabled()) {
+							log.debug("Found cached empty resolver id=\"{}\" values", d.getId());
+						}
+						m.markNegativeCacheHit();
+						context.setDecisionCacheTTL(d.getNegativeCacheTTL());
+						continue;
+					}
 					if (log.isDebugEnabled()) {
 						log.debug("Found cached resolver id=\"{}\" values=\"{}\"",
 								d.getId(), attributes);
 					}
-					return attributes.get(ref.getAttributeId());
+					m.markCacheHit();
+					return attributes;
 				}
+				m.markCacheMiss();
 			}
 			try {
 				if (log.isDebugEnabled()) {
 					log.debug("Trying to resolve values with resolver id=\"{}\"",
 							d.getId());
 				}
-				attributes = r.resolve(rContext);
+				attributes = resolve(r, d, rContext);
 				if (attributes.isEmpty()) {
 					if (log.isDebugEnabled()) {
 						log.debug("Resolver id=\"{}\" failed to resolve attributes",
 								d.getId());
 					}
+					putNegative(context, rContext, d);
+					if (it.hasNext()) {
+						m.markFallback();
+					}
 					continue;
 				}
 				if (log.isDebugEnabled()) {
@@ -117,6 +297,10 @@ public class DefaultPolicyInformationPoint
 				if (log.isDebugEnabled()) {
 					log.debug("Resolver id=\"{}\" failed to resolve attributes", d.getId(), e);
 				}
+				putNegative(context, rContext, d);
+				if (it.hasNext()) {
+					m.markFallback();
+				}
 				continue;
 			}
 			// check if resolver
@@ -126,48 +310,274 @@ public class DefaultPolicyInformationPoint
 				cache.putAttributes(rContext, attributes);
 			}
 			context.setDecisionCacheTTL(d.getPreferredCacheTTL());
-			return attributes.get(ref.getAttributeId());
+			return attributes;
 		}
-		return ref.getDataType().emptyBag();
+		return null;
 	}
 
-	private boolean isExpired(AttributeSet v, EvaluationContext context) {
-		return ((context.getTicker().read() - v.getCreatedTime()) /
-				1000000000L) >= v.getDescriptor().getPreferredCacheTTL();
+	@Override
+	public Map<AttributeDesignatorKey, AttributeSet> prefetch(
+			EvaluationContext context,
+			Iterable<AttributeDesignatorKey> refs,
+			ExecutorService executor) throws Exception {
+		Map<AttributeDesignatorKey, AttributeSet> result = prefetch(
+				Collections.singletonMap(context, refs), executor).get(context);
+		return (result != null) ? result : Collections.<AttributeDesignatorKey, AttributeSet>emptyMap();
 	}
 
-	private boolean isExpired(Content v, EvaluationContext context) {
-		long duration = context.getTicker().read() - v.getTimestamp() / 1000000000L;
+	@Override
+	public Map<EvaluationContext, Map<AttributeDesignatorKey, AttributeSet>> prefetch(
+			Map<EvaluationContext, ? extends Iterable<AttributeDesignatorKey>> refs,
+			ExecutorService executor) throws Exception {
+		Map<EvaluationContext, Map<AttributeDesignatorKey, AttributeSet>> result =
+				new LinkedHashMap<EvaluationContext, Map<AttributeDesignatorKey, AttributeSet>>();
+		Map<Object, ResolveTask> tasks = new LinkedHashMap<Object, ResolveTask>();
+		ListMultimap<ResolverCacheKey, Pair<EvaluationContext, AttributeDesignatorKey>> taskRefs =
+				LinkedListMultimap.create();
+		for (Map.Entry<EvaluationContext, ? extends Iterable<AttributeDesignatorKey>> e : refs.entrySet()) {
+			EvaluationContext context = e.getKey();
+			Map<AttributeDesignatorKey, AttributeSet> resolved = new LinkedHashMap<AttributeDesignatorKey, AttributeSet>();
+			result.put(context, resolved);
+			for (AttributeDesignatorKey ref : e.getValue()) {
+				AttributeResolver r = Iterables.getFirst(
+						registry.getMatchingAttributeResolvers(context, ref), null);
+				if (r == null) {
+					continue;
+				}
+				AttributeResolverDescriptor d = r.getDescriptor();
+				ResolverContext rContext;
+				try {
+					// resolver keys are evaluated on the calling
+					// thread, resolvers depending on other designators
+					// are resolved serially via evaluation context
+					rContext = createContext(context, d);
+				} catch (Exception ex) {
+					if (log.isDebugEnabled()) {
+						log.debug("Failed to evaluate resolver id=\"{}\" keys", d.getId(), ex);
+					}
+					continue;
+				}
+				if (d.isCacheable() ||
+						d.getNegativeCacheTTL() > 0) {
+					ResolverMetrics m = getMetrics(d);
+					AttributeSet attributes = cache.getAttributes(rContext);
+					if (attributes != null &&
+							isUsable(attributes, context, r, rContext)) {
+						if (!attributes.isEmpty()) {
+							m.markCacheHit();
+							resolved.put(ref, attributes);
+						} else {
+							m.markNegativeCacheHit();
+						}
+						continue;
+					}
+					m.markCacheMiss();
+				}
+				ResolverCacheKey key = createKey(d, rContext);
+				if (!taskRefs.containsKey(key)) {
+					// lookups of the same batch resolver
+					// are grouped to the single invocation
+					Object taskId = (r instanceof BatchAttributeResolver) ? d.getId() : key;
+					ResolveTask task = tasks.get(taskId);
+					if (task == null) {
+						task = new ResolveTask(r, d);
+						tasks.put(taskId, task);
+					}
+					task.add(key, rContext);
+				}
+				taskRefs.put(key, new Pair<EvaluationContext, AttributeDesignatorKey>(context, ref));
+			}
+		}
+		if (tasks.isEmpty()) {
+			return result;
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Invoking=\"{}\" resolvers concurrently", tasks.size());
+		}
+		List<Future<List<AttributeSet>>> futures = executor.invokeAll(tasks.values(),
+				prefetchTimeout, TimeUnit.MILLISECONDS);
+		Iterator<Future<List<AttributeSet>>> it = futures.iterator();
+		for (ResolveTask task : tasks.values()) {
+			Future<List<AttributeSet>> f = it.next();
+			List<AttributeSet> resolved;
+			try {
+				resolved = f.get();
+			} catch (CancellationException e) {
+				if (log.isDebugEnabled()) {
+					log.debug("Resolver id=\"{}\" prefetch timed out after=\"{}\" ms",
+							task.descriptor.getId(), prefetchTimeout);
+				}
+				continue;
+			} catch (ExecutionException e) {
+				if (log.isDebugEnabled()) {
+					log.debug("Resolver id=\"{}\" failed to resolve attributes",
+							task.descriptor.getId(), e.getCause());
+				}
+				for (ResolverContext rContext : task.contexts) {
+					putNegative(rContext, task.descriptor);
+				}
+				continue;
+			}
+			for (int i = 0; i < resolved.size(); i++) {
+				AttributeSet attributes = resolved.get(i);
+				if (attributes.isEmpty()) {
+					putNegative(task.contexts.get(i), task.descriptor);
+					continue;
+				}
+				if (task.descriptor.isCacheable()) {
+					cache.putAttributes(task.contexts.get(i), attributes);
+				}
+				for (Pair<EvaluationContext, AttributeDesignatorKey> ref : taskRefs.get(task.keys.get(i))) {
+					result.get(ref.getFirst()).put(ref.getSecond(), attributes);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Caches an empty attribute set for an empty or failed
+	 * resolution if a given descriptor enables negative caching
+	 *
+	 * @param context an evaluation context
+	 * @param rContext a resolver context
+	 * @param d a resolver descriptor
+	 */
+	private void putNegative(EvaluationContext context, ResolverContext rContext,
+	                         AttributeResolverDescriptor d) {
+		if (d.getNegativeCacheTTL() > 0) {
+			putNegative(rContext, d);
+			context.setDecisionCacheTTL(d.getNegativeCacheTTL());
+		}
+	}
 
+	private void putNegative(ResolverContext rContext, AttributeResolverDescriptor d) {
+		if (d.getNegativeCacheTTL() > 0) {
+			cache.putAttributes(rContext, AttributeSet
+					.builder(d)
+					.ticker(rContext.getTicker())
+					.build());
+		}
+	}
+
+	/**
+	 * Tests if a given cached attribute set can be used, an
+	 * attribute set nearing its expiration or an expired
+	 * attribute set returned by the cache provider within
+	 * its stale grace period is refreshed in background.
+	 * An expired attribute set is not used if it can not
+	 * be refreshed in background, expired entries beyond
+	 * the stale grace period are never returned by the
+	 * cache provider, see {@link BasePolicyInformationPointCacheProvider}
+	 *
+	 * @param v a cached attribute set
+	 * @param context an evaluation context
+	 * @param r a resolver
+	 * @param rContext a resolver context
+	 * @return {@code true} if cached attribute set can be used
+	 */
+	private boolean isUsable(AttributeSet v, EvaluationContext context,
+	                         AttributeResolver r, ResolverContext rContext) {
+		if (v.isEmpty()) {
+			return true;
+		}
+		long age = context.getTicker().read() - v.getCreatedTime();
+		long ttl = TimeUnit.SECONDS.toNanos(v.getDescriptor().getPreferredCacheTTL());
+		if (refreshExecutor == null) {
+			return age < ttl;
+		}
+		if (age >= ttl) {
+			getMetrics(v.getDescriptor()).markStaleHit();
+		}
+		if (age >= ttl * refreshAheadFactor) {
+			refresh(r, rContext);
+		}
+		return true;
+	}
+
+	/**
+	 * Schedules a background refresh of the cached
+	 * attributes, at most one refresh for the same
+	 * resolver and keys is in progress
+	 *
+	 * @param r a resolver
+	 * @param context a resolver context
+	 */
+	private void refresh(final AttributeResolver r, final ResolverContext context) {
+		final AttributeResolverDescriptor d = (AttributeResolverDescriptor) context.getDescriptor();
+		final ResolverCacheKey key = createKey(d, context);
+		if (!refreshes.add(key)) {
+			return;
+		}
 		if (log.isDebugEnabled()) {
-			log.debug("Attribute set=\"{}\" age=\"{}\" in cache", v, duration);
+			log.debug("Refreshing resolver id=\"{}\" cached values", d.getId());
+		}
+		try {
+			refreshExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						AttributeSet attributes = resolve(r, d, context);
+						if (!attributes.isEmpty()) {
+							cache.putAttributes(context, attributes);
+						}
+					} catch (Exception e) {
+						if (log.isDebugEnabled()) {
+							log.debug("Resolver id=\"{}\" failed to refresh attributes", d.getId(), e);
+						}
+					} finally {
+						refreshes.remove(key);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			refreshes.remove(key);
+			if (log.isDebugEnabled()) {
+				log.debug("Resolver id=\"{}\" refresh rejected", d.getId(), e);
+			}
 		}
-		return duration >= v.getDescriptor().getPreferredCacheTTL();
 	}
 
 	@Override
 	public Node resolve(final EvaluationContext context,
 	                    CategoryId category)
 			throws Exception {
+		Content v = resolveContent(context, category);
+		return (v != null) ? v.getContent() : null;
+	}
+
+	/**
+	 * Resolves a content for a given attribute category.
+	 * Content is cached in the serialized form, cached
+	 * content is parsed to DOM only if it is used by
+	 * the evaluation and each parse produces a document
+	 * private to the evaluation
+	 */
+	@Override
+	public Content resolveContent(final EvaluationContext context,
+	                              CategoryId category)
+			throws Exception {
 		ContentResolver r = registry.getMatchingContentResolver(context, category);
 		if (r == null) {
 			return null;
 		}
 		ContentResolverDescriptor d = r.getDescriptor();
+		ResolverMetrics m = getMetrics(d);
 		ResolverContext pipContext = createContext(context, d);
 		Content v = null;
 		if (d.isCacheable()) {
 			v = cache.getContent(pipContext);
-			if (v != null &&
-					!isExpired(v, context)) {
+			if (v != null) {
 				if (log.isDebugEnabled()) {
 					log.debug("Found cached content=\"{}\"", v);
 				}
-				return v.getContent();
+				m.markCacheHit();
+				return v;
 			}
+			m.markCacheMiss();
 		}
 		try {
-			v = r.resolve(pipContext);
+			v = resolve(r, d, pipContext);
 		} catch (Exception e) {
 			if (log.isDebugEnabled()) {
 				log.debug("Received error while resolving content for category=\"{}\"",
@@ -176,10 +586,10 @@ public class DefaultPolicyInformationPoint
 			return null;
 		}
 		if (d.isCacheable()) {
-			cache.putContent(pipContext, v);
+			cache.putContent(pipContext, v.toSerialized());
 		}
 		context.setDecisionCacheTTL(d.getPreferredCacheTTL());
-		return v.getContent();
+		return v;
 	}
 
 	@Override
@@ -191,4 +601,259 @@ public class DefaultPolicyInformationPoint
 			throws EvaluationException {
 		return new DefaultResolverContext(context, d);
 	}
+
+	private static ResolverCacheKey createKey(ResolverDescriptor d, ResolverContext context) {
+		return ResolverCacheKey
+				.builder()
+				.id(d)
+				.keys(context.getKeys())
+				.build();
+	}
+
+	private AttributeSet resolve(final AttributeResolver r,
+	                             AttributeResolverDescriptor d,
+	                             final ResolverContext context) throws Exception {
+		return resolve(attributeLookups, createKey(d, context), getMetrics(d), d.getTimeout(),
+				guard(d, context, new Callable<AttributeSet>() {
+					@Override
+					public AttributeSet call() throws Exception {
+						return r.resolve(context);
+					}
+				}));
+	}
+
+	private Content resolve(final ContentResolver r,
+	                        ContentResolverDescriptor d,
+	                        final ResolverContext context) throws Exception {
+		return resolve(contentLookups, createKey(d, context), getMetrics(d), d.getTimeout(),
+				guard(d, context, new Callable<Content>() {
+					@Override
+					public Content call() throws Exception {
+						return r.resolve(context);
+					}
+				}));
+	}
+
+	/**
+	 * Gets metrics of a given resolver
+	 *
+	 * @param d a resolver descriptor
+	 * @return {@link ResolverMetrics}
+	 */
+	private ResolverMetrics getMetrics(ResolverDescriptor d) {
+		ResolverMetrics m = metrics.get(d.getId());
+		if (m == null) {
+			ResolverMetrics newMetrics = new ResolverMetrics(d.getId());
+			m = metrics.putIfAbsent(d.getId(), newMetrics);
+			m = (m == null) ? newMetrics : m;
+		}
+		return m;
+	}
+
+	/**
+	 * Wraps a given resolution to enforce resolver
+	 * invocation timeout, concurrency limit and circuit
+	 * breaker settings of a given descriptor
+	 *
+	 * @param d a resolver descriptor
+	 * @param context a resolver context
+	 * @param resolution a resolution
+	 * @return a guarded resolution
+	 */
+	private <V> Callable<V> guard(ResolverDescriptor d,
+	                              final ResolverContext context,
+	                              final Callable<V> resolution) {
+		if (!ResolverGuard.isGuarded(d)) {
+			return resolution;
+		}
+		ResolverGuard guard = guards.get(d.getId());
+		if (guard == null) {
+			ResolverGuard newGuard = new ResolverGuard(d);
+			guard = guards.putIfAbsent(d.getId(), newGuard);
+			guard = (guard == null) ? newGuard : guard;
+		}
+		final ResolverGuard g = guard;
+		final Executor executor = (resolverExecutor != null || d.getTimeout() <= 0) ?
+				resolverExecutor : getDefaultExecutor(d);
+		return new Callable<V>() {
+			@Override
+			public V call() throws Exception {
+				return g.invoke(resolution, context.getTicker(), executor);
+			}
+		};
+	}
+
+	/**
+	 * Gets a default pool used to invoke a given resolver,
+	 * a pool is bounded by the resolver concurrent invocations
+	 * limit or {@link #DEFAULT_RESOLVER_THREADS}, an invocation
+	 * is rejected if all pool threads are busy
+	 *
+	 * @param d a resolver descriptor
+	 * @return {@link ExecutorService}
+	 */
+	private ExecutorService getDefaultExecutor(ResolverDescriptor d) {
+		ExecutorService executor = executors.get(d.getId());
+		if (executor != null) {
+			return executor;
+		}
+		if (closed) {
+			throw new RejectedExecutionException(String.format(
+					"PIP id=\"%s\" is closed", id));
+		}
+		int threads = (d.getMaxConcurrentInvocations() > 0) ?
+				d.getMaxConcurrentInvocations() : DEFAULT_RESOLVER_THREADS;
+		ThreadPoolExecutor newExecutor = new ThreadPoolExecutor(threads, threads,
+				60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+				new ThreadFactoryBuilder()
+						.setDaemon(true)
+						.setNameFormat("xacml4j-pip-" + d.getId().replace("%", "%%") + "-%d")
+						.build());
+		newExecutor.allowCoreThreadTimeOut(true);
+		executor = executors.putIfAbsent(d.getId(), newExecutor);
+		if (executor != null) {
+			newExecutor.shutdown();
+			return executor;
+		}
+		if (closed) {
+			// closed concurrently
+			newExecutor.shutdownNow();
+		}
+		return newExecutor;
+	}
+
+	/**
+	 * Shuts down resolver pools owned by this PIP,
+	 * resolutions in progress are interrupted
+	 */
+	@Override
+	public void close() {
+		this.closed = true;
+		for (ExecutorService executor : executors.values()) {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Invokes a given resolution or waits for the
+	 * resolution with the same key already in progress
+	 * at most a given resolver timeout, a resolution which
+	 * failed or timed out is removed from resolutions in
+	 * progress and is not joined by subsequent callers
+	 *
+	 * @param lookups resolutions in progress
+	 * @param key a resolver id and keys
+	 * @param m resolver metrics
+	 * @param timeout a resolver timeout in milliseconds
+	 * or {@code 0} if resolver is not time limited
+	 * @param resolution a resolution
+	 * @return a resolution result
+	 * @throws Exception if a resolution fails
+	 */
+	private static <V> V resolve(ConcurrentMap<ResolverCacheKey, FutureTask<V>> lookups,
+	                             ResolverCacheKey key,
+	                             ResolverMetrics m,
+	                             long timeout,
+	                             Callable<V> resolution) throws Exception {
+		FutureTask<V> task = new FutureTask<V>(resolution);
+		FutureTask<V> inProgress = lookups.putIfAbsent(key, task);
+		Timer.Context timerCtx = m.timeMiss();
+		boolean owner = (inProgress == null);
+		if (owner) {
+			inProgress = task;
+			try {
+				task.run();
+			} finally {
+				lookups.remove(key, task);
+			}
+		} else {
+			if (log.isDebugEnabled()) {
+				log.debug("Waiting for resolution=\"{}\" in progress", key);
+			}
+			m.markCoalescedWait();
+		}
+		try {
+			return (owner || timeout <= 0) ?
+					inProgress.get() : inProgress.get(timeout, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw e;
+		} catch (TimeoutException e) {
+			lookups.remove(key, inProgress);
+			if (log.isDebugEnabled()) {
+				log.debug("Resolution=\"{}\" in progress timed out after=\"{}\" ms",
+						key, timeout);
+			}
+			throw e;
+		} catch (ExecutionException e) {
+			lookups.remove(key, inProgress);
+			if (owner) {
+				m.markError();
+			}
+			Throwables.throwIfInstanceOf(e.getCause(), Exception.class);
+			Throwables.throwIfUnchecked(e.getCause());
+			throw e;
+		} finally {
+			timerCtx.stop();
+		}
+	}
+
+	/**
+	 * Invokes {@link AttributeResolver} with
+	 * already evaluated {@link ResolverContext} instances,
+	 * multiple contexts are resolved via single
+	 * {@link BatchAttributeResolver} invocation
+	 */
+	private final class ResolveTask
+		implements Callable<List<AttributeSet>>
+	{
+		private final AttributeResolver resolver;
+		private final AttributeResolverDescriptor descriptor;
+		private final List<ResolverCacheKey> keys;
+		private final List<ResolverContext> contexts;
+
+		ResolveTask(AttributeResolver resolver,
+				AttributeResolverDescriptor descriptor){
+			this.resolver = resolver;
+			this.descriptor = descriptor;
+			this.keys = new ArrayList<ResolverCacheKey>();
+			this.contexts = new ArrayList<ResolverContext>();
+		}
+
+		void add(ResolverCacheKey key, ResolverContext context){
+			keys.add(key);
+			contexts.add(context);
+		}
+
+		@Override
+		public List<AttributeSet> call() throws Exception {
+			if (contexts.size() == 1) {
+				return Collections.singletonList(
+						resolve(resolver, descriptor, contexts.get(0)));
+			}
+			if (log.isDebugEnabled()) {
+				log.debug("Resolving=\"{}\" lookups with batch resolver id=\"{}\"",
+						contexts.size(), descriptor.getId());
+			}
+			ResolverMetrics m = getMetrics(descriptor);
+			Timer.Context timerCtx = m.timeMiss();
+			List<AttributeSet> resolved;
+			try {
+				resolved = guard(descriptor, contexts.get(0),
+						new Callable<List<AttributeSet>>() {
+							@Override
+							public List<AttributeSet> call() throws Exception {
+								return ((BatchAttributeResolver) resolver).resolve(contexts);
+							}
+						}).call();
+			} catch (Exception e) {
+				m.markError();
+				throw e;
+			} finally {
+				timerCtx.stop();
+			}
+			Preconditions.checkState(resolved.size() == contexts.size());
+			return resolved;
+		}
+	}
 }
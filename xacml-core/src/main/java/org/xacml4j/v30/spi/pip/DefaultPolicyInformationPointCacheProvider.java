@@ -24,10 +24,18 @@ package org.xacml4j.v30.spi.pip;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 
+/**
+ * A default implementation of {@link PolicyInformationPointCacheProvider}.
+ * An expired entry is removed once it is looked up, a non empty attribute
+ * set is kept for the stale grace period after resolver preferred cache TTL.
+ * Empty attribute sets, i.e. negative entries, are kept in the separate cache
+ */
 public final class DefaultPolicyInformationPointCacheProvider
 		extends BasePolicyInformationPointCacheProvider {
 	private final Cache<ResolverCacheKey, AttributeSet> attributeCache;
+	private final Cache<ResolverCacheKey, AttributeSet> negativeAttributeCache;
 	private final Cache<ResolverCacheKey, Content> contentCache;
 
 	/**
@@ -47,9 +55,41 @@ public final class DefaultPolicyInformationPointCacheProvider
 	public DefaultPolicyInformationPointCacheProvider(
 			int maxAttrSize,
 			int maxContentSize) {
+		this(maxAttrSize, maxAttrSize, maxContentSize);
+	}
+
+	public DefaultPolicyInformationPointCacheProvider(
+			int maxAttrSize,
+			int maxNegativeAttrSize,
+			int maxContentSize) {
+		this(maxAttrSize, maxNegativeAttrSize, maxContentSize, 0);
+	}
+
+	/**
+	 * Creates a cache provider which returns an expired attribute
+	 * set for a given period so it can be served while refreshed
+	 *
+	 * @param maxAttrSize a maximum number of attribute sets
+	 * @param maxNegativeAttrSize a maximum number of empty attribute sets
+	 * @param maxContentSize a maximum number of cached contents
+	 * @param staleGracePeriod a period in seconds after resolver
+	 * preferred cache TTL during which an attribute set is still returned
+	 */
+	public DefaultPolicyInformationPointCacheProvider(
+			int maxAttrSize,
+			int maxNegativeAttrSize,
+			int maxContentSize,
+			int staleGracePeriod) {
+		super(staleGracePeriod);
 		this.attributeCache = CacheBuilder
 				.newBuilder()
 				.maximumSize(maxAttrSize)
+				.recordStats()
+				.build();
+		this.negativeAttributeCache = CacheBuilder
+				.newBuilder()
+				.maximumSize(maxNegativeAttrSize)
+				.recordStats()
 				.build();
 		this.contentCache = CacheBuilder
 				.newBuilder()
@@ -57,6 +97,26 @@ public final class DefaultPolicyInformationPointCacheProvider
 				.build();
 	}
 
+	/**
+	 * Gets statistics of the cached attributes
+	 *
+	 * @return {@link CacheStats}
+	 */
+	public CacheStats getAttributeCacheStats() {
+		return attributeCache.stats();
+	}
+
+	/**
+	 * Gets statistics of the cached empty or
+	 * failed resolutions, lookups of the negative
+	 * cache are done only on attribute cache misses
+	 *
+	 * @return {@link CacheStats}
+	 */
+	public CacheStats getNegativeAttributeCacheStats() {
+		return negativeAttributeCache.stats();
+	}
+
 	@Override
 	protected Content doGetContent(ResolverContext context) {
 		ResolverCacheKey key = ResolverCacheKey
@@ -65,8 +125,9 @@ public final class DefaultPolicyInformationPointCacheProvider
 				.keys(context.getKeys())
 				.build();
 		Content v = contentCache.getIfPresent(key);
-		if (v != null && isExpired(v, context)) {
-			attributeCache.invalidate(key);
+		if (v != null && isExpired(v, context.getTicker())) {
+			contentCache.invalidate(key);
+			return null;
 		}
 		return v;
 	}
@@ -88,8 +149,17 @@ public final class DefaultPolicyInformationPointCacheProvider
 				.keys(context.getKeys())
 				.build();
 		AttributeSet v = attributeCache.getIfPresent(key);
-		if (v != null && isExpired(v, context)) {
+		if (v != null && isExpired(v, context.getTicker())) {
 			attributeCache.invalidate(key);
+			v = null;
+		}
+		if (v == null &&
+				context.getDescriptor().getNegativeCacheTTL() > 0) {
+			v = negativeAttributeCache.getIfPresent(key);
+			if (v != null && isExpired(v, context.getTicker())) {
+				negativeAttributeCache.invalidate(key);
+				v = null;
+			}
 		}
 		return v;
 	}
@@ -101,16 +171,12 @@ public final class DefaultPolicyInformationPointCacheProvider
 				.id(context.getDescriptor())
 				.keys(context.getKeys())
 				.build();
+		if (v.isEmpty()) {
+			negativeAttributeCache.put(key, v);
+			attributeCache.invalidate(key);
+			return;
+		}
 		attributeCache.put(key, v);
-	}
-
-	private boolean isExpired(AttributeSet v, ResolverContext context) {
-		return ((context.getTicker().read() - v.getCreatedTime()) /
-				1000000000L) >= v.getDescriptor().getPreferredCacheTTL();
-	}
-
-	private boolean isExpired(Content v, ResolverContext context) {
-		return ((context.getTicker().read() - v.getTimestamp()) /
-				1000000000L) >= v.getDescriptor().getPreferredCacheTTL();
+		negativeAttributeCache.invalidate(key);
 	}
 }
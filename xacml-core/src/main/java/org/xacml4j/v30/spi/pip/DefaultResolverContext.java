@@ -29,6 +29,7 @@ import org.xacml4j.v30.AttributeReferenceKey;
 import org.xacml4j.v30.BagOfAttributeExp;
 import org.xacml4j.v30.EvaluationContext;
 import org.xacml4j.v30.EvaluationException;
+import org.xacml4j.v30.RequestTime;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
@@ -58,6 +59,11 @@ final class DefaultResolverContext implements
 		return context.getCurrentDateTime();
 	}
 
+	@Override
+	public RequestTime getRequestTime() {
+		return context.getRequestTime();
+	}
+
 	@Override
 	public Ticker getTicker(){
 		return context.getTicker();
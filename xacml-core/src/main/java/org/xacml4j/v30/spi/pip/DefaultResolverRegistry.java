@@ -22,18 +22,13 @@ package org.xacml4j.v30.spi.pip;
  * #L%
  */
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,10 +38,25 @@ import org.xacml4j.v30.CompositeDecisionRule;
 import org.xacml4j.v30.EvaluationContext;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Multimap;
 
 /**
+ * A default implementation of {@link ResolverRegistry}.
+ * Registrations rebuild an immutable {@link Snapshot} of
+ * the resolvers index which is published via volatile
+ * reference, lookups do not take any locks. Matching
+ * resolvers are precomputed per policy identifier and
+ * attribute designator key, scoped resolvers followed by
+ * top level resolvers, and per policy identifier and
+ * category for content resolvers. Lookups of keys without
+ * scoped resolvers do not walk the evaluation context
+ * ancestry, resolvers of the nested scopes are computed
+ * once per scope chain
+ *
  * TODO: Implement support for resolver with the same attributes but different issuer
  *
  * @author Giedrius Trumpickas
@@ -56,90 +66,80 @@ class DefaultResolverRegistry implements ResolverRegistry
 	private final static Logger log = LoggerFactory.getLogger(DefaultResolverRegistry.class);
 
 	/**
-	 * Resolvers index by category and attribute identifier
+	 * Resolvers index by category, issuer and attribute
+	 * designator key, guarded by this registry monitor
 	 */
-	private final Map<CategoryId, Map<String, Multimap<String, AttributeResolver>>> attributeResolvers;
+	private final Map<CategoryId, Map<String, Multimap<AttributeDesignatorKey, AttributeResolver>>> attributeResolvers;
 	private final ConcurrentMap<String, AttributeResolver> attributeResolversById;
 
-	private final Multimap<String, AttributeResolver> scopedAttributeResolvers;
+	/**
+	 * Resolvers index by policy identifier and attribute
+	 * designator key, guarded by this registry monitor
+	 */
+	private final Map<String, Multimap<AttributeDesignatorKey, AttributeResolver>> scopedAttributeResolvers;
 
 	private final Map<CategoryId, ContentResolver> contentResolvers;
 
-	private final ReadWriteLock attributeResolverRWLock;
-	private final ReadWriteLock scopedAttributeResolverRWLock;
-
-	private long maxWriteLockWait = 100;
-	private long maxReadLockWait = 50;
-
-	private final TimeUnit timeToWaitUnits = TimeUnit.MILLISECONDS;
-
 	/**
 	 * Resolvers index by policy identifier
 	 */
-
 	private final Multimap<String, ContentResolver> policyScopedContentResolvers;
 
 	private final ConcurrentMap<String, ContentResolver> contentResolversById;
 
+	private volatile Snapshot snapshot;
+
 	public DefaultResolverRegistry()
 	{
-		this.attributeResolvers = new LinkedHashMap<CategoryId, Map<String, Multimap<String, AttributeResolver>>>();
-		this.scopedAttributeResolvers = LinkedHashMultimap.create();
-		this.contentResolvers = new ConcurrentHashMap<CategoryId, ContentResolver>();
+		this.attributeResolvers = new LinkedHashMap<CategoryId, Map<String, Multimap<AttributeDesignatorKey, AttributeResolver>>>();
+		this.scopedAttributeResolvers = new LinkedHashMap<String, Multimap<AttributeDesignatorKey, AttributeResolver>>();
+		this.contentResolvers = new LinkedHashMap<CategoryId, ContentResolver>();
 		this.policyScopedContentResolvers = LinkedHashMultimap.create();
 		this.attributeResolversById = new ConcurrentHashMap<String, AttributeResolver>();
 		this.contentResolversById = new ConcurrentHashMap<String, ContentResolver>();
-		this.attributeResolverRWLock = new ReentrantReadWriteLock();
-		this.scopedAttributeResolverRWLock = new ReentrantReadWriteLock();
+		this.snapshot = new Snapshot();
 	}
 
 	@Override
-	public void addAttributeResolver(AttributeResolver resolver)
+	public synchronized void addAttributeResolver(AttributeResolver resolver)
+	{
+		doAddAttributeResolver(resolver);
+		publish();
+	}
+
+	private void doAddAttributeResolver(AttributeResolver resolver)
 	{
 		AttributeResolverDescriptor d = resolver.getDescriptor();
 		Preconditions.checkArgument(!attributeResolversById.containsKey(d.getId()),
 				"Attribute resolver with id=\"%s\" is already registered with this registry", d.getId());
-		Lock lock = attributeResolverRWLock.writeLock();
-		try
-		{
-			if(!lock.tryLock(maxWriteLockWait, timeToWaitUnits)){
-				if(log.isWarnEnabled()){
-					log.warn("Failed to acquire write lock in=\"{}\" {}",
-							maxWriteLockWait, timeToWaitUnits);
-				}
-				return;
-			}
-			Map<String, Multimap<String, AttributeResolver>> byCategory = attributeResolvers.get(d.getCategory());
-			if(byCategory == null){
-				byCategory = new LinkedHashMap<String, Multimap<String, AttributeResolver>>();
-				attributeResolvers.put(d.getCategory(), byCategory);
-			}
-			Multimap<String, AttributeResolver> byIssuer = byCategory.get(d.getIssuer());
-			if(byIssuer == null){
-				byIssuer = LinkedHashMultimap.create();
-				byCategory.put(d.getIssuer(), byIssuer);
-			}
-			for(String attributeId : d.getProvidedAttributeIds()){
-				if(log.isDebugEnabled()){
-						log.debug("Indexing resolver id=\"{}\" category=\"{}\", issuer=\"{}\" attributeId=\"{}\"",
-								new Object[]{d.getId(), d.getCategory(), d.getIssuer(), attributeId});
-				}
-				byIssuer.put(attributeId, resolver);
-			}
-			attributeResolversById.put(d.getId(), resolver);
-		}catch(InterruptedException e){
-			if(log.isWarnEnabled()){
-				log.warn("Interrupted while waiting to acquire a write lock", e);
-			}
+		Map<String, Multimap<AttributeDesignatorKey, AttributeResolver>> byCategory = attributeResolvers.get(d.getCategory());
+		if(byCategory == null){
+			byCategory = new LinkedHashMap<String, Multimap<AttributeDesignatorKey, AttributeResolver>>();
+			attributeResolvers.put(d.getCategory(), byCategory);
 		}
-		finally{
-			lock.unlock();
+		Multimap<AttributeDesignatorKey, AttributeResolver> byIssuer = byCategory.get(d.getIssuer());
+		if(byIssuer == null){
+			byIssuer = LinkedHashMultimap.create();
+			byCategory.put(d.getIssuer(), byIssuer);
 		}
+		for(AttributeDesignatorKey key : getKeys(d)){
+			if(log.isDebugEnabled()){
+					log.debug("Indexing resolver id=\"{}\" category=\"{}\", issuer=\"{}\" attributeId=\"{}\"",
+							new Object[]{d.getId(), d.getCategory(), d.getIssuer(), key.getAttributeId()});
+			}
+			byIssuer.put(key, resolver);
+		}
+		attributeResolversById.put(d.getId(), resolver);
 	}
 
-
 	@Override
-	public void addContentResolver(ContentResolver r)
+	public synchronized void addContentResolver(ContentResolver r)
+	{
+		doAddContentResolver(r);
+		publish();
+	}
+
+	private void doAddContentResolver(ContentResolver r)
 	{
 		Preconditions.checkArgument(r != null);
 		Preconditions.checkState(!contentResolversById.containsKey(r.getDescriptor().getId()));
@@ -152,10 +152,16 @@ class DefaultResolverRegistry implements ResolverRegistry
 	}
 
 	@Override
-	public void addContentResolver(String policyId, ContentResolver r)
+	public synchronized void addContentResolver(String policyId, ContentResolver r)
+	{
+		doAddContentResolver(policyId, r);
+		publish();
+	}
+
+	private void doAddContentResolver(String policyId, ContentResolver r)
 	{
 		if(policyId == null){
-			addContentResolver(r);
+			doAddContentResolver(r);
 			return;
 		}
 		ContentResolverDescriptor d = r.getDescriptor();
@@ -170,10 +176,16 @@ class DefaultResolverRegistry implements ResolverRegistry
 	}
 
 	@Override
-	public void addAttributeResolver(String policyId, AttributeResolver r)
+	public synchronized void addAttributeResolver(String policyId, AttributeResolver r)
+	{
+		doAddAttributeResolver(policyId, r);
+		publish();
+	}
+
+	private void doAddAttributeResolver(String policyId, AttributeResolver r)
 	{
 		if(policyId == null){
-			addAttributeResolver(r);
+			doAddAttributeResolver(r);
 			return;
 		}
 		AttributeResolverDescriptor d = r.getDescriptor();
@@ -182,22 +194,31 @@ class DefaultResolverRegistry implements ResolverRegistry
 					"resolver=\"{}\" for category=\"{}\"",
 					new Object[]{policyId, d.getId(), d.getCategory()});
 		}
-		this.scopedAttributeResolvers.put(policyId, r);
+		Multimap<AttributeDesignatorKey, AttributeResolver> byPolicyId = scopedAttributeResolvers.get(policyId);
+		if(byPolicyId == null){
+			byPolicyId = LinkedHashMultimap.create();
+			scopedAttributeResolvers.put(policyId, byPolicyId);
+		}
+		for(AttributeDesignatorKey key : getKeys(d)){
+			byPolicyId.put(key, r);
+		}
 		this.attributeResolversById.put(d.getId(), r);
 	}
 
-
-
 	@Override
 	public void addAttributeResolvers(Iterable<AttributeResolver> resolvers) {
 		addAttributeResolvers(null, resolvers);
 	}
 
 	@Override
-	public void addAttributeResolvers(String policyId,
+	public synchronized void addAttributeResolvers(String policyId,
 			Iterable<AttributeResolver> resolvers) {
-		for(AttributeResolver r : resolvers){
-			addAttributeResolver(policyId, r);
+		try{
+			for(AttributeResolver r : resolvers){
+				doAddAttributeResolver(policyId, r);
+			}
+		}finally{
+			publish();
 		}
 	}
 
@@ -207,110 +228,238 @@ class DefaultResolverRegistry implements ResolverRegistry
 	}
 
 	@Override
-	public void addContentResolvers(String policyId,
+	public synchronized void addContentResolvers(String policyId,
 			Iterable<ContentResolver> resolvers) {
-		for(ContentResolver r : resolvers){
-			addContentResolver(policyId, r);
+		try{
+			for(ContentResolver r : resolvers){
+				doAddContentResolver(policyId, r);
+			}
+		}finally{
+			publish();
 		}
 	}
 
-	@Override
-	public Iterable<AttributeResolver> getMatchingAttributeResolvers(
-			EvaluationContext context,
-			AttributeDesignatorKey ref){
-		List<AttributeResolver> resolvers = new LinkedList<AttributeResolver>();
-		findMatchingAttributeResolvers(context, ref, resolvers);
-		return resolvers;
+	/**
+	 * Gets designator keys of attributes provided
+	 * by a resolver with a given descriptor
+	 *
+	 * @param d a resolver descriptor
+	 * @return a collection of {@link AttributeDesignatorKey}
+	 */
+	private static Collection<AttributeDesignatorKey> getKeys(AttributeResolverDescriptor d)
+	{
+		ImmutableList.Builder<AttributeDesignatorKey> keys = ImmutableList.builder();
+		for(String attributeId : d.getProvidedAttributeIds()){
+			keys.add(AttributeDesignatorKey
+					.builder()
+					.category(d.getCategory())
+					.attributeId(attributeId)
+					.dataType(d.getAttribute(attributeId).getDataType())
+					.issuer(d.getIssuer())
+					.build());
+		}
+		return keys.build();
+	}
+
+	/**
+	 * Rebuilds and publishes resolvers index snapshot,
+	 * must be called while holding this registry monitor
+	 */
+	private void publish()
+	{
+		Map<AttributeDesignatorKey, ImmutableList.Builder<AttributeResolver>> root =
+				new LinkedHashMap<AttributeDesignatorKey, ImmutableList.Builder<AttributeResolver>>();
+		for(Map<String, Multimap<AttributeDesignatorKey, AttributeResolver>> byIssuer : attributeResolvers.values()){
+			for(Multimap<AttributeDesignatorKey, AttributeResolver> byKey : byIssuer.values()){
+				index(byKey, root);
+			}
+		}
+		ImmutableMap<AttributeDesignatorKey, ImmutableList<AttributeResolver>> rootByKey = build(root);
+		ImmutableMap.Builder<String, ImmutableMap<AttributeDesignatorKey, ImmutableList<AttributeResolver>>> scoped =
+				ImmutableMap.builder();
+		ImmutableMap.Builder<String, ImmutableMap<AttributeDesignatorKey, ImmutableList<AttributeResolver>>> byPolicy =
+				ImmutableMap.builder();
+		ImmutableSet.Builder<AttributeDesignatorKey> scopedKeys = ImmutableSet.builder();
+		for(Map.Entry<String, Multimap<AttributeDesignatorKey, AttributeResolver>> e : scopedAttributeResolvers.entrySet()){
+			Map<AttributeDesignatorKey, ImmutableList.Builder<AttributeResolver>> byKey =
+					new LinkedHashMap<AttributeDesignatorKey, ImmutableList.Builder<AttributeResolver>>();
+			index(e.getValue(), byKey);
+			ImmutableMap<AttributeDesignatorKey, ImmutableList<AttributeResolver>> scopedByKey = build(byKey);
+			scoped.put(e.getKey(), scopedByKey);
+			byPolicy.put(e.getKey(), withRoot(ImmutableList.of(scopedByKey), rootByKey));
+			scopedKeys.addAll(scopedByKey.keySet());
+		}
+		Map<String, Map<CategoryId, ContentResolver>> contentByPolicy =
+				new LinkedHashMap<String, Map<CategoryId, ContentResolver>>();
+		for(Map.Entry<String, ContentResolver> e : policyScopedContentResolvers.entries()){
+			Map<CategoryId, ContentResolver> byCategory = contentByPolicy.get(e.getKey());
+			if(byCategory == null){
+				byCategory = new LinkedHashMap<CategoryId, ContentResolver>();
+				contentByPolicy.put(e.getKey(), byCategory);
+			}
+			CategoryId category = e.getValue().getDescriptor().getCategory();
+			if(!byCategory.containsKey(category)){
+				byCategory.put(category, e.getValue());
+			}
+		}
+		ImmutableMap.Builder<String, ImmutableMap<CategoryId, ContentResolver>> content =
+				ImmutableMap.builder();
+		for(Map.Entry<String, Map<CategoryId, ContentResolver>> e : contentByPolicy.entrySet()){
+			content.put(e.getKey(), ImmutableMap.copyOf(e.getValue()));
+		}
+		this.snapshot = new Snapshot(rootByKey, scoped.build(), byPolicy.build(),
+				scopedKeys.build(), ImmutableMap.copyOf(contentResolvers), content.build());
+	}
+
+	/**
+	 * Merges resolvers of the given scopes, innermost scope
+	 * first, followed by top level resolvers for every key
+	 * provided by at least one of the scopes
+	 */
+	private static ImmutableMap<AttributeDesignatorKey, ImmutableList<AttributeResolver>> withRoot(
+			List<ImmutableMap<AttributeDesignatorKey, ImmutableList<AttributeResolver>>> scopes,
+			ImmutableMap<AttributeDesignatorKey, ImmutableList<AttributeResolver>> root)
+	{
+		Map<AttributeDesignatorKey, ImmutableList.Builder<AttributeResolver>> byKey =
+				new LinkedHashMap<AttributeDesignatorKey, ImmutableList.Builder<AttributeResolver>>();
+		for(ImmutableMap<AttributeDesignatorKey, ImmutableList<AttributeResolver>> scope : scopes){
+			for(Map.Entry<AttributeDesignatorKey, ImmutableList<AttributeResolver>> e : scope.entrySet()){
+				ImmutableList.Builder<AttributeResolver> found = byKey.get(e.getKey());
+				if(found == null){
+					found = ImmutableList.builder();
+					byKey.put(e.getKey(), found);
+				}
+				found.addAll(e.getValue());
+			}
+		}
+		for(Map.Entry<AttributeDesignatorKey, ImmutableList.Builder<AttributeResolver>> e : byKey.entrySet()){
+			ImmutableList<AttributeResolver> r = root.get(e.getKey());
+			if(r != null){
+				e.getValue().addAll(r);
+			}
+		}
+		return build(byKey);
 	}
+
 	/**
-	 * Finds {@link AttributeResolver} for given evaluation context and
-	 * {@link AttributeResolver} instance
+	 * Indexes given resolvers by designator key, a resolver
+	 * with an issuer is indexed by the key with an issuer and by
+	 * the key without an issuer as such key matches any issuer
+	 */
+	private static void index(Multimap<AttributeDesignatorKey, AttributeResolver> resolvers,
+			Map<AttributeDesignatorKey, ImmutableList.Builder<AttributeResolver>> index)
+	{
+		for(Map.Entry<AttributeDesignatorKey, AttributeResolver> e : resolvers.entries()){
+			AttributeDesignatorKey key = e.getKey();
+			add(index, key, e.getValue());
+			if(key.getIssuer() != null){
+				add(index, AttributeDesignatorKey.builder().from(key).issuer(null).build(), e.getValue());
+			}
+		}
+	}
+
+	private static void add(Map<AttributeDesignatorKey, ImmutableList.Builder<AttributeResolver>> index,
+			AttributeDesignatorKey key, AttributeResolver r)
+	{
+		if(!r.getDescriptor().canResolve(key)){
+			return;
+		}
+		ImmutableList.Builder<AttributeResolver> found = index.get(key);
+		if(found == null){
+			found = ImmutableList.builder();
+			index.put(key, found);
+		}
+		found.add(r);
+	}
+
+	private static ImmutableMap<AttributeDesignatorKey, ImmutableList<AttributeResolver>> build(
+			Map<AttributeDesignatorKey, ImmutableList.Builder<AttributeResolver>> index)
+	{
+		ImmutableMap.Builder<AttributeDesignatorKey, ImmutableList<AttributeResolver>> b = ImmutableMap.builder();
+		for(Map.Entry<AttributeDesignatorKey, ImmutableList.Builder<AttributeResolver>> e : index.entrySet()){
+			b.put(e.getKey(), e.getValue().build());
+		}
+		return b.build();
+	}
+
+	/**
+	 * Finds {@link AttributeResolver} instances for a given evaluation
+	 * context and {@link AttributeDesignatorKey}, resolvers scoped to
+	 * the current policy come first followed by resolvers scoped to
+	 * the parent policies and top level resolvers
 	 *
 	 * @param context an evaluation context
 	 * @param ref an attribute reference
+	 * @return matching resolvers
 	 */
-	private void findMatchingAttributeResolvers(
+	@Override
+	public Iterable<AttributeResolver> getMatchingAttributeResolvers(
 			EvaluationContext context,
-			AttributeDesignatorKey ref, List<AttributeResolver> found)
+			AttributeDesignatorKey ref)
 	{
-			// stop recursive call if
-			// context is null
-			if(context == null)
-			{
-				Lock lock = attributeResolverRWLock.readLock();
-				try
-				{
-					if(!lock.tryLock(maxReadLockWait, timeToWaitUnits)){
-						if(log.isWarnEnabled()){
-							log.warn("Failed to acquire read lock in=\"{}\" {}",
-									maxReadLockWait, timeToWaitUnits.toString());
-						}
-						return;
-					}
-					Map<String, Multimap<String, AttributeResolver>> byIssuer = attributeResolvers.get(ref.getCategory());
-					if(byIssuer == null ||
-							byIssuer.isEmpty()){
-						return;
-					}
-					if(log.isDebugEnabled()){
-						log.debug("Found=\"{}\" resolvers for category=\"{}\"",
-								byIssuer.size(), ref.getCategory());
-					}
-					for(Entry<String, Multimap<String, AttributeResolver>> e : byIssuer.entrySet()){
-						for(AttributeResolver r : e.getValue().get(ref.getAttributeId())){
-							AttributeResolverDescriptor d = r.getDescriptor();
-							if(d.canResolve(ref)){
-								if(log.isDebugEnabled()){
-									log.debug("Found root resolver=\"{}\" " +
-											"for a reference=\"{}\"", d.getId(), ref);
-								}
-								found.add(r);
-							}
-						}
-					}
-				}
-				catch(InterruptedException e){
-					if(log.isWarnEnabled()){
-						log.warn("Interrupted while " +
-								"waiting to acquire a read lock", e);
-					}
-				}
-				finally{
-					lock.unlock();
-				}
-				return;
-			}
+		Snapshot s = snapshot;
+		if(!s.scopedKeys.contains(ref)){
+			return canResolve(s.getAttributeResolvers(ref), ref);
+		}
+		String scopeId = null;
+		List<String> scopes = null;
+		while(context != null){
 			String policyId = getCurrentIdentifier(context);
-			if(policyId  == null){
+			if(policyId == null){
 				Preconditions.checkState(context.getParentContext() == null);
-				findMatchingAttributeResolvers(null, ref, found);
-				return;
+				break;
 			}
-			Lock lock  = scopedAttributeResolverRWLock.readLock();
-			lock.lock();
-			try {
-				Collection<AttributeResolver> byPolicyId = scopedAttributeResolvers.get(policyId);
+			ImmutableList<AttributeResolver> byPolicyId = s.getScopedAttributeResolvers(policyId, ref);
+			if(!byPolicyId.isEmpty()){
 				if(log.isDebugEnabled()){
 					log.debug("Found \"{}\" resolver " +
-							"scoped for a PolicyId=\"{}\"",
-							byPolicyId.size(), policyId);
+							"scoped for a PolicyId=\"{}\" and reference=\"{}\"",
+							new Object[]{byPolicyId.size(), policyId, ref});
 				}
-				for(AttributeResolver r : byPolicyId){
-					AttributeResolverDescriptor d = r.getDescriptor();
-					if(d.canResolve(ref)){
-						if(log.isDebugEnabled()){
-							log.debug("Found PolicyId=\"{}\" scoped resolver for reference=\"{}\"",
-									policyId, ref);
-						}
-						found.add(r);
+				if(scopeId == null){
+					scopeId = policyId;
+				}else{
+					if(scopes == null){
+						scopes = new ArrayList<String>(4);
+						scopes.add(scopeId);
 					}
+					scopes.add(policyId);
 				}
-				findMatchingAttributeResolvers(context.getParentContext(), ref, found);
-			}finally{
-				lock.unlock();
 			}
+			context = context.getParentContext();
+		}
+		if(scopeId == null){
+			return canResolve(s.getAttributeResolvers(ref), ref);
+		}
+		if(scopes == null){
+			return canResolve(s.getPolicyAttributeResolvers(scopeId, ref), ref);
+		}
+		return canResolve(s.getNestedAttributeResolvers(scopes, ref), ref);
 	}
 
+	/**
+	 * Filters out resolvers which can not resolve a given
+	 * reference, a given list is returned if all resolvers
+	 * can resolve a reference
+	 */
+	private static ImmutableList<AttributeResolver> canResolve(
+			ImmutableList<AttributeResolver> resolvers,
+			AttributeDesignatorKey ref)
+	{
+		for(int i = 0; i < resolvers.size(); i++){
+			if(!resolvers.get(i).getDescriptor().canResolve(ref)){
+				ImmutableList.Builder<AttributeResolver> b = ImmutableList.builder();
+				b.addAll(resolvers.subList(0, i));
+				for(AttributeResolver r : resolvers.subList(i + 1, resolvers.size())){
+					if(r.getDescriptor().canResolve(ref)){
+						b.add(r);
+					}
+				}
+				return b.build();
+			}
+		}
+		return resolvers;
+	}
 
 	/**
 	 * Gets matching content resolver for a given
@@ -325,28 +474,19 @@ class DefaultResolverRegistry implements ResolverRegistry
 	public ContentResolver getMatchingContentResolver(EvaluationContext context,
 			CategoryId category)
 	{
-		// stop recursive call if
-		// context is null
-		if(context == null){
-			return contentResolvers.get(category);
-		}
-		String policyId = getCurrentIdentifier(context);
-		Collection<ContentResolver> found = policyScopedContentResolvers.get(policyId);
-		if(log.isDebugEnabled()){
-			log.debug("Found \"{}\" resolver " +
-					"scoped for a PolicyId=\"{}\"",
-					found.size(), policyId);
-		}
-		for(ContentResolver r : found){
-			ContentResolverDescriptor d = r.getDescriptor();
-			if(d.canResolve(category)){
+		Snapshot s = snapshot;
+		while(context != null){
+			String policyId = getCurrentIdentifier(context);
+			ContentResolver r = s.getPolicyContentResolver(policyId, category);
+			if(r != null){
 				if(log.isDebugEnabled()){
 					log.debug("Found PolicyId=\"{}\" scoped resolver", policyId);
 				}
 				return r;
 			}
+			context = context.getParentContext();
 		}
-		return getMatchingContentResolver(context.getParentContext(), category);
+		return s.contentResolvers.get(category);
 	}
 
 	/**
@@ -374,4 +514,102 @@ class DefaultResolverRegistry implements ResolverRegistry
 	public ContentResolver getContentResolver(String id) {
 		return contentResolversById.get(id);
 	}
+
+	/**
+	 * An immutable snapshot of the resolvers index
+	 */
+	private static final class Snapshot
+	{
+		private final ImmutableMap<AttributeDesignatorKey, ImmutableList<AttributeResolver>> attributeResolvers;
+		private final ImmutableMap<String, ImmutableMap<AttributeDesignatorKey, ImmutableList<AttributeResolver>>> scopedAttributeResolvers;
+		private final ImmutableMap<String, ImmutableMap<AttributeDesignatorKey, ImmutableList<AttributeResolver>>> policyAttributeResolvers;
+		private final ImmutableSet<AttributeDesignatorKey> scopedKeys;
+		private final ConcurrentMap<List<String>, ImmutableMap<AttributeDesignatorKey, ImmutableList<AttributeResolver>>> nestedAttributeResolvers;
+		private final ImmutableMap<CategoryId, ContentResolver> contentResolvers;
+		private final ImmutableMap<String, ImmutableMap<CategoryId, ContentResolver>> policyContentResolvers;
+
+		Snapshot(){
+			this(ImmutableMap.<AttributeDesignatorKey, ImmutableList<AttributeResolver>>of(),
+					ImmutableMap.<String, ImmutableMap<AttributeDesignatorKey, ImmutableList<AttributeResolver>>>of(),
+					ImmutableMap.<String, ImmutableMap<AttributeDesignatorKey, ImmutableList<AttributeResolver>>>of(),
+					ImmutableSet.<AttributeDesignatorKey>of(),
+					ImmutableMap.<CategoryId, ContentResolver>of(),
+					ImmutableMap.<String, ImmutableMap<CategoryId, ContentResolver>>of());
+		}
+
+		Snapshot(ImmutableMap<AttributeDesignatorKey, ImmutableList<AttributeResolver>> attributeResolvers,
+				ImmutableMap<String, ImmutableMap<AttributeDesignatorKey, ImmutableList<AttributeResolver>>> scopedAttributeResolvers,
+				ImmutableMap<String, ImmutableMap<AttributeDesignatorKey, ImmutableList<AttributeResolver>>> policyAttributeResolvers,
+				ImmutableSet<AttributeDesignatorKey> scopedKeys,
+				ImmutableMap<CategoryId, ContentResolver> contentResolvers,
+				ImmutableMap<String, ImmutableMap<CategoryId, ContentResolver>> policyContentResolvers){
+			this.attributeResolvers = attributeResolvers;
+			this.scopedAttributeResolvers = scopedAttributeResolvers;
+			this.policyAttributeResolvers = policyAttributeResolvers;
+			this.scopedKeys = scopedKeys;
+			this.nestedAttributeResolvers = new ConcurrentHashMap<List<String>,
+					ImmutableMap<AttributeDesignatorKey, ImmutableList<AttributeResolver>>>();
+			this.contentResolvers = contentResolvers;
+			this.policyContentResolvers = policyContentResolvers;
+		}
+
+		/**
+		 * Gets top level resolvers matching a given key
+		 */
+		ImmutableList<AttributeResolver> getAttributeResolvers(AttributeDesignatorKey ref){
+			return get(attributeResolvers, ref);
+		}
+
+		/**
+		 * Gets resolvers scoped to a given policy matching a given key
+		 */
+		ImmutableList<AttributeResolver> getScopedAttributeResolvers(String policyId,
+				AttributeDesignatorKey ref){
+			return get(scopedAttributeResolvers.get(policyId), ref);
+		}
+
+		/**
+		 * Gets resolvers scoped to a given policy followed
+		 * by top level resolvers matching a given key
+		 */
+		ImmutableList<AttributeResolver> getPolicyAttributeResolvers(String policyId,
+				AttributeDesignatorKey ref){
+			return get(policyAttributeResolvers.get(policyId), ref);
+		}
+
+		/**
+		 * Gets resolvers scoped to the given nested policies,
+		 * innermost policy first, followed by top level resolvers
+		 * matching a given key, resolvers of a given scope chain
+		 * are computed on the first lookup
+		 */
+		ImmutableList<AttributeResolver> getNestedAttributeResolvers(List<String> policyIds,
+				AttributeDesignatorKey ref){
+			ImmutableMap<AttributeDesignatorKey, ImmutableList<AttributeResolver>> byKey =
+					nestedAttributeResolvers.get(policyIds);
+			if(byKey == null){
+				List<ImmutableMap<AttributeDesignatorKey, ImmutableList<AttributeResolver>>> scopes =
+						new ArrayList<ImmutableMap<AttributeDesignatorKey, ImmutableList<AttributeResolver>>>(policyIds.size());
+				for(String policyId : policyIds){
+					scopes.add(scopedAttributeResolvers.get(policyId));
+				}
+				byKey = withRoot(scopes, attributeResolvers);
+				nestedAttributeResolvers.putIfAbsent(ImmutableList.copyOf(policyIds), byKey);
+			}
+			return get(byKey, ref);
+		}
+
+		ContentResolver getPolicyContentResolver(String policyId, CategoryId category){
+			ImmutableMap<CategoryId, ContentResolver> byCategory = (policyId != null)?
+					policyContentResolvers.get(policyId):null;
+			return (byCategory != null)?byCategory.get(category):null;
+		}
+
+		private static ImmutableList<AttributeResolver> get(
+				ImmutableMap<AttributeDesignatorKey, ImmutableList<AttributeResolver>> byKey,
+				AttributeDesignatorKey ref){
+			ImmutableList<AttributeResolver> found = (byKey != null)?byKey.get(ref):null;
+			return (found != null)?found:ImmutableList.<AttributeResolver>of();
+		}
+	}
 }
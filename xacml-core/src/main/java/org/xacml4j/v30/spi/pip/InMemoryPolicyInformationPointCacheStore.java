@@ -0,0 +1,94 @@
+package org.xacml4j.v30.spi.pip;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * An in-process implementation of the
+ * {@link PolicyInformationPointCacheStore}, intended
+ * for tests and single PDP deployments
+ */
+public final class InMemoryPolicyInformationPointCacheStore
+		implements PolicyInformationPointCacheStore {
+	/**
+	 * Default maximum number of stored values
+	 */
+	private static final int DEFAULT_MAX_ITEMS = 8192;
+
+	private final Cache<String, Entry> values;
+	private final Ticker ticker;
+
+	public InMemoryPolicyInformationPointCacheStore() {
+		this(DEFAULT_MAX_ITEMS, Ticker.systemTicker());
+	}
+
+	public InMemoryPolicyInformationPointCacheStore(int maxSize, Ticker ticker) {
+		Preconditions.checkNotNull(ticker);
+		this.ticker = ticker;
+		this.values = CacheBuilder
+				.newBuilder()
+				.maximumSize(maxSize)
+				.build();
+	}
+
+	@Override
+	public byte[] get(String key) {
+		Entry e = values.getIfPresent(key);
+		if (e == null) {
+			return null;
+		}
+		if (ticker.read() - e.expiresAt >= 0) {
+			values.asMap().remove(key, e);
+			return null;
+		}
+		return e.value.clone();
+	}
+
+	@Override
+	public void put(String key, byte[] value, int ttl) {
+		Preconditions.checkNotNull(key);
+		Preconditions.checkNotNull(value);
+		if (ttl <= 0) {
+			values.invalidate(key);
+			return;
+		}
+		values.put(key, new Entry(value.clone(),
+				ticker.read() + TimeUnit.SECONDS.toNanos(ttl)));
+	}
+
+	private static final class Entry {
+		private final byte[] value;
+		private final long expiresAt;
+
+		Entry(byte[] value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
@@ -0,0 +1,453 @@
+package org.xacml4j.v30.spi.pip;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xacml4j.v30.BagOfAttributeExp;
+import org.xacml4j.v30.RequestTime;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A {@link PolicyInformationPointCacheProvider} which snapshots
+ * cached non empty {@link AttributeSet} instances to a local file
+ * and restores them on startup, restored attribute sets keep their
+ * age and expire when resolver preferred cache TTL elapses. Actual
+ * caching is delegated to a given cache provider, content is not
+ * persisted
+ */
+public final class PersistentPolicyInformationPointCacheProvider
+		extends BasePolicyInformationPointCacheProvider {
+	private final static Logger log = LoggerFactory.getLogger(PersistentPolicyInformationPointCacheProvider.class);
+
+	private final static int MAGIC = 0x58504950;
+	private final static int VERSION = 1;
+
+	/**
+	 * Default maximum number of persisted attribute sets
+	 */
+	private static final int DEFAULT_MAX_ITEMS = 2048;
+
+	private final PolicyInformationPointCacheProvider delegate;
+	private final File file;
+	private final Ticker ticker;
+
+	/**
+	 * Attribute sets put to the delegate cache
+	 * provider which are candidates for the snapshot
+	 */
+	private final Cache<ResolverCacheKey, Entry> entries;
+
+	private ScheduledFuture<?> snapshots;
+
+	private PersistentPolicyInformationPointCacheProvider(Builder b) {
+		this.delegate = b.delegate;
+		this.file = b.file;
+		this.ticker = b.ticker;
+		this.entries = CacheBuilder
+				.newBuilder()
+				.maximumSize(b.maxItems)
+				.build();
+	}
+
+	/**
+	 * Creates a builder of the cache provider
+	 * persisting attribute sets to a given file
+	 *
+	 * @param file a snapshot file
+	 * @return {@link Builder}
+	 */
+	public static Builder builder(File file) {
+		return new Builder(file);
+	}
+
+	@Override
+	protected AttributeSet doGetAttributes(ResolverContext context) {
+		return delegate.getAttributes(context);
+	}
+
+	@Override
+	protected void doPutAttributes(ResolverContext context, AttributeSet v) {
+		delegate.putAttributes(context, v);
+		ResolverCacheKey key = createKey(context.getDescriptor(), context.getKeys());
+		if (v.isEmpty()) {
+			entries.invalidate(key);
+			return;
+		}
+		entries.put(key, new Entry(context.getKeys(), v));
+	}
+
+	@Override
+	protected Content doGetContent(ResolverContext context) {
+		return delegate.getContent(context);
+	}
+
+	@Override
+	protected void doPutContent(ResolverContext context, Content content) {
+		delegate.putContent(context, content);
+	}
+
+	/**
+	 * Starts periodic snapshots of the cached
+	 * attribute sets via a given executor
+	 *
+	 * @param executor an executor
+	 * @param period a period between snapshots
+	 * @param unit a period unit
+	 */
+	public synchronized void start(ScheduledExecutorService executor,
+	                               long period, TimeUnit unit) {
+		Preconditions.checkNotNull(executor);
+		Preconditions.checkState(snapshots == null,
+				"Periodic snapshots are already started");
+		this.snapshots = executor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					snapshot();
+				} catch (Exception e) {
+					if (log.isWarnEnabled()) {
+						log.warn("Failed to write PIP cache snapshot to file=\"{}\"", file, e);
+					}
+				}
+			}
+		}, period, period, unit);
+	}
+
+	/**
+	 * Stops periodic snapshots
+	 */
+	public synchronized void stop() {
+		if (snapshots != null) {
+			snapshots.cancel(false);
+			snapshots = null;
+		}
+	}
+
+	/**
+	 * Writes cached attribute sets which are not expired
+	 * to the snapshot file, a snapshot is written to a
+	 * temporary file which then replaces snapshot file.
+	 * Attribute sets with values of a data type which
+	 * can't be encoded are skipped
+	 *
+	 * @return a number of written attribute sets
+	 * @throws IOException if an I/O error occurs
+	 */
+	public synchronized int snapshot() throws IOException {
+		File tmp = new File(file.getPath() + ".tmp");
+		int count = 0;
+		DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tmp))));
+		try {
+			BagOfAttributeExpCodec codec = new BagOfAttributeExpCodec();
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(System.currentTimeMillis());
+			long now = ticker.read();
+			for (Entry e : entries.asMap().values()) {
+				AttributeResolverDescriptor d = e.attributes.getDescriptor();
+				long age = now - e.attributes.getCreatedTime();
+				if (age >= TimeUnit.SECONDS.toNanos(d.getPreferredCacheTTL())) {
+					continue;
+				}
+				Map<String, BagOfAttributeExp> attributes = e.attributes.toMap();
+				if (!isSupported(e.keys) ||
+						!isSupported(attributes.values())) {
+					if (log.isDebugEnabled()) {
+						log.debug("Resolver id=\"{}\" attribute set contains " +
+								"a data type which can't be persisted, skipping", d.getId());
+					}
+					continue;
+				}
+				out.writeBoolean(true);
+				BagOfAttributeExpCodec.writeString(out, d.getId());
+				out.writeLong(age);
+				out.writeInt(e.keys.size());
+				for (BagOfAttributeExp k : e.keys) {
+					codec.write(out, k);
+				}
+				out.writeInt(attributes.size());
+				for (Map.Entry<String, BagOfAttributeExp> a : attributes.entrySet()) {
+					BagOfAttributeExpCodec.writeString(out, a.getKey());
+					codec.write(out, a.getValue());
+				}
+				count++;
+			}
+			out.writeBoolean(false);
+		} finally {
+			out.close();
+		}
+		Files.move(tmp.toPath(), file.toPath(),
+				StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		if (log.isDebugEnabled()) {
+			log.debug("Written=\"{}\" attribute sets to file=\"{}\"", count, file);
+		}
+		return count;
+	}
+
+	/**
+	 * Restores attribute sets from the snapshot file, attribute
+	 * sets of resolvers which are no longer registered with a given
+	 * registry or are not cacheable and expired attribute sets are
+	 * skipped
+	 *
+	 * @param registry a resolver registry
+	 * @return a number of restored attribute sets
+	 * @throws IOException if an I/O error occurs
+	 */
+	public synchronized int restore(ResolverRegistry registry) throws IOException {
+		Preconditions.checkNotNull(registry);
+		DataInputStream in;
+		try {
+			in = new DataInputStream(
+					new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))));
+		} catch (FileNotFoundException e) {
+			if (log.isDebugEnabled()) {
+				log.debug("PIP cache snapshot file=\"{}\" does not exist", file);
+			}
+			return 0;
+		}
+		int count = 0;
+		try {
+			if (in.readInt() != MAGIC ||
+					in.readInt() != VERSION) {
+				if (log.isWarnEnabled()) {
+					log.warn("Unsupported PIP cache snapshot file=\"{}\"", file);
+				}
+				return 0;
+			}
+			BagOfAttributeExpCodec codec = new BagOfAttributeExpCodec();
+			long elapsed = TimeUnit.MILLISECONDS.toNanos(
+					Math.max(0, System.currentTimeMillis() - in.readLong()));
+			while (in.readBoolean()) {
+				String id = BagOfAttributeExpCodec.readString(in);
+				long age = in.readLong() + elapsed;
+				int size = BagOfAttributeExpCodec.readLength(in);
+				List<BagOfAttributeExp> keys = new ArrayList<BagOfAttributeExp>(size);
+				for (int i = 0; i < size; i++) {
+					keys.add(codec.read(in));
+				}
+				AttributeResolver r = registry.getAttributeResolver(id);
+				AttributeSet.Builder b = (r != null) ?
+						AttributeSet.builder(r).ticker(createTicker(age)) : null;
+				size = BagOfAttributeExpCodec.readLength(in);
+				for (int i = 0; i < size; i++) {
+					String attributeId = BagOfAttributeExpCodec.readString(in);
+					BagOfAttributeExp v = codec.read(in);
+					try {
+						if (b != null) {
+							b.attribute(attributeId, v);
+						}
+					} catch (IllegalArgumentException e) {
+						if (log.isDebugEnabled()) {
+							log.debug("Resolver id=\"{}\" no longer provides " +
+									"attribute=\"{}\"", id, attributeId);
+						}
+						b = null;
+					}
+				}
+				if (b == null) {
+					continue;
+				}
+				AttributeResolverDescriptor d = r.getDescriptor();
+				if (!d.isCacheable() ||
+						age >= TimeUnit.SECONDS.toNanos(d.getPreferredCacheTTL())) {
+					continue;
+				}
+				doPutAttributes(new RestoredResolverContext(d, keys, ticker), b.build());
+				count++;
+			}
+		} finally {
+			in.close();
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Restored=\"{}\" attribute sets from file=\"{}\"", count, file);
+		}
+		return count;
+	}
+
+	private static boolean isSupported(Collection<BagOfAttributeExp> values) {
+		for (BagOfAttributeExp v : values) {
+			if (!BagOfAttributeExpCodec.isSupported(v)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private Ticker createTicker(final long age) {
+		return new Ticker() {
+			@Override
+			public long read() {
+				return ticker.read() - age;
+			}
+		};
+	}
+
+	private static ResolverCacheKey createKey(ResolverDescriptor d,
+	                                          List<BagOfAttributeExp> keys) {
+		return ResolverCacheKey
+				.builder()
+				.id(d)
+				.keys(keys)
+				.build();
+	}
+
+	private static final class Entry {
+		private final List<BagOfAttributeExp> keys;
+		private final AttributeSet attributes;
+
+		Entry(List<BagOfAttributeExp> keys, AttributeSet attributes) {
+			this.keys = ImmutableList.copyOf(keys);
+			this.attributes = attributes;
+		}
+	}
+
+	/**
+	 * A resolver context of the restored attribute set,
+	 * provides only resolver descriptor and keys
+	 */
+	private static final class RestoredResolverContext
+			implements ResolverContext {
+		private final ResolverDescriptor d;
+		private final List<BagOfAttributeExp> keys;
+		private final Ticker ticker;
+
+		RestoredResolverContext(ResolverDescriptor d,
+		                        List<BagOfAttributeExp> keys,
+		                        Ticker ticker) {
+			this.d = d;
+			this.keys = keys;
+			this.ticker = ticker;
+		}
+
+		@Override
+		public Calendar getCurrentDateTime() {
+			return Calendar.getInstance();
+		}
+
+		@Override
+		public RequestTime getRequestTime() {
+			return RequestTime.create();
+		}
+
+		@Override
+		public Ticker getTicker() {
+			return ticker;
+		}
+
+		@Override
+		public ResolverDescriptor getDescriptor() {
+			return d;
+		}
+
+		@Override
+		public List<BagOfAttributeExp> getKeys() {
+			return keys;
+		}
+	}
+
+	public static class Builder {
+		private final File file;
+		private PolicyInformationPointCacheProvider delegate;
+		private Ticker ticker = Ticker.systemTicker();
+		private int maxItems = DEFAULT_MAX_ITEMS;
+
+		private Builder(File file) {
+			Preconditions.checkNotNull(file);
+			this.file = file;
+			this.delegate = new DefaultPolicyInformationPointCacheProvider();
+		}
+
+		/**
+		 * Sets cache provider used to cache attributes and content
+		 *
+		 * @param cache a cache provider
+		 * @return {@link Builder}
+		 */
+		public Builder withCacheProvider(PolicyInformationPointCacheProvider cache) {
+			Preconditions.checkNotNull(cache);
+			this.delegate = cache;
+			return this;
+		}
+
+		/**
+		 * Sets a ticker used to compute age of the
+		 * cached attribute sets, must be the same ticker
+		 * as used by the evaluation contexts
+		 *
+		 * @param ticker a ticker
+		 * @return {@link Builder}
+		 */
+		public Builder ticker(Ticker ticker) {
+			Preconditions.checkNotNull(ticker);
+			this.ticker = ticker;
+			return this;
+		}
+
+		/**
+		 * Sets a maximum number of attribute sets in the snapshot
+		 *
+		 * @param maxItems a maximum number of attribute sets
+		 * @return {@link Builder}
+		 */
+		public Builder maximumSize(int maxItems) {
+			Preconditions.checkArgument(maxItems >= 0);
+			this.maxItems = maxItems;
+			return this;
+		}
+
+		public PersistentPolicyInformationPointCacheProvider build() {
+			return new PersistentPolicyInformationPointCacheProvider(this);
+		}
+	}
+}
@@ -22,6 +22,9 @@ package org.xacml4j.v30.spi.pip;
  * #L%
  */
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import org.w3c.dom.Node;
 import org.xacml4j.v30.AttributeDesignatorKey;
@@ -29,6 +32,8 @@ import org.xacml4j.v30.BagOfAttributeExp;
 import org.xacml4j.v30.CategoryId;
 import org.xacml4j.v30.EvaluationContext;
 
+import com.google.common.collect.ImmutableMap;
+
 
 /**
  * A XACML Policy Information Point
@@ -59,6 +64,92 @@ public interface PolicyInformationPoint
 		throws Exception;
 
 
+	/**
+	 * Resolves a given {@link AttributeDesignatorKey},
+	 * returned {@link AttributeSet} contains all attributes
+	 * resolved by the same resolver invocation. Default
+	 * implementation returns an attribute set with a single
+	 * attribute resolved via
+	 * {@link #resolve(EvaluationContext, AttributeDesignatorKey)}
+	 *
+	 * @param context an evaluation context
+	 * @param ref an attribute designator
+	 * @return {@link AttributeSet} or {@code null} if
+	 * designator can not be resolved
+	 * @throws Exception if an error occurs
+	 */
+	default AttributeSet resolveAttributes(
+			EvaluationContext context,
+			AttributeDesignatorKey ref)
+		throws Exception
+	{
+		BagOfAttributeExp v = resolve(context, ref);
+		if(v == null){
+			return null;
+		}
+		return AttributeSet
+				.builder(AttributeResolverDescriptorBuilder
+						.builder(getId(), getId(), ref.getIssuer(), ref.getCategory())
+						.noCache()
+						.attribute(ref.getAttributeId(), ref.getDataType())
+						.build())
+				.attribute(ref.getAttributeId(), v)
+				.build();
+	}
+
+	/**
+	 * Resolves given designators ahead of the evaluation,
+	 * independent resolvers are invoked concurrently via
+	 * a given executor. Only the first matching resolver of
+	 * each designator is consulted, designators which can
+	 * not be resolved or are not resolved within the prefetch
+	 * timeout of this PIP are not included in the result.
+	 * Default implementation does not prefetch designators,
+	 * designators are resolved during the evaluation
+	 *
+	 * @param context an evaluation context
+	 * @param refs attribute designators
+	 * @param executor an executor used to invoke resolvers
+	 * @return resolved {@link AttributeSet} by designator
+	 * @throws Exception if an error occurs
+	 */
+	default Map<AttributeDesignatorKey, AttributeSet> prefetch(
+			EvaluationContext context,
+			Iterable<AttributeDesignatorKey> refs,
+			ExecutorService executor)
+		throws Exception
+	{
+		return ImmutableMap.of();
+	}
+
+	/**
+	 * Resolves given designators ahead of the evaluation
+	 * for multiple evaluation contexts, i.e. individual
+	 * requests of the multiple decision request. Lookups
+	 * of the same {@link BatchAttributeResolver} are
+	 * grouped to the single resolver invocation. Default
+	 * implementation prefetches designators of each context via
+	 * {@link #prefetch(EvaluationContext, Iterable, ExecutorService)}
+	 *
+	 * @param refs attribute designators by evaluation context
+	 * @param executor an executor used to invoke resolvers
+	 * @return resolved {@link AttributeSet} by designator
+	 * for each given evaluation context
+	 * @throws Exception if an error occurs
+	 */
+	default Map<EvaluationContext, Map<AttributeDesignatorKey, AttributeSet>> prefetch(
+			Map<EvaluationContext, ? extends Iterable<AttributeDesignatorKey>> refs,
+			ExecutorService executor)
+		throws Exception
+	{
+		Map<EvaluationContext, Map<AttributeDesignatorKey, AttributeSet>> v =
+				new LinkedHashMap<EvaluationContext, Map<AttributeDesignatorKey, AttributeSet>>();
+		for(Map.Entry<EvaluationContext, ? extends Iterable<AttributeDesignatorKey>> e : refs.entrySet()){
+			v.put(e.getKey(), prefetch(e.getKey(), e.getValue(), executor));
+		}
+		return v;
+	}
+
 	/**
 	 * Resolves a content for a given attribute category
 	 *
@@ -72,10 +163,50 @@ public interface PolicyInformationPoint
 			CategoryId category)
 		throws Exception;
 
+	/**
+	 * Resolves a content for a given attribute category,
+	 * unlike {@link #resolve(EvaluationContext, CategoryId)}
+	 * content resolved or cached in the serialized form
+	 * is returned without parsing it to DOM. Default
+	 * implementation wraps content resolved via
+	 * {@link #resolve(EvaluationContext, CategoryId)}
+	 *
+	 * @param context an evaluation context
+	 * @param category an attribute category
+	 * @return {@link Content} or {@code null}
+	 * @throws Exception if an error occurs
+	 */
+	default Content resolveContent(
+			EvaluationContext context,
+			CategoryId category)
+		throws Exception
+	{
+		Node v = resolve(context, category);
+		if(v == null){
+			return null;
+		}
+		return Content
+				.builder()
+				.resolver(ContentResolverDescriptorBuilder
+						.builder(getId(), getId(), category)
+						.noCache()
+						.build())
+				.content(v)
+				.build();
+	}
+
 	/**
 	 * Gets resolver registry used by this PIP
 	 *
 	 * @return {@link ResolverRegistry}
 	 */
 	ResolverRegistry getRegistry();
+
+	/**
+	 * Releases resources held by this PIP, i.e. threads
+	 * used to invoke resolvers, default implementation
+	 * does nothing
+	 */
+	default void close(){
+	}
 }
@@ -22,6 +22,9 @@ package org.xacml4j.v30.spi.pip;
  * #L%
  */
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,6 +38,10 @@ public final class PolicyInformationPointBuilder
 	private String id;
 	private PolicyInformationPointCacheProvider cache;
 	private ResolverRegistryBuilder registryBuilder;
+	private Executor refreshExecutor;
+	private double refreshAheadFactor = 1.0;
+	private Executor resolverExecutor;
+	private long prefetchTimeout;
 
 	public PolicyInformationPointBuilder(String id){
 		Preconditions.checkNotNull(id);
@@ -54,6 +61,66 @@ public final class PolicyInformationPointBuilder
 		return this;
 	}
 
+	/**
+	 * Enables asynchronous refresh of the cached
+	 * attributes via a given executor, an expired
+	 * attribute set returned by a cache provider
+	 * within its stale grace period is served while
+	 * it is refreshed, see
+	 * {@link BasePolicyInformationPointCacheProvider#getStaleGracePeriod()}
+	 *
+	 * @param executor an executor used to invoke
+	 * resolvers in background
+	 * @return {@link PolicyInformationPointBuilder}
+	 */
+	public PolicyInformationPointBuilder withRefreshExecutor(Executor executor){
+		Preconditions.checkNotNull(executor);
+		this.refreshExecutor = executor;
+		return this;
+	}
+
+	/**
+	 * Refreshes cached attributes in background once
+	 * a given fraction of the resolver cache TTL elapses,
+	 * requires {@link #withRefreshExecutor(Executor)}
+	 *
+	 * @param factor a fraction of the cache TTL in (0, 1]
+	 * @return {@link PolicyInformationPointBuilder}
+	 */
+	public PolicyInformationPointBuilder refreshAhead(double factor){
+		Preconditions.checkArgument(factor > 0 && factor <= 1.0);
+		this.refreshAheadFactor = factor;
+		return this;
+	}
+
+	/**
+	 * Invokes resolvers with an invocation timeout
+	 * via a given executor instead of the default
+	 * bounded pool of daemon threads per resolver
+	 *
+	 * @param executor an executor
+	 * @return {@link PolicyInformationPointBuilder}
+	 */
+	public PolicyInformationPointBuilder withResolverExecutor(Executor executor){
+		Preconditions.checkNotNull(executor);
+		this.resolverExecutor = executor;
+		return this;
+	}
+
+	/**
+	 * Sets a maximum time to wait for prefetched attributes,
+	 * see {@link PolicyInformationPoint#prefetch}
+	 *
+	 * @param timeout a timeout
+	 * @param unit a timeout unit
+	 * @return {@link PolicyInformationPointBuilder}
+	 */
+	public PolicyInformationPointBuilder prefetchTimeout(long timeout, TimeUnit unit){
+		Preconditions.checkArgument(timeout > 0);
+		this.prefetchTimeout = unit.toMillis(timeout);
+		return this;
+	}
+
 	/**
 	 * Adds default XACML 3.0 resolvers to this builder
 	 *
@@ -107,15 +174,25 @@ public final class PolicyInformationPointBuilder
 	}
 
 	public PolicyInformationPoint build(){
-		return new DefaultPolicyInformationPoint(id,
-				registryBuilder.build(), cache);
+		return create(registryBuilder.build());
 	}
 
 	public PolicyInformationPoint build(ResolverRegistry registry){
 		if(log.isDebugEnabled()){
 			log.debug("Creating PIP id=\"{}\"", id);
 		}
-		return new DefaultPolicyInformationPoint(id,
-				registryBuilder.build(registry), cache);
+		return create(registryBuilder.build(registry));
+	}
+
+	private PolicyInformationPoint create(ResolverRegistry registry){
+		DefaultPolicyInformationPoint pip = new DefaultPolicyInformationPoint(id,
+				registry, cache);
+		pip.setRefreshExecutor(refreshExecutor);
+		pip.setRefreshAheadFactor(refreshAheadFactor);
+		pip.setResolverExecutor(resolverExecutor);
+		if(prefetchTimeout > 0){
+			pip.setPrefetchTimeout(prefetchTimeout, TimeUnit.MILLISECONDS);
+		}
+		return pip;
 	}
 }
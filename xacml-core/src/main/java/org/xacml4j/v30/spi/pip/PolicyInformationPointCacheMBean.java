@@ -0,0 +1,72 @@
+package org.xacml4j.v30.spi.pip;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+/**
+ * A management interface of the
+ * {@link PolicyInformationPointCacheProvider}
+ * bounded by an estimated memory budget
+ */
+public interface PolicyInformationPointCacheMBean
+{
+	/**
+	 * Gets cache memory budget in bytes
+	 *
+	 * @return a budget in bytes
+	 */
+	long getMaximumWeight();
+
+	/**
+	 * Gets estimated size of the cached
+	 * attributes and content in bytes
+	 *
+	 * @return an estimated size in bytes
+	 */
+	long getWeight();
+
+	long getAttributeHitCount();
+	long getAttributeMissCount();
+	long getAttributeEvictionCount();
+
+	long getContentHitCount();
+	long getContentMissCount();
+	long getContentEvictionCount();
+
+	/**
+	 * Gets a number of entries which were
+	 * not cached because they exceed the
+	 * resolver quota
+	 *
+	 * @return a number of rejected entries
+	 */
+	long getRejectedCount();
+
+	/**
+	 * Gets estimated size of the entries
+	 * cached for a given resolver in bytes
+	 *
+	 * @param resolverId a resolver identifier
+	 * @return an estimated size in bytes
+	 */
+	long getResolverWeight(String resolverId);
+}
@@ -0,0 +1,51 @@
+package org.xacml4j.v30.spi.pip;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+/**
+ * A second level store of the
+ * {@link TwoTierPolicyInformationPointCacheProvider},
+ * usually shared by multiple PDP instances. Values are
+ * opaque encoded attribute sets, an implementation must
+ * not return a value after its TTL elapses
+ */
+public interface PolicyInformationPointCacheStore
+{
+	/**
+	 * Gets a value stored with a given key
+	 *
+	 * @param key a key
+	 * @return a value or {@code null} if value
+	 * is not found or expired
+	 */
+	byte[] get(String key);
+
+	/**
+	 * Stores a given value with a given key
+	 *
+	 * @param key a key
+	 * @param value a value
+	 * @param ttl a value TTL in seconds
+	 */
+	void put(String key, byte[] value, int ttl);
+}
@@ -27,6 +27,7 @@ import java.util.List;
 
 import org.xacml4j.v30.BagOfAttributeExp;
 import org.xacml4j.v30.EvaluationException;
+import org.xacml4j.v30.RequestTime;
 
 import com.google.common.base.Ticker;
 
@@ -41,6 +42,17 @@ public interface ResolverContext
 	 */
 	Calendar getCurrentDateTime();
 
+	/**
+	 * Gets current evaluation context request time,
+	 * default implementation creates request time
+	 * from {@link #getCurrentDateTime()}
+	 *
+	 * @return {@link RequestTime} instance
+	 */
+	default RequestTime getRequestTime(){
+		return RequestTime.create(getCurrentDateTime());
+	}
+
 	/**
 	 * Gets ticker
 	 *
@@ -72,4 +72,63 @@ public interface ResolverDescriptor
 	 * @return a TTL in seconds or {@code 0}
 	 */
 	int getPreferredCacheTTL();
+
+	/**
+	 * Gets cache TTL for an empty or failed
+	 * resolution via this resolver, negative cache
+	 * TTL is usually shorter than preferred cache TTL
+	 *
+	 * @return a TTL in seconds or {@code 0} if
+	 * empty or failed resolutions are not cached
+	 */
+	default int getNegativeCacheTTL(){
+		return 0;
+	}
+
+	/**
+	 * Gets a maximum duration of a single
+	 * resolver invocation, an invocation exceeding
+	 * it is abandoned and treated as failed
+	 *
+	 * @return a timeout in milliseconds or {@code 0}
+	 * if invocations are not time limited
+	 */
+	default long getTimeout(){
+		return 0;
+	}
+
+	/**
+	 * Gets a maximum number of concurrent
+	 * invocations of this resolver, an invocation
+	 * exceeding it fails without invoking resolver
+	 *
+	 * @return a maximum number of concurrent
+	 * invocations or {@code 0} if unlimited
+	 */
+	default int getMaxConcurrentInvocations(){
+		return 0;
+	}
+
+	/**
+	 * Gets a number of consecutive failed invocations
+	 * after which invocations of this resolver fail
+	 * without invoking resolver until
+	 * {@link #getCircuitBreakerResetTimeout()} elapses
+	 *
+	 * @return a number of consecutive failures or
+	 * {@code 0} if circuit breaker is disabled
+	 */
+	default int getCircuitBreakerThreshold(){
+		return 0;
+	}
+
+	/**
+	 * Gets a period after which an open circuit
+	 * breaker lets a single trial invocation through
+	 *
+	 * @return a period in milliseconds
+	 */
+	default long getCircuitBreakerResetTimeout(){
+		return 0;
+	}
 }
@@ -67,4 +67,29 @@ class ResolverDescriptorDelegate implements ResolverDescriptor
 	public int getPreferredCacheTTL() {
 		return d.getPreferredCacheTTL();
 	}
+
+	@Override
+	public int getNegativeCacheTTL() {
+		return d.getNegativeCacheTTL();
+	}
+
+	@Override
+	public long getTimeout() {
+		return d.getTimeout();
+	}
+
+	@Override
+	public int getMaxConcurrentInvocations() {
+		return d.getMaxConcurrentInvocations();
+	}
+
+	@Override
+	public int getCircuitBreakerThreshold() {
+		return d.getCircuitBreakerThreshold();
+	}
+
+	@Override
+	public long getCircuitBreakerResetTimeout() {
+		return d.getCircuitBreakerResetTimeout();
+	}
 }
@@ -0,0 +1,212 @@
+package org.xacml4j.v30.spi.pip;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
+
+/**
+ * Enforces resolver invocation timeout, concurrency
+ * limit and circuit breaker settings of a given
+ * {@link ResolverDescriptor}, an invocation rejected
+ * by a concurrency limit or an open circuit breaker
+ * fails with {@link RejectedExecutionException}
+ * without invoking resolver
+ */
+final class ResolverGuard
+{
+	private final static Logger log = LoggerFactory.getLogger(ResolverGuard.class);
+
+	private final String id;
+	private final long timeout;
+	private final Semaphore permits;
+	private final int threshold;
+	private final long resetTimeout;
+
+	private final AtomicInteger failures;
+	private final AtomicBoolean trial;
+	private volatile long openedAt;
+
+	ResolverGuard(ResolverDescriptor d){
+		Preconditions.checkNotNull(d);
+		this.id = d.getId();
+		this.timeout = d.getTimeout();
+		this.permits = (d.getMaxConcurrentInvocations() > 0)?
+				new Semaphore(d.getMaxConcurrentInvocations()):null;
+		this.threshold = d.getCircuitBreakerThreshold();
+		this.resetTimeout = TimeUnit.MILLISECONDS.toNanos(d.getCircuitBreakerResetTimeout());
+		this.failures = new AtomicInteger();
+		this.trial = new AtomicBoolean();
+	}
+
+	/**
+	 * Tests if a given descriptor requires
+	 * resolver invocations to be guarded
+	 *
+	 * @param d a resolver descriptor
+	 * @return {@code true} if invocations are guarded
+	 */
+	static boolean isGuarded(ResolverDescriptor d){
+		return d.getTimeout() > 0 ||
+				d.getMaxConcurrentInvocations() > 0 ||
+				d.getCircuitBreakerThreshold() > 0;
+	}
+
+	/**
+	 * Invokes a given resolution, resolution is invoked
+	 * via a given executor if invocation is time limited
+	 *
+	 * @param resolution a resolution
+	 * @param ticker a ticker used to track circuit breaker state
+	 * @param executor an executor used to invoke
+	 * time limited resolutions
+	 * @return a resolution result
+	 * @throws Exception if resolution fails, times out
+	 * or is rejected
+	 */
+	<V> V invoke(Callable<V> resolution, Ticker ticker, Executor executor)
+			throws Exception
+	{
+		boolean probe = false;
+		if(threshold > 0 &&
+				failures.get() >= threshold){
+			if(ticker.read() - openedAt < resetTimeout ||
+					!trial.compareAndSet(false, true)){
+				throw new RejectedExecutionException(String.format(
+						"Circuit breaker of resolver id=\"%s\" is open", id));
+			}
+			if(log.isDebugEnabled()){
+				log.debug("Trial invocation of resolver id=\"{}\"", id);
+			}
+			probe = true;
+		}
+		try
+		{
+			if(permits != null &&
+					!permits.tryAcquire()){
+				throw new RejectedExecutionException(String.format(
+						"Resolver id=\"%s\" concurrent invocations limit reached", id));
+			}
+			try{
+				V v = call(resolution, executor);
+				failures.set(0);
+				return v;
+			}catch(Exception e){
+				if(threshold > 0 &&
+						failures.incrementAndGet() >= threshold){
+					openedAt = ticker.read();
+					if(log.isDebugEnabled()){
+						log.debug("Opened circuit breaker of resolver id=\"{}\"", id);
+					}
+				}
+				throw e;
+			}
+		}
+		finally{
+			if(probe){
+				trial.set(false);
+			}
+		}
+	}
+
+	private <V> V call(final Callable<V> resolution, Executor executor)
+			throws Exception
+	{
+		if(timeout <= 0){
+			try{
+				return resolution.call();
+			}finally{
+				release();
+			}
+		}
+		// permit is released once resolution completes,
+		// an abandoned resolution still holds a permit,
+		// a resolution cancelled before it started
+		// releases a permit on cancellation
+		final AtomicBoolean started = new AtomicBoolean();
+		FutureTask<V> task = new FutureTask<V>(new Callable<V>() {
+			@Override
+			public V call() throws Exception {
+				if(!started.compareAndSet(false, true)){
+					return null;
+				}
+				try{
+					return resolution.call();
+				}finally{
+					release();
+				}
+			}
+		});
+		try{
+			executor.execute(task);
+		}catch(RuntimeException e){
+			release();
+			throw e;
+		}
+		try{
+			return task.get(timeout, TimeUnit.MILLISECONDS);
+		}catch(TimeoutException e){
+			cancel(task, started);
+			if(log.isDebugEnabled()){
+				log.debug("Resolver id=\"{}\" timed out after=\"{}\" ms", id, timeout);
+			}
+			throw e;
+		}catch(InterruptedException e){
+			cancel(task, started);
+			Thread.currentThread().interrupt();
+			throw e;
+		}catch(ExecutionException e){
+			Throwables.throwIfInstanceOf(e.getCause(), Exception.class);
+			Throwables.throwIfUnchecked(e.getCause());
+			throw e;
+		}
+	}
+
+	private void cancel(FutureTask<?> task, AtomicBoolean started){
+		if(task.cancel(true) &&
+				started.compareAndSet(false, true)){
+			release();
+		}
+	}
+
+	private void release(){
+		if(permits != null){
+			permits.release();
+		}
+	}
+}
@@ -41,4 +41,92 @@ public interface ResolverMBean
 	 * seconds
 	 */
 	void setPreferredCacheTTL(int ttl);
+
+	/**
+	 * Gets number of resolver lookups
+	 * served from the cache
+	 *
+	 * @return number of cache hits
+	 */
+	long getCacheHitCount();
+
+	/**
+	 * Gets number of resolver lookups
+	 * not found in the cache
+	 *
+	 * @return number of cache misses
+	 */
+	long getCacheMissCount();
+
+	/**
+	 * Gets a ratio of cache hits, including
+	 * negative cache hits, to all cache lookups
+	 *
+	 * @return a cache hit ratio in [0, 1]
+	 */
+	double getCacheHitRatio();
+
+	/**
+	 * Gets number of expired cached values served
+	 * while they are refreshed in background
+	 *
+	 * @return number of stale cache hits
+	 */
+	long getStaleHitCount();
+
+	/**
+	 * Gets number of lookups served from
+	 * cached empty or failed resolutions
+	 *
+	 * @return number of negative cache hits
+	 */
+	long getNegativeCacheHitCount();
+
+	/**
+	 * Gets number of lookups which waited for
+	 * the same resolution already in progress
+	 *
+	 * @return number of coalesced waits
+	 */
+	long getCoalescedWaitCount();
+
+	/**
+	 * Gets number of lookups which fell back
+	 * to the next matching resolver after this
+	 * resolver failed or resolved nothing
+	 *
+	 * @return number of fallbacks
+	 */
+	long getFallbackCount();
+
+	/**
+	 * Gets number of failed resolver invocations
+	 *
+	 * @return number of errors
+	 */
+	long getErrorCount();
+
+	/**
+	 * Gets a ratio of failed resolver
+	 * invocations to all invocations
+	 *
+	 * @return an error ratio in [0, 1]
+	 */
+	double getErrorRatio();
+
+	/**
+	 * Gets a mean latency of the resolver
+	 * invocations done on the cache miss
+	 *
+	 * @return a latency in milliseconds
+	 */
+	double getMeanMissLatency();
+
+	/**
+	 * Gets the 99th percentile latency of the
+	 * resolver invocations done on the cache miss
+	 *
+	 * @return a latency in milliseconds
+	 */
+	double get99thPercentileMissLatency();
 }
@@ -0,0 +1,174 @@
+package org.xacml4j.v30.spi.pip;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import static org.xacml4j.v30.pdp.MetricsSupport.getOrCreate;
+import static org.xacml4j.v30.pdp.MetricsSupport.name;
+
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * Metrics of the resolver lookups done by
+ * {@link PolicyInformationPoint}, metrics are registered
+ * with the shared PDP metrics registry under the resolver
+ * id, instances created for the same resolver id share
+ * the same metrics
+ */
+final class ResolverMetrics
+{
+	private final static String PREFIX = "pip.Resolver";
+
+	private final Meter cacheHits;
+	private final Meter cacheMisses;
+	private final Meter staleHits;
+	private final Meter negativeCacheHits;
+	private final Meter coalescedWaits;
+	private final Meter fallbacks;
+	private final Meter errors;
+	private final Timer missTimer;
+
+	ResolverMetrics(String resolverId){
+		MetricRegistry registry = getOrCreate();
+		this.cacheHits = registry.meter(name(PREFIX, resolverId, "cacheHits"));
+		this.cacheMisses = registry.meter(name(PREFIX, resolverId, "cacheMisses"));
+		this.staleHits = registry.meter(name(PREFIX, resolverId, "staleHits"));
+		this.negativeCacheHits = registry.meter(name(PREFIX, resolverId, "negativeCacheHits"));
+		this.coalescedWaits = registry.meter(name(PREFIX, resolverId, "coalescedWaits"));
+		this.fallbacks = registry.meter(name(PREFIX, resolverId, "fallbacks"));
+		this.errors = registry.meter(name(PREFIX, resolverId, "errors"));
+		this.missTimer = registry.timer(name(PREFIX, resolverId, "missTimer"));
+	}
+
+	void markCacheHit(){
+		cacheHits.mark();
+	}
+
+	void markCacheMiss(){
+		cacheMisses.mark();
+	}
+
+	void markStaleHit(){
+		staleHits.mark();
+	}
+
+	void markNegativeCacheHit(){
+		negativeCacheHits.mark();
+	}
+
+	void markCoalescedWait(){
+		coalescedWaits.mark();
+	}
+
+	void markFallback(){
+		fallbacks.mark();
+	}
+
+	void markError(){
+		errors.mark();
+	}
+
+	/**
+	 * Starts timing of the resolver invocation
+	 * done on the cache miss
+	 *
+	 * @return {@link Timer.Context}
+	 */
+	Timer.Context timeMiss(){
+		return missTimer.time();
+	}
+
+	long getCacheHitCount(){
+		return cacheHits.getCount();
+	}
+
+	long getCacheMissCount(){
+		return cacheMisses.getCount();
+	}
+
+	/**
+	 * Gets a ratio of cache hits, including stale
+	 * and negative cache hits, to all cache lookups
+	 *
+	 * @return a cache hit ratio in [0, 1]
+	 */
+	double getCacheHitRatio(){
+		long hits = cacheHits.getCount() + negativeCacheHits.getCount();
+		long lookups = hits + cacheMisses.getCount();
+		return (lookups == 0) ? 0.0 : (double) hits / lookups;
+	}
+
+	long getStaleHitCount(){
+		return staleHits.getCount();
+	}
+
+	long getNegativeCacheHitCount(){
+		return negativeCacheHits.getCount();
+	}
+
+	long getCoalescedWaitCount(){
+		return coalescedWaits.getCount();
+	}
+
+	long getFallbackCount(){
+		return fallbacks.getCount();
+	}
+
+	long getErrorCount(){
+		return errors.getCount();
+	}
+
+	/**
+	 * Gets a ratio of failed resolver
+	 * invocations to all invocations
+	 *
+	 * @return an error ratio in [0, 1]
+	 */
+	double getErrorRatio(){
+		long invocations = missTimer.getCount();
+		return (invocations == 0) ? 0.0 : Math.min(1.0, (double) errors.getCount() / invocations);
+	}
+
+	/**
+	 * Gets a mean latency of the resolver
+	 * invocations done on the cache miss
+	 *
+	 * @return a mean latency in milliseconds
+	 */
+	double getMeanMissLatency(){
+		return missTimer.getSnapshot().getMean() / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	/**
+	 * Gets the 99th percentile latency of the resolver
+	 * invocations done on the cache miss
+	 *
+	 * @return a latency in milliseconds
+	 */
+	double get99thPercentileMissLatency(){
+		return missTimer.getSnapshot().get99thPercentile() / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+}
@@ -0,0 +1,244 @@
+package org.xacml4j.v30.spi.pip;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xacml4j.v30.BagOfAttributeExp;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * A two tier implementation of {@link PolicyInformationPointCacheProvider},
+ * a small in-process near cache is backed by a second level
+ * {@link PolicyInformationPointCacheStore} usually shared by multiple PDP
+ * instances. Attribute sets are stored in the second level with resolver
+ * preferred cache TTL and the stale grace period or negative cache TTL for
+ * empty attribute sets, an attribute set found in the second level keeps
+ * its original age. Content is cached only in the near cache
+ */
+public final class TwoTierPolicyInformationPointCacheProvider
+		extends BasePolicyInformationPointCacheProvider {
+	private final static Logger log = LoggerFactory.getLogger(TwoTierPolicyInformationPointCacheProvider.class);
+
+	/**
+	 * Default maximum number of items in the near caches
+	 */
+	private static final int DEFAULT_MAX_NEAR_ITEMS = 256;
+
+	private final Cache<ResolverCacheKey, AttributeSet> attributeCache;
+	private final Cache<ResolverCacheKey, Content> contentCache;
+	private final PolicyInformationPointCacheStore store;
+
+	public TwoTierPolicyInformationPointCacheProvider(
+			PolicyInformationPointCacheStore store) {
+		this(store, DEFAULT_MAX_NEAR_ITEMS, DEFAULT_MAX_NEAR_ITEMS);
+	}
+
+	public TwoTierPolicyInformationPointCacheProvider(
+			PolicyInformationPointCacheStore store,
+			int maxNearAttrSize,
+			int maxNearContentSize) {
+		this(store, maxNearAttrSize, maxNearContentSize, 0);
+	}
+
+	public TwoTierPolicyInformationPointCacheProvider(
+			PolicyInformationPointCacheStore store,
+			int maxNearAttrSize,
+			int maxNearContentSize,
+			int staleGracePeriod) {
+		super(staleGracePeriod);
+		Preconditions.checkNotNull(store);
+		this.store = store;
+		this.attributeCache = CacheBuilder
+				.newBuilder()
+				.maximumSize(maxNearAttrSize)
+				.build();
+		this.contentCache = CacheBuilder
+				.newBuilder()
+				.maximumSize(maxNearContentSize)
+				.build();
+	}
+
+	@Override
+	protected AttributeSet doGetAttributes(ResolverContext context) {
+		ResolverCacheKey key = createKey(context);
+		AttributeSet v = attributeCache.getIfPresent(key);
+		if (v != null) {
+			if (!isExpired(v, context.getTicker())) {
+				return v;
+			}
+			attributeCache.invalidate(key);
+		}
+		byte[] b;
+		try {
+			b = store.get(createStoreKey(context));
+		} catch (RuntimeException e) {
+			if (log.isWarnEnabled()) {
+				log.warn("Failed to get resolver id=\"{}\" attributes from the cache store",
+						context.getDescriptor().getId(), e);
+			}
+			return null;
+		}
+		if (b == null) {
+			return null;
+		}
+		AttributeSet stored;
+		try {
+			stored = decode(b, (AttributeResolverDescriptor) context.getDescriptor(),
+					context.getTicker());
+		} catch (Exception e) {
+			if (log.isDebugEnabled()) {
+				log.debug("Failed to decode resolver id=\"{}\" attributes",
+						context.getDescriptor().getId(), e);
+			}
+			return null;
+		}
+		if (isExpired(stored, context.getTicker())) {
+			return null;
+		}
+		attributeCache.put(key, stored);
+		return stored;
+	}
+
+	@Override
+	protected void doPutAttributes(ResolverContext context, AttributeSet v) {
+		attributeCache.put(createKey(context), v);
+		ResolverDescriptor d = context.getDescriptor();
+		try {
+			store.put(createStoreKey(context),
+					encode(v, context.getTicker()),
+					v.isEmpty() ? d.getNegativeCacheTTL() : d.getPreferredCacheTTL() + getStaleGracePeriod());
+		} catch (Exception e) {
+			if (log.isWarnEnabled()) {
+				log.warn("Failed to put resolver id=\"{}\" attributes to the cache store",
+						d.getId(), e);
+			}
+		}
+	}
+
+	@Override
+	protected Content doGetContent(ResolverContext context) {
+		ResolverCacheKey key = createKey(context);
+		Content v = contentCache.getIfPresent(key);
+		if (v != null && isExpired(v, context.getTicker())) {
+			contentCache.invalidate(key);
+			return null;
+		}
+		return v;
+	}
+
+	@Override
+	protected void doPutContent(ResolverContext context, Content content) {
+		contentCache.put(createKey(context), content);
+	}
+
+	private static ResolverCacheKey createKey(ResolverContext context) {
+		return ResolverCacheKey
+				.builder()
+				.id(context.getDescriptor())
+				.keys(context.getKeys())
+				.build();
+	}
+
+	/**
+	 * Creates a second level store key, a resolver
+	 * identifier followed by encoded resolver keys
+	 *
+	 * @param context a resolver context
+	 * @return a store key
+	 */
+	static String createStoreKey(ResolverContext context) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			BagOfAttributeExpCodec codec = new BagOfAttributeExpCodec();
+			List<BagOfAttributeExp> keys = context.getKeys();
+			out.writeInt(keys.size());
+			for (BagOfAttributeExp k : keys) {
+				codec.write(out, k);
+			}
+			out.flush();
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e);
+		}
+		return context.getDescriptor().getId() + ":" +
+				BaseEncoding.base64Url().omitPadding().encode(bytes.toByteArray());
+	}
+
+	/**
+	 * Encodes a given attribute set with
+	 * its wall clock creation time
+	 */
+	static byte[] encode(AttributeSet v, Ticker ticker) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		BagOfAttributeExpCodec codec = new BagOfAttributeExpCodec();
+		long age = TimeUnit.NANOSECONDS.toMillis(ticker.read() - v.getCreatedTime());
+		out.writeLong(System.currentTimeMillis() - age);
+		Map<String, BagOfAttributeExp> attributes = v.toMap();
+		out.writeInt(attributes.size());
+		for (Map.Entry<String, BagOfAttributeExp> a : attributes.entrySet()) {
+			BagOfAttributeExpCodec.writeString(out, a.getKey());
+			codec.write(out, a.getValue());
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	static AttributeSet decode(byte[] b, AttributeResolverDescriptor d, Ticker ticker)
+			throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(b));
+		BagOfAttributeExpCodec codec = new BagOfAttributeExpCodec();
+		final long age = TimeUnit.MILLISECONDS.toNanos(
+				Math.max(0, System.currentTimeMillis() - in.readLong()));
+		final Ticker t = ticker;
+		AttributeSet.Builder builder = AttributeSet
+				.builder(d)
+				.ticker(new Ticker() {
+					@Override
+					public long read() {
+						return t.read() - age;
+					}
+				});
+		int size = BagOfAttributeExpCodec.readLength(in);
+		for (int i = 0; i < size; i++) {
+			String attributeId = BagOfAttributeExpCodec.readString(in);
+			builder.attribute(attributeId, codec.read(in));
+		}
+		return builder.build();
+	}
+}
@@ -0,0 +1,446 @@
+package org.xacml4j.v30.spi.pip;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.CharacterData;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xacml4j.v30.AttributeExp;
+import org.xacml4j.v30.BagOfAttributeExp;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteSource;
+import com.google.common.primitives.Ints;
+
+/**
+ * An implementation of {@link PolicyInformationPointCacheProvider}
+ * bounded by an estimated memory budget rather than by a number
+ * of entries. Each cached {@link AttributeSet} or {@link Content}
+ * is weighted by its estimated size, an entry exceeding its resolver
+ * quota is not cached. An instance can be registered with JMX via
+ * {@link javax.management.StandardMBean} and
+ * {@link PolicyInformationPointCacheMBean} interface
+ */
+public final class WeightedPolicyInformationPointCacheProvider
+		extends BasePolicyInformationPointCacheProvider
+		implements PolicyInformationPointCacheMBean {
+	/**
+	 * Default attribute and content caches budget in bytes
+	 */
+	private static final long DEFAULT_MAX_WEIGHT = 32L * 1024 * 1024;
+
+	private final static int ENTRY_WEIGHT = 128;
+	private final static int BAG_WEIGHT = 64;
+	private final static int VALUE_WEIGHT = 32;
+	private final static int NODE_WEIGHT = 64;
+
+	private final Cache<ResolverCacheKey, Entry<AttributeSet>> attributeCache;
+	private final Cache<ResolverCacheKey, Entry<Content>> contentCache;
+
+	private final long maxAttributeWeight;
+	private final long maxContentWeight;
+
+	private final Map<String, Long> resolverQuotas;
+	private final long defaultResolverQuota;
+	private final ConcurrentMap<String, AtomicLong> resolverWeights;
+	private final AtomicLong weight;
+	private final AtomicLong rejected;
+
+	private WeightedPolicyInformationPointCacheProvider(Builder b) {
+		super(b.staleGracePeriod);
+		this.maxAttributeWeight = b.maxAttributeWeight;
+		this.maxContentWeight = b.maxContentWeight;
+		this.resolverQuotas = ImmutableMap.copyOf(b.resolverQuotas);
+		this.defaultResolverQuota = b.defaultResolverQuota;
+		this.resolverWeights = new ConcurrentHashMap<String, AtomicLong>();
+		this.weight = new AtomicLong();
+		this.rejected = new AtomicLong();
+		this.attributeCache = CacheBuilder
+				.newBuilder()
+				.maximumWeight(maxAttributeWeight)
+				.weigher(new EntryWeigher<AttributeSet>())
+				.removalListener(new EntryRemovalListener<AttributeSet>())
+				.recordStats()
+				.build();
+		this.contentCache = CacheBuilder
+				.newBuilder()
+				.maximumWeight(maxContentWeight)
+				.weigher(new EntryWeigher<Content>())
+				.removalListener(new EntryRemovalListener<Content>())
+				.recordStats()
+				.build();
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	@Override
+	protected AttributeSet doGetAttributes(ResolverContext context) {
+		ResolverCacheKey key = createKey(context);
+		Entry<AttributeSet> e = attributeCache.getIfPresent(key);
+		if (e != null && isExpired(e.value, context.getTicker())) {
+			attributeCache.invalidate(key);
+			return null;
+		}
+		return (e != null) ? e.value : null;
+	}
+
+	@Override
+	protected void doPutAttributes(ResolverContext context, AttributeSet v) {
+		ResolverCacheKey key = createKey(context);
+		Entry<AttributeSet> e = new Entry<AttributeSet>(
+				context.getDescriptor().getId(), v, weigh(v));
+		if (!admit(e, attributeCache.asMap().get(key))) {
+			return;
+		}
+		attributeCache.put(key, e);
+	}
+
+	@Override
+	protected Content doGetContent(ResolverContext context) {
+		ResolverCacheKey key = createKey(context);
+		Entry<Content> e = contentCache.getIfPresent(key);
+		if (e != null && isExpired(e.value, context.getTicker())) {
+			contentCache.invalidate(key);
+			return null;
+		}
+		return (e != null) ? e.value : null;
+	}
+
+	@Override
+	protected void doPutContent(ResolverContext context, Content content) {
+		ResolverCacheKey key = createKey(context);
+		Entry<Content> e = new Entry<Content>(
+				context.getDescriptor().getId(), content, weigh(content));
+		if (!admit(e, contentCache.asMap().get(key))) {
+			return;
+		}
+		contentCache.put(key, e);
+	}
+
+	/**
+	 * Tests if a given entry fits its resolver quota once
+	 * an entry it replaces is released, an admitted entry
+	 * weight is added to the resolver weight until the entry
+	 * is removed from the cache. A rejected entry leaves
+	 * the replaced entry in the cache
+	 *
+	 * @param e a cache entry
+	 * @param replaced an entry cached under the same key
+	 * or {@code null}
+	 * @return {@code true} if entry can be cached
+	 */
+	private boolean admit(Entry<?> e, Entry<?> replaced) {
+		Long quota = resolverQuotas.get(e.resolverId);
+		long max = (quota != null) ? quota : defaultResolverQuota;
+		long released = (replaced != null) ? replaced.weight : 0;
+		AtomicLong used = getResolverWeights(e.resolverId);
+		while (true) {
+			long current = used.get();
+			if (max > 0 && current - released + e.weight > max) {
+				rejected.incrementAndGet();
+				return false;
+			}
+			if (used.compareAndSet(current, current + e.weight)) {
+				weight.addAndGet(e.weight);
+				return true;
+			}
+		}
+	}
+
+	private AtomicLong getResolverWeights(String resolverId) {
+		AtomicLong used = resolverWeights.get(resolverId);
+		if (used == null) {
+			AtomicLong newUsed = new AtomicLong();
+			used = resolverWeights.putIfAbsent(resolverId, newUsed);
+			used = (used == null) ? newUsed : used;
+		}
+		return used;
+	}
+
+	private static ResolverCacheKey createKey(ResolverContext context) {
+		return ResolverCacheKey
+				.builder()
+				.id(context.getDescriptor())
+				.keys(context.getKeys())
+				.build();
+	}
+
+	/**
+	 * Estimates a size of a given attribute set in bytes
+	 *
+	 * @param v an attribute set
+	 * @return an estimated size in bytes
+	 */
+	static int weigh(AttributeSet v) {
+		long w = ENTRY_WEIGHT;
+		for (BagOfAttributeExp bag : v.toMap().values()) {
+			w += BAG_WEIGHT;
+			for (AttributeExp a : bag.values()) {
+				w += weigh(a.getValue());
+			}
+		}
+		return Ints.saturatedCast(w);
+	}
+
+	private static long weigh(Object value) {
+		if (value instanceof CharSequence) {
+			return VALUE_WEIGHT + 2L * ((CharSequence) value).length();
+		}
+		if (value instanceof byte[]) {
+			return VALUE_WEIGHT + ((byte[]) value).length;
+		}
+		return VALUE_WEIGHT;
+	}
+
+	/**
+	 * Estimates a size of a given content in bytes,
+	 * serialized content of unknown size is measured
+	 *
+	 * @param v a content
+	 * @return an estimated size in bytes
+	 */
+	static int weigh(Content v) {
+		if (v.getXmlContent() != null) {
+			return Ints.saturatedCast(ENTRY_WEIGHT + VALUE_WEIGHT + weigh(v.getXmlContent()));
+		}
+		return Ints.saturatedCast(ENTRY_WEIGHT + weigh(v.getContent()));
+	}
+
+	/**
+	 * Gets a size of a given serialized content, content
+	 * which can not be read weighs as much as a cache
+	 * entry can and is never admitted to a bounded cache
+	 */
+	private static long weigh(ByteSource xml) {
+		Optional<Long> size = xml.sizeIfKnown();
+		if (size.isPresent()) {
+			return size.get();
+		}
+		try {
+			return xml.size();
+		} catch (IOException e) {
+			return Integer.MAX_VALUE;
+		}
+	}
+
+	private static long weigh(Node n) {
+		long w = NODE_WEIGHT;
+		if (n instanceof CharacterData) {
+			w += 2L * ((CharacterData) n).getLength();
+		}
+		NamedNodeMap attrs = n.getAttributes();
+		if (attrs != null) {
+			for (int i = 0; i < attrs.getLength(); i++) {
+				Attr a = (Attr) attrs.item(i);
+				w += NODE_WEIGHT + 2L * (a.getName().length() + a.getValue().length());
+			}
+		}
+		for (Node c = n.getFirstChild(); c != null; c = c.getNextSibling()) {
+			w += weigh(c);
+		}
+		return w;
+	}
+
+	@Override
+	public long getMaximumWeight() {
+		return maxAttributeWeight + maxContentWeight;
+	}
+
+	@Override
+	public long getWeight() {
+		return weight.get();
+	}
+
+	@Override
+	public long getAttributeHitCount() {
+		return attributeCache.stats().hitCount();
+	}
+
+	@Override
+	public long getAttributeMissCount() {
+		return attributeCache.stats().missCount();
+	}
+
+	@Override
+	public long getAttributeEvictionCount() {
+		return attributeCache.stats().evictionCount();
+	}
+
+	@Override
+	public long getContentHitCount() {
+		return contentCache.stats().hitCount();
+	}
+
+	@Override
+	public long getContentMissCount() {
+		return contentCache.stats().missCount();
+	}
+
+	@Override
+	public long getContentEvictionCount() {
+		return contentCache.stats().evictionCount();
+	}
+
+	@Override
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+	@Override
+	public long getResolverWeight(String resolverId) {
+		AtomicLong used = resolverWeights.get(resolverId);
+		return (used != null) ? used.get() : 0;
+	}
+
+	/**
+	 * A cached value with its estimated weight
+	 */
+	private static final class Entry<V> {
+		private final String resolverId;
+		private final V value;
+		private final int weight;
+
+		Entry(String resolverId, V value, int weight) {
+			this.resolverId = resolverId;
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+
+	private static final class EntryWeigher<V>
+			implements Weigher<ResolverCacheKey, Entry<V>> {
+		@Override
+		public int weigh(ResolverCacheKey key, Entry<V> e) {
+			return e.weight;
+		}
+	}
+
+	private final class EntryRemovalListener<V>
+			implements RemovalListener<ResolverCacheKey, Entry<V>> {
+		@Override
+		public void onRemoval(RemovalNotification<ResolverCacheKey, Entry<V>> n) {
+			Entry<V> e = n.getValue();
+			if (e != null) {
+				getResolverWeights(e.resolverId).addAndGet(-e.weight);
+				weight.addAndGet(-e.weight);
+			}
+		}
+	}
+
+	public static class Builder {
+		private long maxAttributeWeight = DEFAULT_MAX_WEIGHT;
+		private long maxContentWeight = DEFAULT_MAX_WEIGHT;
+		private long defaultResolverQuota = 0;
+		private int staleGracePeriod = 0;
+		private final Map<String, Long> resolverQuotas = new HashMap<String, Long>();
+
+		/**
+		 * Sets attribute cache budget
+		 *
+		 * @param bytes a budget in bytes
+		 * @return {@link Builder}
+		 */
+		public Builder maximumAttributeWeight(long bytes) {
+			Preconditions.checkArgument(bytes >= 0);
+			this.maxAttributeWeight = bytes;
+			return this;
+		}
+
+		/**
+		 * Sets content cache budget
+		 *
+		 * @param bytes a budget in bytes
+		 * @return {@link Builder}
+		 */
+		public Builder maximumContentWeight(long bytes) {
+			Preconditions.checkArgument(bytes >= 0);
+			this.maxContentWeight = bytes;
+			return this;
+		}
+
+		/**
+		 * Sets a quota of the cached entries of
+		 * each resolver without an explicit quota
+		 *
+		 * @param bytes a quota in bytes or {@code 0}
+		 * if resolvers are not limited
+		 * @return {@link Builder}
+		 */
+		public Builder defaultResolverQuota(long bytes) {
+			Preconditions.checkArgument(bytes >= 0);
+			this.defaultResolverQuota = bytes;
+			return this;
+		}
+
+		/**
+		 * Sets a quota of the cached entries
+		 * of a resolver with a given identifier
+		 *
+		 * @param resolverId a resolver identifier
+		 * @param bytes a quota in bytes or {@code 0}
+		 * if resolver is not limited
+		 * @return {@link Builder}
+		 */
+		public Builder resolverQuota(String resolverId, long bytes) {
+			Preconditions.checkNotNull(resolverId);
+			Preconditions.checkArgument(bytes >= 0);
+			this.resolverQuotas.put(resolverId, bytes);
+			return this;
+		}
+
+		/**
+		 * Sets a period after resolver preferred cache
+		 * TTL during which an expired attribute set is
+		 * returned so it can be served while refreshed
+		 *
+		 * @param seconds a grace period in seconds
+		 * @return {@link Builder}
+		 */
+		public Builder staleWhileRevalidate(int seconds) {
+			Preconditions.checkArgument(seconds >= 0);
+			this.staleGracePeriod = seconds;
+			return this;
+		}
+
+		public WeightedPolicyInformationPointCacheProvider build() {
+			return new WeightedPolicyInformationPointCacheProvider(this);
+		}
+	}
+}
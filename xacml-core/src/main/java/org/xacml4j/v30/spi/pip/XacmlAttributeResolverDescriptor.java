@@ -36,5 +36,6 @@ public @interface XacmlAttributeResolverDescriptor
 	String category();
 	String issuer() default "";
 	int cacheTTL() default 0;
+	int negativeCacheTTL() default 0;
 	XacmlAttributeDescriptor[] attributes();
 }
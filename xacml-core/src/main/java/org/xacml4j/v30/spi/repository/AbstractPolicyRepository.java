@@ -22,13 +22,31 @@ package org.xacml4j.v30.spi.repository;
  * #L%
  */
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,12 +60,16 @@ import org.xacml4j.v30.pdp.DecisionCombiningAlgorithm;
 import org.xacml4j.v30.pdp.Policy;
 import org.xacml4j.v30.pdp.PolicySet;
 import org.xacml4j.v30.pdp.PolicyVisitorSupport;
+import org.xacml4j.v30.pdp.Versionable;
 import org.xacml4j.v30.spi.combine.DecisionCombiningAlgorithmProvider;
 import org.xacml4j.v30.spi.function.FunctionProvider;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
 import com.google.common.io.Closeables;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * A base class for {@link PolicyRepository} implementations.
@@ -59,10 +81,14 @@ public abstract class AbstractPolicyRepository
 {
 	private final static Logger log = LoggerFactory.getLogger(AbstractPolicyRepository.class);
 
+	private final static int IMPORT_THREADS = Runtime.getRuntime().availableProcessors();
+
 	private final String id;
 	private final List<PolicyRepositoryListener> listeners;
+	private final ThreadLocal<List<Runnable>> batchNotifications;
 
 	private final PolicyUnmarshaller unmarshaller;
+	private final PolicySnapshotCodec snapshots;
 
 	private final FunctionProvider functions;
 	private final DecisionCombiningAlgorithmProvider decisionAlgorithms;
@@ -80,7 +106,9 @@ public abstract class AbstractPolicyRepository
 		this.functions = functions;
 		this.decisionAlgorithms = decisionAlgorithms;
 		this.listeners = new CopyOnWriteArrayList<PolicyRepositoryListener>();
+		this.batchNotifications = new ThreadLocal<List<Runnable>>();
 		this.unmarshaller = new XacmlPolicyUnmarshaller(functions, decisionAlgorithms);
+		this.snapshots = new PolicySnapshotCodec(functions, decisionAlgorithms);
 	}
 
 	@Override
@@ -173,28 +201,103 @@ public abstract class AbstractPolicyRepository
 		listeners.remove(l);
 	}
 
-	private void notifyPolicyAdded(Policy p){
-		for(PolicyRepositoryListener l : listeners){
-			l.policyAdded(p);
-		}
+	private void notifyPolicyAdded(final Policy p){
+		notifyListeners(new Runnable() {
+			@Override
+			public void run() {
+				for(PolicyRepositoryListener l : listeners){
+					l.policyAdded(p);
+				}
+			}
+		});
 	}
 
-	private void notifyPolicySetAdded(PolicySet p){
-		for(PolicyRepositoryListener l : listeners){
-			l.policySetAdded(p);
-		}
+	private void notifyPolicySetAdded(final PolicySet p){
+		notifyListeners(new Runnable() {
+			@Override
+			public void run() {
+				for(PolicyRepositoryListener l : listeners){
+					l.policySetAdded(p);
+				}
+			}
+		});
 	}
 
-	private void notifyPolicyRemoved(Policy p){
-		for(PolicyRepositoryListener l : listeners){
-			l.policyRemoved(p);
+	private void notifyPolicyRemoved(final Policy p){
+		notifyListeners(new Runnable() {
+			@Override
+			public void run() {
+				for(PolicyRepositoryListener l : listeners){
+					l.policyRemoved(p);
+				}
+			}
+		});
+	}
+
+	private void notifyPolicySetRemoved(final PolicySet p){
+		notifyListeners(new Runnable() {
+			@Override
+			public void run() {
+				for(PolicyRepositoryListener l : listeners){
+					l.policySetRemoved(p);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Notifies listeners, notifications of changes
+	 * made by a batch are deferred until a batch
+	 * is applied
+	 */
+	private void notifyListeners(Runnable notification){
+		List<Runnable> pending = batchNotifications.get();
+		if(pending != null){
+			pending.add(notification);
+			return;
 		}
+		notification.run();
 	}
 
-	private void notifyPolicySetRemoved(PolicySet p){
-		for(PolicyRepositoryListener l : listeners){
-			l.policySetAdded(p);
+	/**
+	 * Runs given changes as a single batch via
+	 * {@link #applyBatch(Supplier)}, listeners are notified
+	 * of changes made by a batch once a batch is applied.
+	 * A batch started by a running batch joins it
+	 *
+	 * @param changes a batch of changes
+	 * @return a value returned by a given batch
+	 */
+	protected final <V> V batch(Supplier<V> changes)
+	{
+		Preconditions.checkNotNull(changes);
+		if(batchNotifications.get() != null){
+			return changes.get();
 		}
+		List<Runnable> notifications = new ArrayList<Runnable>();
+		batchNotifications.set(notifications);
+		try{
+			return applyBatch(changes);
+		}finally{
+			batchNotifications.remove();
+			for(Runnable n : notifications){
+				n.run();
+			}
+		}
+	}
+
+	/**
+	 * Applies changes made by a given batch, a default
+	 * implementation applies each change as it is made.
+	 * Implementations override this method to publish all
+	 * changes of a batch at once, changes made before
+	 * a batch fails are published as well
+	 *
+	 * @param changes a batch of changes
+	 * @return a value returned by a given batch
+	 */
+	protected <V> V applyBatch(Supplier<V> changes){
+		return changes.get();
 	}
 
 	/**
@@ -267,6 +370,70 @@ public abstract class AbstractPolicyRepository
 		return false;
 	}
 
+	/**
+	 * Replaces a given rule with a given new rule. A rule
+	 * with the same identifier and version is replaced in
+	 * place via {@link #replacePolicy(Policy, Policy)} or
+	 * {@link #replacePolicySet(PolicySet, PolicySet)}, otherwise
+	 * a new rule is added before an old rule is removed. Replacement
+	 * runs as a single {@link #batch(Supplier)}, a rule identifier is
+	 * resolvable at any moment during replacement if an implementation
+	 * publishes batches atomically
+	 *
+	 * @param old a rule to replace
+	 * @param r a new rule
+	 * @return {@code true} if a rule has been replaced;
+	 * returns {@code false} otherwise
+	 */
+	protected final boolean replace(final CompositeDecisionRule old,
+			final CompositeDecisionRule r)
+	{
+		Preconditions.checkNotNull(old);
+		Preconditions.checkNotNull(r);
+		return batch(new Supplier<Boolean>() {
+			@Override
+			public Boolean get() {
+				return doReplace(old, r);
+			}
+		});
+	}
+
+	private boolean doReplace(CompositeDecisionRule old, CompositeDecisionRule r)
+	{
+		if(old instanceof Policy &&
+				r instanceof Policy &&
+				isSameVersion((Policy)old, (Policy)r)){
+			r.accept(new DecisionAlgorithmValidatingVisitor());
+			if(!replacePolicy((Policy)old, (Policy)r)){
+				return false;
+			}
+			notifyPolicyRemoved((Policy)old);
+			notifyPolicyAdded((Policy)r);
+			return true;
+		}
+		if(old instanceof PolicySet &&
+				r instanceof PolicySet &&
+				isSameVersion((PolicySet)old, (PolicySet)r)){
+			r.accept(new DecisionAlgorithmValidatingVisitor());
+			if(!replacePolicySet((PolicySet)old, (PolicySet)r)){
+				return false;
+			}
+			notifyPolicySetRemoved((PolicySet)old);
+			notifyPolicySetAdded((PolicySet)r);
+			return true;
+		}
+		if(!add(r)){
+			return false;
+		}
+		remove(old);
+		return true;
+	}
+
+	private static <T extends CompositeDecisionRule & Versionable> boolean isSameVersion(T a, T b){
+		return a.getId().equals(b.getId()) &&
+				a.getVersion().equals(b.getVersion());
+	}
+
 	/**
 	 * Implemented by subclass to add given
 	 * policy to this repository
@@ -290,15 +457,212 @@ public abstract class AbstractPolicyRepository
 	protected abstract  boolean removePolicy(Policy p);
 	protected abstract boolean removePolicySet(PolicySet p);
 
+	/**
+	 * Replaces a given policy with a given policy with
+	 * the same identifier and version, a default implementation
+	 * removes an old policy and adds a new policy. It is called
+	 * within a batch, replacement is atomic only if an implementation
+	 * publishes batches atomically, see {@link #applyBatch(Supplier)}
+	 *
+	 * @param old a policy to replace
+	 * @param p a new policy
+	 * @return {@code true} if policy has been replaced;
+	 * returns {@code false} otherwise
+	 */
+	protected boolean replacePolicy(Policy old, Policy p){
+		return removePolicy(old) && addPolicy(p);
+	}
+
+	/**
+	 * Replaces a given policy set with a given policy set with
+	 * the same identifier and version, a default implementation
+	 * removes an old policy set and adds a new policy set. It is
+	 * called within a batch, replacement is atomic only if an
+	 * implementation publishes batches atomically, see
+	 * {@link #applyBatch(Supplier)}
+	 *
+	 * @param old a policy set to replace
+	 * @param p a new policy set
+	 * @return {@code true} if policy set has been replaced;
+	 * returns {@code false} otherwise
+	 */
+	protected boolean replacePolicySet(PolicySet old, PolicySet p){
+		return removePolicySet(old) && addPolicySet(p);
+	}
+
 	@Override
 	public final CompositeDecisionRule importPolicy(Supplier<InputStream> source)
 			throws XacmlSyntaxException, IOException {
+		CompositeDecisionRule r = parse(source);
+		add(r);
+		return r;
+	}
+
+	/**
+	 * Imports given sources via a temporary pool of
+	 * threads sized to the number of available processors
+	 *
+	 * @see #importPolicies(Map, Executor)
+	 */
+	@Override
+	public final PolicyImportResult importPolicies(
+			Map<String, ? extends Supplier<InputStream>> sources) throws IOException
+	{
+		Map<String, Exception> failures = new LinkedHashMap<String, Exception>();
+		return add(parseAll(sources, failures), failures);
+	}
+
+	/**
+	 * Imports policies from given named sources, sources
+	 * are parsed concurrently via a given executor and parsed
+	 * rules are added to this repository in the order of given
+	 * sources once all of them are parsed
+	 *
+	 * @param sources policy sources by name
+	 * @param executor an executor used to parse sources
+	 * @return {@link PolicyImportResult}
+	 * @throws IOException if import is interrupted
+	 */
+	public final PolicyImportResult importPolicies(
+			Map<String, ? extends Supplier<InputStream>> sources,
+			Executor executor) throws IOException
+	{
+		Map<String, Exception> failures = new LinkedHashMap<String, Exception>();
+		return add(parseAll(sources, executor, failures), failures);
+	}
+
+	private PolicyImportResult add(final Map<String, CompositeDecisionRule> parsed,
+			final Map<String, Exception> failures)
+	{
+		List<CompositeDecisionRule> imported = batch(new Supplier<List<CompositeDecisionRule>>() {
+			@Override
+			public List<CompositeDecisionRule> get() {
+				ImmutableList.Builder<CompositeDecisionRule> imported = ImmutableList.builder();
+				for(Map.Entry<String, CompositeDecisionRule> e : parsed.entrySet()){
+					CompositeDecisionRule r = e.getValue();
+					try{
+						if(add(r)){
+							imported.add(r);
+							continue;
+						}
+						failures.put(e.getKey(), new IllegalStateException(String.format(
+								"Rule with id=\"%s\" and version=\"%s\" already exist in this repository",
+								r.getId(), ((Versionable)r).getVersion())));
+					}catch(RuntimeException ex){
+						failures.put(e.getKey(), ex);
+					}
+				}
+				return imported.build();
+			}
+		});
+		PolicyImportResult result = new PolicyImportResult(imported, failures);
+		if(log.isDebugEnabled()){
+			log.debug("Imported policies=\"{}\"", result);
+		}
+		return result;
+	}
+
+	/**
+	 * Parses given sources via a temporary pool of threads
+	 * sized to the number of available processors, a single
+	 * source is parsed on the calling thread
+	 *
+	 * @see #parseAll(Map, Executor, Map)
+	 */
+	protected final <K> Map<K, CompositeDecisionRule> parseAll(
+			Map<K, ? extends Supplier<InputStream>> sources,
+			Map<K, Exception> failures) throws InterruptedIOException
+	{
+		int threads = Math.min(IMPORT_THREADS, sources.size());
+		if(threads <= 1){
+			return parseAll(sources, MoreExecutors.directExecutor(), failures);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads,
+				new ThreadFactoryBuilder()
+				.setDaemon(true)
+				.setNameFormat("xacml4j-policy-import-%d")
+				.build());
+		try{
+			return parseAll(sources, executor, failures);
+		}finally{
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Parses given sources concurrently via a given executor
+	 * without adding parsed rules to this repository
+	 *
+	 * @param sources policy sources by key
+	 * @param executor an executor used to parse sources
+	 * @param failures a map to which parsing failures
+	 * are put by source key
+	 * @return parsed rules by source key in the order
+	 * of given sources
+	 * @throws InterruptedIOException if a calling thread
+	 * is interrupted while waiting for sources to be parsed
+	 */
+	protected final <K> Map<K, CompositeDecisionRule> parseAll(
+			Map<K, ? extends Supplier<InputStream>> sources,
+			Executor executor,
+			Map<K, Exception> failures) throws InterruptedIOException
+	{
+		Preconditions.checkNotNull(sources);
+		Preconditions.checkNotNull(executor);
+		Map<K, Future<CompositeDecisionRule>> tasks = new LinkedHashMap<K, Future<CompositeDecisionRule>>();
+		for(Map.Entry<K, ? extends Supplier<InputStream>> e : sources.entrySet()){
+			final Supplier<InputStream> source = e.getValue();
+			FutureTask<CompositeDecisionRule> task = new FutureTask<CompositeDecisionRule>(
+					new Callable<CompositeDecisionRule>() {
+						@Override
+						public CompositeDecisionRule call() throws Exception {
+							return parse(source);
+						}
+					});
+			tasks.put(e.getKey(), task);
+			executor.execute(task);
+		}
+		Map<K, CompositeDecisionRule> parsed = new LinkedHashMap<K, CompositeDecisionRule>();
+		try{
+			for(Map.Entry<K, Future<CompositeDecisionRule>> e : tasks.entrySet()){
+				try{
+					parsed.put(e.getKey(), e.getValue().get());
+				}catch(ExecutionException ex){
+					Throwable cause = ex.getCause();
+					if(cause instanceof Error){
+						throw (Error)cause;
+					}
+					if(log.isDebugEnabled()){
+						log.debug("Failed to parse policy=\"{}\"", e.getKey(), cause);
+					}
+					failures.put(e.getKey(), (Exception)cause);
+				}
+			}
+		}catch(InterruptedException e){
+			for(Future<CompositeDecisionRule> task : tasks.values()){
+				task.cancel(true);
+			}
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while parsing policies");
+		}
+		return parsed;
+	}
+
+	/**
+	 * Parses a policy or a policy set from a given
+	 * source without adding it to this repository
+	 *
+	 * @param source a policy source
+	 * @return {@link CompositeDecisionRule}
+	 * @throws XacmlSyntaxException if a policy is not valid
+	 * @throws IOException if an I/O error occurs
+	 */
+	protected final CompositeDecisionRule parse(Supplier<InputStream> source)
+			throws XacmlSyntaxException, IOException {
 		InputStream is = null;
 		try {
 			is = source.get();
-			CompositeDecisionRule r = unmarshaller.unmarshal(is);
-			add(r);
-			return r;
+			return unmarshaller.unmarshal(is);
 		} finally {
 			Closeables.closeQuietly(is);
 		}
@@ -328,4 +692,92 @@ public abstract class AbstractPolicyRepository
 					"Policy combining algorithm=\"%s\" is not defined in this repository", id);
 		}
 	}
+
+	/**
+	 * Writes all policies and policy sets of this repository
+	 * to a given file in the compact binary form, such file
+	 * is loaded via {@link #loadSnapshot(Path)} without parsing
+	 * XACML XML. A snapshot is written to a temporary file
+	 * and moved to a given location once it's complete
+	 *
+	 * @param file a snapshot file
+	 * @throws IOException if an I/O error occurs or
+	 * a policy contains an element which can't be
+	 * written to the snapshot
+	 */
+	public final void writeSnapshot(Path file) throws IOException
+	{
+		Collection<CompositeDecisionRule> rules = getCompositeDecisionRules();
+		Path dir = file.toAbsolutePath().getParent();
+		Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+		try{
+			OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp));
+			try{
+				snapshots.write(out, rules);
+			}finally{
+				out.close();
+			}
+			Files.move(tmp, file,
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			if(log.isDebugEnabled()){
+				log.debug("Written=\"{}\" rules to the snapshot=\"{}\"",
+						rules.size(), file);
+			}
+		}finally{
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	/**
+	 * Adds all policies and policy sets from a given
+	 * snapshot written by {@link #writeSnapshot(Path)}
+	 * to this repository, a snapshot file is memory mapped
+	 * and read completely before any rule is added
+	 *
+	 * @param file a snapshot file
+	 * @return a number of added rules
+	 * @throws IOException if an I/O error occurs or
+	 * a given file is not a valid snapshot
+	 * @throws XacmlSyntaxException if snapshot references
+	 * a function or an algorithm which is not known to this
+	 * repository
+	 */
+	public final int loadSnapshot(Path file)
+			throws XacmlSyntaxException, IOException
+	{
+		List<CompositeDecisionRule> rules;
+		FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+		try{
+			rules = snapshots.read(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+		}finally{
+			ch.close();
+		}
+		final List<CompositeDecisionRule> loaded = rules;
+		int added = batch(new Supplier<Integer>() {
+			@Override
+			public Integer get() {
+				int added = 0;
+				for(CompositeDecisionRule r : loaded){
+					if(add(r)){
+						added++;
+					}
+				}
+				return added;
+			}
+		});
+		if(log.isDebugEnabled()){
+			log.debug("Loaded=\"{}\" rules from the snapshot=\"{}\"",
+					added, file);
+		}
+		return added;
+	}
+
+	/**
+	 * Implemented by subclass to get all policies
+	 * and policy sets of this repository
+	 *
+	 * @return a collection of rules
+	 */
+	protected abstract Collection<CompositeDecisionRule> getCompositeDecisionRules();
 }
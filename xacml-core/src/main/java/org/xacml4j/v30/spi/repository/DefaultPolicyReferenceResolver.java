@@ -37,6 +37,11 @@ import com.google.common.cache.CacheBuilder;
 /**
  * A default implementation of {@link PolicyReferenceResolver}.
  * Maintains a cache of resolved policies by the reference.
+ * <p>
+ * If a given repository is {@link SnapshotPolicyRepository}
+ * references are resolved via a repository snapshot, resolver
+ * returned by {@link #pin()} resolves all references via the same
+ * snapshot, resolved references are cached per snapshot generation
  *
  * @author Giedrius Trumpickas
  */
@@ -50,6 +55,13 @@ public class DefaultPolicyReferenceResolver
 
 	private final PolicyRepository repository;
 	private final boolean enableRefCache;
+	private final int refCacheSize;
+
+	/**
+	 * A resolver pinned to the latest known
+	 * repository snapshot or {@code null}
+	 */
+	private volatile SnapshotReferenceResolver latest;
 
 	public DefaultPolicyReferenceResolver(
 			PolicyRepository repository){
@@ -63,22 +75,58 @@ public class DefaultPolicyReferenceResolver
 		Preconditions.checkNotNull(policyRepository);
 		this.repository = policyRepository;
 		Preconditions.checkState(repository != null);
+		Preconditions.checkArgument(size > 0);
 		this.enableRefCache = enabledRefCache;
+		this.refCacheSize = size;
 		this.policyIDRefCache = CacheBuilder
 				.newBuilder()
-				.initialCapacity(1024)
+				.maximumSize(size)
 				.build();
 		this.policySetIDRefCache = CacheBuilder
 				.newBuilder()
-				.initialCapacity(1024)
+				.maximumSize(size)
 				.build();
 		this.repository.addPolicyRepositoryListener(this);
 	}
 
+	/**
+	 * Gets a resolver which resolves all references
+	 * via the current snapshot of the repository. Returns
+	 * this resolver if the repository does not support
+	 * snapshots
+	 *
+	 * @return {@link PolicyReferenceResolver}
+	 */
+	public PolicyReferenceResolver pin()
+	{
+		if(!(repository instanceof SnapshotPolicyRepository)){
+			return this;
+		}
+		PolicyRepositorySnapshot snapshot =
+				((SnapshotPolicyRepository)repository).getCurrentSnapshot();
+		SnapshotReferenceResolver r = latest;
+		if(r != null &&
+				r.snapshot.getGeneration() == snapshot.getGeneration()){
+			return r;
+		}
+		SnapshotReferenceResolver pinned = new SnapshotReferenceResolver(snapshot);
+		if(r == null ||
+				r.snapshot.getGeneration() < snapshot.getGeneration()){
+			if(log.isDebugEnabled()){
+				log.debug("Pinned repository snapshot=\"{}\"", snapshot);
+			}
+			this.latest = pinned;
+		}
+		return pinned;
+	}
+
 	@Override
 	public Policy resolve(PolicyIDReference ref)
 			throws PolicyResolutionException
 	{
+		if(repository instanceof SnapshotPolicyRepository){
+			return pin().resolve(ref);
+		}
 		Policy p =  policyIDRefCache.getIfPresent(ref);
 		if(p != null){
 			if(log.isDebugEnabled()){
@@ -110,6 +158,9 @@ public class DefaultPolicyReferenceResolver
 	public PolicySet resolve(PolicySetIDReference ref)
 			throws PolicyResolutionException
 	{
+		if(repository instanceof SnapshotPolicyRepository){
+			return pin().resolve(ref);
+		}
 		PolicySet p = policySetIDRefCache.getIfPresent(ref);
 		if(p != null){
 			if(log.isDebugEnabled()){
@@ -196,4 +247,79 @@ public class DefaultPolicyReferenceResolver
 	public void policySetRemoved(PolicySet p) {
 		removeCachedReferences(p);
 	}
+
+	/**
+	 * Resolves references via a given snapshot, resolved
+	 * references are never invalidated because snapshot
+	 * content never changes
+	 */
+	private final class SnapshotReferenceResolver
+		implements PolicyReferenceResolver
+	{
+		private final PolicyRepositorySnapshot snapshot;
+		private final Cache<PolicyIDReference, Policy> policyCache;
+		private final Cache<PolicySetIDReference, PolicySet> policySetCache;
+
+		SnapshotReferenceResolver(PolicyRepositorySnapshot snapshot){
+			this.snapshot = snapshot;
+			this.policyCache = CacheBuilder.newBuilder()
+					.maximumSize(refCacheSize)
+					.build();
+			this.policySetCache = CacheBuilder.newBuilder()
+					.maximumSize(refCacheSize)
+					.build();
+		}
+
+		@Override
+		public Policy resolve(PolicyIDReference ref)
+				throws PolicyResolutionException
+		{
+			Policy p = policyCache.getIfPresent(ref);
+			if(p != null){
+				return p;
+			}
+			p = snapshot.getPolicy(
+					ref.getId(),
+					ref.getVersion(),
+					ref.getEarliestVersion(),
+					ref.getLatestVersion());
+			if(p != null &&
+					enableRefCache){
+				policyCache.put(ref, p);
+			}
+			if(p != null &&
+					log.isDebugEnabled()){
+				log.debug("Resolved policy id=\"{}\" " +
+						"version=\"{}\" for reference=\"{}\" from snapshot generation=\"{}\"",
+						new Object[]{p.getId(), p.getVersion(), ref, snapshot.getGeneration()});
+			}
+			return p;
+		}
+
+		@Override
+		public PolicySet resolve(PolicySetIDReference ref)
+				throws PolicyResolutionException
+		{
+			PolicySet p = policySetCache.getIfPresent(ref);
+			if(p != null){
+				return p;
+			}
+			p = snapshot.getPolicySet(
+					ref.getId(),
+					ref.getVersion(),
+					ref.getEarliestVersion(),
+					ref.getLatestVersion());
+			if(p != null &&
+					enableRefCache){
+				policySetCache.put(ref, p);
+			}
+			if(p != null &&
+					log.isDebugEnabled()){
+				log.debug("Resolved policy set id=\"{}\" " +
+						"version=\"{}\" for reference=\"{}\" from snapshot generation=\"{}\"",
+						new Object[]{p.getId(), p.getVersion(), ref, snapshot.getGeneration()});
+			}
+			return p;
+		}
+	}
 }
@@ -0,0 +1,362 @@
+package org.xacml4j.v30.spi.repository;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xacml4j.v30.CompositeDecisionRule;
+import org.xacml4j.v30.spi.combine.DecisionCombiningAlgorithmProvider;
+import org.xacml4j.v30.spi.function.FunctionProvider;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * An implementation of {@link InMemoryPolicyRepository} which loads
+ * policies and policy sets from the XML files in a given directory.
+ * On {@link #reload()} only new or modified files are parsed, all
+ * modified files are parsed concurrently before any of them is
+ * applied, a file which fails to parse or validate keeps its
+ * previously loaded policy. All changes of a reload are published
+ * as a single repository snapshot, a decision observes either none
+ * or all of them. Changes fire
+ * {@link PolicyRepositoryListener} events. Once {@link #start()}
+ * is called the directory is watched via {@link WatchService} and
+ * reloaded on each change
+ */
+public class FileSystemPolicyRepository extends InMemoryPolicyRepository
+	implements Closeable
+{
+	private final static Logger log = LoggerFactory.getLogger(FileSystemPolicyRepository.class);
+
+	private final static String POLICY_FILE_PATTERN = "glob:*.xml";
+
+	private final Path directory;
+	private final PathMatcher matcher;
+
+	/**
+	 * Loaded files by path, guarded by this repository
+	 */
+	private final Map<Path, PolicyFile> files;
+
+	private WatchService watchService;
+	private ExecutorService watcher;
+
+	public FileSystemPolicyRepository(
+			String id,
+			Path directory,
+			FunctionProvider functions,
+			DecisionCombiningAlgorithmProvider decisionAlgorithms)
+		throws Exception
+	{
+		super(id, functions, decisionAlgorithms);
+		Preconditions.checkNotNull(directory);
+		Preconditions.checkArgument(Files.isDirectory(directory),
+				"Path=\"%s\" is not a directory", directory);
+		this.directory = directory;
+		this.matcher = directory.getFileSystem().getPathMatcher(POLICY_FILE_PATTERN);
+		this.files = new HashMap<Path, PolicyFile>();
+		reload();
+	}
+
+	/**
+	 * Gets a watched directory
+	 *
+	 * @return {@link Path}
+	 */
+	public Path getDirectory(){
+		return directory;
+	}
+
+	/**
+	 * Loads new or modified policy files and removes
+	 * policies of the deleted files from this repository
+	 *
+	 * @return number of new, modified or deleted files
+	 * applied to this repository
+	 * @throws IOException if directory can not be read
+	 */
+	public synchronized int reload() throws IOException
+	{
+		final Map<Path, BasicFileAttributes> found = new LinkedHashMap<Path, BasicFileAttributes>();
+		DirectoryStream<Path> stream = Files.newDirectoryStream(directory);
+		try{
+			for(Path f : stream){
+				BasicFileAttributes attrs;
+				try{
+					attrs = Files.readAttributes(f, BasicFileAttributes.class);
+				}catch(NoSuchFileException e){
+					continue;
+				}
+				if(attrs.isRegularFile() &&
+						matcher.matches(f.getFileName())){
+					found.put(f, attrs);
+				}
+			}
+		}finally{
+			stream.close();
+		}
+		Map<Path, Supplier<InputStream>> changed = new LinkedHashMap<Path, Supplier<InputStream>>();
+		for(Map.Entry<Path, BasicFileAttributes> e : found.entrySet()){
+			PolicyFile loaded = files.get(e.getKey());
+			if(loaded != null &&
+					loaded.isSame(e.getValue().lastModifiedTime().toMillis(), e.getValue().size())){
+				continue;
+			}
+			changed.put(e.getKey(), source(e.getKey()));
+		}
+		Map<Path, Exception> failures = new HashMap<Path, Exception>();
+		Map<Path, CompositeDecisionRule> rules = parseAll(changed, failures);
+		Map<Path, PolicyFile> parsed = new LinkedHashMap<Path, PolicyFile>();
+		for(Path f : changed.keySet()){
+			PolicyFile loaded = files.get(f);
+			long modified = found.get(f).lastModifiedTime().toMillis();
+			long size = found.get(f).size();
+			CompositeDecisionRule r = rules.get(f);
+			if(r == null){
+				log.warn("Failed to parse policy file=\"{}\", " +
+						"keeping previously loaded policy", f, failures.get(f));
+				files.put(f, new PolicyFile(modified, size,
+						(loaded != null)?loaded.rule:null));
+				continue;
+			}
+			parsed.put(f, new PolicyFile(modified, size, r));
+		}
+		final Map<Path, PolicyFile> validated = parsed;
+		return batch(new Supplier<Integer>() {
+			@Override
+			public Integer get() {
+				return apply(validated, found);
+			}
+		});
+	}
+
+	/**
+	 * Applies given parsed files and removes rules of
+	 * deleted files, called as a single batch
+	 *
+	 * @param parsed parsed files
+	 * @param found files found in the directory
+	 * @return number of applied changes
+	 */
+	private int apply(Map<Path, PolicyFile> parsed,
+			Map<Path, BasicFileAttributes> found)
+	{
+		int changes = 0;
+		for(Map.Entry<Path, PolicyFile> e : parsed.entrySet()){
+			PolicyFile loaded = files.get(e.getKey());
+			PolicyFile f = e.getValue();
+			CompositeDecisionRule old = (loaded != null)?loaded.rule:null;
+			if(apply(e.getKey(), old, f.rule)){
+				files.put(e.getKey(), f);
+				changes++;
+				continue;
+			}
+			files.put(e.getKey(), new PolicyFile(f.modified, f.size, old));
+		}
+		Iterator<Map.Entry<Path, PolicyFile>> it = files.entrySet().iterator();
+		while(it.hasNext()){
+			Map.Entry<Path, PolicyFile> e = it.next();
+			if(found.containsKey(e.getKey())){
+				continue;
+			}
+			if(log.isDebugEnabled()){
+				log.debug("Policy file=\"{}\" has been deleted", e.getKey());
+			}
+			if(e.getValue().rule != null){
+				remove(e.getValue().rule);
+			}
+			it.remove();
+			changes++;
+		}
+		return changes;
+	}
+
+	private static Supplier<InputStream> source(final Path f)
+	{
+		return new Supplier<InputStream>() {
+			@Override
+			public InputStream get() {
+				if(log.isDebugEnabled()){
+					log.debug("Parsing policy file=\"{}\"", f);
+				}
+				try{
+					return Files.newInputStream(f);
+				}catch(IOException e){
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Adds a given rule loaded from a given file or
+	 * replaces a rule previously loaded from the file
+	 *
+	 * @param f a policy file
+	 * @param old a previously loaded rule or {@code null}
+	 * @param r a new rule
+	 * @return {@code true} if a given rule has been applied
+	 */
+	private boolean apply(Path f, CompositeDecisionRule old, CompositeDecisionRule r)
+	{
+		try{
+			if((old != null)?replace(old, r):add(r)){
+				return true;
+			}
+			log.warn("Policy file=\"{}\" defines policy id=\"{}\" " +
+					"already loaded from other file", f, r.getId());
+		}catch(RuntimeException e){
+			log.warn("Policy file=\"{}\" failed validation, " +
+					"keeping previously loaded policy", f, e);
+		}
+		return false;
+	}
+
+	/**
+	 * Starts watching the directory of this repository
+	 * for changes, changes are applied via {@link #reload()}
+	 * on the background thread
+	 *
+	 * @throws IOException if directory can not be watched
+	 */
+	public synchronized void start() throws IOException
+	{
+		if(watchService != null){
+			return;
+		}
+		final WatchService ws = directory.getFileSystem().newWatchService();
+		directory.register(ws, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+		this.watchService = ws;
+		this.watcher = Executors.newSingleThreadExecutor(
+				new ThreadFactoryBuilder()
+				.setDaemon(true)
+				.setNameFormat("xacml4j-policy-watcher-%d")
+				.build());
+		watcher.execute(new Runnable() {
+			@Override
+			public void run() {
+				watch(ws);
+			}
+		});
+	}
+
+	/**
+	 * Applies changes signalled by a given watch service
+	 * until it's closed, reload failures are logged and
+	 * do not stop watching
+	 *
+	 * @param ws a watch service
+	 */
+	void watch(WatchService ws)
+	{
+		try{
+			while(true){
+				WatchKey key = ws.take();
+				key.pollEvents();
+				boolean valid = key.reset();
+				try{
+					int changes = reload();
+					if(log.isDebugEnabled()){
+						log.debug("Applied=\"{}\" policy file changes " +
+								"in directory=\"{}\"", changes, directory);
+					}
+				}catch(IOException e){
+					log.warn("Failed to reload policies from directory=\"{}\"", directory, e);
+				}catch(RuntimeException e){
+					log.warn("Failed to reload policies from directory=\"{}\"", directory, e);
+				}
+				if(!valid){
+					log.warn("Directory=\"{}\" is no longer watched", directory);
+					return;
+				}
+			}
+		}catch(ClosedWatchServiceException e){
+			// stopped
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Stops watching the directory of this repository,
+	 * loaded policies remain in this repository
+	 */
+	@Override
+	public synchronized void close() throws IOException
+	{
+		if(watchService == null){
+			return;
+		}
+		try{
+			watchService.close();
+		}finally{
+			watcher.shutdownNow();
+			this.watchService = null;
+			this.watcher = null;
+		}
+	}
+
+	private static final class PolicyFile
+	{
+		private final long modified;
+		private final long size;
+		private final CompositeDecisionRule rule;
+
+		PolicyFile(long modified, long size,
+				CompositeDecisionRule rule){
+			this.modified = modified;
+			this.size = size;
+			this.rule = rule;
+		}
+
+		boolean isSame(long modified, long size){
+			return this.modified == modified &&
+					this.size == size;
+		}
+	}
+}
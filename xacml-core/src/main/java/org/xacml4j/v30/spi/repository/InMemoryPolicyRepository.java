@@ -22,13 +22,12 @@ package org.xacml4j.v30.spi.repository;
  * #L%
  */
 
-
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ConcurrentNavigableMap;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,27 +40,37 @@ import org.xacml4j.v30.pdp.Versionable;
 import org.xacml4j.v30.spi.combine.DecisionCombiningAlgorithmProvider;
 import org.xacml4j.v30.spi.function.FunctionProvider;
 
+import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.base.Supplier;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Range;
 
 /**
  * An implementation of {@link AbstractPolicyRepository} which keeps
  * all policies and policy sets in memory indexed by identifier and version
- * for fast search queries
+ * for fast search queries.
+ * <p>
+ * Repository content is kept in the immutable {@link PolicyRepositorySnapshot},
+ * changes are serialized, each change copies the index of the changed
+ * identifier and publishes a new snapshot sharing versions of other
+ * identifiers with the previous one. Changes made by a batch, for example
+ * a bulk import, are published as a single snapshot. Reads never block
+ * and never observe a partially applied change or batch
  *
  * @author Giedrius Trumpickas
  */
 public class InMemoryPolicyRepository extends AbstractPolicyRepository
+	implements SnapshotPolicyRepository
 {
 	private final static Logger log = LoggerFactory.getLogger(InMemoryPolicyRepository.class);
 
-	private final static int INITIAL_POLICYSET_MAP_SIZE = 128;
-	private final static int INITIAL_POLICY_MAP_SIZE = 128;
-
-	private final ConcurrentMap<String, ConcurrentNavigableMap<Version, Policy>> policies;
-	private final ConcurrentMap<String, ConcurrentNavigableMap<Version, PolicySet>> policySets;
+	private volatile Snapshot snapshot;
+	private Changes batch;
 
 	public InMemoryPolicyRepository(
 			String id,
@@ -70,8 +79,14 @@ public class InMemoryPolicyRepository extends AbstractPolicyRepository
 		throws Exception
 	{
 		super(id, functions, decisionAlgorithms);
-		this.policies = new ConcurrentHashMap<String, ConcurrentNavigableMap<Version, Policy>>(INITIAL_POLICY_MAP_SIZE);
-		this.policySets = new ConcurrentHashMap<String, ConcurrentNavigableMap<Version, PolicySet>>(INITIAL_POLICYSET_MAP_SIZE);
+		this.snapshot = new Snapshot(0,
+				PolicyIndex.<ImmutableSortedMap<Version, Policy>>of(),
+				PolicyIndex.<ImmutableSortedMap<Version, PolicySet>>of());
+	}
+
+	@Override
+	public PolicyRepositorySnapshot getCurrentSnapshot(){
+		return snapshot;
 	}
 
 	@Override
@@ -81,13 +96,13 @@ public class InMemoryPolicyRepository extends AbstractPolicyRepository
 			VersionMatch earliest,
 			VersionMatch latest)
 	{
-		Map<Version, Policy> byId = policies.get(id);
+		NavigableMap<Version, Policy> byId = snapshot.policies.get(id);
 		if(log.isDebugEnabled() &&
 				byId != null){
 			log.debug("Found=\"{}\" versions of policy with id=\"{}\"",
 					byId.size(), id);
 		}
-		return find((byId != null)?byId.values():null, version, earliest, latest);
+		return find(byId, version, earliest, latest);
 	}
 
 	@Override
@@ -97,27 +112,52 @@ public class InMemoryPolicyRepository extends AbstractPolicyRepository
 			VersionMatch earliest,
 			VersionMatch latest)
 	{
-		Map<Version, PolicySet> byId = policySets.get(id);
+		NavigableMap<Version, PolicySet> byId = snapshot.policySets.get(id);
 		if(log.isDebugEnabled() &&
 				byId != null){
 			log.debug("Found=\"{}\" versions of policy set with id=\"{}\"",
 					byId.size(), id);
 		}
-		return find((byId != null)?byId.values():null, version, earliest, latest);
+		return find(byId, version, earliest, latest);
+	}
+
+	/**
+	 * Searches versions of a policy with a given
+	 * identifier from the latest version down and
+	 * returns the first matching version
+	 */
+	@Override
+	public Policy getPolicy(String id, VersionMatch version,
+			VersionMatch earliest, VersionMatch latest)
+	{
+		return snapshot.getPolicy(id, version, earliest, latest);
+	}
+
+	/**
+	 * Searches versions of a policy set with a given
+	 * identifier from the latest version down and
+	 * returns the first matching version
+	 */
+	@Override
+	public PolicySet getPolicySet(String id, VersionMatch version,
+			VersionMatch earliest, VersionMatch latest)
+	{
+		return snapshot.getPolicySet(id, version, earliest, latest);
 	}
 
 	@Override
 	public CompositeDecisionRule get(String id, Version v) {
-		Map<Version, Policy> pv = policies.get(id);
+		Snapshot s = snapshot;
+		Map<Version, Policy> pv = s.policies.get(id);
 		if(pv != null){
 			return pv.get(v);
 		}
-		Map<Version, PolicySet> psv = policySets.get(id);
+		Map<Version, PolicySet> psv = s.policySets.get(id);
 		return (psv != null)?psv.get(v):null;
 	}
 
 	@Override
-	protected boolean addPolicy(Policy policy)
+	protected synchronized boolean addPolicy(Policy policy)
 	{
 		Preconditions.checkArgument(policy != null);
 		String id = policy.getId();
@@ -126,19 +166,17 @@ public class InMemoryPolicyRepository extends AbstractPolicyRepository
 			log.debug("Adding Policy with " +
 					"id=\"{}\" version=\"{}\"", id, v);
 		}
-		ConcurrentNavigableMap<Version, Policy> versions = policies.get(id);
-		if(versions == null){
-			versions = new ConcurrentSkipListMap<Version, Policy>();
-			ConcurrentNavigableMap<Version, Policy> existing = policies.putIfAbsent(id, versions);
-			if(existing != null){
-				versions = existing;
-			}
+		Changes c = changes();
+		if(c.policies.get(id).containsKey(v)){
+			return false;
 		}
-		return versions.putIfAbsent(v, policy) == null;
+		c.policies.edit(id).put(v, policy);
+		apply(c);
+		return true;
 	}
 
 	@Override
-	protected boolean addPolicySet(PolicySet policySet)
+	protected synchronized boolean addPolicySet(PolicySet policySet)
 	{
 		Preconditions.checkArgument(policySet != null);
 		String id = policySet.getId();
@@ -147,19 +185,17 @@ public class InMemoryPolicyRepository extends AbstractPolicyRepository
 			log.debug("Adding PolicySet with " +
 					"id=\"{}\" version=\"{}\"", id, v);
 		}
-		ConcurrentNavigableMap<Version, PolicySet> versions = policySets.get(id);
-		if(versions == null){
-			versions = new ConcurrentSkipListMap<Version, PolicySet>();
-			ConcurrentNavigableMap<Version, PolicySet> existing = policySets.putIfAbsent(id, versions);
-			if(existing != null){
-				versions = existing;
-			}
+		Changes c = changes();
+		if(c.policySets.get(id).containsKey(v)){
+			return false;
 		}
-		return versions.putIfAbsent(v, policySet) == null;
+		c.policySets.edit(id).put(v, policySet);
+		apply(c);
+		return true;
 	}
 
 	@Override
-	protected boolean removePolicy(Policy p)
+	protected synchronized boolean removePolicy(Policy p)
 	{
 		Preconditions.checkArgument(p != null);
 		String id = p.getId();
@@ -168,15 +204,17 @@ public class InMemoryPolicyRepository extends AbstractPolicyRepository
 			log.debug("Removing Policy with " +
 					"id=\"{}\" version=\"{}\"", id, v);
 		}
-		ConcurrentNavigableMap<Version, Policy> versions = policies.get(id);
-		if(versions != null){
-			return versions.remove(v) != null;
+		Changes c = changes();
+		if(!c.policies.get(id).containsKey(v)){
+			return false;
 		}
-		return (versions != null) && (versions.remove(v) != null);
+		c.policies.edit(id).remove(v);
+		apply(c);
+		return true;
 	}
 
 	@Override
-	protected boolean removePolicySet(PolicySet p)
+	protected synchronized boolean removePolicySet(PolicySet p)
 	{
 		Preconditions.checkArgument(p != null);
 		String id = p.getId();
@@ -185,31 +223,305 @@ public class InMemoryPolicyRepository extends AbstractPolicyRepository
 			log.debug("Removing PolicySet with " +
 					"id=\"{}\" version=\"{}\"", id, v);
 		}
-		ConcurrentNavigableMap<Version, PolicySet> versions = policySets.get(id);
-		if(versions != null){
-			return versions.remove(v) != null;
+		Changes c = changes();
+		if(!c.policySets.get(id).containsKey(v)){
+			return false;
+		}
+		c.policySets.edit(id).remove(v);
+		apply(c);
+		return true;
+	}
+
+	@Override
+	protected synchronized boolean replacePolicy(Policy old, Policy p)
+	{
+		Preconditions.checkArgument(old != null && p != null);
+		Preconditions.checkArgument(old.getId().equals(p.getId()));
+		if(log.isDebugEnabled()){
+			log.debug("Replacing Policy with " +
+					"id=\"{}\" version=\"{}\"", p.getId(), p.getVersion());
+		}
+		Changes c = changes();
+		if(!old.equals(c.policies.get(p.getId()).get(old.getVersion()))){
+			return false;
+		}
+		c.policies.edit(p.getId()).put(old.getVersion(), p);
+		apply(c);
+		return true;
+	}
+
+	@Override
+	protected synchronized boolean replacePolicySet(PolicySet old, PolicySet p)
+	{
+		Preconditions.checkArgument(old != null && p != null);
+		Preconditions.checkArgument(old.getId().equals(p.getId()));
+		if(log.isDebugEnabled()){
+			log.debug("Replacing PolicySet with " +
+					"id=\"{}\" version=\"{}\"", p.getId(), p.getVersion());
+		}
+		Changes c = changes();
+		if(!old.equals(c.policySets.get(p.getId()).get(old.getVersion()))){
+			return false;
+		}
+		c.policySets.edit(p.getId()).put(old.getVersion(), p);
+		apply(c);
+		return true;
+	}
+
+	/**
+	 * Collects all changes made by a given batch
+	 * and publishes them as a single snapshot
+	 */
+	@Override
+	protected synchronized <V> V applyBatch(Supplier<V> changes)
+	{
+		if(batch != null){
+			return changes.get();
+		}
+		this.batch = new Changes(snapshot);
+		try{
+			return changes.get();
+		}finally{
+			Changes c = batch;
+			this.batch = null;
+			apply(c);
+		}
+	}
+
+	@Override
+	protected Collection<CompositeDecisionRule> getCompositeDecisionRules()
+	{
+		Snapshot s = snapshot;
+		ImmutableList.Builder<CompositeDecisionRule> rules = ImmutableList.builder();
+		for(Map<Version, Policy> versions : s.policies.values()){
+			rules.addAll(versions.values());
+		}
+		for(Map<Version, PolicySet> versions : s.policySets.values()){
+			rules.addAll(versions.values());
+		}
+		return rules.build();
+	}
+
+	/**
+	 * Gets changes of a running batch or
+	 * a new changes to the current snapshot
+	 */
+	private Changes changes(){
+		return (batch != null)?batch:new Changes(snapshot);
+	}
+
+	/**
+	 * Publishes given changes, changes of
+	 * a running batch are published once
+	 * a batch completes
+	 */
+	private void apply(Changes c){
+		if(c == batch ||
+				!c.isChanged()){
+			return;
+		}
+		Snapshot s = c.toSnapshot();
+		if(log.isDebugEnabled()){
+			log.debug("Publishing repository snapshot=\"{}\"", s);
+		}
+		this.snapshot = s;
+	}
+
+	private static <T extends Versionable> Collection<T> find(
+			NavigableMap<Version, T> versions,
+			VersionMatch version,
+			VersionMatch earliest,
+			VersionMatch latest)
+	{
+		return Collections2.filter(range(versions, version, earliest, latest).values(),
+				new VersionMatchPredicate<T>(version, earliest, latest));
+	}
+
+	private static <T extends Versionable> T findLatest(
+			NavigableMap<Version, T> versions,
+			VersionMatch version,
+			VersionMatch earliest,
+			VersionMatch latest)
+	{
+		NavigableMap<Version, T> range = range(versions, version, earliest, latest);
+		Predicate<T> matches = new VersionMatchPredicate<T>(version, earliest, latest);
+		for(T p : range.descendingMap().values()){
+			if(matches.apply(p)){
+				return p;
+			}
 		}
-		return (versions != null) && (versions.remove(v) != null);
+		return null;
 	}
 
-	private <T extends Versionable> Collection<T> find(
-			Collection<T> c,
-			final VersionMatch version,
-			final VersionMatch earliest,
-			final VersionMatch latest)
+	/**
+	 * Narrows given versions to the intersection of
+	 * {@link VersionMatch#getRange()} of given constraints,
+	 * versions in the returned view may still not match
+	 * constraints with wildcards
+	 */
+	private static <T> NavigableMap<Version, T> range(
+			NavigableMap<Version, T> versions,
+			VersionMatch ...constraints)
 	{
-		if(c == null){
-			return ImmutableList.of();
+		if(versions == null){
+			return ImmutableSortedMap.of();
 		}
-		return Collections2.filter(c, new Predicate<T>() {
-			@Override
-			public boolean apply(T p) {
-				return (version == null || version.match(p.getVersion())) &&
-						(earliest == null || earliest.match(p.getVersion())) &&
-						(latest == null || latest.match(p.getVersion()));
+		Range<Version> range = Range.all();
+		for(VersionMatch m : constraints){
+			if(m == null){
+				continue;
+			}
+			if(!range.isConnected(m.getRange())){
+				return ImmutableSortedMap.of();
 			}
+			range = range.intersection(m.getRange());
+		}
+		return Maps.subMap(versions, range);
+	}
+
+	private final static class VersionMatchPredicate<T extends Versionable>
+		implements Predicate<T>
+	{
+		private final VersionMatch version;
+		private final VersionMatch earliest;
+		private final VersionMatch latest;
+
+		VersionMatchPredicate(VersionMatch version,
+				VersionMatch earliest, VersionMatch latest){
+			this.version = version;
+			this.earliest = earliest;
+			this.latest = latest;
+		}
 
-		});
+		@Override
+		public boolean apply(T p) {
+			return (version == null || version.match(p.getVersion())) &&
+					(earliest == null || earliest.match(p.getVersion())) &&
+					(latest == null || latest.match(p.getVersion()));
+		}
 	}
 
+	/**
+	 * An immutable index of the repository content
+	 */
+	private final static class Snapshot
+		implements PolicyRepositorySnapshot
+	{
+		private final long generation;
+		private final PolicyIndex<ImmutableSortedMap<Version, Policy>> policies;
+		private final PolicyIndex<ImmutableSortedMap<Version, PolicySet>> policySets;
+
+		Snapshot(long generation,
+				PolicyIndex<ImmutableSortedMap<Version, Policy>> policies,
+				PolicyIndex<ImmutableSortedMap<Version, PolicySet>> policySets){
+			this.generation = generation;
+			this.policies = policies;
+			this.policySets = policySets;
+		}
+
+		@Override
+		public long getGeneration(){
+			return generation;
+		}
+
+		@Override
+		public Policy getPolicy(String id, VersionMatch version,
+				VersionMatch earliest, VersionMatch latest){
+			return findLatest(policies.get(id), version, earliest, latest);
+		}
+
+		@Override
+		public PolicySet getPolicySet(String id, VersionMatch version,
+				VersionMatch earliest, VersionMatch latest){
+			return findLatest(policySets.get(id), version, earliest, latest);
+		}
+
+		@Override
+		public String toString(){
+			return MoreObjects.toStringHelper(this)
+					.add("generation", generation)
+					.add("policies", policies.size())
+					.add("policySets", policySets.size())
+					.toString();
+		}
+	}
+
+	/**
+	 * Changes to the snapshot, versions of a changed
+	 * identifier are copied once per changes, a new
+	 * snapshot shares versions of other identifiers
+	 * and all index nodes not leading to a changed
+	 * identifier, see {@link PolicyIndex}
+	 */
+	private final static class Changes
+	{
+		private final Snapshot base;
+		private final IndexChanges<Policy> policies;
+		private final IndexChanges<PolicySet> policySets;
+
+		Changes(Snapshot base){
+			this.base = base;
+			this.policies = new IndexChanges<Policy>(base.policies);
+			this.policySets = new IndexChanges<PolicySet>(base.policySets);
+		}
+
+		boolean isChanged(){
+			return policies.isChanged() ||
+					policySets.isChanged();
+		}
+
+		Snapshot toSnapshot(){
+			return new Snapshot(base.generation + 1,
+					policies.toIndex(), policySets.toIndex());
+		}
+	}
+
+	private final static class IndexChanges<T>
+	{
+		private final PolicyIndex<ImmutableSortedMap<Version, T>> base;
+		private final Map<String, TreeMap<Version, T>> changed;
+
+		IndexChanges(PolicyIndex<ImmutableSortedMap<Version, T>> base){
+			this.base = base;
+			this.changed = new HashMap<String, TreeMap<Version, T>>();
+		}
+
+		/**
+		 * Gets read only versions of a given identifier
+		 */
+		SortedMap<Version, T> get(String id){
+			SortedMap<Version, T> versions = changed.get(id);
+			if(versions == null){
+				versions = base.get(id);
+			}
+			return (versions != null)?versions:ImmutableSortedMap.<Version, T>of();
+		}
+
+		/**
+		 * Gets modifiable versions of a given identifier
+		 */
+		TreeMap<Version, T> edit(String id){
+			TreeMap<Version, T> versions = changed.get(id);
+			if(versions == null){
+				ImmutableSortedMap<Version, T> current = base.get(id);
+				versions = (current != null)?
+						new TreeMap<Version, T>(current):new TreeMap<Version, T>();
+				changed.put(id, versions);
+			}
+			return versions;
+		}
+
+		boolean isChanged(){
+			return !changed.isEmpty();
+		}
+
+		PolicyIndex<ImmutableSortedMap<Version, T>> toIndex(){
+			PolicyIndex<ImmutableSortedMap<Version, T>> index = base;
+			for(Map.Entry<String, TreeMap<Version, T>> e : changed.entrySet()){
+				index = index.with(e.getKey(), e.getValue().isEmpty()?
+						null:ImmutableSortedMap.copyOfSorted(e.getValue()));
+			}
+			return index;
+		}
+	}
 }
@@ -0,0 +1,93 @@
+package org.xacml4j.v30.spi.repository;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.List;
+import java.util.Map;
+
+import org.xacml4j.v30.CompositeDecisionRule;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * A result of the bulk policy import via
+ * {@link PolicyRepository#importPolicies(Map)}
+ */
+public final class PolicyImportResult
+{
+	private final List<CompositeDecisionRule> imported;
+	private final Map<String, Exception> failures;
+
+	PolicyImportResult(
+			List<CompositeDecisionRule> imported,
+			Map<String, Exception> failures)
+	{
+		Preconditions.checkNotNull(imported);
+		Preconditions.checkNotNull(failures);
+		this.imported = ImmutableList.copyOf(imported);
+		this.failures = ImmutableMap.copyOf(failures);
+	}
+
+	/**
+	 * Gets imported policies and policy sets
+	 * in the order of their sources
+	 *
+	 * @return a list of imported rules
+	 */
+	public List<CompositeDecisionRule> getImported(){
+		return imported;
+	}
+
+	/**
+	 * Gets failures by source name in the order
+	 * of sources, a source fails if it can not be
+	 * parsed or its rule can not be added to
+	 * a repository
+	 *
+	 * @return a map of failures by source name
+	 */
+	public Map<String, Exception> getFailures(){
+		return failures;
+	}
+
+	/**
+	 * Tests if all sources have been imported
+	 *
+	 * @return {@code true} if all sources have been
+	 * imported; returns {@code false} otherwise
+	 */
+	public boolean isSuccessful(){
+		return failures.isEmpty();
+	}
+
+	@Override
+	public String toString(){
+		return MoreObjects.toStringHelper(this)
+				.add("imported", imported.size())
+				.add("failures", failures.keySet())
+				.toString();
+	}
+}
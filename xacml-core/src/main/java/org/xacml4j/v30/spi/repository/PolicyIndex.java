@@ -0,0 +1,253 @@
+package org.xacml4j.v30.spi.repository;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * An immutable map of policy identifiers to values,
+ * implemented as a hash array mapped trie. An updated
+ * index copies only nodes on the path to a changed
+ * identifier and shares all other nodes with this index
+ *
+ * @param <V> a value type
+ */
+final class PolicyIndex<V>
+{
+	private final static int BITS = 5;
+	private final static int MASK = (1 << BITS) - 1;
+
+	private final static PolicyIndex<Object> EMPTY = new PolicyIndex<Object>(null, 0);
+
+	private final Node root;
+	private final int size;
+
+	private PolicyIndex(Node root, int size){
+		this.root = root;
+		this.size = size;
+	}
+
+	@SuppressWarnings("unchecked")
+	static <V> PolicyIndex<V> of(){
+		return (PolicyIndex<V>)EMPTY;
+	}
+
+	/**
+	 * Gets a value of a given identifier
+	 *
+	 * @param id an identifier
+	 * @return a value or {@code null}
+	 */
+	@SuppressWarnings("unchecked")
+	V get(String id)
+	{
+		int hash = id.hashCode();
+		Node node = root;
+		for(int shift = 0; node != null; shift += BITS){
+			int bit = bit(hash, shift);
+			if((node.bitmap & bit) == 0){
+				return null;
+			}
+			Object o = node.slots[node.index(bit)];
+			if(o instanceof Entry){
+				Entry e = ((Entry)o).find(hash, id);
+				return (e != null)?(V)e.value:null;
+			}
+			node = (Node)o;
+		}
+		return null;
+	}
+
+	/**
+	 * Gets an index with a given value of a given
+	 * identifier, this index is not modified
+	 *
+	 * @param id an identifier
+	 * @param value a value or {@code null}
+	 * to remove a given identifier
+	 * @return {@link PolicyIndex}
+	 */
+	PolicyIndex<V> with(String id, V value)
+	{
+		Preconditions.checkNotNull(id);
+		int hash = id.hashCode();
+		boolean exists = contains(id);
+		if(value == null){
+			return exists?new PolicyIndex<V>(remove(root, hash, id, 0), size - 1):this;
+		}
+		return new PolicyIndex<V>(put(root, new Entry(hash, id, value, null), 0),
+				exists?size:size + 1);
+	}
+
+	int size(){
+		return size;
+	}
+
+	/**
+	 * Gets all values of this index
+	 */
+	@SuppressWarnings("unchecked")
+	ImmutableList<V> values()
+	{
+		ImmutableList.Builder<Object> b = ImmutableList.builder();
+		collect(root, b);
+		return (ImmutableList<V>)b.build();
+	}
+
+	private boolean contains(String id){
+		return get(id) != null;
+	}
+
+	private static int bit(int hash, int shift){
+		return 1 << ((hash >>> shift) & MASK);
+	}
+
+	private static void collect(Node node, ImmutableList.Builder<Object> b)
+	{
+		if(node == null){
+			return;
+		}
+		for(Object o : node.slots){
+			if(o instanceof Node){
+				collect((Node)o, b);
+				continue;
+			}
+			for(Entry e = (Entry)o; e != null; e = e.next){
+				b.add(e.value);
+			}
+		}
+	}
+
+	private static Node put(Node node, Entry entry, int shift)
+	{
+		int bit = bit(entry.hash, shift);
+		if(node == null){
+			return new Node(bit, new Object[]{entry});
+		}
+		int i = node.index(bit);
+		if((node.bitmap & bit) == 0){
+			return node.insert(bit, i, entry);
+		}
+		Object o = node.slots[i];
+		if(o instanceof Node){
+			return node.replace(i, put((Node)o, entry, shift + BITS));
+		}
+		Entry e = (Entry)o;
+		if(e.hash == entry.hash){
+			return node.replace(i, new Entry(entry.hash, entry.id, entry.value, e.without(entry.id)));
+		}
+		return node.replace(i, put(put(null, e, shift + BITS), entry, shift + BITS));
+	}
+
+	private static Node remove(Node node, int hash, String id, int shift)
+	{
+		int bit = bit(hash, shift);
+		int i = node.index(bit);
+		Object o = node.slots[i];
+		Object slot = (o instanceof Node)?
+				remove((Node)o, hash, id, shift + BITS):((Entry)o).without(id);
+		return (slot != null)?node.replace(i, slot):node.delete(bit, i);
+	}
+
+	private final static class Node
+	{
+		private final int bitmap;
+		private final Object[] slots;
+
+		Node(int bitmap, Object[] slots){
+			this.bitmap = bitmap;
+			this.slots = slots;
+		}
+
+		int index(int bit){
+			return Integer.bitCount(bitmap & (bit - 1));
+		}
+
+		Node insert(int bit, int i, Object slot){
+			Object[] copy = new Object[slots.length + 1];
+			System.arraycopy(slots, 0, copy, 0, i);
+			copy[i] = slot;
+			System.arraycopy(slots, i, copy, i + 1, slots.length - i);
+			return new Node(bitmap | bit, copy);
+		}
+
+		Node replace(int i, Object slot){
+			Object[] copy = Arrays.copyOf(slots, slots.length);
+			copy[i] = slot;
+			return new Node(bitmap, copy);
+		}
+
+		Node delete(int bit, int i){
+			if(slots.length == 1){
+				return null;
+			}
+			Object[] copy = new Object[slots.length - 1];
+			System.arraycopy(slots, 0, copy, 0, i);
+			System.arraycopy(slots, i + 1, copy, i, slots.length - i - 1);
+			return new Node(bitmap & ~bit, copy);
+		}
+	}
+
+	/**
+	 * An entry of the index, entries with
+	 * the same identifier hash are chained
+	 */
+	private final static class Entry
+	{
+		private final int hash;
+		private final String id;
+		private final Object value;
+		private final Entry next;
+
+		Entry(int hash, String id, Object value, Entry next){
+			this.hash = hash;
+			this.id = id;
+			this.value = value;
+			this.next = next;
+		}
+
+		Entry find(int hash, String id){
+			for(Entry e = this; e != null; e = e.next){
+				if(e.hash == hash && e.id.equals(id)){
+					return e;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Gets a chain without a given identifier
+		 * or {@code null} if a chain becomes empty
+		 */
+		Entry without(String id){
+			if(this.id.equals(id)){
+				return next;
+			}
+			Entry rest = (next != null)?next.without(id):null;
+			return (rest == next)?this:new Entry(hash, this.id, value, rest);
+		}
+	}
+}
@@ -24,7 +24,12 @@ package org.xacml4j.v30.spi.repository;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 
 import org.xacml4j.v30.CompositeDecisionRule;
 import org.xacml4j.v30.Version;
@@ -188,6 +193,37 @@ public interface PolicyRepository
 	CompositeDecisionRule importPolicy(Supplier<InputStream> source)
 		throws XacmlSyntaxException, IOException;
 
+	/**
+	 * Imports XACML policies from given named
+	 * {@link InputStream} suppliers. Policies are parsed
+	 * concurrently and added to this repository in the
+	 * order of given sources once all of them are parsed.
+	 * Policy repository will close input streams after
+	 * importing the policies. Default implementation
+	 * imports sources one by one via {@link #importPolicy(Supplier)}
+	 *
+	 * @param sources policy sources by name
+	 * @return {@link PolicyImportResult} with imported
+	 * policies and failures by source name
+	 * @exception IOException if import is interrupted
+	 */
+	default PolicyImportResult importPolicies(Map<String, ? extends Supplier<InputStream>> sources)
+		throws IOException
+	{
+		List<CompositeDecisionRule> imported = new LinkedList<CompositeDecisionRule>();
+		Map<String, Exception> failures = new LinkedHashMap<String, Exception>();
+		for(Map.Entry<String, ? extends Supplier<InputStream>> e : sources.entrySet()){
+			try{
+				imported.add(importPolicy(e.getValue()));
+			}catch(InterruptedIOException ex){
+				throw ex;
+			}catch(Exception ex){
+				failures.put(e.getKey(), ex);
+			}
+		}
+		return new PolicyImportResult(imported, failures);
+	}
+
 	/**
 	 * Adds {@link PolicyRepositoryListener} to this repository
 	 *
@@ -0,0 +1,70 @@
+package org.xacml4j.v30.spi.repository;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import org.xacml4j.v30.VersionMatch;
+import org.xacml4j.v30.pdp.Policy;
+import org.xacml4j.v30.pdp.PolicySet;
+
+/**
+ * An immutable view of the {@link PolicyRepository} content
+ * at the given point in time. Repository changes made after
+ * the snapshot was taken are not visible via the snapshot,
+ * snapshot is reclaimed once it is not referenced anymore
+ */
+public interface PolicyRepositorySnapshot
+{
+	/**
+	 * Gets snapshot generation, repository increments
+	 * generation on every change of its content
+	 *
+	 * @return a snapshot generation
+	 */
+	long getGeneration();
+
+	/**
+	 * Gets latest policy matching given version constraints
+	 *
+	 * @param id a policy identifier
+	 * @param version a  version match constraint
+	 * @param earliest a lower bound version match constraint
+	 * @param latest an upper bound version match constraint
+	 * @return {@link Policy} or {@code null} if this
+	 * snapshot does not contain matching policy
+	 */
+	Policy getPolicy(String id, VersionMatch version,
+			VersionMatch earliest, VersionMatch latest);
+
+	/**
+	 * Gets latest policy set matching given version constraints
+	 *
+	 * @param id a policy set identifier
+	 * @param version a  version match constraint
+	 * @param earliest a lower bound version match constraint
+	 * @param latest an upper bound version match constraint
+	 * @return {@link PolicySet} or {@code null} if this
+	 * snapshot does not contain matching policy set
+	 */
+	PolicySet getPolicySet(String id, VersionMatch version,
+			VersionMatch earliest, VersionMatch latest);
+}
@@ -0,0 +1,857 @@
+package org.xacml4j.v30.spi.repository;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.xacml4j.util.DOMUtil;
+import org.xacml4j.v30.Attribute;
+import org.xacml4j.v30.AttributeDesignatorKey;
+import org.xacml4j.v30.AttributeExp;
+import org.xacml4j.v30.AttributeExpType;
+import org.xacml4j.v30.AttributeSelectorKey;
+import org.xacml4j.v30.Categories;
+import org.xacml4j.v30.CategoryId;
+import org.xacml4j.v30.CompositeDecisionRule;
+import org.xacml4j.v30.Effect;
+import org.xacml4j.v30.Entity;
+import org.xacml4j.v30.Expression;
+import org.xacml4j.v30.Version;
+import org.xacml4j.v30.VersionMatch;
+import org.xacml4j.v30.marshal.PolicyUnmarshallerSupport;
+import org.xacml4j.v30.pdp.AdviceExpression;
+import org.xacml4j.v30.pdp.Apply;
+import org.xacml4j.v30.pdp.AttributeAssignmentExpression;
+import org.xacml4j.v30.pdp.AttributeDesignator;
+import org.xacml4j.v30.pdp.AttributeReference;
+import org.xacml4j.v30.pdp.AttributeSelector;
+import org.xacml4j.v30.pdp.BaseCompositeDecisionRuleIDReference;
+import org.xacml4j.v30.pdp.CombinerParameter;
+import org.xacml4j.v30.pdp.Condition;
+import org.xacml4j.v30.pdp.FunctionReference;
+import org.xacml4j.v30.pdp.Match;
+import org.xacml4j.v30.pdp.MatchAllOf;
+import org.xacml4j.v30.pdp.MatchAnyOf;
+import org.xacml4j.v30.pdp.ObligationExpression;
+import org.xacml4j.v30.pdp.Policy;
+import org.xacml4j.v30.pdp.PolicyDefaults;
+import org.xacml4j.v30.pdp.PolicyIDReference;
+import org.xacml4j.v30.pdp.PolicySet;
+import org.xacml4j.v30.pdp.PolicySetDefaults;
+import org.xacml4j.v30.pdp.PolicySetIDReference;
+import org.xacml4j.v30.pdp.Rule;
+import org.xacml4j.v30.pdp.Target;
+import org.xacml4j.v30.pdp.VariableDefinition;
+import org.xacml4j.v30.pdp.VariableReference;
+import org.xacml4j.v30.spi.combine.DecisionCombiningAlgorithmProvider;
+import org.xacml4j.v30.spi.function.FunctionProvider;
+import org.xacml4j.v30.types.TypeToString;
+import org.xacml4j.v30.types.XPathExp;
+import org.xacml4j.v30.types.XacmlTypes;
+
+import com.google.common.base.Optional;
+
+/**
+ * A compact binary encoding of the {@link Policy} and
+ * {@link PolicySet} object model. Functions and decision
+ * combining algorithms are written by their identifiers and
+ * resolved via providers when snapshot is read, every distinct
+ * string is written once per snapshot and referenced by its
+ * index afterwards
+ */
+final class PolicySnapshotCodec extends PolicyUnmarshallerSupport
+{
+	private final static int MAGIC = 0x58344A53;
+	private final static int FORMAT_VERSION = 1;
+
+	private final static byte POLICY = 1;
+	private final static byte POLICY_SET = 2;
+	private final static byte POLICY_ID_REFERENCE = 3;
+	private final static byte POLICY_SET_ID_REFERENCE = 4;
+
+	private final static byte VALUE = 1;
+	private final static byte APPLY = 2;
+	private final static byte FUNCTION_REFERENCE = 3;
+	private final static byte VARIABLE_REFERENCE = 4;
+	private final static byte ATTRIBUTE_DESIGNATOR = 5;
+	private final static byte ATTRIBUTE_SELECTOR = 6;
+
+	private final static int NULL_STRING = -1;
+	private final static int NEW_STRING = -2;
+
+	PolicySnapshotCodec(
+			FunctionProvider functions,
+			DecisionCombiningAlgorithmProvider decisionAlgorithms) throws Exception
+	{
+		super(functions, decisionAlgorithms);
+	}
+
+	/**
+	 * Writes given rules to a given stream
+	 *
+	 * @param out an output stream
+	 * @param rules rules to write
+	 * @throws IOException if an I/O error occurs or
+	 * rule contains an element which can't be encoded
+	 */
+	void write(OutputStream out, Collection<? extends CompositeDecisionRule> rules)
+		throws IOException
+	{
+		Writer w = new Writer(out);
+		w.out.writeInt(MAGIC);
+		w.out.writeInt(FORMAT_VERSION);
+		w.out.writeInt(rules.size());
+		for(CompositeDecisionRule r : rules){
+			w.writeDecisionRule(r);
+		}
+		w.out.flush();
+	}
+
+	/**
+	 * Reads rules from a given buffer
+	 *
+	 * @param buf a buffer
+	 * @return a list of rules
+	 * @throws IOException if a buffer does not
+	 * contain a valid policy snapshot
+	 * @throws org.xacml4j.v30.XacmlSyntaxException if snapshot
+	 * references a function or an algorithm which is not known
+	 * to the providers of this codec
+	 */
+	List<CompositeDecisionRule> read(ByteBuffer buf)
+		throws IOException
+	{
+		try{
+			if(buf.getInt() != MAGIC){
+				throw new IOException("Given content is not a policy snapshot");
+			}
+			int version = buf.getInt();
+			if(version != FORMAT_VERSION){
+				throw new IOException(String.format(
+						"Unsupported policy snapshot format version=\"%d\"", version));
+			}
+			Reader r = new Reader(buf);
+			int size = r.readCount();
+			List<CompositeDecisionRule> rules = new ArrayList<CompositeDecisionRule>();
+			for(int i = 0; i < size; i++){
+				rules.add(r.readDecisionRule());
+			}
+			return rules;
+		}catch(BufferUnderflowException e){
+			throw new IOException("Policy snapshot is truncated", e);
+		}
+	}
+
+	private final static class Writer
+	{
+		private final DataOutputStream out;
+		private final Map<String, Integer> strings;
+
+		Writer(OutputStream out){
+			this.out = new DataOutputStream(out);
+			this.strings = new HashMap<String, Integer>();
+		}
+
+		void writeDecisionRule(CompositeDecisionRule r) throws IOException
+		{
+			if(r instanceof Policy){
+				out.writeByte(POLICY);
+				writePolicy((Policy)r);
+				return;
+			}
+			if(r instanceof PolicySet){
+				out.writeByte(POLICY_SET);
+				writePolicySet((PolicySet)r);
+				return;
+			}
+			if(r instanceof PolicyIDReference){
+				out.writeByte(POLICY_ID_REFERENCE);
+				writeReference((PolicyIDReference)r);
+				return;
+			}
+			if(r instanceof PolicySetIDReference){
+				out.writeByte(POLICY_SET_ID_REFERENCE);
+				writeReference((PolicySetIDReference)r);
+				return;
+			}
+			throw new IOException(String.format(
+					"Unsupported decision rule type=\"%s\"",
+					r.getClass().getName()));
+		}
+
+		private void writePolicy(Policy p) throws IOException
+		{
+			writeString(p.getId());
+			writeString(p.getVersion().getValue());
+			writeString(p.getDescription());
+			writeIssuer(p.getIssuer());
+			writeInteger(p.getMaxDelegationDepth());
+			writeCombinerParams(p.getCombinerParams());
+			writeBody(p.getTarget(), p.getCondition(),
+					p.getAdviceExpressions(), p.getObligationExpressions());
+			PolicyDefaults defaults = p.getDefaults();
+			writeString((defaults != null)?defaults.getXPathVersion().toString():null);
+			writeString(p.getRuleCombiningAlgorithm().getId());
+			Map<String, VariableDefinition> vars = new LinkedHashMap<String, VariableDefinition>();
+			for(VariableDefinition v : p.getVariableDefinitions()){
+				orderVariables(p, v.getExpression(), vars);
+				vars.put(v.getVariableId(), v);
+			}
+			out.writeInt(vars.size());
+			for(VariableDefinition v : vars.values()){
+				writeString(v.getVariableId());
+				writeExpression(v.getExpression());
+			}
+			out.writeInt(p.getRules().size());
+			Set<String> withParams = new HashSet<String>();
+			for(Rule r : p.getRules()){
+				writeRule(r);
+				writeCombinerParams(withParams.add(r.getId())?
+						p.getRuleCombinerParams(r.getId()):null);
+			}
+		}
+
+		/**
+		 * Orders variable definitions referenced by a given
+		 * expression before a definition of a given expression,
+		 * a variable is resolved by the reader when it's read
+		 */
+		private void orderVariables(Policy p, Expression e,
+				Map<String, VariableDefinition> vars)
+		{
+			if(e instanceof Apply){
+				for(Expression arg : ((Apply)e).getArguments()){
+					orderVariables(p, arg, vars);
+				}
+				return;
+			}
+			if(e instanceof VariableReference){
+				VariableDefinition v = ((VariableReference)e).getDefinition();
+				if(!vars.containsKey(v.getVariableId())){
+					orderVariables(p, v.getExpression(), vars);
+					vars.put(v.getVariableId(), v);
+				}
+			}
+		}
+
+		private void writePolicySet(PolicySet p) throws IOException
+		{
+			writeString(p.getId());
+			writeString(p.getVersion().getValue());
+			writeString(p.getDescription());
+			writeIssuer(p.getIssuer());
+			writeInteger(p.getMaxDelegationDepth());
+			writeCombinerParams(p.getCombinerParams());
+			writeBody(p.getTarget(), p.getCondition(),
+					p.getAdviceExpressions(), p.getObligationExpressions());
+			PolicySetDefaults defaults = p.getDefaults();
+			writeString((defaults != null)?defaults.getXPathVersion().toString():null);
+			writeString(p.getPolicyDecisionCombiningAlgorithm().getId());
+			out.writeInt(p.getDecisions().size());
+			Set<String> policies = new HashSet<String>();
+			Set<String> policySets = new HashSet<String>();
+			for(CompositeDecisionRule r : p.getDecisions()){
+				writeDecisionRule(r);
+				String id = r.getReference().getId();
+				if(r instanceof Policy ||
+						r instanceof PolicyIDReference){
+					writeCombinerParams(policies.add(id)?
+							p.getPolicyCombinerParams(id):null);
+				}else{
+					writeCombinerParams(policySets.add(id)?
+							p.getPolicySetCombinerParams(id):null);
+				}
+			}
+		}
+
+		private void writeReference(BaseCompositeDecisionRuleIDReference ref) throws IOException
+		{
+			writeString(ref.getId());
+			writeVersionMatch(ref.getVersion());
+			writeVersionMatch(ref.getEarliestVersion());
+			writeVersionMatch(ref.getLatestVersion());
+		}
+
+		private void writeVersionMatch(VersionMatch m) throws IOException {
+			writeString((m != null)?m.getPattern():null);
+		}
+
+		private void writeRule(Rule r) throws IOException
+		{
+			writeString(r.getId());
+			out.writeByte(r.getEffect().ordinal());
+			writeString(r.getDescription());
+			writeBody(r.getTarget(), r.getCondition(),
+					r.getAdviceExpressions(), r.getObligationExpressions());
+		}
+
+		private void writeBody(Target target, Condition condition,
+				Collection<AdviceExpression> advices,
+				Collection<ObligationExpression> obligations) throws IOException
+		{
+			writeTarget(target);
+			out.writeBoolean(condition != null);
+			if(condition != null){
+				writeExpression(condition.getExpression());
+			}
+			out.writeInt(advices.size());
+			for(AdviceExpression a : advices){
+				writeString(a.getId());
+				out.writeByte(a.getEffect().ordinal());
+				writeAttributeAssignments(a.getAttributeAssignmentExpressions());
+			}
+			out.writeInt(obligations.size());
+			for(ObligationExpression o : obligations){
+				writeString(o.getId());
+				out.writeByte(o.getEffect().ordinal());
+				writeAttributeAssignments(o.getAttributeAssignmentExpressions());
+			}
+		}
+
+		private void writeAttributeAssignments(
+				Collection<AttributeAssignmentExpression> exps) throws IOException
+		{
+			out.writeInt(exps.size());
+			for(AttributeAssignmentExpression e : exps){
+				writeString(e.getAttributeId());
+				writeString((e.getCategory() != null)?e.getCategory().getId():null);
+				writeString(e.getIssuer());
+				writeExpression(e.getExpression());
+			}
+		}
+
+		private void writeTarget(Target t) throws IOException
+		{
+			out.writeBoolean(t != null);
+			if(t == null){
+				return;
+			}
+			out.writeInt(t.getAnyOf().size());
+			for(MatchAnyOf anyOf : t.getAnyOf()){
+				out.writeInt(anyOf.getAllOf().size());
+				for(MatchAllOf allOf : anyOf.getAllOf()){
+					out.writeInt(allOf.getMatch().size());
+					for(Match m : allOf.getMatch()){
+						writeString(m.getMatchId());
+						writeValue(m.getAttributeValue());
+						writeExpression(m.getReference());
+					}
+				}
+			}
+		}
+
+		private void writeIssuer(Entity issuer) throws IOException
+		{
+			out.writeBoolean(issuer != null);
+			if(issuer == null){
+				return;
+			}
+			out.writeInt(issuer.getAttributes().size());
+			for(Attribute a : issuer.getAttributes()){
+				writeString(a.getAttributeId());
+				writeString(a.getIssuer());
+				out.writeBoolean(a.isIncludeInResult());
+				out.writeInt(a.getValues().size());
+				for(AttributeExp v : a.getValues()){
+					writeValue(v);
+				}
+			}
+			writeString((issuer.getXmlContent() != null)?
+					issuer.getXmlContent():DOMUtil.nodeToString(issuer.getContent()));
+		}
+
+		private void writeCombinerParams(Collection<CombinerParameter> params) throws IOException
+		{
+			if(params == null){
+				out.writeInt(0);
+				return;
+			}
+			out.writeInt(params.size());
+			for(CombinerParameter p : params){
+				writeString(p.getName());
+				writeValue(p.getValue());
+			}
+		}
+
+		private void writeExpression(Expression e) throws IOException
+		{
+			if(e instanceof AttributeExp){
+				out.writeByte(VALUE);
+				writeValue((AttributeExp)e);
+				return;
+			}
+			if(e instanceof Apply){
+				Apply apply = (Apply)e;
+				out.writeByte(APPLY);
+				writeString(apply.getFunctionId());
+				out.writeInt(apply.getArguments().size());
+				for(Expression arg : apply.getArguments()){
+					writeExpression(arg);
+				}
+				return;
+			}
+			if(e instanceof FunctionReference){
+				out.writeByte(FUNCTION_REFERENCE);
+				writeString(((FunctionReference)e).getFunctionId());
+				return;
+			}
+			if(e instanceof VariableReference){
+				out.writeByte(VARIABLE_REFERENCE);
+				writeString(((VariableReference)e).getVariableId());
+				return;
+			}
+			if(e instanceof AttributeDesignator){
+				AttributeDesignatorKey key = ((AttributeDesignator)e).getReferenceKey();
+				out.writeByte(ATTRIBUTE_DESIGNATOR);
+				writeString(key.getCategory().getId());
+				writeString(key.getAttributeId());
+				writeString(key.getIssuer());
+				writeString(key.getDataType().getDataTypeId());
+				out.writeBoolean(((AttributeDesignator)e).isMustBePresent());
+				return;
+			}
+			if(e instanceof AttributeSelector){
+				AttributeSelectorKey key = ((AttributeSelector)e).getReferenceKey();
+				out.writeByte(ATTRIBUTE_SELECTOR);
+				writeString(key.getCategory().getId());
+				writeString(key.getPath());
+				writeString(key.getContextSelectorId());
+				writeString(key.getDataType().getDataTypeId());
+				out.writeBoolean(((AttributeSelector)e).isMustBePresent());
+				return;
+			}
+			throw new IOException(String.format(
+					"Unsupported expression type=\"%s\"",
+					(e != null)?e.getClass().getName():null));
+		}
+
+		private void writeValue(AttributeExp v) throws IOException
+		{
+			AttributeExpType type = v.getType();
+			writeString(type.getDataTypeId());
+			if(v instanceof XPathExp){
+				writeString(((XPathExp)v).getPath());
+				writeString(((XPathExp)v).getCategory().getId());
+				return;
+			}
+			writeString(getToString(type).toString(v));
+		}
+
+		private void writeInteger(Integer v) throws IOException {
+			out.writeInt((v != null)?v:-1);
+		}
+
+		private void writeString(String v) throws IOException
+		{
+			if(v == null){
+				out.writeInt(NULL_STRING);
+				return;
+			}
+			Integer index = strings.get(v);
+			if(index != null){
+				out.writeInt(index);
+				return;
+			}
+			strings.put(v, strings.size());
+			byte[] b = v.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(NEW_STRING);
+			out.writeInt(b.length);
+			out.write(b);
+		}
+	}
+
+	private final class Reader
+	{
+		private final ByteBuffer buf;
+		private final List<String> strings;
+		private Map<String, VariableDefinition> variables;
+
+		Reader(ByteBuffer buf){
+			this.buf = buf;
+			this.strings = new ArrayList<String>();
+		}
+
+		CompositeDecisionRule readDecisionRule() throws IOException
+		{
+			byte type = buf.get();
+			switch(type){
+				case POLICY:
+					return readPolicy();
+				case POLICY_SET:
+					return readPolicySet();
+				case POLICY_ID_REFERENCE:
+					return PolicyIDReference.builder(readString())
+							.versionAsString(readString())
+							.earliest(readString())
+							.latest(readString())
+							.build();
+				case POLICY_SET_ID_REFERENCE:
+					return PolicySetIDReference.builder(readString())
+							.versionAsString(readString())
+							.earliest(readString())
+							.latest(readString())
+							.build();
+				default:
+					throw new IOException(String.format(
+							"Unknown decision rule type=\"%d\"", type));
+			}
+		}
+
+		private Policy readPolicy() throws IOException
+		{
+			this.variables = new HashMap<String, VariableDefinition>();
+			Policy.Builder b = Policy.builder(readString())
+					.version(readString())
+					.description(readString())
+					.issuer(readIssuer())
+					.maxDelegationDepth(readInteger())
+					.combinerParams(readCombinerParams())
+					.target(readTarget())
+					.condition(readCondition())
+					.advice(readAdvices())
+					.obligation(readObligations())
+					.defaults(readPolicyDefaults())
+					.combiningAlgorithm(createRuleCombiningAlgorithm(readString()));
+			int size = readCount();
+			for(int i = 0; i < size; i++){
+				String id = readString();
+				VariableDefinition v = new VariableDefinition(id, readExpression());
+				variables.put(id, v);
+				b.var(v);
+			}
+			size = readCount();
+			for(int i = 0; i < size; i++){
+				Rule r = readRule();
+				b.rule(r);
+				b.ruleCombineParams(r.getId(), readCombinerParams());
+			}
+			this.variables = null;
+			return b.build();
+		}
+
+		private PolicyDefaults readPolicyDefaults() throws IOException
+		{
+			String xpathVersion = readString();
+			return (xpathVersion != null)?PolicyDefaults.builder()
+					.xpathVersion(xpathVersion).build():null;
+		}
+
+		private PolicySet readPolicySet() throws IOException
+		{
+			PolicySet.Builder b = PolicySet.builder(readString())
+					.version(readString())
+					.description(readString())
+					.issuer(readIssuer())
+					.maxDelegationDepth(readInteger())
+					.combinerParams(readCombinerParams())
+					.target(readTarget())
+					.condition(readCondition())
+					.advice(readAdvices())
+					.obligation(readObligations());
+			String xpathVersion = readString();
+			if(xpathVersion != null){
+				b.defaults(PolicySetDefaults.builder()
+						.xpathVersion(xpathVersion).build());
+			}
+			b.withCombiningAlgorithm(createPolicyCombiningAlgorithm(readString()));
+			int size = readCount();
+			List<CompositeDecisionRule> rules = new ArrayList<CompositeDecisionRule>();
+			for(int i = 0; i < size; i++){
+				CompositeDecisionRule r = readDecisionRule();
+				rules.add(r);
+				String id = r.getReference().getId();
+				boolean policy = (r instanceof Policy || r instanceof PolicyIDReference);
+				for(CombinerParameter p : readCombinerParams()){
+					if(policy){
+						b.withPolicyCombinerParameter(id, p);
+					}else{
+						b.withPolicySetCombinerParameter(id, p);
+					}
+				}
+			}
+			return b.compositeDecisionRules(rules).build();
+		}
+
+		private Rule readRule() throws IOException
+		{
+			return Rule.builder(readString(), readEffect())
+					.description(readString())
+					.target(readTarget())
+					.condition(readCondition())
+					.advice(readAdvices())
+					.obligation(readObligations())
+					.build();
+		}
+
+		private Condition readCondition() throws IOException {
+			return readBoolean()?new Condition(readExpression()):null;
+		}
+
+		private List<AdviceExpression> readAdvices() throws IOException
+		{
+			int size = readCount();
+			List<AdviceExpression> advices = new ArrayList<AdviceExpression>();
+			for(int i = 0; i < size; i++){
+				advices.add(AdviceExpression.builder(readString(), readEffect())
+						.attribute(readAttributeAssignments())
+						.build());
+			}
+			return advices;
+		}
+
+		private List<ObligationExpression> readObligations() throws IOException
+		{
+			int size = readCount();
+			List<ObligationExpression> obligations = new ArrayList<ObligationExpression>();
+			for(int i = 0; i < size; i++){
+				obligations.add(ObligationExpression.builder(readString(), readEffect())
+						.attribute(readAttributeAssignments())
+						.build());
+			}
+			return obligations;
+		}
+
+		private List<AttributeAssignmentExpression> readAttributeAssignments() throws IOException
+		{
+			int size = readCount();
+			List<AttributeAssignmentExpression> exps = new ArrayList<AttributeAssignmentExpression>();
+			for(int i = 0; i < size; i++){
+				exps.add(AttributeAssignmentExpression.builder(readString())
+						.category(readString())
+						.issuer(readString())
+						.expression(readExpression())
+						.build());
+			}
+			return exps;
+		}
+
+		private Target readTarget() throws IOException
+		{
+			if(!readBoolean()){
+				return null;
+			}
+			Target.Builder target = Target.builder();
+			int anyOfSize = readCount();
+			for(int i = 0; i < anyOfSize; i++){
+				MatchAnyOf.Builder anyOf = MatchAnyOf.builder();
+				int allOfSize = readCount();
+				for(int j = 0; j < allOfSize; j++){
+					MatchAllOf.Builder allOf = MatchAllOf.builder();
+					int matchSize = readCount();
+					for(int k = 0; k < matchSize; k++){
+						String matchId = readString();
+						AttributeExp value = readValue();
+						Expression ref = readExpression();
+						if(!(ref instanceof AttributeReference)){
+							throw new IOException(String.format(
+									"Match id=\"%s\" does not reference an attribute", matchId));
+						}
+						allOf.allOf(Match.builder()
+								.predicate(createFunction(matchId))
+								.attribute(value)
+								.attrRef((AttributeReference)ref)
+								.build());
+					}
+					anyOf.anyOf(allOf.build());
+				}
+				target.anyOf(anyOf.build());
+			}
+			return target.build();
+		}
+
+		private Entity readIssuer() throws IOException
+		{
+			if(!readBoolean()){
+				return null;
+			}
+			int size = readCount();
+			List<Attribute> attributes = new ArrayList<Attribute>();
+			for(int i = 0; i < size; i++){
+				Attribute.Builder a = Attribute.builder(readString())
+						.issuer(readString())
+						.includeInResult(readBoolean());
+				int valueSize = readCount();
+				List<AttributeExp> values = new ArrayList<AttributeExp>();
+				for(int j = 0; j < valueSize; j++){
+					values.add(readValue());
+				}
+				attributes.add(a.values(values).build());
+			}
+			return Entity.builder()
+					.attributes(attributes)
+					.xmlContent(readString())
+					.build();
+		}
+
+		private List<CombinerParameter> readCombinerParams() throws IOException
+		{
+			int size = readCount();
+			List<CombinerParameter> params = new ArrayList<CombinerParameter>();
+			for(int i = 0; i < size; i++){
+				params.add(new CombinerParameter(readString(), readValue()));
+			}
+			return params;
+		}
+
+		private Expression readExpression() throws IOException
+		{
+			byte type = buf.get();
+			switch(type){
+				case VALUE:
+					return readValue();
+				case APPLY:
+					Apply.Builder apply = Apply.builder(createFunction(readString()));
+					int size = readCount();
+					for(int i = 0; i < size; i++){
+						apply.param(readExpression());
+					}
+					return apply.build();
+				case FUNCTION_REFERENCE:
+					return new FunctionReference(createFunction(readString()));
+				case VARIABLE_REFERENCE:
+					String id = readString();
+					VariableDefinition v = (variables != null)?variables.get(id):null;
+					if(v == null){
+						throw new IOException(String.format(
+								"Variable with id=\"%s\" is not defined", id));
+					}
+					return new VariableReference(v);
+				case ATTRIBUTE_DESIGNATOR:
+					return AttributeDesignator.builder()
+							.category(readCategory())
+							.attributeId(readString())
+							.issuer(readString())
+							.dataType(readType())
+							.mustBePresent(readBoolean())
+							.build();
+				case ATTRIBUTE_SELECTOR:
+					return AttributeSelector.builder()
+							.category(readCategory())
+							.xpath(readString())
+							.contextSelectorId(readString())
+							.dataType(readType())
+							.mustBePresent(readBoolean())
+							.build();
+				default:
+					throw new IOException(String.format(
+							"Unknown expression type=\"%d\"", type));
+			}
+		}
+
+		private AttributeExp readValue() throws IOException
+		{
+			AttributeExpType type = readType();
+			if(type.equals(XacmlTypes.XPATH)){
+				return XPathExp.of(readString(), readCategory());
+			}
+			return getToString(type).fromString(readString());
+		}
+
+		private AttributeExpType readType() throws IOException
+		{
+			String typeId = readString();
+			Optional<AttributeExpType> type = XacmlTypes.getType(typeId);
+			if(!type.isPresent()){
+				throw new IOException(String.format(
+						"Unknown data type=\"%s\"", typeId));
+			}
+			return type.get();
+		}
+
+		private CategoryId readCategory() throws IOException {
+			return Categories.parse(readString());
+		}
+
+		private Effect readEffect() throws IOException
+		{
+			byte v = buf.get();
+			if(v < 0 || v >= Effect.values().length){
+				throw new IOException(String.format(
+						"Unknown effect=\"%d\"", v));
+			}
+			return Effect.values()[v];
+		}
+
+		private boolean readBoolean(){
+			return buf.get() != 0;
+		}
+
+		private Integer readInteger(){
+			int v = buf.getInt();
+			return (v >= 0)?v:null;
+		}
+
+		private int readCount() throws IOException
+		{
+			int v = buf.getInt();
+			if(v < 0 || v > buf.remaining()){
+				throw new IOException(String.format(
+						"Invalid element count=\"%d\"", v));
+			}
+			return v;
+		}
+
+		private String readString() throws IOException
+		{
+			int index = buf.getInt();
+			if(index == NULL_STRING){
+				return null;
+			}
+			if(index == NEW_STRING){
+				byte[] b = new byte[readCount()];
+				buf.get(b);
+				String v = new String(b, StandardCharsets.UTF_8);
+				strings.add(v);
+				return v;
+			}
+			if(index < 0 || index >= strings.size()){
+				throw new IOException(String.format(
+						"Invalid string index=\"%d\"", index));
+			}
+			return strings.get(index);
+		}
+	}
+
+	private static TypeToString getToString(AttributeExpType type) throws IOException
+	{
+		Optional<TypeToString> toString = TypeToString.Types.getIndex().get(type);
+		if(!toString.isPresent()){
+			throw new IOException(String.format(
+					"Unsupported data type=\"%s\"", type.getDataTypeId()));
+		}
+		return toString.get();
+	}
+}
@@ -0,0 +1,204 @@
+package org.xacml4j.v30.spi.xpath;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A compiled XPath 1.0 location path of a simple form
+ * which can be evaluated in a single pass over a streamed
+ * XML document, see {@link StreamingXPathEvaluator}.
+ * <p>
+ * A simple path consists of child element steps, a step
+ * is either a qualified name or {@code *} optionally followed
+ * by attribute predicates with literal values, and ends with
+ * either {@code text()} or an attribute step, e.g.
+ * {@code /md:record/md:patient[@type='inpatient']/md:patient-number/text()}
+ * <p>
+ * Namespace prefixes are resolved against namespace
+ * declarations in scope of the document element
+ */
+public final class SimpleXPath
+{
+	private final static String NAME = "(?:([A-Za-z_][\\w.\\-]*):)?([A-Za-z_][\\w.\\-]*)";
+	private final static Pattern STEP = Pattern.compile(
+			"(\\*|" + NAME + ")((?:\\[@" + NAME + "=(?:'[^']*'|\"[^\"]*\")\\])*)");
+	private final static Pattern PREDICATE = Pattern.compile(
+			"\\[@" + NAME + "=(?:'([^']*)'|\"([^\"]*)\")\\]");
+	private final static Pattern ATTRIBUTE = Pattern.compile("@" + NAME);
+
+	private final String path;
+	private final List<Step> steps;
+	private final Name attribute;
+
+	private SimpleXPath(String path, List<Step> steps, Name attribute){
+		this.path = path;
+		this.steps = steps;
+		this.attribute = attribute;
+	}
+
+	/**
+	 * Compiles a given XPath expression
+	 *
+	 * @param path an XPath expression
+	 * @return {@link SimpleXPath} or {@link Optional#absent()}
+	 * if a given expression is not a simple path
+	 */
+	public static Optional<SimpleXPath> parse(String path)
+	{
+		Preconditions.checkNotNull(path);
+		String v = path.trim();
+		if(v.startsWith("/")){
+			v = v.substring(1);
+		}
+		String[] parts = v.split("/", -1);
+		if(parts.length < 2){
+			return Optional.absent();
+		}
+		ImmutableList.Builder<Step> steps = ImmutableList.builder();
+		for(int i = 0; i < parts.length - 1; i++){
+			Matcher m = STEP.matcher(parts[i]);
+			if(!m.matches()){
+				return Optional.absent();
+			}
+			List<Predicate> predicates = new LinkedList<Predicate>();
+			Matcher p = PREDICATE.matcher(m.group(4));
+			while(p.find()){
+				predicates.add(new Predicate(new Name(p.group(1), p.group(2)),
+						(p.group(3) != null)?p.group(3):p.group(4)));
+			}
+			steps.add(new Step(
+					m.group(1).equals("*")?null:new Name(m.group(2), m.group(3)),
+					ImmutableList.copyOf(predicates)));
+		}
+		String last = parts[parts.length - 1];
+		if(last.equals("text()")){
+			return Optional.of(new SimpleXPath(path, steps.build(), null));
+		}
+		Matcher m = ATTRIBUTE.matcher(last);
+		if(!m.matches()){
+			return Optional.absent();
+		}
+		return Optional.of(new SimpleXPath(path, steps.build(),
+				new Name(m.group(1), m.group(2))));
+	}
+
+	/**
+	 * Gets XPath expression of this path
+	 *
+	 * @return XPath expression
+	 */
+	public String getPath(){
+		return path;
+	}
+
+	/**
+	 * Gets element steps of this path
+	 *
+	 * @return a list of element steps
+	 */
+	List<Step> getSteps(){
+		return steps;
+	}
+
+	/**
+	 * Gets an attribute selected by this path
+	 *
+	 * @return an attribute name or {@code null}
+	 * if this path selects text nodes
+	 */
+	Name getAttribute(){
+		return attribute;
+	}
+
+	@Override
+	public int hashCode(){
+		return path.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object o){
+		if(o == this){
+			return true;
+		}
+		if(!(o instanceof SimpleXPath)){
+			return false;
+		}
+		return path.equals(((SimpleXPath)o).path);
+	}
+
+	@Override
+	public String toString(){
+		return MoreObjects.toStringHelper(this)
+				.add("path", path)
+				.toString();
+	}
+
+	/**
+	 * A not yet resolved qualified name
+	 */
+	static final class Name
+	{
+		final String prefix;
+		final String localName;
+
+		Name(String prefix, String localName){
+			this.prefix = prefix;
+			this.localName = localName;
+		}
+	}
+
+	static final class Predicate
+	{
+		final Name attribute;
+		final String value;
+
+		Predicate(Name attribute, String value){
+			this.attribute = attribute;
+			this.value = value;
+		}
+	}
+
+	static final class Step
+	{
+		/**
+		 * An element name or {@code null}
+		 * if a step matches any element
+		 */
+		final Name name;
+		final List<Predicate> predicates;
+
+		Step(Name name, List<Predicate> predicates){
+			this.name = name;
+			this.predicates = predicates;
+		}
+	}
+}
@@ -0,0 +1,591 @@
+package org.xacml4j.v30.spi.xpath;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.Text;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+
+/**
+ * Evaluates a set of {@link SimpleXPath} paths in a single
+ * StAX pass over an XML document without building DOM or in
+ * a single walk over an already built DOM without compiling
+ * XPath expressions.
+ * <p>
+ * The document element is the first step of each path,
+ * the same as evaluating a path against a DOM document node.
+ * Consecutive character data of an element is reported as
+ * a single text node, CDATA sections are coalesced with
+ * surrounding text
+ */
+public final class StreamingXPathEvaluator
+{
+	private final static Logger log = LoggerFactory.getLogger(StreamingXPathEvaluator.class);
+
+	private final static XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+	/** Private constructor for utility class */
+	private StreamingXPathEvaluator() {}
+
+	private static XMLInputFactory createInputFactory(){
+		XMLInputFactory f = XMLInputFactory.newInstance();
+		f.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+		f.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		f.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		f.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		return f;
+	}
+
+	/**
+	 * Evaluates given paths over a given XML document
+	 *
+	 * @param xml an XML document
+	 * @param paths paths to evaluate
+	 * @return a map of values selected by each path, a value
+	 * is {@code null} if a path uses a namespace prefix
+	 * not declared in scope of the document element
+	 * @exception XPathEvaluationException if a given
+	 * document can not be parsed
+	 */
+	public static Map<SimpleXPath, List<String>> evaluate(
+			Reader xml, Collection<SimpleXPath> paths)
+		throws XPathEvaluationException
+	{
+		Preconditions.checkNotNull(xml);
+		Preconditions.checkNotNull(paths);
+		XMLStreamReader reader = null;
+		try{
+			reader = INPUT_FACTORY.createXMLStreamReader(xml);
+			return evaluate(reader, paths);
+		}catch(XMLStreamException e){
+			if(log.isDebugEnabled()){
+				log.debug(e.getMessage(), e);
+			}
+			throw new XPathEvaluationException(paths.toString(), null, e);
+		}finally{
+			if(reader != null){
+				try{
+					reader.close();
+				}catch(XMLStreamException e){
+					log.debug(e.getMessage(), e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Evaluates given paths over a given XML document,
+	 * document encoding is detected by the parser
+	 *
+	 * @param xml an XML document
+	 * @param paths paths to evaluate
+	 * @return a map of values selected by each path, a value
+	 * is {@code null} if a path uses a namespace prefix
+	 * not declared in scope of the document element
+	 * @exception XPathEvaluationException if a given
+	 * document can not be parsed
+	 */
+	public static Map<SimpleXPath, List<String>> evaluate(
+			InputStream xml, Collection<SimpleXPath> paths)
+		throws XPathEvaluationException
+	{
+		Preconditions.checkNotNull(xml);
+		Preconditions.checkNotNull(paths);
+		XMLStreamReader reader = null;
+		try{
+			reader = INPUT_FACTORY.createXMLStreamReader(xml);
+			return evaluate(reader, paths);
+		}catch(XMLStreamException e){
+			if(log.isDebugEnabled()){
+				log.debug(e.getMessage(), e);
+			}
+			throw new XPathEvaluationException(paths.toString(), null, e);
+		}finally{
+			if(reader != null){
+				try{
+					reader.close();
+				}catch(XMLStreamException e){
+					log.debug(e.getMessage(), e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests if a given DOM document or element is namespace
+	 * aware, i.e. built by a namespace aware parser
+	 *
+	 * @param node a document or an element
+	 * @return {@code true} if a given node can be walked by
+	 * {@link #evaluate(Node, Collection)}
+	 */
+	public static boolean isNamespaceAware(Node node)
+	{
+		Element root = getElement(node);
+		return root == null ||
+				root.getLocalName() != null;
+	}
+
+	private static Element getElement(Node node){
+		return (node.getNodeType() == Node.DOCUMENT_NODE)?
+				((Document)node).getDocumentElement():(Element)node;
+	}
+
+	/**
+	 * Evaluates given paths over a given namespace aware
+	 * DOM document or element in a single walk
+	 *
+	 * @param node a document or an element
+	 * @param paths paths to evaluate
+	 * @return a map of values selected by each path, a value
+	 * is {@code null} if a path uses a namespace prefix
+	 * not declared in scope of the document element
+	 */
+	public static Map<SimpleXPath, List<String>> evaluate(
+			Node node, Collection<SimpleXPath> paths)
+	{
+		Preconditions.checkNotNull(node);
+		Preconditions.checkNotNull(paths);
+		final Element root = getElement(node);
+		Preconditions.checkArgument(isNamespaceAware(node),
+				"Content DOM must be namespace aware");
+		Map<SimpleXPath, List<String>> result = new HashMap<SimpleXPath, List<String>>();
+		if(root == null){
+			return result;
+		}
+		NamespaceContext ns = new NamespaceContext() {
+			@Override
+			public String getNamespaceURI(String prefix) {
+				return root.lookupNamespaceURI(prefix);
+			}
+
+			@Override
+			public String getPrefix(String namespaceURI) {
+				return root.lookupPrefix(namespaceURI);
+			}
+
+			@Override
+			public Iterator<String> getPrefixes(String namespaceURI) {
+				throw new UnsupportedOperationException();
+			}
+		};
+		List<PathState> states = new LinkedList<PathState>();
+		for(SimpleXPath p : paths){
+			PathState s = PathState.create(p, ns);
+			result.put(p, (s != null)?s.values:null);
+			if(s != null){
+				states.add(s);
+			}
+		}
+		walk(root, states, 1);
+		return result;
+	}
+
+	private static void walk(Element e, List<PathState> states, int depth)
+	{
+		ElementEvent event = new DOMElementEvent(e);
+		for(PathState s : states){
+			s.startElement(event, depth);
+		}
+		for(Node n = e.getFirstChild(); n != null; n = n.getNextSibling()){
+			switch(n.getNodeType()){
+				case Node.ELEMENT_NODE:
+					walk((Element)n, states, depth + 1);
+					break;
+				case Node.TEXT_NODE:
+				case Node.CDATA_SECTION_NODE:
+					for(PathState s : states){
+						s.characters(((Text)n).getData(), depth);
+					}
+					break;
+				case Node.COMMENT_NODE:
+				case Node.PROCESSING_INSTRUCTION_NODE:
+					for(PathState s : states){
+						s.flushText(depth);
+					}
+					break;
+				default:
+			}
+		}
+		for(PathState s : states){
+			s.endElement(depth);
+		}
+	}
+
+	/**
+	 * Checks if a given document is well-formed,
+	 * document is read in a single pass without
+	 * building DOM
+	 *
+	 * @param xml an XML document
+	 * @exception IllegalArgumentException if a given
+	 * document is not well-formed
+	 */
+	public static void checkWellFormed(String xml)
+	{
+		Preconditions.checkNotNull(xml);
+		XMLStreamReader reader = null;
+		try{
+			reader = INPUT_FACTORY.createXMLStreamReader(new StringReader(xml));
+			while(reader.hasNext()){
+				reader.next();
+			}
+		}catch(XMLStreamException e){
+			throw new IllegalArgumentException(String.format(
+					"Given content is not well-formed XML: \"%s\"", e.getMessage()), e);
+		}finally{
+			if(reader != null){
+				try{
+					reader.close();
+				}catch(XMLStreamException e){
+					log.debug(e.getMessage(), e);
+				}
+			}
+		}
+	}
+
+	private static Map<SimpleXPath, List<String>> evaluate(
+			XMLStreamReader reader, Collection<SimpleXPath> paths)
+		throws XMLStreamException
+	{
+		Map<SimpleXPath, List<String>> result = new HashMap<SimpleXPath, List<String>>();
+		List<PathState> states = new LinkedList<PathState>();
+		ElementEvent event = new StAXElementEvent(reader);
+		int depth = 0;
+		while(reader.hasNext()){
+			switch(reader.next()){
+				case XMLStreamConstants.START_ELEMENT:
+					if(depth == 0){
+						for(SimpleXPath p : paths){
+							PathState s = PathState.create(p, reader.getNamespaceContext());
+							result.put(p, (s != null)?s.values:null);
+							if(s != null){
+								states.add(s);
+							}
+						}
+					}
+					depth++;
+					for(PathState s : states){
+						s.startElement(event, depth);
+					}
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					for(PathState s : states){
+						s.endElement(depth);
+					}
+					depth--;
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+					for(PathState s : states){
+						s.characters(reader, depth);
+					}
+					break;
+				case XMLStreamConstants.COMMENT:
+				case XMLStreamConstants.PROCESSING_INSTRUCTION:
+					for(PathState s : states){
+						s.flushText(depth);
+					}
+					break;
+				default:
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * A start of an element visited by the evaluation
+	 */
+	private interface ElementEvent
+	{
+		String getLocalName();
+
+		/**
+		 * Gets element namespace URI
+		 *
+		 * @return namespace URI or an empty string
+		 */
+		String getNamespaceURI();
+
+		/**
+		 * Gets a value of a given element attribute
+		 *
+		 * @param namespace attribute namespace URI
+		 * or an empty string
+		 * @param localName attribute local name
+		 * @return attribute value or {@code null}
+		 */
+		String getAttributeValue(String namespace, String localName);
+	}
+
+	private static final class StAXElementEvent
+		implements ElementEvent
+	{
+		private final XMLStreamReader reader;
+
+		StAXElementEvent(XMLStreamReader reader){
+			this.reader = reader;
+		}
+
+		@Override
+		public String getLocalName(){
+			return reader.getLocalName();
+		}
+
+		@Override
+		public String getNamespaceURI(){
+			return Strings.nullToEmpty(reader.getNamespaceURI());
+		}
+
+		@Override
+		public String getAttributeValue(String namespace, String localName){
+			for(int i = 0; i < reader.getAttributeCount(); i++){
+				if(localName.equals(reader.getAttributeLocalName(i)) &&
+						namespace.equals(Strings.nullToEmpty(reader.getAttributeNamespace(i)))){
+					return reader.getAttributeValue(i);
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * An element of DOM, a node name is used as a local
+	 * name of DOM built without namespace awareness
+	 */
+	private static final class DOMElementEvent
+		implements ElementEvent
+	{
+		private final Element element;
+
+		DOMElementEvent(Element element){
+			this.element = element;
+		}
+
+		@Override
+		public String getLocalName(){
+			return element.getLocalName();
+		}
+
+		@Override
+		public String getNamespaceURI(){
+			return Strings.nullToEmpty(element.getNamespaceURI());
+		}
+
+		@Override
+		public String getAttributeValue(String namespace, String localName){
+			Attr a = element.getAttributeNodeNS(
+					Strings.emptyToNull(namespace), localName);
+			if(a == null &&
+					namespace.isEmpty()){
+				a = element.getAttributeNode(localName);
+			}
+			return (a != null)?a.getValue():null;
+		}
+	}
+
+	/**
+	 * A state of a single path evaluation
+	 */
+	private static final class PathState
+	{
+		private final SimpleXPath path;
+		private final String[] namespaces;
+		private final String[][] predicateNamespaces;
+		private final String attributeNamespace;
+		private final boolean[] matched;
+		private final List<String> values;
+		private StringBuilder text;
+
+		private PathState(SimpleXPath path, String[] namespaces,
+				String[][] predicateNamespaces, String attributeNamespace){
+			this.path = path;
+			this.namespaces = namespaces;
+			this.predicateNamespaces = predicateNamespaces;
+			this.attributeNamespace = attributeNamespace;
+			this.matched = new boolean[path.getSteps().size() + 1];
+			this.matched[0] = true;
+			this.values = new LinkedList<String>();
+		}
+
+		/**
+		 * Resolves namespace prefixes of a given path
+		 *
+		 * @return {@link PathState} or {@code null} if
+		 * a given path uses an undeclared prefix
+		 */
+		static PathState create(SimpleXPath path, NamespaceContext ns)
+		{
+			List<SimpleXPath.Step> steps = path.getSteps();
+			String[] namespaces = new String[steps.size()];
+			String[][] predicateNamespaces = new String[steps.size()][];
+			for(int i = 0; i < steps.size(); i++){
+				SimpleXPath.Step step = steps.get(i);
+				if(step.name != null){
+					namespaces[i] = resolve(step.name, ns);
+					if(namespaces[i] == null){
+						return null;
+					}
+				}
+				predicateNamespaces[i] = new String[step.predicates.size()];
+				for(int j = 0; j < step.predicates.size(); j++){
+					predicateNamespaces[i][j] = resolve(step.predicates.get(j).attribute, ns);
+					if(predicateNamespaces[i][j] == null){
+						return null;
+					}
+				}
+			}
+			String attributeNamespace = null;
+			if(path.getAttribute() != null){
+				attributeNamespace = resolve(path.getAttribute(), ns);
+				if(attributeNamespace == null){
+					return null;
+				}
+			}
+			return new PathState(path, namespaces, predicateNamespaces, attributeNamespace);
+		}
+
+		private static String resolve(SimpleXPath.Name name, NamespaceContext ns){
+			if(name.prefix == null){
+				return XMLConstants.NULL_NS_URI;
+			}
+			String uri = ns.getNamespaceURI(name.prefix);
+			return Strings.isNullOrEmpty(uri)?null:uri;
+		}
+
+		private int getLength(){
+			return matched.length - 1;
+		}
+
+		void startElement(ElementEvent e, int depth)
+		{
+			flushText(depth - 1);
+			if(depth > getLength()){
+				return;
+			}
+			matched[depth] = matched[depth - 1] && matches(e, depth - 1);
+			if(matched[depth] &&
+					depth == getLength() &&
+					path.getAttribute() != null){
+				String v = e.getAttributeValue(
+						attributeNamespace, path.getAttribute().localName);
+				if(v != null){
+					values.add(v);
+				}
+			}
+		}
+
+		void endElement(int depth)
+		{
+			flushText(depth);
+			if(depth <= getLength()){
+				matched[depth] = false;
+			}
+		}
+
+		void characters(XMLStreamReader reader, int depth)
+		{
+			if(!isCollectingText(depth)){
+				return;
+			}
+			if(text == null){
+				text = new StringBuilder();
+			}
+			text.append(reader.getTextCharacters(),
+					reader.getTextStart(), reader.getTextLength());
+		}
+
+		void characters(String data, int depth)
+		{
+			if(!isCollectingText(depth)){
+				return;
+			}
+			if(text == null){
+				text = new StringBuilder();
+			}
+			text.append(data);
+		}
+
+		void flushText(int depth)
+		{
+			if(!isCollectingText(depth) ||
+					text == null){
+				return;
+			}
+			if(text.length() > 0){
+				values.add(text.toString());
+			}
+			text = null;
+		}
+
+		private boolean isCollectingText(int depth){
+			return path.getAttribute() == null &&
+					depth == getLength() &&
+					matched[depth];
+		}
+
+		private boolean matches(ElementEvent e, int step)
+		{
+			SimpleXPath.Step s = path.getSteps().get(step);
+			if(s.name != null){
+				if(!s.name.localName.equals(e.getLocalName()) ||
+						!namespaces[step].equals(e.getNamespaceURI())){
+					return false;
+				}
+			}
+			for(int i = 0; i < s.predicates.size(); i++){
+				SimpleXPath.Predicate p = s.predicates.get(i);
+				if(!p.value.equals(e.getAttributeValue(
+						predicateNamespaces[step][i], p.attribute.localName))){
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
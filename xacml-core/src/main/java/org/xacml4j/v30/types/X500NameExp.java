@@ -22,6 +22,9 @@ package org.xacml4j.v30.types;
  * #L%
  */
 
+import java.util.LinkedList;
+import java.util.List;
+
 import javax.security.auth.x500.X500Principal;
 
 import org.xacml4j.v30.BagOfAttributeExp;
@@ -30,6 +33,12 @@ public final class X500NameExp extends BaseAttributeExp<X500Principal>
 {
 	private static final long serialVersionUID = -609417077475809404L;
 
+	/**
+	 * Canonical RDNs of this name in
+	 * reverse order, computed on first use
+	 */
+	private transient volatile String[] rdns;
+
 	X500NameExp(X500Principal value) {
 		super(XacmlTypes.X500NAME, value);
 	}
@@ -49,6 +58,64 @@ public final class X500NameExp extends BaseAttributeExp<X500Principal>
 	public StringExp toStringExp(){
 		return StringExp.of(getValue().toString());
 	}
+
+	/**
+	 * Tests if this name matches some terminal
+	 * sequence of RDNs of a given name, see XACML
+	 * x500Name-match function. RDNs of both names
+	 * are normalized once and reused by subsequent calls
+	 *
+	 * @param name a name
+	 * @return {@code true} if this name matches
+	 * a terminal sequence of RDNs of a given name
+	 */
+	public boolean matches(X500NameExp name){
+		String[] suffix = getRdns();
+		String[] other = name.getRdns();
+		if(suffix.length > other.length){
+			return false;
+		}
+		for(int i = 0; i < suffix.length; i++){
+			if(!suffix[i].equals(other[i])){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String[] getRdns(){
+		String[] v = rdns;
+		if(v == null){
+			v = splitRdns(getValue().getName(X500Principal.CANONICAL));
+			this.rdns = v;
+		}
+		return v;
+	}
+
+	/**
+	 * Splits a given canonical name to RDNs
+	 * on unescaped commas, the last RDN first
+	 */
+	private static String[] splitRdns(String name){
+		if(name.isEmpty()){
+			return new String[0];
+		}
+		List<String> rdns = new LinkedList<String>();
+		int start = 0;
+		for(int i = 0; i < name.length(); i++){
+			char c = name.charAt(i);
+			if(c == '\\'){
+				i++;
+				continue;
+			}
+			if(c == ','){
+				rdns.add(0, name.substring(start, i));
+				start = i + 1;
+			}
+		}
+		rdns.add(0, name.substring(start));
+		return rdns.toArray(new String[rdns.size()]);
+	}
 	
 	public static BagOfAttributeExp emptyBag(){
 		return XacmlTypes.X500NAME.emptyBag();
@@ -96,4 +96,35 @@ public class DayTimeDurationTest
 		assertEquals(0, v3.getMinutes());
 		assertEquals(0, v3.getSeconds());
 	}
+
+	@Test
+	public void testFractionalSeconds()
+	{
+		DayTimeDuration v1 = DayTimeDuration.parse("PT1.50S");
+		assertEquals(1, v1.getSeconds());
+		assertEquals("PT1.5S", v1.toString());
+		assertEquals(-1, v1.compareTo(DayTimeDuration.parse("PT2S")));
+	}
+
+	@Test
+	public void testEqualsNormalizedValues()
+	{
+		DayTimeDuration v1 = DayTimeDuration.parse("P1DT2H");
+		DayTimeDuration v2 = DayTimeDuration.parse("PT26H");
+		assertEquals(v1, v2);
+		assertEquals(0, v1.compareTo(v2));
+		assertEquals("-P1DT2H", v2.negate().toString());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testParseYearMonthDuration()
+	{
+		DayTimeDuration.parse("P1Y2M");
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testParseFractionWithoutDigits()
+	{
+		DayTimeDuration.parse("PT1.S");
+	}
 }
@@ -24,17 +24,28 @@ package org.xacml4j.v30;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.w3c.dom.Node;
+import org.xacml4j.util.DOMUtil;
 import org.xacml4j.v30.pdp.XPathEvaluationException;
 import org.xacml4j.v30.spi.xpath.DefaultXPathProvider;
+import org.xacml4j.v30.spi.xpath.XPathProvider;
 import org.xacml4j.v30.types.DoubleExp;
 import org.xacml4j.v30.types.IntegerExp;
 import org.xacml4j.v30.types.StringExp;
@@ -128,6 +139,78 @@ public class EntityTest
 				.build();
 		assertEquals(e0, e1);
 	}
-}
 
+	@Test
+	public void testEntityXmlContent(){
+		Entity e0 = Entity
+				.builder()
+				.xmlContent(testXml)
+				.build();
+		assertTrue(e0.hasContent());
+		assertEquals(testXml, e0.getXmlContent());
+		Entity e1 = Entity.builder().copyOf(e0).build();
+		assertEquals(testXml, e1.getXmlContent());
+		assertEquals(e0, e1);
+		assertEquals("md:record", e0.getContent().getFirstChild().getNodeName());
+	}
+
+	@Test
+	public void testContentIsNotSharedBetweenCopies(){
+		Node content = entity.getContent();
+		assertNotSame(content, Entity.builder().copyOf(entity).build().getContent());
+		assertNotSame(content, entity.getIncludeInResult().getContent());
+		assertNotSame(content, Entity.builder().contentOf(entity).build().getContent());
+		assertSame(content, Entity.builder()
+				.content(DOMUtil.getElementNode(content)).build().getContent());
+	}
+
+	@Test
+	public void testXmlContentIsSharedAndParsedByEachCopy(){
+		Entity e0 = Entity
+				.builder()
+				.xmlContent(testXml)
+				.build();
+		Entity e1 = Entity.builder().contentOf(e0).build();
+		Entity e2 = Entity.builder().copyOf(e0).build();
+		assertSame(e0.getXmlContent(), e1.getXmlContent());
+		assertSame(e0.getXmlContent(), e2.getXmlContent());
+		assertSame(e1.getContent(), e1.getContent());
+		assertNotSame(e0.getContent(), e1.getContent());
+		assertNotSame(e1.getContent(), e2.getContent());
+	}
 
+	@Test
+	public void testConcurrentContentReadsOfCopies() throws Exception{
+		final Entity e0 = Entity
+				.builder()
+				.xmlContent("<record><patient-number>555555</patient-number></record>")
+				.build();
+		final XPathProvider xpathProvider = new DefaultXPathProvider();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try{
+			List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for(int i = 0; i < 32; i++){
+				final Entity copy = Entity.builder().copyOf(e0).build();
+				results.add(executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call(){
+						for(int j = 0; j < 50; j++){
+							BagOfAttributeExp v = copy.getAttributeValues(
+									"/record/patient-number/text()",
+									xpathProvider, XacmlTypes.INTEGER, null);
+							if(!v.contains(IntegerExp.of(555555))){
+								return false;
+							}
+						}
+						return true;
+					}
+				}));
+			}
+			for(Future<Boolean> r : results){
+				assertTrue(r.get());
+			}
+		}finally{
+			executor.shutdown();
+		}
+	}
+}
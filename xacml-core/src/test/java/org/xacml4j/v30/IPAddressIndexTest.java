@@ -0,0 +1,95 @@
+package org.xacml4j.v30;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+
+public class IPAddressIndexTest
+{
+	@Test
+	public void testV4Networks()
+	{
+		IPAddressIndex index = IPAddressIndex.of(ImmutableList.of(
+				IPAddress.valueOf("10.0.0.0/255.0.0.0"),
+				IPAddress.valueOf("192.168.1.0/255.255.255.0:80"),
+				IPAddress.valueOf("172.16.0.1")));
+		assertEquals(3, index.size());
+		assertTrue(index.contains(IPAddress.valueOf("10.1.2.3")));
+		assertTrue(index.contains(IPAddress.valueOf("10.1.2.3:1024-2048")));
+		assertTrue(index.contains(IPAddress.valueOf("192.168.1.17:80")));
+		assertFalse(index.contains(IPAddress.valueOf("192.168.1.17:81")));
+		assertFalse(index.contains(IPAddress.valueOf("192.168.1.17")));
+		assertFalse(index.contains(IPAddress.valueOf("192.168.2.17:80")));
+		assertTrue(index.contains(IPAddress.valueOf("172.16.0.1")));
+		assertFalse(index.contains(IPAddress.valueOf("172.16.0.2")));
+		assertFalse(index.contains(IPAddress.valueOf("[2001:db8::1]")));
+	}
+
+	@Test
+	public void testV6Networks()
+	{
+		IPAddressIndex index = IPAddressIndex.of(ImmutableList.of(
+				IPAddress.valueOf("[2001:db8::]/[ffff:ffff::]")));
+		assertTrue(index.contains(IPAddress.valueOf("[2001:db8:85a3::8a2e:370:7334]")));
+		assertFalse(index.contains(IPAddress.valueOf("[2001:db9::1]")));
+		assertFalse(index.contains(IPAddress.valueOf("10.0.0.1")));
+	}
+
+	@Test
+	public void testNonContiguousMask()
+	{
+		IPAddressIndex index = IPAddressIndex.of(ImmutableList.of(
+				IPAddress.valueOf("10.0.0.1/255.0.0.255")));
+		assertTrue(index.contains(IPAddress.valueOf("10.20.30.1")));
+		assertFalse(index.contains(IPAddress.valueOf("10.20.30.2")));
+	}
+
+	@Test
+	public void testSameAsLinearContains()
+	{
+		List<IPAddress> networks = ImmutableList.of(
+				IPAddress.valueOf("10.0.0.0/255.0.0.0"),
+				IPAddress.valueOf("10.1.0.0/255.255.0.0:443"),
+				IPAddress.valueOf("0.0.0.0/0.0.0.0:22"),
+				IPAddress.valueOf("192.168.0.0/255.255.0.0:1024-"));
+		IPAddressIndex index = IPAddressIndex.of(networks);
+		for(String v : new String[]{"10.1.1.1:443", "11.1.1.1:22", "11.1.1.1:23",
+				"192.168.3.4:1024", "192.168.3.4:1000-2000", "192.168.3.4", "8.8.8.8"}){
+			IPAddress a = IPAddress.valueOf(v);
+			boolean expected = false;
+			for(IPAddress n : networks){
+				expected |= n.contains(a);
+			}
+			assertEquals(v, expected, index.contains(a));
+		}
+	}
+}
@@ -23,7 +23,9 @@ package org.xacml4j.v30;
  */
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 import org.xacml4j.util.IPAddressUtils;
@@ -101,4 +103,17 @@ public class IPAddressTest
 		assertEquals(a4, a5);
 		assertEquals(a5, a6);
 	}
+
+	@Test
+	public void testContains()
+	{
+		IPAddress n = IPAddress.valueOf("10.1.0.0/255.255.0.0:1024-2048");
+		assertTrue(n.contains(IPAddress.valueOf("10.1.2.3:1024")));
+		assertTrue(n.contains(IPAddress.valueOf("10.1.2.3:1100-1200")));
+		assertFalse(n.contains(IPAddress.valueOf("10.1.2.3")));
+		assertFalse(n.contains(IPAddress.valueOf("10.2.2.3:1024")));
+		assertFalse(n.contains(IPAddress.valueOf("[2001:db8::1]:1024")));
+		assertTrue(IPAddress.valueOf("10.1.2.3").contains(IPAddress.valueOf("10.1.2.3")));
+		assertFalse(IPAddress.valueOf("10.1.2.3").contains(IPAddress.valueOf("10.1.2.4")));
+	}
 }
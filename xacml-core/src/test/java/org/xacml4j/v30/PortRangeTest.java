@@ -62,6 +62,21 @@ public class PortRangeTest
 		assertFalse(range.contains(1025));
 	}
 
+	@Test
+	public void testContainsUnboundedRange()
+	{
+		PortRange range = PortRange.getRange(1024, 2048);
+		assertTrue(range.contains(PortRange.getRange(1024, 2048)));
+		assertTrue(range.contains(PortRange.getSinglePort(1500)));
+		assertFalse(range.contains(PortRange.getRangeFrom(1024)));
+		assertFalse(range.contains(PortRange.getAnyPort()));
+		range = PortRange.getRangeFrom(1024);
+		assertTrue(range.contains(PortRange.getRangeFrom(2048)));
+		assertFalse(range.contains(PortRange.getRangeUntil(2048)));
+		assertTrue(PortRange.getAnyPort().contains(PortRange.getAnyPort()));
+		assertTrue(PortRange.getAnyPort().contains(PortRange.getSinglePort(80)));
+	}
+
 	@Test
 	public void testToString()
 	{
@@ -23,6 +23,7 @@ package org.xacml4j.v30;
  */
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
@@ -57,4 +58,18 @@ public class RFC822NameTest
 		assertTrue(n.matches("test@east.test.org"));
 		assertTrue(n.matches(".test.org"));
 	}
+
+	@Test
+	public void testCompiledPattern()
+	{
+		RFC822NamePattern p = RFC822NamePattern.compile(".Test.org");
+		assertTrue(p.matches(RFC822Name.parse("a@east.test.org")));
+		assertFalse(p.matches(RFC822Name.parse("a@test.org")));
+		p = RFC822NamePattern.compile("TEST.org");
+		assertTrue(p.matches(RFC822Name.parse("a@test.org")));
+		assertFalse(p.matches(RFC822Name.parse("a@east.test.org")));
+		p = RFC822NamePattern.compile("Anderson@SUN.COM");
+		assertTrue(p.matches(RFC822Name.parse("Anderson@sun.com")));
+		assertFalse(p.matches(RFC822Name.parse("anderson@sun.com")));
+	}
 }
@@ -23,8 +23,13 @@ package org.xacml4j.v30;
  */
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+
 import org.junit.Test;
 
 public class TimeTest
@@ -45,4 +50,15 @@ public class TimeTest
 		assertTrue(t2.isTimezoneSet());
 		assertEquals(0, t2.getTimezoneOffset());
 	}
+
+	@Test
+	public void testCreateWithoutTimezone() throws Exception
+	{
+		XMLGregorianCalendar c = DatatypeFactory.newInstance()
+				.newXMLGregorianCalendarTime(8, 23, 47, DatatypeConstants.FIELD_UNDEFINED);
+		Time t = new Time(c);
+		assertFalse(t.isTimezoneSet());
+		assertEquals("08:23:47", t.toXacmlString());
+		assertEquals(Time.valueOf("08:23:47Z"), t);
+	}
 }
@@ -26,6 +26,7 @@ import static org.easymock.EasyMock.createStrictMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
 
 import java.util.List;
 
@@ -34,7 +35,12 @@ import org.junit.Test;
 import org.xacml4j.v30.EvaluationContext;
 import org.xacml4j.v30.EvaluationException;
 import org.xacml4j.v30.Expression;
+import org.xacml4j.v30.spi.function.FunctionProviderBuilder;
+import org.xacml4j.v30.types.BooleanExp;
+import org.xacml4j.v30.types.IPAddressExp;
 import org.xacml4j.v30.types.IntegerExp;
+import org.xacml4j.v30.types.RFC822NameExp;
+import org.xacml4j.v30.types.StringExp;
 
 import com.google.common.collect.ImmutableList;
 
@@ -76,4 +82,49 @@ public class ApplyTest
 		apply.evaluate(context);
 		verify(function);
 	}
+
+	@Test
+	public void testNetworkIsInConstantBagIsIndexedOnBuild() throws XacmlException
+	{
+		FunctionSpec networkIsIn = FunctionProviderBuilder.builder()
+				.defaultFunctions()
+				.build()
+				.getFunction(IPAddressNetworkIsIn.FUNCTION_ID);
+		// a constant bag is indexed when built and is never evaluated
+		expect(function.getId()).andReturn(IPAddressNetworkIsIn.BAG_FUNCTION_ID).times(2);
+		replay(function, context);
+		Apply networks = Apply.builder(function)
+				.param(IPAddressExp.of("10.0.0.0/255.0.0.0"),
+						IPAddressExp.of("192.168.1.0/255.255.255.0:80"))
+				.build();
+		assertEquals(BooleanExp.valueOf(true), Apply.builder(networkIsIn)
+				.param(IPAddressExp.of("10.1.1.1"), networks)
+				.build()
+				.evaluate(context));
+		assertEquals(BooleanExp.valueOf(false), Apply.builder(networkIsIn)
+				.param(IPAddressExp.of("192.168.1.2:81"), networks)
+				.build()
+				.evaluate(context));
+		verify(function, context);
+	}
+
+	@Test
+	public void testRFC822NameMatchConstantPatternIsCompiledOnBuild() throws XacmlException
+	{
+		FunctionSpec rfc822NameMatch = FunctionProviderBuilder.builder()
+				.defaultFunctions()
+				.build()
+				.getFunction(RFC822NameMatch.FUNCTION_ID);
+		// a compiled pattern is matched without invoking the function
+		replay(context);
+		assertEquals(BooleanExp.valueOf(true), Apply.builder(rfc822NameMatch)
+				.param(StringExp.of(".test.org"), RFC822NameExp.of("a@east.TEST.org"))
+				.build()
+				.evaluate(context));
+		assertEquals(BooleanExp.valueOf(false), Apply.builder(rfc822NameMatch)
+				.param(StringExp.of(".test.org"), RFC822NameExp.of("a@test.org"))
+				.build()
+				.evaluate(context));
+		verify(context);
+	}
 }
@@ -0,0 +1,207 @@
+package org.xacml4j.v30.pdp;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import static org.easymock.EasyMock.createControl;
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Set;
+
+import org.easymock.EasyMock;
+
+import org.easymock.IMocksControl;
+import org.junit.Before;
+import org.junit.Test;
+import org.xacml4j.v30.AttributeDesignatorKey;
+import org.xacml4j.v30.Categories;
+import org.xacml4j.v30.CategoryId;
+import org.xacml4j.v30.CompositeDecisionRule;
+import org.xacml4j.v30.Effect;
+import org.xacml4j.v30.EvaluationContext;
+import org.xacml4j.v30.Expression;
+import org.xacml4j.v30.spi.function.FunctionInvocation;
+import org.xacml4j.v30.spi.function.FunctionSpecBuilder;
+import org.xacml4j.v30.spi.repository.PolicyReferenceResolver;
+import org.xacml4j.v30.types.BooleanExp;
+import org.xacml4j.v30.types.IntegerExp;
+import org.xacml4j.v30.types.XacmlTypes;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+public class AttributeDesignatorCollectingVisitorTest
+{
+	private IMocksControl c;
+	private PolicyReferenceResolver resolver;
+	private DecisionCombiningAlgorithm<Rule> ruleAlgorithm;
+	private DecisionCombiningAlgorithm<CompositeDecisionRule> policyAlgorithm;
+	private FunctionSpec spec;
+
+	@SuppressWarnings("unchecked")
+	@Before
+	public void init(){
+		this.c = createControl();
+		this.resolver = c.createMock(PolicyReferenceResolver.class);
+		this.ruleAlgorithm = c.createMock(DecisionCombiningAlgorithm.class);
+		this.policyAlgorithm = c.createMock(DecisionCombiningAlgorithm.class);
+		this.spec = FunctionSpecBuilder
+				.builder("testFunction")
+				.param(XacmlTypes.INTEGER.bagType())
+				.build(XacmlTypes.BOOLEAN, c.createMock(FunctionInvocation.class));
+	}
+
+	@Test
+	public void testCollectFromConditionsVariablesAndReferencedPolicies() throws Exception
+	{
+		AttributeDesignator d0 = designator(Categories.SUBJECT_ACCESS, "testId0");
+		AttributeDesignator d1 = designator(Categories.RESOURCE, "testId1");
+		AttributeDesignator d2 = designator(Categories.ACTION, "testId2");
+
+		Policy referenced = Policy
+				.builder("referencedPolicy")
+				.var(new VariableDefinition("testVar", d2))
+				.combiningAlgorithm(ruleAlgorithm)
+				.build();
+		PolicyIDReference ref = PolicyIDReference.builder("referencedPolicy").build();
+		PolicySet root = PolicySet
+				.builder("rootPolicySet")
+				.withCombiningAlgorithm(policyAlgorithm)
+				.policy(Policy
+						.builder("policy")
+						.var(new VariableDefinition("testVar", d0))
+						.rule(Rule
+								.builder("rule", Effect.PERMIT)
+								.condition(Apply.builder(spec).param(d1).build()))
+						.combiningAlgorithm(ruleAlgorithm)
+						.build())
+				.compositeDecisionRules(ref, ref)
+				.build();
+
+		expect(resolver.resolve(ref)).andReturn(referenced).times(2);
+		c.replay();
+		Set<AttributeDesignatorKey> keys = AttributeDesignatorCollectingVisitor.collect(root, resolver);
+		assertEquals(ImmutableSet.of(
+				d0.getReferenceKey(), d1.getReferenceKey(), d2.getReferenceKey()), keys);
+		c.verify();
+	}
+
+	@Test
+	public void testCollectSkipsPoliciesWithTargetNotMatchingRequest() throws Exception
+	{
+		AttributeDesignator d0 = designator(Categories.ACTION, "testId0");
+		AttributeDesignator d1 = designator(Categories.RESOURCE, "testId1");
+		AttributeDesignator d2 = designator(Categories.RESOURCE, "testId2");
+		FunctionInvocation invocation = c.createMock(FunctionInvocation.class);
+		FunctionSpec equal = FunctionSpecBuilder
+				.builder("testEqual")
+				.param(XacmlTypes.INTEGER)
+				.param(XacmlTypes.INTEGER)
+				.build(XacmlTypes.BOOLEAN, invocation);
+		EvaluationContext context = c.createMock(EvaluationContext.class);
+
+		PolicySet root = PolicySet
+				.builder("rootPolicySet")
+				.withCombiningAlgorithm(policyAlgorithm)
+				.policy(Policy
+						.builder("notMatchingPolicy")
+						.target(Target
+								.builder()
+								.anyOf(MatchAnyOf
+										.builder()
+										.anyOf(MatchAllOf
+												.builder()
+												.allOf(Match
+														.builder()
+														.predicate(equal)
+														.attribute(IntegerExp.of(1))
+														.attrRef(d0)
+														.build())
+												.build())
+										.build())
+								.build())
+						.rule(Rule
+								.builder("rule", Effect.PERMIT)
+								.condition(Apply.builder(spec).param(d1).build()))
+						.combiningAlgorithm(ruleAlgorithm)
+						.build())
+				.policy(Policy
+						.builder("policy")
+						.rule(Rule
+								.builder("rule", Effect.PERMIT)
+								.condition(Apply.builder(spec).param(d2).build()))
+						.combiningAlgorithm(ruleAlgorithm)
+						.build())
+				.build();
+
+		expect(context.resolve(d0.getReferenceKey())).andReturn(IntegerExp.of(2).toBag());
+		expect(context.isValidateFuncParamsAtRuntime()).andReturn(false).anyTimes();
+		// a match is evaluated via context ignoring evaluation status
+		expect(invocation.invoke(EasyMock.eq(equal), EasyMock.isA(EvaluationContext.class),
+				EasyMock.eq(ImmutableList.<Expression>of(IntegerExp.of(1), IntegerExp.of(2)))))
+				.andReturn(BooleanExp.valueOf(false));
+		c.replay();
+		Predicate<AttributeDesignatorKey> inRequest = Predicates.equalTo(d0.getReferenceKey());
+		Set<AttributeDesignatorKey> keys = AttributeDesignatorCollectingVisitor.collect(
+				root, resolver, context, inRequest);
+		assertEquals(ImmutableSet.of(d2.getReferenceKey()), keys);
+		c.verify();
+	}
+
+	@Test
+	public void testCollectSelectors() throws Exception
+	{
+		AttributeSelector s0 = AttributeSelector
+				.builder()
+				.category(Categories.RESOURCE)
+				.xpath("/md:record/md:patient/md:patient-number/text()")
+				.dataType(XacmlTypes.INTEGER)
+				.build();
+		PolicySet root = PolicySet
+				.builder("rootPolicySet")
+				.withCombiningAlgorithm(policyAlgorithm)
+				.policy(Policy
+						.builder("policy")
+						.rule(Rule
+								.builder("rule", Effect.PERMIT)
+								.condition(Apply.builder(spec).param(s0).build()))
+						.combiningAlgorithm(ruleAlgorithm)
+						.build())
+				.build();
+		c.replay();
+		assertEquals(ImmutableSet.of(s0.getReferenceKey()),
+				AttributeDesignatorCollectingVisitor.collectSelectors(root, resolver));
+		c.verify();
+	}
+
+	private static AttributeDesignator designator(CategoryId category, String attributeId){
+		return AttributeDesignator
+				.builder()
+				.category(category)
+				.attributeId(attributeId)
+				.dataType(XacmlTypes.INTEGER)
+				.build();
+	}
+}
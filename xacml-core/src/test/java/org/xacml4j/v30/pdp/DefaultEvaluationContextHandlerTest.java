@@ -27,6 +27,7 @@ import static org.easymock.EasyMock.expect;
 import static org.junit.Assert.assertEquals;
 
 import java.io.StringReader;
+import java.util.concurrent.ExecutorService;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -38,7 +39,6 @@ import org.junit.Test;
 import org.w3c.dom.Node;
 import org.xacml4j.v30.AttributeDesignatorKey;
 import org.xacml4j.v30.AttributeSelectorKey;
-import org.xacml4j.v30.BagOfAttributeExp;
 import org.xacml4j.v30.Categories;
 import org.xacml4j.v30.Entity;
 import org.xacml4j.v30.EvaluationContext;
@@ -46,14 +46,27 @@ import org.xacml4j.v30.EvaluationException;
 import org.xacml4j.v30.Expression;
 import org.xacml4j.v30.Status;
 import org.xacml4j.v30.ValueExpression;
+import org.xacml4j.v30.spi.pip.AttributeResolver;
+import org.xacml4j.v30.spi.pip.AttributeResolverDescriptor;
+import org.xacml4j.v30.spi.pip.AttributeResolverDescriptorBuilder;
+import org.xacml4j.v30.spi.pip.AttributeSet;
+import org.xacml4j.v30.spi.pip.Content;
+import org.xacml4j.v30.spi.pip.ContentResolverDescriptor;
+import org.xacml4j.v30.spi.pip.ContentResolverDescriptorBuilder;
 import org.xacml4j.v30.spi.pip.PolicyInformationPoint;
+import org.xacml4j.v30.spi.pip.ResolverRegistry;
 import org.xacml4j.v30.spi.xpath.DefaultXPathProvider;
 import org.xacml4j.v30.spi.xpath.XPathProvider;
 import org.xacml4j.v30.types.AnyURIExp;
+import org.xacml4j.v30.types.DateExp;
 import org.xacml4j.v30.types.IntegerExp;
 import org.xacml4j.v30.types.XacmlTypes;
 import org.xml.sax.InputSource;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.MoreExecutors;
+
 
 public class DefaultEvaluationContextHandlerTest
 {
@@ -116,6 +129,71 @@ public class DefaultEvaluationContextHandlerTest
 		c.verify();
 	}
 
+	@Test
+	public void testSelectorResolveSerializedContentViaStreaming()
+		throws EvaluationException
+	{
+		Entity xmlEntity = Entity
+				.builder()
+				.xmlContent(testXml)
+				.build();
+		AttributeSelectorKey ref0 = AttributeSelectorKey
+				.builder()
+				.category(Categories.SUBJECT_RECIPIENT)
+				.xpath("/md:record/md:patient/md:patient-number/text()")
+				.dataType(XacmlTypes.INTEGER)
+				.build();
+		AttributeSelectorKey ref1 = AttributeSelectorKey
+				.builder()
+				.category(Categories.SUBJECT_RECIPIENT)
+				.xpath("/md:record/md:patient/md:patientDoB/text()")
+				.dataType(XacmlTypes.DATE)
+				.build();
+
+		expect(requestContextCallback.getEntity(Categories.SUBJECT_RECIPIENT)).andReturn(xmlEntity).times(2);
+
+		c.replay();
+
+		assertEquals(IntegerExp.of(555555).toBag(), handler.resolve(context, ref0));
+		assertEquals(DateExp.of("1992-03-21").toBag(), handler.resolve(context, ref1));
+		c.verify();
+	}
+
+	@Test
+	public void testSelectorResolveSerializedContentFromPIPViaStreaming()
+		throws Exception
+	{
+		ContentResolverDescriptor d = ContentResolverDescriptorBuilder
+				.builder("testId", "Test", Categories.SUBJECT_RECIPIENT)
+				.build();
+		Content resolved = Content
+				.builder()
+				.resolver(d)
+				.xmlContent(testXml.getBytes("UTF-8"))
+				.build();
+		AttributeSelectorKey ref0 = AttributeSelectorKey
+				.builder()
+				.category(Categories.SUBJECT_RECIPIENT)
+				.xpath("/md:record/md:patient/md:patient-number/text()")
+				.dataType(XacmlTypes.INTEGER)
+				.build();
+		AttributeSelectorKey ref1 = AttributeSelectorKey
+				.builder()
+				.category(Categories.SUBJECT_RECIPIENT)
+				.xpath("/md:record/md:patient/md:patientDoB/text()")
+				.dataType(XacmlTypes.DATE)
+				.build();
+
+		expect(requestContextCallback.getEntity(Categories.SUBJECT_RECIPIENT)).andReturn(null).times(2);
+		expect(pip.resolveContent(context, Categories.SUBJECT_RECIPIENT)).andReturn(resolved);
+
+		c.replay();
+
+		assertEquals(IntegerExp.of(555555).toBag(), handler.resolve(context, ref0));
+		assertEquals(DateExp.of("1992-03-21").toBag(), handler.resolve(context, ref1));
+		c.verify();
+	}
+
 	@Test
 	public void testSelectorResolveContentIsNotInRequestXPathReturnsNonEmptyNodeSet()
 		throws Exception
@@ -149,12 +227,12 @@ public class DefaultEvaluationContextHandlerTest
 
 		expect(requestContextCallback.getEntity(Categories.SUBJECT_RECIPIENT)).andReturn(null);
 
-		expect(pip.resolve(context, Categories.SUBJECT_RECIPIENT)).andStubAnswer(new IAnswer<Node>()
+		expect(pip.resolveContent(context, Categories.SUBJECT_RECIPIENT)).andStubAnswer(new IAnswer<Content>()
 		{
 			@Override
-			public Node answer() throws Throwable {
+			public Content answer() throws Throwable {
 				 handler.resolve(context, ref);
-				 return content;
+				 return Content.builder().content(content).build();
 			}
 		});
 
@@ -254,7 +332,7 @@ public class DefaultEvaluationContextHandlerTest
 
 		expect(requestContextCallback.getEntity(Categories.SUBJECT_RECIPIENT)).andReturn(null);
 
-		expect(pip.resolve(context, Categories.SUBJECT_RECIPIENT)).andThrow(new RuntimeException());
+		expect(pip.resolveContent(context, Categories.SUBJECT_RECIPIENT)).andThrow(new RuntimeException());
 
 		c.replay();
 		handler.resolve(context, ref);
@@ -272,8 +350,16 @@ public class DefaultEvaluationContextHandlerTest
 				.dataType(XacmlTypes.ANYURI)
 				.build();
 
+		AttributeResolverDescriptor d = AttributeResolverDescriptorBuilder
+				.builder("testResolver", "Test", Categories.RESOURCE)
+				.attribute("testId", XacmlTypes.ANYURI)
+				.build();
+
 		expect(requestContextCallback.getEntity(Categories.RESOURCE)).andReturn(entity);
-		expect(pip.resolve(context, ref)).andReturn(AnyURIExp.of("testValue").toBag());
+		expect(pip.resolveAttributes(context, ref)).andReturn(AttributeSet
+				.builder(d)
+				.attribute("testId", AnyURIExp.of("testValue").toBag())
+				.build());
 
 		c.replay();
 		ValueExpression v = handler.resolve(context, ref);
@@ -295,7 +381,7 @@ public class DefaultEvaluationContextHandlerTest
 
 		expect(requestContextCallback.getEntity(Categories.RESOURCE)).andReturn(entity);
 
-		expect(pip.resolve(context, ref)).andThrow(new RuntimeException());
+		expect(pip.resolveAttributes(context, ref)).andThrow(new RuntimeException());
 
 		c.replay();
 		handler.resolve(context, ref);
@@ -316,11 +402,11 @@ public class DefaultEvaluationContextHandlerTest
 		expect(requestContextCallback.getEntity(Categories.RESOURCE)).andReturn(entity);
 
 
-		expect(pip.resolve(context, ref)).andAnswer(new IAnswer<BagOfAttributeExp>() {
+		expect(pip.resolveAttributes(context, ref)).andAnswer(new IAnswer<AttributeSet>() {
 			@Override
-			public BagOfAttributeExp answer() throws Throwable{
+			public AttributeSet answer() throws Throwable{
 				handler.resolve(context, ref);
-				return AnyURIExp.emptyBag();
+				return null;
 			}
 		});
 
@@ -330,4 +416,131 @@ public class DefaultEvaluationContextHandlerTest
 		handler.resolve(context, ref);
 		c.verify();
 	}
+
+	@Test
+	public void testDesignatorResolvePrefetchedValue() throws Exception
+	{
+		AttributeDesignatorKey key = AttributeDesignatorKey
+				.builder()
+				.category(Categories.SUBJECT_ACCESS)
+				.attributeId("testId")
+				.dataType(XacmlTypes.INTEGER)
+				.build();
+		AttributeResolverDescriptor d = AttributeResolverDescriptorBuilder
+				.builder("testResolver", "Test", Categories.SUBJECT_ACCESS)
+				.cache(30)
+				.attribute("testId", XacmlTypes.INTEGER)
+				.build();
+		AttributeSet attributes = AttributeSet
+				.builder(d)
+				.attribute("testId", IntegerExp.of(1).toBag())
+				.build();
+		ResolverRegistry registry = c.createMock(ResolverRegistry.class);
+		AttributeResolver resolver = c.createMock(AttributeResolver.class);
+		ExecutorService executor = MoreExecutors.newDirectExecutorService();
+
+		expect(requestContextCallback.getEntity(Categories.SUBJECT_ACCESS)).andReturn(entity).times(2);
+		expect(pip.prefetch(context, ImmutableList.of(key), executor))
+		.andReturn(ImmutableMap.of(key, attributes));
+		expect(pip.getRegistry()).andReturn(registry);
+		expect(registry.getMatchingAttributeResolvers(context, key))
+		.andReturn(ImmutableList.of(resolver));
+		expect(resolver.getDescriptor()).andReturn(d);
+		context.setDecisionCacheTTL(30);
+		c.replay();
+
+		((DefaultEvaluationContextHandler)handler).prefetch(context, ImmutableList.of(key), executor);
+		assertEquals(IntegerExp.of(1).toBag(), handler.resolve(context, key));
+		c.verify();
+	}
+
+	@Test
+	public void testDesignatorPrefetchedValueIsNotUsedIfShadowedByPolicyScopedResolver() throws Exception
+	{
+		AttributeDesignatorKey key = AttributeDesignatorKey
+				.builder()
+				.category(Categories.SUBJECT_ACCESS)
+				.attributeId("testId")
+				.dataType(XacmlTypes.INTEGER)
+				.build();
+		AttributeResolverDescriptor rootDescriptor = AttributeResolverDescriptorBuilder
+				.builder("rootResolver", "Test", Categories.SUBJECT_ACCESS)
+				.cache(30)
+				.attribute("testId", XacmlTypes.INTEGER)
+				.build();
+		AttributeResolverDescriptor policyDescriptor = AttributeResolverDescriptorBuilder
+				.builder("policyResolver", "Test", Categories.SUBJECT_ACCESS)
+				.cache(30)
+				.attribute("testId", XacmlTypes.INTEGER)
+				.build();
+		AttributeSet prefetched = AttributeSet
+				.builder(rootDescriptor)
+				.attribute("testId", IntegerExp.of(1).toBag())
+				.build();
+		AttributeSet resolved = AttributeSet
+				.builder(policyDescriptor)
+				.attribute("testId", IntegerExp.of(2).toBag())
+				.build();
+		ResolverRegistry registry = c.createMock(ResolverRegistry.class);
+		AttributeResolver policyResolver = c.createMock(AttributeResolver.class);
+		ExecutorService executor = MoreExecutors.newDirectExecutorService();
+
+		expect(requestContextCallback.getEntity(Categories.SUBJECT_ACCESS)).andReturn(entity).times(2);
+		expect(pip.prefetch(context, ImmutableList.of(key), executor))
+		.andReturn(ImmutableMap.of(key, prefetched));
+		// policy scoped resolver shadows root resolver used to prefetch
+		expect(pip.getRegistry()).andReturn(registry);
+		expect(registry.getMatchingAttributeResolvers(context, key))
+		.andReturn(ImmutableList.of(policyResolver));
+		expect(policyResolver.getDescriptor()).andReturn(policyDescriptor);
+		expect(pip.resolveAttributes(context, key)).andReturn(resolved);
+		c.replay();
+
+		((DefaultEvaluationContextHandler)handler).prefetch(context, ImmutableList.of(key), executor);
+		assertEquals(IntegerExp.of(2).toBag(), handler.resolve(context, key));
+		c.verify();
+	}
+
+	@Test
+	public void testDesignatorResolveOtherAttributeOfResolvedSet() throws Exception
+	{
+		AttributeDesignatorKey key0 = AttributeDesignatorKey
+				.builder()
+				.category(Categories.SUBJECT_ACCESS)
+				.attributeId("testId0")
+				.dataType(XacmlTypes.INTEGER)
+				.build();
+		AttributeDesignatorKey key1 = AttributeDesignatorKey
+				.builder()
+				.category(Categories.SUBJECT_ACCESS)
+				.attributeId("testId1")
+				.dataType(XacmlTypes.INTEGER)
+				.build();
+		AttributeResolverDescriptor d = AttributeResolverDescriptorBuilder
+				.builder("testResolver", "Test", Categories.SUBJECT_ACCESS)
+				.cache(30)
+				.attribute("testId0", XacmlTypes.INTEGER)
+				.attribute("testId1", XacmlTypes.INTEGER)
+				.build();
+		AttributeSet attributes = AttributeSet
+				.builder(d)
+				.attribute("testId0", IntegerExp.of(0).toBag())
+				.attribute("testId1", IntegerExp.of(1).toBag())
+				.build();
+		ResolverRegistry registry = c.createMock(ResolverRegistry.class);
+		AttributeResolver resolver = c.createMock(AttributeResolver.class);
+
+		expect(requestContextCallback.getEntity(Categories.SUBJECT_ACCESS)).andReturn(entity).times(2);
+		expect(pip.resolveAttributes(context, key0)).andReturn(attributes).once();
+		expect(pip.getRegistry()).andReturn(registry);
+		expect(registry.getMatchingAttributeResolvers(context, key1))
+		.andReturn(ImmutableList.of(resolver));
+		expect(resolver.getDescriptor()).andReturn(d);
+		context.setDecisionCacheTTL(30);
+		c.replay();
+
+		assertEquals(IntegerExp.of(0).toBag(), handler.resolve(context, key0));
+		assertEquals(IntegerExp.of(1).toBag(), handler.resolve(context, key1));
+		c.verify();
+	}
 }
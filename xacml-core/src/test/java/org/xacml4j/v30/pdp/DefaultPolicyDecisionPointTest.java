@@ -26,15 +26,25 @@ import static org.easymock.EasyMock.capture;
 import static org.easymock.EasyMock.createControl;
 import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.isA;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
 
+import java.util.List;
+
 import org.easymock.Capture;
+import org.easymock.CaptureType;
 import org.easymock.IMocksControl;
 import org.junit.Before;
 import org.junit.Test;
+import org.xacml4j.v30.Attribute;
+import org.xacml4j.v30.Categories;
+import org.xacml4j.v30.Category;
 import org.xacml4j.v30.CompositeDecisionRule;
 import org.xacml4j.v30.Decision;
+import org.xacml4j.v30.Entity;
 import org.xacml4j.v30.EvaluationContext;
 import org.xacml4j.v30.RequestContext;
 import org.xacml4j.v30.ResponseContext;
@@ -45,6 +55,7 @@ import org.xacml4j.v30.spi.pip.PolicyInformationPoint;
 import org.xacml4j.v30.spi.repository.PolicyRepository;
 import org.xacml4j.v30.spi.repository.PolicyRepositoryListener;
 import org.xacml4j.v30.spi.xpath.XPathProvider;
+import org.xacml4j.v30.types.StringExp;
 
 
 public class DefaultPolicyDecisionPointTest
@@ -94,6 +105,7 @@ public class DefaultPolicyDecisionPointTest
 		Capture<PolicyRepositoryListener> c = new Capture<PolicyRepositoryListener>();
 		repository.addPolicyRepositoryListener(capture(c));
 
+		policyDomain.accept(isA(PolicyVisitor.class));
 		expect(decisionCache.getDecision(req)).andReturn(null);
 		Capture<EvaluationContext> rootContext = new Capture<EvaluationContext>();
 		expect(policyDomain.createContext(capture(rootContext))).andReturn(control.createMock(EvaluationContext.class));
@@ -127,6 +139,7 @@ public class DefaultPolicyDecisionPointTest
 		Capture<PolicyRepositoryListener> c = new Capture<PolicyRepositoryListener>();
 		repository.addPolicyRepositoryListener(capture(c));
 
+		policyDomain.accept(isA(PolicyVisitor.class));
 		expect(decisionCache.getDecision(req)).andReturn(null);
 		Capture<EvaluationContext> rootContext = new Capture<EvaluationContext>();
 		expect(policyDomain.createContext(capture(rootContext))).andReturn(control.createMock(EvaluationContext.class));
@@ -150,4 +163,51 @@ public class DefaultPolicyDecisionPointTest
 
 		control.verify();
 	}
+
+	@Test
+	public void testIndividualRequestsShareRequestTime()
+	{
+		Category resource0 = Category
+				.builder(Categories.RESOURCE)
+				.entity(Entity.builder()
+						.attribute(Attribute.builder("testId1").value(StringExp.of("value0")).build())
+						.build())
+				.build();
+		Category resource1 = Category
+				.builder(Categories.RESOURCE)
+				.entity(Entity.builder()
+						.attribute(Attribute.builder("testId1").value(StringExp.of("value1")).build())
+						.build())
+				.build();
+		RequestContext req = RequestContext
+				.builder()
+				.returnPolicyIdList(false)
+				.attributes(resource0, resource1)
+				.build();
+
+		repository.addPolicyRepositoryListener(isA(PolicyRepositoryListener.class));
+		policyDomain.accept(isA(PolicyVisitor.class));
+		expect(decisionCache.getDecision(isA(RequestContext.class))).andStubReturn(null);
+		Capture<EvaluationContext> rootContext = new Capture<EvaluationContext>(CaptureType.ALL);
+		expect(policyDomain.createContext(capture(rootContext)))
+		.andReturn(control.createMock(EvaluationContext.class)).times(2);
+		expect(policyDomain.evaluate(isA(EvaluationContext.class))).andStubReturn(Decision.PERMIT);
+		decisionAuditor.audit(isA(PolicyDecisionPoint.class), isA(Result.class), isA(RequestContext.class));
+		expectLastCall().anyTimes();
+		decisionCache.putDecision(isA(RequestContext.class), isA(Result.class), eq(10));
+		expectLastCall().anyTimes();
+
+		control.replay();
+
+		this.pdp = pdpBuilder.defaultRequestHandlers().build();
+
+		ResponseContext res = pdp.decide(req);
+		assertEquals(2, res.getResults().size());
+		List<EvaluationContext> contexts = rootContext.getValues();
+		assertEquals(2, contexts.size());
+		assertNotSame(contexts.get(0), contexts.get(1));
+		assertSame(contexts.get(0).getRequestTime(), contexts.get(1).getRequestTime());
+		assertSame(contexts.get(0).getCurrentDateTime(), contexts.get(1).getCurrentDateTime());
+		control.verify();
+	}
 }
@@ -22,6 +22,7 @@ package org.xacml4j.v30.pdp;
  * #L%
  */
 
+import static org.easymock.EasyMock.createControl;
 import static org.easymock.EasyMock.createStrictControl;
 import static org.easymock.EasyMock.expect;
 import static org.junit.Assert.assertEquals;
@@ -35,7 +36,12 @@ import org.easymock.IMocksControl;
 import org.junit.Before;
 import org.junit.Test;
 import org.xacml4j.v30.EvaluationContext;
+import org.xacml4j.v30.EvaluationException;
 import org.xacml4j.v30.MatchResult;
+import org.xacml4j.v30.spi.function.FunctionInvocation;
+import org.xacml4j.v30.spi.function.FunctionSpecBuilder;
+import org.xacml4j.v30.types.IPAddressExp;
+import org.xacml4j.v30.types.XacmlTypes;
 
 
 public class MatchAnyOfTest
@@ -145,4 +151,33 @@ public class MatchAnyOfTest
 		assertEquals(anyOf1.toString(), anyOf2.toString());
 		ctl.verify();
 	}
+
+	@Test
+	public void testNetworkMatchesEvaluateReferenceOnce() throws EvaluationException
+	{
+		IMocksControl c = createControl();
+		AttributeDesignator ref = c.createMock(AttributeDesignator.class);
+		FunctionSpec spec = FunctionSpecBuilder.builder(IPAddressNetworkMatch.FUNCTION_ID)
+				.param(XacmlTypes.IPADDRESS)
+				.param(XacmlTypes.IPADDRESS)
+				.build(XacmlTypes.BOOLEAN, c.createMock(FunctionInvocation.class));
+		expect(ref.getDataType()).andReturn(XacmlTypes.IPADDRESS).times(3);
+		expect(ref.evaluate(context)).andReturn(
+				XacmlTypes.IPADDRESS.bagOf(IPAddressExp.of("192.168.1.10"))).once();
+		c.replay();
+		ctl.replay();
+		for(String network : new String[]{"10.0.0.0/255.0.0.0",
+				"172.16.0.0/255.240.0.0", "192.168.0.0/255.255.0.0"}){
+			matches.add(MatchAllOf.builder().allOf(Match.builder()
+					.predicate(spec)
+					.attribute(IPAddressExp.of(network))
+					.attrRef(ref)
+					.build()).build());
+		}
+		MatchAnyOf m = MatchAnyOf.builder().anyOf(matches).build();
+		assertEquals(3, m.getAllOf().size());
+		assertEquals(MatchResult.MATCH, m.match(context));
+		c.verify();
+		ctl.verify();
+	}
 }
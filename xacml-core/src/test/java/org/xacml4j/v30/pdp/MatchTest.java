@@ -37,9 +37,12 @@ import org.xacml4j.v30.Expression;
 import org.xacml4j.v30.MatchResult;
 import org.xacml4j.v30.Status;
 import org.xacml4j.v30.spi.function.FunctionInvocation;
+import org.xacml4j.v30.spi.function.FunctionProviderBuilder;
 import org.xacml4j.v30.spi.function.FunctionSpecBuilder;
 import org.xacml4j.v30.types.BooleanExp;
 import org.xacml4j.v30.types.IntegerExp;
+import org.xacml4j.v30.types.RFC822NameExp;
+import org.xacml4j.v30.types.StringExp;
 import org.xacml4j.v30.types.XacmlTypes;
 
 import com.google.common.collect.ImmutableList;
@@ -110,4 +113,25 @@ public class MatchTest
 		assertEquals(MatchResult.INDETERMINATE, m.match(context));
 		c.verify();
 	}
+
+	@Test
+	public void testRFC822NameMatchWithCompiledPattern() throws EvaluationException
+	{
+		FunctionSpec rfc822NameMatch = FunctionProviderBuilder.builder()
+				.defaultFunctions()
+				.build()
+				.getFunction(RFC822NameMatch.FUNCTION_ID);
+		expect(ref.getDataType()).andReturn(XacmlTypes.RFC822NAME);
+		expect(ref.evaluate(context)).andReturn(XacmlTypes.RFC822NAME.bagOf(
+				RFC822NameExp.of("a@test.org"), RFC822NameExp.of("b@east.test.org")));
+		c.replay();
+		Match m = Match
+				.builder()
+				.predicate(rfc822NameMatch)
+				.attribute(StringExp.of(".test.org"))
+				.attrRef(ref)
+				.build();
+		assertEquals(MatchResult.MATCH, m.match(context));
+		c.verify();
+	}
 }
@@ -27,6 +27,7 @@ import static org.easymock.EasyMock.expect;
 import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 
 import org.easymock.IMocksControl;
@@ -71,6 +72,17 @@ public class RootEvaluationContextTest
 		c.verify();
 	}
 
+	@Test
+	public void testCurrentDateTimeIsCreatedOnce()
+	{
+		RootEvaluationContext context = new RootEvaluationContext(false, 0, resolver, handler);
+		c.replay();
+		assertSame(context.getCurrentDateTime(), context.getCurrentDateTime());
+		assertEquals(context.getRequestTime().getNow().toInstant().toEpochMilli(),
+				context.getCurrentDateTime().getTimeInMillis());
+		c.verify();
+	}
+
 	@Test
 	public void testSetAndGetDecisionCacheTTLWithDefaultTTL()
 	{
@@ -31,6 +31,8 @@ import org.xacml4j.v30.Version;
 import org.xacml4j.v30.VersionMatch;
 import org.xacml4j.v30.XacmlSyntaxException;
 
+import com.google.common.collect.Range;
+
 
 public class VersionMatchTest
 {
@@ -82,4 +84,17 @@ public class VersionMatchTest
 		assertThat(m.match(Version.parse("1.0.1")), is(true));
 		assertThat(m.match(Version.parse("2.1.1")), is(false));
 	}
+
+	@Test
+	public void testRange() throws XacmlSyntaxException
+	{
+		assertThat(new VersionMatch("1.2").getRange(),
+				is(Range.singleton(Version.parse("1.2"))));
+		assertThat(new VersionMatch("1.2.+").getRange(),
+				is(Range.closedOpen(Version.parse("1.2"), Version.parse("1.3"))));
+		assertThat(new VersionMatch("1.*.1").getRange(),
+				is(Range.closedOpen(Version.parse("1"), Version.parse("2"))));
+		assertThat(new VersionMatch("*.1").getRange(),
+				is(Range.<Version>all()));
+	}
 }
@@ -114,7 +114,9 @@ public class MultipleResourcesHandlerTest
 		Capture<RequestContext> c1 = new Capture<RequestContext>();
 		Capture<RequestContext> c2 = new Capture<RequestContext>();
 		Capture<RequestContext> c3 = new Capture<RequestContext>();
+		Capture<Collection<RequestContext>> requests = new Capture<Collection<RequestContext>>();
 
+		context.prefetch(capture(requests));
 		expect(context.requestDecision(capture(c0))).andReturn(
 						Result.ok(Decision.DENY).build());
 
@@ -126,6 +128,7 @@ public class MultipleResourcesHandlerTest
 
 		replay(context);
 		Collection<Result> results = profile.handle(request, context);
+		assertEquals(4, requests.getValue().size());
 		assertEquals(1, results.size());
 		Result r = results.iterator().next();
 
@@ -152,7 +155,9 @@ public class MultipleResourcesHandlerTest
 		Capture<RequestContext> c1 = new Capture<RequestContext>();
 		Capture<RequestContext> c2 = new Capture<RequestContext>();
 		Capture<RequestContext> c3 = new Capture<RequestContext>();
+		Capture<Collection<RequestContext>> requests = new Capture<Collection<RequestContext>>();
 
+		context.prefetch(capture(requests));
 		expect(context.requestDecision(capture(c0))).andReturn(Result.ok(Decision.PERMIT).build());
 
 		expect(context.requestDecision(capture(c1))).andReturn(Result.ok(Decision.PERMIT).build());
@@ -163,6 +168,7 @@ public class MultipleResourcesHandlerTest
 
 		replay(context);
 		Collection<Result> results = profile.handle(request, context);
+		assertEquals(4, requests.getValue().size());
 		assertEquals(1, results.size());
 		Result r = results.iterator().next();
 
@@ -191,7 +197,9 @@ public class MultipleResourcesHandlerTest
 		Capture<RequestContext> c1 = new Capture<RequestContext>();
 		Capture<RequestContext> c2 = new Capture<RequestContext>();
 		Capture<RequestContext> c3 = new Capture<RequestContext>();
+		Capture<Collection<RequestContext>> requests = new Capture<Collection<RequestContext>>();
 
+		context.prefetch(capture(requests));
 		expect(context.requestDecision(capture(c0))).andReturn(
 				Result.ok(Decision.NOT_APPLICABLE).build());
 
@@ -206,6 +214,7 @@ public class MultipleResourcesHandlerTest
 
 		replay(context);
 		Collection<Result> results = profile.handle(request, context);
+		assertEquals(4, requests.getValue().size());
 		assertEquals(1, results.size());
 		Result r = results.iterator().next();
 
@@ -234,7 +243,9 @@ public class MultipleResourcesHandlerTest
 		Capture<RequestContext> c1 = new Capture<RequestContext>();
 		Capture<RequestContext> c2 = new Capture<RequestContext>();
 		Capture<RequestContext> c3 = new Capture<RequestContext>();
+		Capture<Collection<RequestContext>> requests = new Capture<Collection<RequestContext>>();
 
+		context.prefetch(capture(requests));
 		expect(context.requestDecision(capture(c0))).andReturn(Result.ok(Decision.NOT_APPLICABLE).build());
 
 		expect(context.requestDecision(capture(c1))).andReturn(Result.ok(Decision.NOT_APPLICABLE).build());
@@ -245,6 +256,7 @@ public class MultipleResourcesHandlerTest
 
 		replay(context);
 		Collection<Result> results = profile.handle(request, context);
+		assertEquals(4, requests.getValue().size());
 		assertEquals(1, results.size());
 		Result r = results.iterator().next();
 
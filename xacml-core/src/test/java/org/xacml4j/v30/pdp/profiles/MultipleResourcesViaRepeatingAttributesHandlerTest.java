@@ -97,7 +97,9 @@ public class MultipleResourcesViaRepeatingAttributesHandlerTest
 
 		Capture<RequestContext> c0 = new Capture<RequestContext>();
 		Capture<RequestContext> c1 = new Capture<RequestContext>();
+		Capture<Collection<RequestContext>> requests = new Capture<Collection<RequestContext>>();
 
+		pdp.prefetch(capture(requests));
 		expect(pdp.requestDecision(capture(c0))).andReturn(
 				Result.indeterminate(Status.processingError().build()).build());
 		expect(pdp.requestDecision(capture(c1))).andReturn(
@@ -105,6 +107,9 @@ public class MultipleResourcesViaRepeatingAttributesHandlerTest
 		replay(pdp);
 		Collection<Result> results = profile.handle(context, pdp);
 		assertEquals(2, results.size());
+		assertEquals(2, requests.getValue().size());
+		assertTrue(requests.getValue().contains(c0.getValue()));
+		assertTrue(requests.getValue().contains(c1.getValue()));
 		assertEquals(Status.processingError().build(), results.iterator().next().getStatus());
 		RequestContext r0 = c0.getValue();
 		RequestContext r1 = c1.getValue();
@@ -129,9 +129,11 @@ public class MultipleResourcesViaXPathExpressionHandlerTest
 		assertFalse(context.containsRepeatingCategories());
 		Capture<RequestContext> c0 = new Capture<RequestContext>();
 		Capture<RequestContext> c1 = new Capture<RequestContext>();
+		Capture<Collection<RequestContext>> requests = new Capture<Collection<RequestContext>>();
 
 		expect(pdp.getXPathProvider()).andReturn(xpathProvider);
 
+		pdp.prefetch(capture(requests));
 		expect(pdp.requestDecision(capture(c0))).andReturn(
 				Result.indeterminate(Status.processingError().build()).build());
 
@@ -144,6 +146,7 @@ public class MultipleResourcesViaXPathExpressionHandlerTest
 		Iterator<Result> it = results.iterator();
 		assertEquals(Status.processingError().build(), it.next().getStatus());
 		assertEquals(Status.processingError().build(), it.next().getStatus());
+		assertEquals(2, requests.getValue().size());
 		RequestContext r0 = c0.getValue();
 		RequestContext r1 = c1.getValue();
 
@@ -198,9 +201,11 @@ public class MultipleResourcesViaXPathExpressionHandlerTest
 		Capture<RequestContext> c1 = new Capture<RequestContext>();
 		Capture<RequestContext> c2 = new Capture<RequestContext>();
 		Capture<RequestContext> c3 = new Capture<RequestContext>();
+		Capture<Collection<RequestContext>> requests = new Capture<Collection<RequestContext>>();
 
 		expect(pdp.getXPathProvider()).andReturn(xpathProvider);
 
+		pdp.prefetch(capture(requests));
 		expect(pdp.requestDecision(capture(c0))).andReturn(
 				Result.indeterminate(Status.processingError().build()).build());
 		expect(pdp.requestDecision(capture(c1))).andReturn(
@@ -217,6 +222,7 @@ public class MultipleResourcesViaXPathExpressionHandlerTest
 		assertEquals(Status.processingError().build(), it.next().getStatus());
 		assertEquals(Status.processingError().build(), it.next().getStatus());
 
+		assertEquals(4, requests.getValue().size());
 		RequestContext r0 = c0.getValue();
 		RequestContext r1 = c1.getValue();
 		RequestContext r2 = c2.getValue();
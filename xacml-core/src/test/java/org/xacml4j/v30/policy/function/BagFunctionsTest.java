@@ -33,6 +33,7 @@ import org.xacml4j.v30.spi.function.FunctionProvider;
 import org.xacml4j.v30.types.AnyURIExp;
 import org.xacml4j.v30.types.BooleanExp;
 import org.xacml4j.v30.types.DoubleExp;
+import org.xacml4j.v30.types.IPAddressExp;
 import org.xacml4j.v30.types.IntegerExp;
 import org.xacml4j.v30.types.StringExp;
 import org.xacml4j.v30.types.XacmlTypes;
@@ -106,6 +107,7 @@ public class BagFunctionsTest
 		assertNotNull(f.getFunction("urn:oasis:names:tc:xacml:2.0:function:dnsName-bag-size"));
 		assertNotNull(f.getFunction("urn:oasis:names:tc:xacml:2.0:function:dnsName-is-in"));
 		assertNotNull(f.getFunction("urn:oasis:names:tc:xacml:2.0:function:dnsName-bag"));
+		assertNotNull(f.getFunction("urn:xacml4j:names:tc:xacml:1.0:function:ipAddress-network-is-in"));
 	}
 
 	@Test
@@ -176,4 +178,23 @@ public class BagFunctionsTest
 		assertEquals(BooleanExp.of(true), BagFunctions.anyURIIsIn(v0, BagFunctions.anyURIBag(v0, v1)));
 		assertEquals(BooleanExp.of(false), BagFunctions.anyURIIsIn(v2, BagFunctions.anyURIBag(v0, v1)));
 	}
+
+	@Test
+	public void testIPAddressNetworkIsIn() throws EvaluationException
+	{
+		BagOfAttributeExp bag = XacmlTypes.IPADDRESS.bagOf(
+				IPAddressExp.of("10.0.0.0/255.0.0.0"),
+				IPAddressExp.of("192.168.1.0/255.255.255.0:80"));
+		assertEquals(BooleanExp.valueOf(true), BagFunctions.ipAddressNetworkIsIn(IPAddressExp.of("10.1.1.1"), bag));
+		assertEquals(BooleanExp.valueOf(true), BagFunctions.ipAddressNetworkIsIn(IPAddressExp.of("192.168.1.2:80"), bag));
+		assertEquals(BooleanExp.valueOf(false), BagFunctions.ipAddressNetworkIsIn(IPAddressExp.of("192.168.1.2:81"), bag));
+
+		BagOfAttributeExp.Builder b = XacmlTypes.IPADDRESS.bag();
+		for(int i = 0; i < 32; i++){
+			b.attribute(IPAddressExp.of("10." + i + ".0.0/255.255.0.0"));
+		}
+		bag = b.build();
+		assertEquals(BooleanExp.valueOf(true), BagFunctions.ipAddressNetworkIsIn(IPAddressExp.of("10.31.1.1"), bag));
+		assertEquals(BooleanExp.valueOf(false), BagFunctions.ipAddressNetworkIsIn(IPAddressExp.of("10.32.1.1"), bag));
+	}
 }
@@ -30,6 +30,7 @@ import org.junit.Test;
 import org.xacml4j.v30.spi.function.AnnotationBasedFunctionProvider;
 import org.xacml4j.v30.spi.function.FunctionProvider;
 import org.xacml4j.v30.types.BooleanExp;
+import org.xacml4j.v30.types.IPAddressExp;
 import org.xacml4j.v30.types.RFC822NameExp;
 import org.xacml4j.v30.types.StringExp;
 import org.xacml4j.v30.types.X500NameExp;
@@ -51,6 +52,7 @@ public class SpecialMatchFunctionsTest
 	{
 		assertNotNull(p.getFunction("urn:oasis:names:tc:xacml:1.0:function:rfc822Name-match"));
 		assertNotNull(p.getFunction("urn:oasis:names:tc:xacml:1.0:function:x500Name-match"));
+		assertNotNull(p.getFunction("urn:xacml4j:names:tc:xacml:1.0:function:ipAddress-network-match"));
 	}
 
 	@Test
@@ -83,5 +85,28 @@ public class SpecialMatchFunctionsTest
 
 		assertEquals(BooleanExp.valueOf(false), SpecialMatchFunctions.x500NameMatch(a, b));
 
+		a = X500NameExp.of("ou=org,o=com");
+		b = X500NameExp.of("cn=test,ou=xorg,o=com");
+
+		assertEquals(BooleanExp.valueOf(false), SpecialMatchFunctions.x500NameMatch(a, b));
+
+		a = X500NameExp.of("ou=org,o=com");
+		b = X500NameExp.of("cn=test,ou=x\\,ou=org,o=com");
+
+		assertEquals(BooleanExp.valueOf(false), SpecialMatchFunctions.x500NameMatch(a, b));
+
+		a = X500NameExp.of("cn=a\\,b,o=com");
+		b = X500NameExp.of("cn=test,cn=a\\,b,o=com");
+
+		assertEquals(BooleanExp.valueOf(true), SpecialMatchFunctions.x500NameMatch(a, b));
+		assertEquals(BooleanExp.valueOf(false), SpecialMatchFunctions.x500NameMatch(b, a));
+	}
+
+	@Test
+	public void testIPAddressNetworkMatch()
+	{
+		IPAddressExp n = IPAddressExp.of("192.168.0.0/255.255.0.0");
+		assertEquals(BooleanExp.valueOf(true), SpecialMatchFunctions.ipAddressNetworkMatch(n, IPAddressExp.of("192.168.1.1")));
+		assertEquals(BooleanExp.valueOf(false), SpecialMatchFunctions.ipAddressNetworkMatch(n, IPAddressExp.of("192.169.1.1")));
 	}
 }
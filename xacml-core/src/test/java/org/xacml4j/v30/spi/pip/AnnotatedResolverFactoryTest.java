@@ -32,6 +32,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -51,6 +52,8 @@ import org.xacml4j.v30.types.IntegerExp;
 import org.xacml4j.v30.types.XacmlTypes;
 
 import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
 
 public class AnnotatedResolverFactoryTest
@@ -181,6 +184,45 @@ public class AnnotatedResolverFactoryTest
 		p.parseAttributeResolver(this, m);
 	}
 
+	@Test
+	public void testParseBatchAttributeResolver() throws Exception
+	{
+		AttributeDesignatorKey key =
+				AttributeDesignatorKey.builder()
+				.category("test")
+				.attributeId("attr1")
+				.dataType(XacmlTypes.INTEGER)
+				.build();
+		Method m = getMethod(this.getClass(), "resolveBatch1");
+		assertNotNull(m);
+
+		expect(context.resolve(eq(key))).andReturn(IntegerExp.of(1).toBag());
+		expect(context.resolve(eq(key))).andReturn(IntegerExp.of(2).toBag());
+		expect(context.getTicker()).andReturn(Ticker.systemTicker()).times(2);
+		control.replay();
+
+		AttributeResolver r = p.parseAttributeResolver(this, m);
+		assertTrue(r instanceof BatchAttributeResolver);
+		AttributeResolverDescriptor d = r.getDescriptor();
+		assertEquals(ImmutableList.of(key), d.getKeyRefs());
+
+		List<AttributeSet> v = ((BatchAttributeResolver)r).resolve(ImmutableList.<ResolverContext>of(
+				new DefaultResolverContext(context, d),
+				new DefaultResolverContext(context, d)));
+		assertEquals(2, v.size());
+		assertEquals(IntegerExp.of(1).toBag(), v.get(0).get("testId1"));
+		assertEquals(IntegerExp.of(2).toBag(), v.get(1).get("testId1"));
+		control.verify();
+	}
+
+	@Test(expected=XacmlSyntaxException.class)
+	public void testParseBatchAttributeResolverWithNonListKeyParameter() throws Exception
+	{
+		Method m = getMethod(this.getClass(), "resolveBatch2");
+		assertNotNull(m);
+		p.parseAttributeResolver(this, m);
+	}
+
 	@Test
 	public void testParseContentResolver() throws Exception
 	{
@@ -256,6 +298,33 @@ public class AnnotatedResolverFactoryTest
 		return null;
 	}
 
+	@XacmlAttributeResolverDescriptor(id="testId", name="Test", category="subject", issuer="issuer", cacheTTL=30,
+			attributes={
+				@XacmlAttributeDescriptor(dataType="http://www.w3.org/2001/XMLSchema#integer", id="testId1")
+	})
+	public List<Map<String, BagOfAttributeExp>> resolveBatch1(List<ResolverContext> contexts,
+			@XacmlAttributeDesignator(category="test", attributeId="attr1",
+					dataType="http://www.w3.org/2001/XMLSchema#integer") List<BagOfAttributeExp> k1)
+	{
+		assertEquals(k1.size(), contexts.size());
+		List<Map<String, BagOfAttributeExp>> v = new ArrayList<Map<String, BagOfAttributeExp>>();
+		for(BagOfAttributeExp k : k1){
+			v.add(ImmutableMap.of("testId1", k));
+		}
+		return v;
+	}
+
+	@XacmlAttributeResolverDescriptor(id="testId", name="Test", category="subject", issuer="issuer", cacheTTL=30,
+			attributes={
+				@XacmlAttributeDescriptor(dataType="http://www.w3.org/2001/XMLSchema#integer", id="testId1")
+	})
+	public List<Map<String, BagOfAttributeExp>> resolveBatch2(
+			@XacmlAttributeDesignator(category="test", attributeId="attr1",
+					dataType="http://www.w3.org/2001/XMLSchema#integer") BagOfAttributeExp k1)
+	{
+		return null;
+	}
+
 	@XacmlContentResolverDescriptor(id="testId", name="Test", category="subject", cacheTTL=30)
 	public Node resolveContent1(@XacmlAttributeDesignator(category="test", attributeId="aaaTTr",
 			dataType="http://www.w3.org/2001/XMLSchema#boolean") BagOfAttributeExp k1)
@@ -0,0 +1,80 @@
+package org.xacml4j.v30.spi.pip;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+import org.xacml4j.v30.BagOfAttributeExp;
+import org.xacml4j.v30.types.IntegerExp;
+import org.xacml4j.v30.types.StringExp;
+import org.xacml4j.v30.types.XacmlTypes;
+
+public class BagOfAttributeExpCodecTest
+{
+	@Test
+	public void testWriteAndRead() throws IOException
+	{
+		BagOfAttributeExp b1 = XacmlTypes.STRING.bagOf(StringExp.of("v1"), StringExp.of("v2"));
+		BagOfAttributeExp b2 = IntegerExp.of(10).toBag();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		BagOfAttributeExpCodec codec = new BagOfAttributeExpCodec();
+		codec.write(out, b1);
+		codec.write(out, b2);
+		codec.write(out, b1);
+		out.flush();
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		codec = new BagOfAttributeExpCodec();
+		assertEquals(b1, codec.read(in));
+		assertEquals(b2, codec.read(in));
+		assertEquals(b1, codec.read(in));
+	}
+
+	@Test(expected=IOException.class)
+	public void testReadStringWithNegativeLength() throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(-1);
+		BagOfAttributeExpCodec.readString(new DataInputStream(
+				new ByteArrayInputStream(bytes.toByteArray())));
+	}
+
+	@Test(expected=IOException.class)
+	public void testReadStringWithTooLargeLength() throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(BagOfAttributeExpCodec.MAX_LENGTH + 1);
+		BagOfAttributeExpCodec.readString(new DataInputStream(
+				new ByteArrayInputStream(bytes.toByteArray())));
+	}
+}
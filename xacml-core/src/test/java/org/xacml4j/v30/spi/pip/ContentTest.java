@@ -0,0 +1,98 @@
+package org.xacml4j.v30.spi.pip;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.xacml4j.util.DOMUtil;
+import org.xacml4j.v30.Categories;
+
+public class ContentTest
+{
+	private String testXml = "<md:record xmlns:md=\"urn:example:med:schemas:record\">" +
+	"<md:patient>" +
+	"<md:patient-number>555555</md:patient-number>" +
+	"</md:patient>" +
+	"</md:record>";
+
+	private ContentResolverDescriptor d;
+
+	@Before
+	public void init(){
+		this.d = ContentResolverDescriptorBuilder
+				.builder("testId", "Test", Categories.SUBJECT_ACCESS)
+				.build();
+	}
+
+	@Test
+	public void testSerializedContentIsParsedToPrivateDocument() throws Exception
+	{
+		Content c = Content.builder()
+				.resolver(d)
+				.xmlContent(testXml.getBytes("UTF-8"))
+				.build();
+		Node n0 = c.getContent();
+		Node n1 = c.getContent();
+		assertNotSame(n0, n1);
+		assertTrue(n0.isEqualNode(n1));
+		assertEquals("record", ((Document)n0).getDocumentElement().getLocalName());
+		assertSame(c, c.toSerialized());
+	}
+
+	@Test
+	public void testContentToSerialized() throws Exception
+	{
+		Node node = DOMUtil.parseContent(testXml);
+		Content c = Content.builder()
+				.resolver(d)
+				.content(node)
+				.build();
+		assertNull(c.getXmlContent());
+		assertSame(node, c.getContent());
+		Content s = c.toSerialized();
+		assertNotNull(s.getXmlContent());
+		assertEquals(c.getTimestamp(), s.getTimestamp());
+		assertSame(d, s.getDescriptor());
+		assertTrue(DOMUtil.isEqual(node, s.getContent()));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testSerializedContentWithDocumentTypeIsRejected() throws Exception
+	{
+		Content c = Content.builder()
+				.resolver(d)
+				.xmlContent(("<!DOCTYPE a [<!ENTITY e SYSTEM \"file:///etc/passwd\">]>" +
+						"<a>&e;</a>").getBytes("UTF-8"))
+				.build();
+		c.getContent();
+	}
+}
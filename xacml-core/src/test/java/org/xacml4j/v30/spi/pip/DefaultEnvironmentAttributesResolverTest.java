@@ -27,11 +27,16 @@ import static org.easymock.EasyMock.expect;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 
-import java.util.Calendar;
+import static org.junit.Assert.assertSame;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
 
 import org.easymock.IMocksControl;
 import org.junit.Before;
 import org.junit.Test;
+import org.xacml4j.v30.RequestTime;
 import org.xacml4j.v30.types.DateExp;
 import org.xacml4j.v30.types.DateTimeExp;
 import org.xacml4j.v30.types.TimeExp;
@@ -54,16 +59,27 @@ public class DefaultEnvironmentAttributesResolverTest
 	@Test
 	public void testResolve() throws Exception
 	{
-		Calendar now = Calendar.getInstance();
+		RequestTime now = RequestTime.create(
+				Clock.fixed(Instant.parse("2014-03-21T10:15:30.250Z"), ZoneOffset.UTC));
 		expect(context.getDescriptor()).andReturn(r.getDescriptor());
-		expect(context.getCurrentDateTime()).andReturn(now);
+		expect(context.getRequestTime()).andReturn(now);
 		expect(context.getTicker()).andReturn(Ticker.systemTicker());
 		c.replay();
 		AttributeSet a = r.resolve(context);
 		c.verify();
 
-		assertThat(a.get("urn:oasis:names:tc:xacml:1.0:environment:current-dateTime"), is(DateTimeExp.of(now).toBag()));
-		assertThat(a.get("urn:oasis:names:tc:xacml:1.0:environment:current-date"), is(DateExp.of(now).toBag()));
-		assertThat(a.get("urn:oasis:names:tc:xacml:1.0:environment:current-time"), is(TimeExp.of(now).toBag()));
+		assertThat(a.get("urn:oasis:names:tc:xacml:1.0:environment:current-dateTime"), is(DateTimeExp.of("2014-03-21T10:15:30.25Z").toBag()));
+		assertThat(a.get("urn:oasis:names:tc:xacml:1.0:environment:current-date"), is(DateExp.of("2014-03-21Z").toBag()));
+		assertThat(a.get("urn:oasis:names:tc:xacml:1.0:environment:current-time"), is(TimeExp.of("10:15:30Z").toBag()));
+	}
+
+	@Test
+	public void testRequestTimeValuesAreShared() throws Exception
+	{
+		RequestTime now = RequestTime.create();
+		assertSame(now.getDateTime(), now.getDateTime());
+		assertSame(now.getDate(), now.getDate());
+		assertSame(now.getTime(), now.getTime());
+		assertSame(now.getNow(), now.getNow());
 	}
 }
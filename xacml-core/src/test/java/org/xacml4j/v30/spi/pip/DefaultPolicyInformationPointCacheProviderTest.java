@@ -0,0 +1,143 @@
+package org.xacml4j.v30.spi.pip;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+import static org.easymock.EasyMock.createControl;
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.easymock.IMocksControl;
+import org.junit.Before;
+import org.junit.Test;
+import org.xacml4j.v30.BagOfAttributeExp;
+import org.xacml4j.v30.Categories;
+import org.xacml4j.v30.types.StringExp;
+import org.xacml4j.v30.types.XacmlTypes;
+
+import com.google.common.base.Ticker;
+
+public class DefaultPolicyInformationPointCacheProviderTest
+{
+	private IMocksControl control;
+	private AttributeResolverDescriptor d;
+	private AtomicLong now;
+	private Ticker ticker;
+
+	@Before
+	public void init()
+	{
+		this.control = createControl();
+		this.d = AttributeResolverDescriptorBuilder
+				.builder("testId1", "Test Resolver", Categories.SUBJECT_ACCESS)
+				.cache(30)
+				.negativeCache(5)
+				.attribute("testAttributeId1", XacmlTypes.STRING)
+				.build();
+		this.now = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+		this.ticker = new Ticker() {
+			@Override
+			public long read() {
+				return now.get();
+			}
+		};
+	}
+
+	private ResolverContext createContext(String key){
+		ResolverContext context = control.createMock(ResolverContext.class);
+		expect(context.getDescriptor()).andStubReturn(d);
+		expect(context.getKeys()).andStubReturn(
+				Collections.<BagOfAttributeExp>singletonList(StringExp.of(key).toBag()));
+		expect(context.getTicker()).andStubReturn(ticker);
+		return context;
+	}
+
+	@Test
+	public void testExpiredAttributeSetIsReturnedWithinStaleGracePeriod()
+	{
+		AttributeSet v = AttributeSet
+				.builder(d)
+				.attribute("testAttributeId1", StringExp.of("v1").toBag())
+				.ticker(ticker)
+				.build();
+		DefaultPolicyInformationPointCacheProvider cache =
+				new DefaultPolicyInformationPointCacheProvider(16, 16, 16, 10);
+		ResolverContext k1 = createContext("k1");
+		control.replay();
+
+		cache.putAttributes(k1, v);
+		now.addAndGet(TimeUnit.SECONDS.toNanos(35));
+		assertSame(v, cache.getAttributes(k1));
+		now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+		assertNull(cache.getAttributes(k1));
+		// expired entry is removed from the cache
+		now.addAndGet(-TimeUnit.SECONDS.toNanos(5));
+		assertNull(cache.getAttributes(k1));
+		assertEquals(1, cache.getAttributeCacheStats().missCount());
+		control.verify();
+	}
+
+	@Test
+	public void testExpiredAttributeSetIsNotReturnedWithoutStaleGracePeriod()
+	{
+		AttributeSet v = AttributeSet
+				.builder(d)
+				.attribute("testAttributeId1", StringExp.of("v1").toBag())
+				.ticker(ticker)
+				.build();
+		DefaultPolicyInformationPointCacheProvider cache = new DefaultPolicyInformationPointCacheProvider();
+		ResolverContext k1 = createContext("k1");
+		control.replay();
+
+		cache.putAttributes(k1, v);
+		now.addAndGet(TimeUnit.SECONDS.toNanos(29));
+		assertSame(v, cache.getAttributes(k1));
+		now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		assertNull(cache.getAttributes(k1));
+		control.verify();
+	}
+
+	@Test
+	public void testEmptyAttributeSetExpiresAfterNegativeCacheTTL()
+	{
+		AttributeSet v = AttributeSet
+				.builder(d)
+				.ticker(ticker)
+				.build();
+		DefaultPolicyInformationPointCacheProvider cache =
+				new DefaultPolicyInformationPointCacheProvider(16, 16, 16, 10);
+		ResolverContext k1 = createContext("k1");
+		control.replay();
+
+		cache.putAttributes(k1, v);
+		now.addAndGet(TimeUnit.SECONDS.toNanos(4));
+		assertSame(v, cache.getAttributes(k1));
+		now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		assertNull(cache.getAttributes(k1));
+		control.verify();
+	}
+}
@@ -23,13 +23,31 @@ package org.xacml4j.v30.spi.pip;
  */
 
 import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createControl;
 import static org.easymock.EasyMock.createStrictControl;
 import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.isA;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.easymock.Capture;
+import org.easymock.IAnswer;
 import org.easymock.IMocksControl;
 import org.junit.Before;
 import org.junit.Test;
@@ -40,7 +58,10 @@ import org.xacml4j.v30.EvaluationContext;
 import org.xacml4j.v30.types.StringExp;
 import org.xacml4j.v30.types.XacmlTypes;
 
+import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.MoreExecutors;
 
 public class DefaultPolicyInformationPointTest
 {
@@ -304,4 +325,575 @@ public class DefaultPolicyInformationPointTest
 
 		control.verify();
 	}
+
+	@Test
+	public void testPrefetchInvokesResolverOnceForDesignatorsWithSameKeys() throws Exception
+	{
+		AttributeDesignatorKey a0 = attr0.build();
+		AttributeDesignatorKey a1 = attr1.build();
+
+		AttributeSet result = AttributeSet
+				.builder(descriptor1)
+				.attribute("testAttributeId1", StringExp.of("v1").toBag())
+				.build();
+
+		expect(registry.getMatchingAttributeResolvers(context, a0))
+		.andReturn(ImmutableList.of(resolver1, resolver2));
+		expect(resolver1.getDescriptor()).andReturn(descriptor1);
+		expect(context.resolve(key.build())).andReturn(StringExp.of("testUser").toBag());
+		expect(cache.getAttributes(isA(ResolverContext.class))).andReturn(null);
+
+		expect(registry.getMatchingAttributeResolvers(context, a1))
+		.andReturn(ImmutableList.of(resolver1));
+		expect(resolver1.getDescriptor()).andReturn(descriptor1);
+		expect(context.resolve(key.build())).andReturn(StringExp.of("testUser").toBag());
+		expect(cache.getAttributes(isA(ResolverContext.class))).andReturn(null);
+
+		Capture<ResolverContext> ctx = new Capture<ResolverContext>();
+		expect(resolver1.resolve(capture(ctx))).andReturn(result);
+		cache.putAttributes(isA(ResolverContext.class), eq(result));
+
+		control.replay();
+
+		Map<AttributeDesignatorKey, AttributeSet> v = pip.prefetch(context,
+				ImmutableList.of(a0, a1), MoreExecutors.newDirectExecutorService());
+		assertEquals(2, v.size());
+		assertSame(result, v.get(a0));
+		assertSame(result, v.get(a1));
+		assertEquals(ImmutableList.of(StringExp.of("testUser").toBag()), ctx.getValue().getKeys());
+
+		control.verify();
+	}
+
+	@Test
+	public void testStaleCachedAttributesServedWhileRefreshed() throws Exception
+	{
+		final AtomicLong now = new AtomicLong();
+		Ticker ticker = new Ticker() {
+			@Override
+			public long read() {
+				return now.get();
+			}
+		};
+		AttributeDesignatorKey a0 = attr0.build();
+		AttributeSet stale = AttributeSet
+				.builder(descriptor1)
+				.attribute("testAttributeId1", StringExp.of("v0").toBag())
+				.ticker(ticker)
+				.build();
+		AttributeSet fresh = AttributeSet
+				.builder(descriptor1)
+				.attribute("testAttributeId1", StringExp.of("v1").toBag())
+				.build();
+		now.set(TimeUnit.SECONDS.toNanos(descriptor1.getPreferredCacheTTL() + 5));
+
+		PolicyInformationPoint pip = PolicyInformationPointBuilder
+				.builder("testPip")
+				.withCacheProvider(cache)
+				.withRefreshExecutor(MoreExecutors.directExecutor())
+				.build(registry);
+
+		expect(registry.getMatchingAttributeResolvers(context, a0))
+		.andReturn(ImmutableList.of(resolver1));
+		expect(resolver1.getDescriptor()).andReturn(descriptor1);
+		expect(context.resolve(key.build())).andReturn(StringExp.of("testUser").toBag());
+		expect(cache.getAttributes(isA(ResolverContext.class))).andReturn(stale);
+		expect(context.getTicker()).andReturn(ticker);
+		expect(resolver1.resolve(isA(ResolverContext.class))).andReturn(fresh);
+		cache.putAttributes(isA(ResolverContext.class), eq(fresh));
+		control.replay();
+
+		assertEquals(StringExp.of("v0").toBag(), pip.resolve(context, a0));
+		control.verify();
+	}
+
+	@Test
+	public void testCachedContentIsServedBeforeExpiration() throws Exception
+	{
+		final AtomicLong now = new AtomicLong();
+		Ticker ticker = new Ticker() {
+			@Override
+			public long read() {
+				return now.get();
+			}
+		};
+		ContentResolver resolver = control.createMock(ContentResolver.class);
+		ContentResolverDescriptor d = ContentResolverDescriptorBuilder
+				.builder(UUID.randomUUID().toString(), "Test", Categories.SUBJECT_ACCESS)
+				.cache(30)
+				.build();
+		Content cached = Content.builder()
+				.resolver(d)
+				.xmlContent("<record/>".getBytes("UTF-8"))
+				.ticker(ticker)
+				.build();
+		now.set(TimeUnit.SECONDS.toNanos(10));
+
+		expect(registry.getMatchingContentResolver(context, Categories.SUBJECT_ACCESS))
+		.andReturn(resolver);
+		expect(resolver.getDescriptor()).andReturn(d);
+		expect(cache.getContent(isA(ResolverContext.class))).andReturn(cached);
+		control.replay();
+
+		assertSame(cached, pip.resolveContent(context, Categories.SUBJECT_ACCESS));
+		assertEquals(1, new ResolverMetrics(d.getId()).getCacheHitCount());
+		control.verify();
+	}
+
+	@Test
+	public void testCachedAttributesRefreshedAhead() throws Exception
+	{
+		final AtomicLong now = new AtomicLong();
+		Ticker ticker = new Ticker() {
+			@Override
+			public long read() {
+				return now.get();
+			}
+		};
+		AttributeDesignatorKey a0 = attr0.build();
+		AttributeSet cached = AttributeSet
+				.builder(descriptor1)
+				.attribute("testAttributeId1", StringExp.of("v0").toBag())
+				.ticker(ticker)
+				.build();
+		AttributeSet fresh = AttributeSet
+				.builder(descriptor1)
+				.attribute("testAttributeId1", StringExp.of("v1").toBag())
+				.build();
+		now.set(TimeUnit.SECONDS.toNanos(descriptor1.getPreferredCacheTTL() - 1));
+
+		PolicyInformationPoint pip = PolicyInformationPointBuilder
+				.builder("testPip")
+				.withCacheProvider(cache)
+				.withRefreshExecutor(MoreExecutors.directExecutor())
+				.refreshAhead(0.8)
+				.build(registry);
+
+		expect(registry.getMatchingAttributeResolvers(context, a0))
+		.andReturn(ImmutableList.of(resolver1));
+		expect(resolver1.getDescriptor()).andReturn(descriptor1);
+		expect(context.resolve(key.build())).andReturn(StringExp.of("testUser").toBag());
+		expect(cache.getAttributes(isA(ResolverContext.class))).andReturn(cached);
+		expect(context.getTicker()).andReturn(ticker);
+		expect(resolver1.resolve(isA(ResolverContext.class))).andReturn(fresh);
+		cache.putAttributes(isA(ResolverContext.class), eq(fresh));
+		control.replay();
+
+		assertEquals(StringExp.of("v0").toBag(), pip.resolve(context, a0));
+		control.verify();
+	}
+
+	@Test
+	public void testEmptyResolutionIsNegativelyCached() throws Exception
+	{
+		AttributeResolverDescriptor d = AttributeResolverDescriptorBuilder
+				.builder("testId4", "Test Resolver", Categories.SUBJECT_ACCESS)
+				.cache(30)
+				.negativeCache(5)
+				.attribute("testAttributeId1", XacmlTypes.STRING)
+				.designatorKeyRef(Categories.SUBJECT_ACCESS, "username", XacmlTypes.STRING, null)
+				.build();
+		AttributeDesignatorKey a0 = attr0.build();
+
+		expect(registry.getMatchingAttributeResolvers(context, a0))
+		.andReturn(ImmutableList.of(resolver1));
+		expect(resolver1.getDescriptor()).andReturn(d);
+		expect(context.resolve(key.build())).andReturn(StringExp.of("testUser").toBag());
+		expect(cache.getAttributes(isA(ResolverContext.class))).andReturn(null);
+		expect(resolver1.resolve(isA(ResolverContext.class))).andReturn(AttributeSet.builder(d).build());
+		expect(context.getTicker()).andReturn(Ticker.systemTicker());
+		Capture<AttributeSet> negative = new Capture<AttributeSet>();
+		cache.putAttributes(isA(ResolverContext.class), capture(negative));
+		context.setDecisionCacheTTL(5);
+		control.replay();
+
+		assertEquals(XacmlTypes.STRING.emptyBag(), pip.resolve(context, a0));
+		assertTrue(negative.getValue().isEmpty());
+		control.verify();
+	}
+
+	@Test
+	public void testNegativelyCachedResolutionSkipsResolver() throws Exception
+	{
+		AttributeResolverDescriptor d = AttributeResolverDescriptorBuilder
+				.builder("testId4", "Test Resolver", Categories.SUBJECT_ACCESS)
+				.noCache()
+				.negativeCache(5)
+				.attribute("testAttributeId1", XacmlTypes.STRING)
+				.designatorKeyRef(Categories.SUBJECT_ACCESS, "username", XacmlTypes.STRING, null)
+				.build();
+		AttributeDesignatorKey a0 = attr0.build();
+
+		expect(registry.getMatchingAttributeResolvers(context, a0))
+		.andReturn(ImmutableList.of(resolver1));
+		expect(resolver1.getDescriptor()).andReturn(d);
+		expect(context.resolve(key.build())).andReturn(StringExp.of("testUser").toBag());
+		expect(cache.getAttributes(isA(ResolverContext.class))).andReturn(AttributeSet.builder(d).build());
+		context.setDecisionCacheTTL(5);
+		control.replay();
+
+		assertEquals(XacmlTypes.STRING.emptyBag(), pip.resolve(context, a0));
+		control.verify();
+	}
+
+	@Test
+	public void testResolverTimeoutFallsBackToNextResolver() throws Exception
+	{
+		AttributeResolverDescriptor d = AttributeResolverDescriptorBuilder
+				.builder("testId4", "Test Resolver", Categories.SUBJECT_ACCESS)
+				.noCache()
+				.timeout(50, TimeUnit.MILLISECONDS)
+				.attribute("testAttributeId1", XacmlTypes.STRING)
+				.designatorKeyRef(Categories.SUBJECT_ACCESS, "username", XacmlTypes.STRING, null)
+				.build();
+		AttributeDesignatorKey a0 = attr0.build();
+		AttributeSet result = AttributeSet
+				.builder(descriptor1WithNoCache)
+				.attribute("testAttributeId1", StringExp.of("v1").toBag())
+				.build();
+
+		expect(registry.getMatchingAttributeResolvers(context, a0))
+		.andReturn(ImmutableList.of(resolver1, resolver2));
+		expect(resolver1.getDescriptor()).andReturn(d);
+		expect(context.resolve(key.build())).andReturn(StringExp.of("testUser").toBag());
+		expect(context.getTicker()).andReturn(Ticker.systemTicker());
+		expect(resolver1.resolve(isA(ResolverContext.class))).andAnswer(new IAnswer<AttributeSet>() {
+			@Override
+			public AttributeSet answer() throws Throwable {
+				Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+				return null;
+			}
+		});
+		expect(resolver2.getDescriptor()).andReturn(descriptor1WithNoCache);
+		expect(context.resolve(key.build())).andReturn(StringExp.of("testUser").toBag());
+		expect(resolver2.resolve(isA(ResolverContext.class))).andReturn(result);
+		context.setDecisionCacheTTL(0);
+		control.replay();
+
+		assertEquals(StringExp.of("v1").toBag(), pip.resolve(context, a0));
+		control.verify();
+	}
+
+	@Test
+	public void testResolverPoolIsShutDownOnClose() throws Exception
+	{
+		AttributeResolverDescriptor d = AttributeResolverDescriptorBuilder
+				.builder("testId4", "Test Resolver", Categories.SUBJECT_ACCESS)
+				.noCache()
+				.timeout(1, TimeUnit.SECONDS)
+				.attribute("testAttributeId1", XacmlTypes.STRING)
+				.designatorKeyRef(Categories.SUBJECT_ACCESS, "username", XacmlTypes.STRING, null)
+				.build();
+		AttributeDesignatorKey a0 = attr0.build();
+		AttributeSet result = AttributeSet
+				.builder(d)
+				.attribute("testAttributeId1", StringExp.of("v1").toBag())
+				.build();
+
+		for (int i = 0; i < 2; i++) {
+			expect(registry.getMatchingAttributeResolvers(context, a0))
+			.andReturn(ImmutableList.of(resolver1));
+			expect(resolver1.getDescriptor()).andReturn(d);
+			expect(context.resolve(key.build())).andReturn(StringExp.of("testUser").toBag());
+			expect(context.getTicker()).andReturn(Ticker.systemTicker());
+			if (i == 0) {
+				expect(resolver1.resolve(isA(ResolverContext.class))).andReturn(result);
+				context.setDecisionCacheTTL(0);
+			}
+		}
+		control.replay();
+
+		assertEquals(StringExp.of("v1").toBag(), pip.resolve(context, a0));
+		pip.close();
+		// resolver is not invoked via closed pool
+		assertEquals(XacmlTypes.STRING.emptyBag(), pip.resolve(context, a0));
+		control.verify();
+	}
+
+	@Test
+	public void testCircuitBreakerSkipsResolverAfterConsecutiveFailures() throws Exception
+	{
+		final AtomicLong now = new AtomicLong();
+		Ticker ticker = new Ticker() {
+			@Override
+			public long read() {
+				return now.get();
+			}
+		};
+		AttributeResolverDescriptor d = AttributeResolverDescriptorBuilder
+				.builder("testId4", "Test Resolver", Categories.SUBJECT_ACCESS)
+				.noCache()
+				.circuitBreaker(2, 1, TimeUnit.MINUTES)
+				.attribute("testAttributeId1", XacmlTypes.STRING)
+				.designatorKeyRef(Categories.SUBJECT_ACCESS, "username", XacmlTypes.STRING, null)
+				.build();
+		AttributeDesignatorKey a0 = attr0.build();
+		AttributeSet result = AttributeSet
+				.builder(d)
+				.attribute("testAttributeId1", StringExp.of("v1").toBag())
+				.build();
+
+		for (int i = 0; i < 4; i++) {
+			expect(registry.getMatchingAttributeResolvers(context, a0))
+			.andReturn(ImmutableList.of(resolver1));
+			expect(resolver1.getDescriptor()).andReturn(d);
+			expect(context.resolve(key.build())).andReturn(StringExp.of("testUser").toBag());
+			expect(context.getTicker()).andReturn(ticker);
+			if (i < 2) {
+				expect(resolver1.resolve(isA(ResolverContext.class))).andThrow(new IllegalStateException());
+			}
+		}
+		expect(resolver1.resolve(isA(ResolverContext.class))).andReturn(result);
+		context.setDecisionCacheTTL(0);
+		control.replay();
+
+		assertEquals(XacmlTypes.STRING.emptyBag(), pip.resolve(context, a0));
+		assertEquals(XacmlTypes.STRING.emptyBag(), pip.resolve(context, a0));
+		// circuit breaker is open, resolver is not invoked
+		assertEquals(XacmlTypes.STRING.emptyBag(), pip.resolve(context, a0));
+		now.set(TimeUnit.MINUTES.toNanos(2));
+		assertEquals(StringExp.of("v1").toBag(), pip.resolve(context, a0));
+		control.verify();
+	}
+
+	@Test
+	public void testPrefetchGroupsBatchResolverLookups() throws Exception
+	{
+		final List<Integer> batches = new CopyOnWriteArrayList<Integer>();
+		AttributeResolver resolver = new BatchResolver(descriptor1WithNoCache) {
+			@Override
+			protected List<Map<String, BagOfAttributeExp>> doResolve(
+					List<ResolverContext> contexts) throws Exception {
+				batches.add(contexts.size());
+				List<Map<String, BagOfAttributeExp>> v = new ArrayList<Map<String, BagOfAttributeExp>>();
+				for(ResolverContext context : contexts){
+					v.add(ImmutableMap.<String, BagOfAttributeExp>of(
+							"testAttributeId1", context.getKeys().get(0)));
+				}
+				return v;
+			}
+		};
+		AttributeDesignatorKey a0 = attr0.build();
+
+		IMocksControl c = createControl();
+		ResolverRegistry registry = c.createMock(ResolverRegistry.class);
+		EvaluationContext context0 = c.createMock(EvaluationContext.class);
+		EvaluationContext context1 = c.createMock(EvaluationContext.class);
+		expect(registry.getMatchingAttributeResolvers(context0, a0))
+		.andReturn(ImmutableList.of(resolver));
+		expect(registry.getMatchingAttributeResolvers(context1, a0))
+		.andReturn(ImmutableList.of(resolver));
+		expect(context0.resolve(key.build())).andReturn(StringExp.of("user0").toBag());
+		expect(context1.resolve(key.build())).andReturn(StringExp.of("user1").toBag());
+		expect(context0.getTicker()).andReturn(Ticker.systemTicker()).anyTimes();
+		expect(context1.getTicker()).andReturn(Ticker.systemTicker()).anyTimes();
+		c.replay();
+
+		PolicyInformationPoint pip = PolicyInformationPointBuilder
+				.builder("testPip")
+				.withCacheProvider(cache)
+				.build(registry);
+		Map<EvaluationContext, Map<AttributeDesignatorKey, AttributeSet>> v = pip.prefetch(
+				ImmutableMap.of(context0, ImmutableList.of(a0), context1, ImmutableList.of(a0)),
+				MoreExecutors.newDirectExecutorService());
+
+		assertEquals(ImmutableList.of(2), batches);
+		assertEquals(StringExp.of("user0").toBag(), v.get(context0).get(a0).get("testAttributeId1"));
+		assertEquals(StringExp.of("user1").toBag(), v.get(context1).get(a0).get("testAttributeId1"));
+		c.verify();
+	}
+
+	@Test
+	public void testPrefetchTimedOutResolverIsNotIncluded() throws Exception
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+		AttributeResolver resolver = new BaseAttributeResolver(descriptor1WithNoCache) {
+			@Override
+			protected Map<String, BagOfAttributeExp> doResolve(
+					ResolverContext context) throws Exception {
+				release.await();
+				return ImmutableMap.<String, BagOfAttributeExp>of(
+						"testAttributeId1", StringExp.of("v1").toBag());
+			}
+		};
+		AttributeDesignatorKey a0 = attr0.build();
+
+		IMocksControl c = createControl();
+		ResolverRegistry registry = c.createMock(ResolverRegistry.class);
+		EvaluationContext context = c.createMock(EvaluationContext.class);
+		expect(registry.getMatchingAttributeResolvers(context, a0))
+		.andReturn(ImmutableList.of(resolver));
+		expect(context.resolve(key.build())).andReturn(StringExp.of("testUser").toBag());
+		expect(context.getTicker()).andReturn(Ticker.systemTicker()).anyTimes();
+		c.replay();
+
+		PolicyInformationPoint pip = PolicyInformationPointBuilder
+				.builder("testPip")
+				.withCacheProvider(cache)
+				.prefetchTimeout(50, TimeUnit.MILLISECONDS)
+				.build(registry);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try{
+			Map<AttributeDesignatorKey, AttributeSet> v = pip.prefetch(context,
+					ImmutableList.of(a0), executor);
+			assertTrue(v.isEmpty());
+		}finally{
+			release.countDown();
+			executor.shutdownNow();
+		}
+		c.verify();
+	}
+
+	@Test
+	public void testConcurrentMissesWithSameKeysInvokeResolverOnce() throws Exception
+	{
+		final CountDownLatch resolving = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger invocations = new AtomicInteger();
+		AttributeResolver resolver = new BaseAttributeResolver(descriptor1WithNoCache) {
+			@Override
+			protected Map<String, BagOfAttributeExp> doResolve(
+					ResolverContext context) throws Exception {
+				invocations.incrementAndGet();
+				resolving.countDown();
+				release.await();
+				return ImmutableMap.<String, BagOfAttributeExp>of(
+						"testAttributeId1", StringExp.of("v1").toBag());
+			}
+		};
+		final AttributeDesignatorKey a0 = attr0.build();
+
+		IMocksControl c = createControl();
+		ResolverRegistry registry = c.createMock(ResolverRegistry.class);
+		final EvaluationContext context = c.createMock(EvaluationContext.class);
+		expect(registry.getMatchingAttributeResolvers(context, a0))
+		.andReturn(ImmutableList.of(resolver)).anyTimes();
+		expect(context.resolve(key.build())).andReturn(StringExp.of("testUser").toBag()).anyTimes();
+		expect(context.getTicker()).andReturn(Ticker.systemTicker()).anyTimes();
+		context.setDecisionCacheTTL(descriptor1WithNoCache.getPreferredCacheTTL());
+		expectLastCall().anyTimes();
+		c.replay();
+
+		final PolicyInformationPoint pip = PolicyInformationPointBuilder
+				.builder("testPip")
+				.withCacheProvider(cache)
+				.build(registry);
+		final List<BagOfAttributeExp> results = new CopyOnWriteArrayList<BagOfAttributeExp>();
+		Runnable lookup = new Runnable() {
+			@Override
+			public void run() {
+				try{
+					results.add(pip.resolve(context, a0));
+				}catch(Exception e){
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+		Thread t0 = new Thread(lookup);
+		Thread t1 = new Thread(lookup);
+		t0.start();
+		resolving.await();
+		t1.start();
+		while(t1.getState() != Thread.State.WAITING &&
+				t1.isAlive()){
+			Thread.sleep(10);
+		}
+		release.countDown();
+		t0.join();
+		t1.join();
+
+		assertEquals(1, invocations.get());
+		assertEquals(2, results.size());
+		assertEquals(StringExp.of("v1").toBag(), results.get(0));
+		assertEquals(StringExp.of("v1").toBag(), results.get(1));
+		c.verify();
+	}
+
+	@Test
+	public void testCoalescedWaitIsBoundedByResolverTimeout() throws Exception
+	{
+		AttributeResolverDescriptor d = AttributeResolverDescriptorBuilder
+				.builder("testId3", "Test Resolver", "Issuer",
+						Categories.SUBJECT_ACCESS)
+				.noCache()
+				.timeout(100, TimeUnit.MILLISECONDS)
+				.attribute("testAttributeId1", XacmlTypes.STRING)
+				.designatorKeyRef(Categories.SUBJECT_ACCESS, "username", XacmlTypes.STRING, null)
+				.build();
+		final CountDownLatch resolving = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger invocations = new AtomicInteger();
+		AttributeResolver resolver = new BaseAttributeResolver(d) {
+			@Override
+			protected Map<String, BagOfAttributeExp> doResolve(
+					ResolverContext context) throws Exception {
+				if(invocations.incrementAndGet() == 1){
+					resolving.countDown();
+					release.await();
+				}
+				return ImmutableMap.<String, BagOfAttributeExp>of(
+						"testAttributeId1", StringExp.of("v1").toBag());
+			}
+		};
+		final AttributeDesignatorKey a0 = attr0.build();
+
+		IMocksControl c = createControl();
+		ResolverRegistry registry = c.createMock(ResolverRegistry.class);
+		final EvaluationContext context = c.createMock(EvaluationContext.class);
+		expect(registry.getMatchingAttributeResolvers(context, a0))
+		.andReturn(ImmutableList.of(resolver)).anyTimes();
+		expect(context.resolve(key.build())).andReturn(StringExp.of("testUser").toBag()).anyTimes();
+		expect(context.getTicker()).andReturn(Ticker.systemTicker()).anyTimes();
+		context.setDecisionCacheTTL(d.getPreferredCacheTTL());
+		expectLastCall().anyTimes();
+		c.replay();
+
+		final PolicyInformationPoint pip = PolicyInformationPointBuilder
+				.builder("testPip")
+				.withCacheProvider(cache)
+				.build(registry);
+		final List<BagOfAttributeExp> results = new CopyOnWriteArrayList<BagOfAttributeExp>();
+		Runnable lookup = new Runnable() {
+			@Override
+			public void run() {
+				try{
+					results.add(pip.resolve(context, a0));
+				}catch(Exception e){
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+		Thread t0 = new Thread(lookup);
+		Thread t1 = new Thread(lookup);
+		t0.start();
+		resolving.await();
+		t1.start();
+		t0.join(TimeUnit.SECONDS.toMillis(5));
+		t1.join(TimeUnit.SECONDS.toMillis(5));
+		release.countDown();
+
+		assertFalse(t0.isAlive());
+		assertFalse(t1.isAlive());
+		assertEquals(ImmutableList.of(XacmlTypes.STRING.emptyBag(), XacmlTypes.STRING.emptyBag()), results);
+		// timed out resolution is not joined
+		assertEquals(StringExp.of("v1").toBag(), pip.resolve(context, a0));
+		assertEquals(2, invocations.get());
+		pip.close();
+		c.verify();
+	}
+
+	private static abstract class BatchResolver
+		extends BaseAttributeResolver
+		implements BatchAttributeResolver
+	{
+		BatchResolver(AttributeResolverDescriptor descriptor){
+			super(descriptor);
+		}
+
+		@Override
+		protected Map<String, BagOfAttributeExp> doResolve(
+				ResolverContext context) throws Exception {
+			throw new UnsupportedOperationException();
+		}
+	}
 }
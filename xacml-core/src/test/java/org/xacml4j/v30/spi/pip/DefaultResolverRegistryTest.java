@@ -79,9 +79,9 @@ public class DefaultResolverRegistryTest
 				.builder("test1", "Test1", Categories.SUBJECT_ACCESS)
 				.attribute("testAttr1", XacmlTypes.INTEGER)
 				.build();
-		expect(r1.getDescriptor()).andReturn(d);
+		expect(r1.getDescriptor()).andStubReturn(d);
 
-		expect(r2.getDescriptor()).andReturn(
+		expect(r2.getDescriptor()).andStubReturn(
 				AttributeResolverDescriptorBuilder
 				.builder("test2", "Test2", Categories.SUBJECT_ACCESS)
 				.attribute("testAttr1", XacmlTypes.INTEGER)
@@ -105,9 +105,9 @@ public class DefaultResolverRegistryTest
 				.builder("test1", "Test1", Categories.SUBJECT_ACCESS)
 				.attribute("testAttr1", XacmlTypes.INTEGER)
 				.build();
-		expect(r1.getDescriptor()).andReturn(d);
+		expect(r1.getDescriptor()).andStubReturn(d);
 
-		expect(r2.getDescriptor()).andReturn(
+		expect(r2.getDescriptor()).andStubReturn(
 				AttributeResolverDescriptorBuilder
 				.builder("test1", "Test2", Categories.SUBJECT_ACCESS)
 				.attribute("testAttr1", XacmlTypes.INTEGER)
@@ -133,26 +133,8 @@ public class DefaultResolverRegistryTest
 				.attribute("testAttr1", XacmlTypes.INTEGER)
 				.build();
 
-		expect(r1.getDescriptor()).andReturn(d1);
-		expect(r2.getDescriptor()).andReturn(d2);
-
-		expect(context.getCurrentPolicy()).andReturn(null);
-		expect(context.getCurrentPolicySet()).andReturn(null);
-		expect(context.getParentContext()).andReturn(null);
-		expect(r1.getDescriptor()).andReturn(d1);
-		expect(r2.getDescriptor()).andReturn(d2);
-
-		expect(context.getCurrentPolicy()).andReturn(null);
-		expect(context.getCurrentPolicySet()).andReturn(null);
-		expect(context.getParentContext()).andReturn(null);
-		expect(r1.getDescriptor()).andReturn(d1);
-		expect(r2.getDescriptor()).andReturn(d2);
-
-		expect(context.getCurrentPolicy()).andReturn(null);
-		expect(context.getCurrentPolicySet()).andReturn(null);
-		expect(context.getParentContext()).andReturn(null);
-		expect(r1.getDescriptor()).andReturn(d1);
-		expect(r2.getDescriptor()).andReturn(d2);
+		expect(r1.getDescriptor()).andStubReturn(d1);
+		expect(r2.getDescriptor()).andStubReturn(d2);
 
 		control.replay();
 
@@ -195,26 +177,8 @@ public class DefaultResolverRegistryTest
 				.attribute("testAttr1", XacmlTypes.INTEGER)
 				.build();
 
-		expect(r1.getDescriptor()).andReturn(d1);
-		expect(r2.getDescriptor()).andReturn(d2);
-
-		expect(context.getCurrentPolicy()).andReturn(null);
-		expect(context.getCurrentPolicySet()).andReturn(null);
-		expect(context.getParentContext()).andReturn(null);
-		expect(r1.getDescriptor()).andReturn(d1);
-		expect(r2.getDescriptor()).andReturn(d2);
-
-		expect(context.getCurrentPolicy()).andReturn(null);
-		expect(context.getCurrentPolicySet()).andReturn(null);
-		expect(context.getParentContext()).andReturn(null);
-		expect(r1.getDescriptor()).andReturn(d1);
-		expect(r2.getDescriptor()).andReturn(d2);
-
-		expect(context.getCurrentPolicy()).andReturn(null);
-		expect(context.getCurrentPolicySet()).andReturn(null);
-		expect(context.getParentContext()).andReturn(null);
-		expect(r1.getDescriptor()).andReturn(d1);
-		expect(r2.getDescriptor()).andReturn(d2);
+		expect(r1.getDescriptor()).andStubReturn(d1);
+		expect(r2.getDescriptor()).andStubReturn(d2);
 
 		control.replay();
 
@@ -257,18 +221,15 @@ public class DefaultResolverRegistryTest
 				.dataType(XacmlTypes.INTEGER);
 
 		// add
-		expect(r1.getDescriptor()).andReturn(d);
-		expect(r2.getDescriptor()).andReturn(d);
+		expect(r1.getDescriptor()).andStubReturn(d);
+		expect(r2.getDescriptor()).andStubReturn(d);
 
 		// get matching
 		Policy p = control.createMock(Policy.class);
 
 		expect(context.getCurrentPolicy()).andReturn(p);
 		expect(p.getId()).andReturn("testId");
-
-		expect(r2.getDescriptor()).andReturn(d);
 		expect(context.getParentContext()).andReturn(null);
-		expect(r1.getDescriptor()).andReturn(d);
 
 
 		control.replay();
@@ -298,30 +259,8 @@ public class DefaultResolverRegistryTest
 				.attribute("testAttr1", XacmlTypes.INTEGER)
 				.build();
 
-		expect(r1.getDescriptor()).andReturn(d1);
-		expect(r2.getDescriptor()).andReturn(d2);
-
-		// get matching
-		Policy p = control.createMock(Policy.class);
-
-		expect(context.getCurrentPolicy()).andReturn(p);
-		expect(p.getId()).andReturn("testId");
-
-		expect(context.getParentContext()).andReturn(null);
-		expect(r1.getDescriptor()).andReturn(d1);
-		expect(r2.getDescriptor()).andReturn(d2);
-
-		expect(context.getCurrentPolicy()).andReturn(null);
-		expect(context.getCurrentPolicySet()).andReturn(null);
-		expect(context.getParentContext()).andReturn(null);
-		expect(r1.getDescriptor()).andReturn(d1);
-		expect(r2.getDescriptor()).andReturn(d2);
-
-		expect(context.getCurrentPolicy()).andReturn(null);
-		expect(context.getCurrentPolicySet()).andReturn(null);
-		expect(context.getParentContext()).andReturn(null);
-		expect(r1.getDescriptor()).andReturn(d1);
-		expect(r2.getDescriptor()).andReturn(d2);
+		expect(r1.getDescriptor()).andStubReturn(d1);
+		expect(r2.getDescriptor()).andStubReturn(d2);
 
 		control.replay();
 
@@ -360,11 +299,10 @@ public class DefaultResolverRegistryTest
 				.dataType(XacmlTypes.INTEGER);
 
 		assertTrue(d1.canResolve(keyB.build()));
-		expect(r1.getDescriptor()).andReturn(d1);
+		expect(r1.getDescriptor()).andStubReturn(d1);
 		Policy p = control.createMock(Policy.class);
 		expect(context.getCurrentPolicy()).andReturn(p);
 		expect(p.getId()).andReturn("testId");
-		expect(r1.getDescriptor()).andReturn(d1);
 		expect(context.getParentContext()).andReturn(null);
 		control.replay();
 		r.addAttributeResolver("testId", r1);
@@ -392,7 +330,7 @@ public class DefaultResolverRegistryTest
 
 		assertTrue(d1.canResolve(keyB.build()));
 
-		expect(resolver.getDescriptor()).andReturn(d1);
+		expect(resolver.getDescriptor()).andStubReturn(d1);
 		Policy p1 = control.createMock(Policy.class);
 		expect(context.getCurrentPolicy()).andReturn(p1);
 		expect(p1.getId()).andReturn("testIdP1");
@@ -405,7 +343,6 @@ public class DefaultResolverRegistryTest
 		expect(context1.getCurrentPolicy()).andReturn(null);
 		expect(context1.getCurrentPolicySet()).andReturn(p2);
 		expect(p2.getId()).andReturn("testIdP2");
-		expect(resolver.getDescriptor()).andReturn(d1);
 
 		expect(context1.getParentContext()).andReturn(null);
 
@@ -419,4 +356,111 @@ public class DefaultResolverRegistryTest
 		assertSame(resolver, Iterables.getOnlyElement(resolvers));
 		control.verify();
 	}
+
+	@Test
+	public void testResolverWhichCanNotResolveIndexedKeyIsNotMatched()
+	{
+		AttributeResolverDescriptor d2 = new AttributeResolverDescriptorDelegate(
+				AttributeResolverDescriptorBuilder
+				.builder("test2", "Test2", Categories.SUBJECT_ACCESS)
+				.attribute("testAttr1", XacmlTypes.INTEGER)
+				.build()){
+			@Override
+			public boolean canResolve(AttributeDesignatorKey key){
+				return false;
+			}
+		};
+		expect(r1.getDescriptor()).andStubReturn(d1);
+		expect(r2.getDescriptor()).andStubReturn(d2);
+		control.replay();
+		r.addAttributeResolver(r1);
+		r.addAttributeResolver(r2);
+		Iterable<AttributeResolver> resolvers = r.getMatchingAttributeResolvers(context,
+				AttributeDesignatorKey.builder()
+				.category(Categories.SUBJECT_ACCESS)
+				.attributeId("testAttr1")
+				.dataType(XacmlTypes.INTEGER)
+				.build());
+		assertSame(r1, Iterables.getOnlyElement(resolvers));
+		control.verify();
+	}
+
+	@Test
+	public void testResolverResolutionWithNestedScopes()
+	{
+		AttributeResolverDescriptor d2 = AttributeResolverDescriptorBuilder
+				.builder("test2", "Test2", Categories.SUBJECT_ACCESS)
+				.attribute("testAttr1", XacmlTypes.INTEGER)
+				.build();
+		AttributeResolverDescriptor d3 = AttributeResolverDescriptorBuilder
+				.builder("test3", "Test3", Categories.SUBJECT_ACCESS)
+				.attribute("testAttr1", XacmlTypes.INTEGER)
+				.build();
+		AttributeResolver r3 = control.createMock(AttributeResolver.class);
+		AttributeDesignatorKey key = AttributeDesignatorKey.builder()
+				.category(Categories.SUBJECT_ACCESS)
+				.attributeId("testAttr1")
+				.dataType(XacmlTypes.INTEGER)
+				.build();
+
+		expect(r1.getDescriptor()).andStubReturn(d1);
+		expect(r2.getDescriptor()).andStubReturn(d2);
+		expect(r3.getDescriptor()).andStubReturn(d3);
+		Policy p1 = control.createMock(Policy.class);
+		PolicySet p2 = control.createMock(PolicySet.class);
+		EvaluationContext context1 = control.createMock(EvaluationContext.class);
+		expect(p1.getId()).andStubReturn("testIdP1");
+		expect(p2.getId()).andStubReturn("testIdP2");
+		expect(context.getCurrentPolicy()).andStubReturn(p1);
+		expect(context.getParentContext()).andStubReturn(context1);
+		expect(context1.getCurrentPolicy()).andStubReturn(null);
+		expect(context1.getCurrentPolicySet()).andStubReturn(p2);
+		expect(context1.getParentContext()).andStubReturn(null);
+		control.replay();
+
+		r.addAttributeResolver(r1);
+		r.addAttributeResolver("testIdP2", r2);
+		r.addAttributeResolver("testIdP1", r3);
+
+		Iterable<AttributeResolver> resolvers = r.getMatchingAttributeResolvers(context, key);
+		assertEquals(3, Iterables.size(resolvers));
+		assertSame(r3, Iterables.get(resolvers, 0));
+		assertSame(r2, Iterables.get(resolvers, 1));
+		assertSame(r1, Iterables.get(resolvers, 2));
+		assertSame(resolvers, r.getMatchingAttributeResolvers(context, key));
+		control.verify();
+	}
+
+	@Test
+	public void testMatchingContentResolverScopedToParentPolicy()
+	{
+		ContentResolver c1 = control.createMock(ContentResolver.class);
+		ContentResolver c2 = control.createMock(ContentResolver.class);
+		ContentResolverDescriptor d1 = ContentResolverDescriptorBuilder
+				.builder("testContent1", "Test1", Categories.SUBJECT_ACCESS)
+				.build();
+		ContentResolverDescriptor d2 = ContentResolverDescriptorBuilder
+				.builder("testContent2", "Test2", Categories.SUBJECT_ACCESS)
+				.build();
+
+		expect(c1.getDescriptor()).andReturn(d1).times(2);
+		expect(c2.getDescriptor()).andReturn(d2).times(2);
+
+		Policy p1 = control.createMock(Policy.class);
+		expect(context.getCurrentPolicy()).andReturn(p1);
+		expect(p1.getId()).andReturn("testIdP1");
+		EvaluationContext context1 = control.createMock(EvaluationContext.class);
+		expect(context.getParentContext()).andReturn(context1);
+		PolicySet p2 = control.createMock(PolicySet.class);
+		expect(context1.getCurrentPolicy()).andReturn(null);
+		expect(context1.getCurrentPolicySet()).andReturn(p2);
+		expect(p2.getId()).andReturn("testIdP2");
+		control.replay();
+
+		r.addContentResolver(c1);
+		r.addContentResolver("testIdP2", c2);
+
+		assertSame(c2, r.getMatchingContentResolver(context, Categories.SUBJECT_ACCESS));
+		control.verify();
+	}
 }
@@ -0,0 +1,187 @@
+package org.xacml4j.v30.spi.pip;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import static org.easymock.EasyMock.createControl;
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.easymock.IMocksControl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xacml4j.v30.BagOfAttributeExp;
+import org.xacml4j.v30.Categories;
+import org.xacml4j.v30.types.IntegerExp;
+import org.xacml4j.v30.types.StringExp;
+import org.xacml4j.v30.types.XPathExp;
+import org.xacml4j.v30.types.XacmlTypes;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+
+public class PersistentPolicyInformationPointCacheProviderTest
+{
+	private IMocksControl control;
+	private AttributeResolverDescriptor d;
+	private File file;
+	private AtomicLong now;
+	private Ticker ticker;
+
+	@Before
+	public void init() throws Exception
+	{
+		this.control = createControl();
+		this.d = AttributeResolverDescriptorBuilder
+				.builder("testId1", "Test Resolver", Categories.SUBJECT_ACCESS)
+				.cache(30)
+				.attribute("testAttributeId1", XacmlTypes.STRING)
+				.attribute("testAttributeId2", XacmlTypes.INTEGER)
+				.build();
+		this.file = File.createTempFile("pip-cache", ".snapshot");
+		this.now = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+		this.ticker = new Ticker() {
+			@Override
+			public long read() {
+				return now.get();
+			}
+		};
+	}
+
+	@After
+	public void destroy()
+	{
+		file.delete();
+	}
+
+	private ResolverContext createContext(List<BagOfAttributeExp> keys)
+	{
+		ResolverContext context = control.createMock(ResolverContext.class);
+		expect(context.getDescriptor()).andStubReturn(d);
+		expect(context.getKeys()).andStubReturn(keys);
+		expect(context.getTicker()).andStubReturn(ticker);
+		return context;
+	}
+
+	@Test
+	public void testSnapshotRestoresAttributeSetWithItsAge() throws Exception
+	{
+		List<BagOfAttributeExp> keys = ImmutableList.of(StringExp.of("testUser").toBag());
+		AttributeSet v = AttributeSet
+				.builder(d)
+				.attribute("testAttributeId1", XacmlTypes.STRING.bagOf(StringExp.of("v1"), StringExp.of("v2")))
+				.attribute("testAttributeId2", IntegerExp.of(10).toBag())
+				.ticker(ticker)
+				.build();
+		AttributeResolver r = control.createMock(AttributeResolver.class);
+		ResolverRegistry registry = control.createMock(ResolverRegistry.class);
+		expect(registry.getAttributeResolver(d.getId())).andStubReturn(r);
+		expect(r.getDescriptor()).andStubReturn(d);
+		ResolverContext context = createContext(keys);
+		control.replay();
+
+		PersistentPolicyInformationPointCacheProvider cache = PersistentPolicyInformationPointCacheProvider
+				.builder(file)
+				.ticker(ticker)
+				.build();
+		cache.putAttributes(context, v);
+		now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+		assertEquals(1, cache.snapshot());
+
+		PersistentPolicyInformationPointCacheProvider restored = PersistentPolicyInformationPointCacheProvider
+				.builder(file)
+				.ticker(ticker)
+				.build();
+		assertEquals(1, restored.restore(registry));
+		AttributeSet found = restored.getAttributes(context);
+		assertEquals(v.toMap(), found.toMap());
+		long age = now.get() - found.getCreatedTime();
+		assertTrue(age >= TimeUnit.SECONDS.toNanos(10));
+		assertTrue(age < TimeUnit.SECONDS.toNanos(11));
+		control.verify();
+	}
+
+	@Test
+	public void testExpiredAttributeSetIsNotPersisted() throws Exception
+	{
+		AttributeSet v = AttributeSet
+				.builder(d)
+				.attribute("testAttributeId1", StringExp.of("v1").toBag())
+				.ticker(ticker)
+				.build();
+		ResolverContext context = createContext(
+				ImmutableList.<BagOfAttributeExp>of(StringExp.of("testUser").toBag()));
+		control.replay();
+
+		PersistentPolicyInformationPointCacheProvider cache = PersistentPolicyInformationPointCacheProvider
+				.builder(file)
+				.ticker(ticker)
+				.build();
+		cache.putAttributes(context, v);
+		now.addAndGet(TimeUnit.SECONDS.toNanos(d.getPreferredCacheTTL()));
+		assertEquals(0, cache.snapshot());
+		control.verify();
+	}
+
+	@Test
+	public void testAttributeSetWithUnsupportedTypeIsSkipped() throws Exception
+	{
+		AttributeResolverDescriptor xpath = AttributeResolverDescriptorBuilder
+				.builder("testId2", "Test Resolver", Categories.SUBJECT_ACCESS)
+				.cache(30)
+				.attribute("testAttributeId1", XacmlTypes.XPATH)
+				.build();
+		AttributeSet v1 = AttributeSet
+				.builder(d)
+				.attribute("testAttributeId1", StringExp.of("v1").toBag())
+				.ticker(ticker)
+				.build();
+		AttributeSet v2 = AttributeSet
+				.builder(xpath)
+				.attribute("testAttributeId1", XPathExp.of("/md:record", Categories.SUBJECT_ACCESS).toBag())
+				.ticker(ticker)
+				.build();
+		List<BagOfAttributeExp> keys = ImmutableList.<BagOfAttributeExp>of(StringExp.of("testUser").toBag());
+		ResolverContext context1 = createContext(keys);
+		ResolverContext context2 = control.createMock(ResolverContext.class);
+		expect(context2.getDescriptor()).andStubReturn(xpath);
+		expect(context2.getKeys()).andStubReturn(keys);
+		expect(context2.getTicker()).andStubReturn(ticker);
+		control.replay();
+
+		PersistentPolicyInformationPointCacheProvider cache = PersistentPolicyInformationPointCacheProvider
+				.builder(file)
+				.ticker(ticker)
+				.build();
+		cache.putAttributes(context1, v1);
+		cache.putAttributes(context2, v2);
+		assertEquals(1, cache.snapshot());
+		control.verify();
+	}
+}
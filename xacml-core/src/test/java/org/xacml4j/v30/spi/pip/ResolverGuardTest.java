@@ -0,0 +1,103 @@
+package org.xacml4j.v30.spi.pip;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xacml4j.v30.Categories;
+import org.xacml4j.v30.types.XacmlTypes;
+
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+public class ResolverGuardTest
+{
+	private ExecutorService executor;
+	private ResolverGuard guard;
+
+	@Before
+	public void init(){
+		this.executor = Executors.newSingleThreadExecutor();
+		this.guard = new ResolverGuard(AttributeResolverDescriptorBuilder
+				.builder("testId", "Test Resolver", Categories.SUBJECT_ACCESS)
+				.noCache()
+				.timeout(50, TimeUnit.MILLISECONDS)
+				.maxConcurrentInvocations(2)
+				.attribute("testAttributeId1", XacmlTypes.STRING)
+				.build());
+	}
+
+	@After
+	public void destroy(){
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testQueuedResolutionReleasesPermitOnTimeout() throws Exception
+	{
+		final CountDownLatch blocked = new CountDownLatch(1);
+		Callable<String> blocking = new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				Uninterruptibles.awaitUninterruptibly(blocked);
+				return "blocking";
+			}
+		};
+		Callable<String> resolution = new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				return "v";
+			}
+		};
+		// occupies the only executor thread and holds a permit
+		assertTimesOut(blocking);
+		// queued behind a blocking resolution and cancelled
+		// before started, each must release its permit
+		for(int i = 0; i < 3; i++){
+			assertTimesOut(resolution);
+		}
+		blocked.countDown();
+		assertEquals("v", guard.invoke(resolution, Ticker.systemTicker(), executor));
+		assertEquals("v", guard.invoke(resolution, Ticker.systemTicker(), executor));
+	}
+
+	private void assertTimesOut(Callable<String> resolution) throws Exception
+	{
+		try{
+			guard.invoke(resolution, Ticker.systemTicker(), executor);
+			fail();
+		}catch(TimeoutException e){
+		}
+	}
+}
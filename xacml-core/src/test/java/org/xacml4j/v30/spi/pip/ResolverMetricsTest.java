@@ -0,0 +1,69 @@
+package org.xacml4j.v30.spi.pip;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResolverMetricsTest
+{
+	private String resolverId;
+
+	@Before
+	public void init(){
+		this.resolverId = UUID.randomUUID().toString();
+	}
+
+	@Test
+	public void testCacheHitRatioIncludesNegativeHits()
+	{
+		ResolverMetrics m = new ResolverMetrics(resolverId);
+		assertEquals(0.0, m.getCacheHitRatio(), 0.0);
+		m.markCacheHit();
+		m.markNegativeCacheHit();
+		m.markCacheMiss();
+		m.markCacheMiss();
+		assertEquals(0.5, m.getCacheHitRatio(), 0.0);
+		assertEquals(1, m.getCacheHitCount());
+		assertEquals(2, m.getCacheMissCount());
+		assertEquals(1, m.getNegativeCacheHitCount());
+	}
+
+	@Test
+	public void testMetricsAreSharedByResolverId()
+	{
+		ResolverMetrics m0 = new ResolverMetrics(resolverId);
+		ResolverMetrics m1 = new ResolverMetrics(resolverId);
+		m0.timeMiss().stop();
+		m0.timeMiss().stop();
+		m0.markError();
+		m0.markFallback();
+		assertEquals(1, m1.getErrorCount());
+		assertEquals(0.5, m1.getErrorRatio(), 0.0);
+		assertEquals(1, m1.getFallbackCount());
+	}
+}
@@ -0,0 +1,114 @@
+package org.xacml4j.v30.spi.pip;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import static org.easymock.EasyMock.createControl;
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.easymock.IMocksControl;
+import org.junit.Before;
+import org.junit.Test;
+import org.xacml4j.v30.BagOfAttributeExp;
+import org.xacml4j.v30.Categories;
+import org.xacml4j.v30.types.StringExp;
+import org.xacml4j.v30.types.XacmlTypes;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+
+public class TwoTierPolicyInformationPointCacheProviderTest
+{
+	private IMocksControl control;
+	private AttributeResolverDescriptor d;
+	private AtomicLong now;
+	private Ticker ticker;
+	private PolicyInformationPointCacheStore store;
+	private ResolverContext context;
+
+	@Before
+	public void init()
+	{
+		this.control = createControl();
+		this.d = AttributeResolverDescriptorBuilder
+				.builder("testId1", "Test Resolver", Categories.SUBJECT_ACCESS)
+				.cache(30)
+				.attribute("testAttributeId1", XacmlTypes.STRING)
+				.build();
+		this.now = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+		this.ticker = new Ticker() {
+			@Override
+			public long read() {
+				return now.get();
+			}
+		};
+		this.store = new InMemoryPolicyInformationPointCacheStore(16, ticker);
+		List<BagOfAttributeExp> keys = ImmutableList.of(StringExp.of("testUser").toBag());
+		this.context = control.createMock(ResolverContext.class);
+		expect(context.getDescriptor()).andStubReturn(d);
+		expect(context.getKeys()).andStubReturn(keys);
+		expect(context.getTicker()).andStubReturn(ticker);
+	}
+
+	@Test
+	public void testAttributesCachedByOneProviderFoundByAnother()
+	{
+		AttributeSet v = AttributeSet
+				.builder(d)
+				.attribute("testAttributeId1", StringExp.of("v1").toBag())
+				.ticker(ticker)
+				.build();
+		PolicyInformationPointCacheProvider cache1 = new TwoTierPolicyInformationPointCacheProvider(store);
+		PolicyInformationPointCacheProvider cache2 = new TwoTierPolicyInformationPointCacheProvider(store);
+		control.replay();
+
+		assertNull(cache2.getAttributes(context));
+		cache1.putAttributes(context, v);
+		AttributeSet found = cache2.getAttributes(context);
+		assertEquals(v.toMap(), found.toMap());
+		control.verify();
+	}
+
+	@Test
+	public void testAttributesExpireInSecondLevelStore()
+	{
+		AttributeSet v = AttributeSet
+				.builder(d)
+				.attribute("testAttributeId1", StringExp.of("v1").toBag())
+				.ticker(ticker)
+				.build();
+		PolicyInformationPointCacheProvider cache1 = new TwoTierPolicyInformationPointCacheProvider(store);
+		PolicyInformationPointCacheProvider cache2 = new TwoTierPolicyInformationPointCacheProvider(store);
+		control.replay();
+
+		cache1.putAttributes(context, v);
+		now.addAndGet(TimeUnit.SECONDS.toNanos(d.getPreferredCacheTTL()));
+		assertNull(cache2.getAttributes(context));
+		control.verify();
+	}
+}
@@ -0,0 +1,197 @@
+package org.xacml4j.v30.spi.pip;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import static org.easymock.EasyMock.createControl;
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Collections;
+
+import org.easymock.IMocksControl;
+import org.junit.Before;
+import org.junit.Test;
+import org.xacml4j.v30.BagOfAttributeExp;
+import org.xacml4j.v30.Categories;
+import org.xacml4j.v30.types.StringExp;
+import org.xacml4j.v30.types.XacmlTypes;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Ticker;
+import com.google.common.io.ByteSource;
+
+public class WeightedPolicyInformationPointCacheProviderTest
+{
+	private IMocksControl control;
+	private AttributeResolverDescriptor d;
+
+	@Before
+	public void init(){
+		this.control = createControl();
+		this.d = AttributeResolverDescriptorBuilder
+				.builder("testId1", "Test Resolver", Categories.SUBJECT_ACCESS)
+				.cache(30)
+				.attribute("testAttributeId1", XacmlTypes.STRING)
+				.build();
+	}
+
+	private ResolverContext createContext(String key){
+		ResolverContext context = control.createMock(ResolverContext.class);
+		expect(context.getDescriptor()).andStubReturn(d);
+		expect(context.getKeys()).andStubReturn(
+				Collections.<BagOfAttributeExp>singletonList(StringExp.of(key).toBag()));
+		expect(context.getTicker()).andStubReturn(Ticker.systemTicker());
+		return context;
+	}
+
+	@Test
+	public void testEntryExceedingResolverQuotaIsNotCached()
+	{
+		AttributeSet v = AttributeSet
+				.builder(d)
+				.attribute("testAttributeId1", StringExp.of("v1").toBag())
+				.build();
+		int weight = WeightedPolicyInformationPointCacheProvider.weigh(v);
+		WeightedPolicyInformationPointCacheProvider cache = WeightedPolicyInformationPointCacheProvider
+				.builder()
+				.resolverQuota(d.getId(), weight + 1)
+				.build();
+		ResolverContext k1 = createContext("k1");
+		ResolverContext k2 = createContext("k2");
+		control.replay();
+
+		cache.putAttributes(k1, v);
+		cache.putAttributes(k2, v);
+
+		assertSame(v, cache.getAttributes(k1));
+		assertNull(cache.getAttributes(k2));
+		assertEquals(1, cache.getRejectedCount());
+		assertEquals(weight, cache.getResolverWeight(d.getId()));
+		assertEquals(weight, cache.getWeight());
+		control.verify();
+	}
+
+	@Test
+	public void testReplacedEntryWeightIsReleased()
+	{
+		AttributeSet v1 = AttributeSet
+				.builder(d)
+				.attribute("testAttributeId1", StringExp.of("v1").toBag())
+				.build();
+		AttributeSet v2 = AttributeSet
+				.builder(d)
+				.attribute("testAttributeId1", StringExp.of("a much longer value").toBag())
+				.build();
+		WeightedPolicyInformationPointCacheProvider cache = WeightedPolicyInformationPointCacheProvider
+				.builder()
+				.build();
+		ResolverContext k1 = createContext("k1");
+		control.replay();
+
+		cache.putAttributes(k1, v1);
+		cache.putAttributes(k1, v2);
+
+		assertSame(v2, cache.getAttributes(k1));
+		assertEquals(WeightedPolicyInformationPointCacheProvider.weigh(v2), cache.getWeight());
+		control.verify();
+	}
+
+	@Test
+	public void testReplacingEntryIsAdmittedWithinQuotaOfReplacedEntry()
+	{
+		AttributeSet v1 = AttributeSet
+				.builder(d)
+				.attribute("testAttributeId1", StringExp.of("v1").toBag())
+				.build();
+		AttributeSet v2 = AttributeSet
+				.builder(d)
+				.attribute("testAttributeId1", StringExp.of("v2").toBag())
+				.build();
+		int weight = WeightedPolicyInformationPointCacheProvider.weigh(v1);
+		WeightedPolicyInformationPointCacheProvider cache = WeightedPolicyInformationPointCacheProvider
+				.builder()
+				.resolverQuota(d.getId(), weight)
+				.build();
+		ResolverContext k1 = createContext("k1");
+		control.replay();
+
+		cache.putAttributes(k1, v1);
+		cache.putAttributes(k1, v2);
+
+		assertSame(v2, cache.getAttributes(k1));
+		assertEquals(0, cache.getRejectedCount());
+		assertEquals(weight, cache.getResolverWeight(d.getId()));
+		control.verify();
+	}
+
+	@Test
+	public void testRejectedEntryKeepsReplacedEntry()
+	{
+		AttributeSet v1 = AttributeSet
+				.builder(d)
+				.attribute("testAttributeId1", StringExp.of("v1").toBag())
+				.build();
+		AttributeSet v2 = AttributeSet
+				.builder(d)
+				.attribute("testAttributeId1", StringExp.of("a much longer value").toBag())
+				.build();
+		int weight = WeightedPolicyInformationPointCacheProvider.weigh(v1);
+		WeightedPolicyInformationPointCacheProvider cache = WeightedPolicyInformationPointCacheProvider
+				.builder()
+				.resolverQuota(d.getId(), weight)
+				.build();
+		ResolverContext k1 = createContext("k1");
+		control.replay();
+
+		cache.putAttributes(k1, v1);
+		cache.putAttributes(k1, v2);
+
+		assertSame(v1, cache.getAttributes(k1));
+		assertEquals(1, cache.getRejectedCount());
+		assertEquals(weight, cache.getResolverWeight(d.getId()));
+		control.verify();
+	}
+
+	@Test
+	public void testSerializedContentOfUnknownSizeIsMeasured()
+	{
+		final byte[] xml = "<a><b>test</b></a>".getBytes(Charsets.UTF_8);
+		ByteSource unknownSize = new ByteSource() {
+			@Override
+			public InputStream openStream() {
+				return new ByteArrayInputStream(xml);
+			}
+		};
+		assertFalse(unknownSize.sizeIfKnown().isPresent());
+		assertEquals(
+				WeightedPolicyInformationPointCacheProvider.weigh(
+						Content.builder().xmlContent(xml).build()),
+				WeightedPolicyInformationPointCacheProvider.weigh(
+						Content.builder().xmlContent(unknownSize).build()));
+	}
+}
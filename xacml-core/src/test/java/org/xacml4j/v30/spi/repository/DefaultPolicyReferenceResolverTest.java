@@ -25,6 +25,7 @@ package org.xacml4j.v30.spi.repository;
 import static org.easymock.EasyMock.capture;
 import static org.easymock.EasyMock.createControl;
 import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
 
 import org.easymock.Capture;
@@ -37,6 +38,7 @@ import org.xacml4j.v30.pdp.Policy;
 import org.xacml4j.v30.pdp.PolicyIDReference;
 import org.xacml4j.v30.pdp.PolicySet;
 import org.xacml4j.v30.pdp.PolicySetIDReference;
+import org.xacml4j.v30.pdp.Rule;
 
 
 public class DefaultPolicyReferenceResolverTest
@@ -44,6 +46,7 @@ public class DefaultPolicyReferenceResolverTest
 	private PolicyRepository repository;
 	private IMocksControl c;
 
+	private DecisionCombiningAlgorithm<Rule> ruleAlgorithm;
 	private Policy p1v1;
 	private PolicySet ps1v1;
 
@@ -53,10 +56,11 @@ public class DefaultPolicyReferenceResolverTest
 	{
 		this.c = createControl();
 		this.repository = c.createMock(PolicyRepository.class);
+		this.ruleAlgorithm = c.createMock(DecisionCombiningAlgorithm.class);
 		this.p1v1 = Policy
 				.builder("id")
 				.version("1.0.0")
-				.combiningAlgorithm(c.createMock(DecisionCombiningAlgorithm.class))
+				.combiningAlgorithm(ruleAlgorithm)
 				.build();
 		this.ps1v1 = PolicySet
 				.builder("id")
@@ -98,4 +102,34 @@ public class DefaultPolicyReferenceResolverTest
 		assertSame(ps1v1, p);
 		c.verify();
 	}
+
+	@Test
+	public void testPinnedResolverUsesSingleSnapshot() throws Exception
+	{
+		SnapshotPolicyRepository snapshots = c.createMock(SnapshotPolicyRepository.class);
+		PolicyRepositorySnapshot s1 = c.createMock(PolicyRepositorySnapshot.class);
+		PolicyRepositorySnapshot s2 = c.createMock(PolicyRepositorySnapshot.class);
+		Policy p1v1Updated = Policy
+				.builder("id")
+				.version("1.0.0")
+				.combiningAlgorithm(ruleAlgorithm)
+				.build();
+		snapshots.addPolicyRepositoryListener(capture(new Capture<PolicyRepositoryListener>()));
+		expect(snapshots.getCurrentSnapshot()).andReturn(s1);
+		expect(s1.getGeneration()).andReturn(1L).anyTimes();
+		expect(s1.getPolicy("id", new VersionMatch("1.0.0"), null, null)).andReturn(p1v1).times(1);
+		expect(snapshots.getCurrentSnapshot()).andReturn(s2);
+		expect(s2.getGeneration()).andReturn(2L).anyTimes();
+		expect(s2.getPolicy("id", new VersionMatch("1.0.0"), null, null)).andReturn(p1v1Updated).times(1);
+		c.replay();
+		DefaultPolicyReferenceResolver r = new DefaultPolicyReferenceResolver(snapshots);
+		PolicyIDReference ref = PolicyIDReference.builder("id").versionAsString("1.0.0").build();
+		PolicyReferenceResolver pinned = r.pin();
+		assertSame(p1v1, pinned.resolve(ref));
+		PolicyReferenceResolver next = r.pin();
+		assertNotSame(pinned, next);
+		assertSame(p1v1Updated, next.resolve(ref));
+		assertSame(p1v1, pinned.resolve(ref));
+		c.verify();
+	}
 }
@@ -0,0 +1,201 @@
+package org.xacml4j.v30.spi.repository;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import static org.easymock.EasyMock.createControl;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.isA;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+
+import org.easymock.IMocksControl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xacml4j.v30.Version;
+import org.xacml4j.v30.pdp.Policy;
+import org.xacml4j.v30.spi.combine.DecisionCombiningAlgorithmProviderBuilder;
+import org.xacml4j.v30.spi.function.FunctionProviderBuilder;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import com.google.common.io.Resources;
+
+public class FileSystemPolicyRepositoryTest
+{
+	private final static String POLICY_ID = "urn:oasis:names:tc:xacml:3.0:example:policyid:1";
+
+	private IMocksControl c;
+	private PolicyRepositoryListener l;
+	private Path directory;
+	private String policy;
+
+	@Before
+	public void init() throws Exception
+	{
+		this.c = createControl();
+		this.l = c.createMock(PolicyRepositoryListener.class);
+		this.directory = Files.createTempDirectory("xacml4j-policies");
+		this.policy = Resources.toString(Resources.getResource("Policy1.xml"), Charsets.UTF_8);
+	}
+
+	@After
+	public void destroy() throws Exception
+	{
+		MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+	}
+
+	private FileSystemPolicyRepository createRepository() throws Exception
+	{
+		return new FileSystemPolicyRepository("testId", directory,
+				FunctionProviderBuilder.builder()
+				.defaultFunctions()
+				.build(),
+				DecisionCombiningAlgorithmProviderBuilder.builder()
+				.withDefaultAlgorithms()
+				.create());
+	}
+
+	private void write(Path f, String content, long modified) throws Exception
+	{
+		Files.write(f, content.getBytes(Charsets.UTF_8));
+		Files.setLastModifiedTime(f, FileTime.fromMillis(modified));
+	}
+
+	@Test
+	public void testReloadAppliesModifiedAndDeletedFiles() throws Exception
+	{
+		Path f = directory.resolve("policy1.xml");
+		write(f, policy, 1000L);
+		FileSystemPolicyRepository r = createRepository();
+		assertNotNull(r.get(POLICY_ID, Version.parse("1.0")));
+		r.addPolicyRepositoryListener(l);
+
+		l.policyAdded(isA(Policy.class));
+		l.policyRemoved(isA(Policy.class));
+		l.policyRemoved(isA(Policy.class));
+		c.replay();
+
+		assertEquals(0, r.reload());
+		write(f, policy.replace("Version=\"1.0\"", "Version=\"2.0.1\""), 2000L);
+		assertEquals(1, r.reload());
+		assertNull(r.get(POLICY_ID, Version.parse("1.0")));
+		assertNotNull(r.get(POLICY_ID, Version.parse("2.0.1")));
+
+		Files.delete(f);
+		assertEquals(1, r.reload());
+		assertTrue(r.getPolicies(POLICY_ID).isEmpty());
+		c.verify();
+	}
+
+	@Test
+	public void testInvalidFileKeepsPreviouslyLoadedPolicy() throws Exception
+	{
+		Path f = directory.resolve("policy1.xml");
+		write(f, policy, 1000L);
+		FileSystemPolicyRepository r = createRepository();
+		r.addPolicyRepositoryListener(l);
+		c.replay();
+
+		write(f, "<Policy", 2000L);
+		assertEquals(0, r.reload());
+		assertNotNull(r.get(POLICY_ID, Version.parse("1.0")));
+		assertEquals(0, r.reload());
+		c.verify();
+	}
+
+	@Test
+	public void testReloadPublishesAllChangedFilesAsOneSnapshot() throws Exception
+	{
+		String other = policy.replace(POLICY_ID, POLICY_ID + ":other");
+		write(directory.resolve("policy1.xml"), policy, 1000L);
+		write(directory.resolve("policy2.xml"), other, 1000L);
+		FileSystemPolicyRepository r = createRepository();
+		long generation = r.getCurrentSnapshot().getGeneration();
+
+		write(directory.resolve("policy1.xml"),
+				policy.replace("Version=\"1.0\"", "Version=\"2.0.1\""), 2000L);
+		write(directory.resolve("policy2.xml"),
+				other.replace("Version=\"1.0\"", "Version=\"2.0.1\""), 2000L);
+		assertEquals(2, r.reload());
+		assertEquals(generation + 1, r.getCurrentSnapshot().getGeneration());
+		assertNotNull(r.get(POLICY_ID, Version.parse("2.0.1")));
+		assertNotNull(r.get(POLICY_ID + ":other", Version.parse("2.0.1")));
+	}
+
+	@Test
+	public void testWriteSnapshotOfLoadedPolicies() throws Exception
+	{
+		write(directory.resolve("policy1.xml"), policy, 1000L);
+		FileSystemPolicyRepository r = createRepository();
+		Path file = Files.createTempFile("xacml4j-snapshot", ".bin");
+		try{
+			r.writeSnapshot(file);
+			InMemoryPolicyRepository loaded = new InMemoryPolicyRepository("loadedId",
+					FunctionProviderBuilder.builder()
+					.defaultFunctions()
+					.build(),
+					DecisionCombiningAlgorithmProviderBuilder.builder()
+					.withDefaultAlgorithms()
+					.create());
+			assertEquals(1, loaded.loadSnapshot(file));
+			assertNotNull(loaded.get(POLICY_ID, Version.parse("1.0")));
+		}finally{
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void testWatcherKeepsWatchingAfterReloadFailure() throws Exception
+	{
+		FileSystemPolicyRepository r = createRepository();
+		r.addPolicyRepositoryListener(l);
+		WatchService ws = c.createMock(WatchService.class);
+		WatchKey key = c.createMock(WatchKey.class);
+		expect(ws.take()).andReturn(key).times(2);
+		expect(ws.take()).andThrow(new ClosedWatchServiceException());
+		expect(key.pollEvents()).andReturn(Collections.<WatchEvent<?>>emptyList()).times(2);
+		expect(key.reset()).andReturn(true).times(2);
+		l.policyAdded(isA(Policy.class));
+		expectLastCall().andThrow(new IllegalStateException("test"));
+		c.replay();
+
+		write(directory.resolve("policy1.xml"), policy, 1000L);
+		r.watch(ws);
+		assertNotNull(r.get(POLICY_ID, Version.parse("1.0")));
+		c.verify();
+	}
+}
@@ -32,8 +32,12 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.easymock.IMocksControl;
 import org.junit.Before;
@@ -45,7 +49,14 @@ import org.xacml4j.v30.pdp.DecisionCombiningAlgorithm;
 import org.xacml4j.v30.pdp.Policy;
 import org.xacml4j.v30.pdp.Rule;
 import org.xacml4j.v30.spi.combine.DecisionCombiningAlgorithmProvider;
+import org.xacml4j.v30.spi.combine.DecisionCombiningAlgorithmProviderBuilder;
 import org.xacml4j.v30.spi.function.FunctionProvider;
+import org.xacml4j.v30.spi.function.FunctionProviderBuilder;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
 
 
 public class InMemoryPolicyRepositoryTest
@@ -213,5 +224,105 @@ public class InMemoryPolicyRepositoryTest
 
 		c.verify();
 	}
-}
 
+	@Test
+	public void testGetPolicyByVersionMatch() throws Exception
+	{
+		for(int i = 0; i < 4; i++){
+			expect(algorithm.getId()).andReturn("testId");
+			expect(decisionAlgorithms.isRuleAlgorithmProvided("testId")).andReturn(true);
+		}
+		l.policyAdded(p1v4);
+		l.policyAdded(p1v1);
+		l.policyAdded(p1v3);
+		l.policyAdded(p1v2);
+
+		c.replay();
+
+		r.add(p1v4);
+		r.add(p1v1);
+		r.add(p1v3);
+		r.add(p1v2);
+
+		assertSame(p1v3, r.getPolicy("id1", VersionMatch.parse("1.+"), null, null));
+		assertSame(p1v2, r.getPolicy("id1", VersionMatch.parse("1.1"), null, null));
+		assertSame(p1v3, r.getPolicy("id1", null, VersionMatch.parse("1.*.1"), VersionMatch.parse("1.+")));
+		assertNull(r.getPolicy("id1", VersionMatch.parse("3.+"), null, null));
+		Collection<Policy> found = r.getPolicies("id1", VersionMatch.parse("1.+"));
+		assertEquals(ImmutableList.of(p1v1, p1v2, p1v3), ImmutableList.copyOf(found));
+
+		c.verify();
+	}
+
+	@Test
+	public void testSnapshotIsNotAffectedByLaterChanges() throws Exception
+	{
+		for(int i = 0; i < 2; i++){
+			expect(algorithm.getId()).andReturn("testId");
+			expect(decisionAlgorithms.isRuleAlgorithmProvided("testId")).andReturn(true);
+		}
+		l.policyAdded(p1v1);
+		l.policyAdded(p1v2);
+		l.policyRemoved(p1v1);
+
+		c.replay();
+
+		r.add(p1v1);
+		PolicyRepositorySnapshot s1 = ((SnapshotPolicyRepository)r).getCurrentSnapshot();
+		r.add(p1v2);
+		r.remove(p1v1);
+		PolicyRepositorySnapshot s2 = ((SnapshotPolicyRepository)r).getCurrentSnapshot();
+
+		assertEquals(s1.getGeneration() + 2, s2.getGeneration());
+		assertSame(p1v1, s1.getPolicy("id1", null, null, null));
+		assertNull(s1.getPolicy("id1", VersionMatch.parse("1.1"), null, null));
+		assertSame(p1v2, s2.getPolicy("id1", null, null, null));
+		assertNull(s2.getPolicy("id1", VersionMatch.parse("1"), null, null));
+
+		c.verify();
+	}
+
+	@Test
+	public void testImportPolicies() throws Exception
+	{
+		PolicyRepository repository = new InMemoryPolicyRepository("testId",
+				FunctionProviderBuilder.builder()
+				.defaultFunctions()
+				.build(),
+				DecisionCombiningAlgorithmProviderBuilder.builder()
+				.withDefaultAlgorithms()
+				.create());
+		Map<String, Supplier<InputStream>> sources = new LinkedHashMap<String, Supplier<InputStream>>();
+		sources.put("Policy1.xml", resource("Policy1.xml"));
+		sources.put("broken.xml", Suppliers.<InputStream>ofInstance(
+				new ByteArrayInputStream("<Policy".getBytes(Charsets.UTF_8))));
+		sources.put("PolicySet1.xml", resource("PolicySet1.xml"));
+		sources.put("duplicate.xml", resource("Policy1.xml"));
+
+		long generation = ((SnapshotPolicyRepository)repository).getCurrentSnapshot().getGeneration();
+		PolicyImportResult result = repository.importPolicies(sources);
+		// imported rules are published as a single snapshot
+		assertEquals(generation + 1,
+				((SnapshotPolicyRepository)repository).getCurrentSnapshot().getGeneration());
+		assertFalse(result.isSuccessful());
+		assertEquals(2, result.getImported().size());
+		assertEquals("urn:oasis:names:tc:xacml:3.0:example:policyid:1",
+				result.getImported().get(0).getId());
+		assertEquals("urn:oasis:names:tc:xacml:3.0:example:policysetid:1",
+				result.getImported().get(1).getId());
+		assertEquals(ImmutableList.of("broken.xml", "duplicate.xml"),
+				ImmutableList.copyOf(result.getFailures().keySet()));
+		assertSame(result.getImported().get(0),
+				repository.getPolicy("urn:oasis:names:tc:xacml:3.0:example:policyid:1", null, null, null));
+	}
+
+	private static Supplier<InputStream> resource(final String name)
+	{
+		return new Supplier<InputStream>() {
+			@Override
+			public InputStream get() {
+				return Thread.currentThread().getContextClassLoader().getResourceAsStream(name);
+			}
+		};
+	}
+}
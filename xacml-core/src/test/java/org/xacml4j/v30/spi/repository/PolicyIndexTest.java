@@ -0,0 +1,96 @@
+package org.xacml4j.v30.spi.repository;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PolicyIndexTest
+{
+	@Test
+	public void testWithDoesNotModifyIndex()
+	{
+		PolicyIndex<String> i0 = PolicyIndex.of();
+		PolicyIndex<String> i1 = i0.with("a", "v0");
+		PolicyIndex<String> i2 = i1.with("a", "v1");
+		PolicyIndex<String> i3 = i2.with("a", null);
+		assertNull(i0.get("a"));
+		assertEquals("v0", i1.get("a"));
+		assertEquals("v1", i2.get("a"));
+		assertNull(i3.get("a"));
+		assertEquals(0, i0.size());
+		assertEquals(1, i2.size());
+		assertEquals(0, i3.size());
+		assertSame(i3, i3.with("a", null));
+	}
+
+	@Test
+	public void testIdentifiersWithSameHash()
+	{
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+		PolicyIndex<String> i = PolicyIndex.<String>of()
+				.with("Aa", "v0")
+				.with("BB", "v1");
+		assertEquals("v0", i.get("Aa"));
+		assertEquals("v1", i.get("BB"));
+		assertEquals(2, i.size());
+		i = i.with("Aa", null);
+		assertNull(i.get("Aa"));
+		assertEquals("v1", i.get("BB"));
+		assertEquals(1, i.size());
+	}
+
+	@Test
+	public void testRandomChangesMatchHashMap()
+	{
+		Random r = new Random(7);
+		Map<String, String> expected = new HashMap<String, String>();
+		PolicyIndex<String> i = PolicyIndex.of();
+		for(int n = 0; n < 20000; n++){
+			String id = "urn:policy:" + r.nextInt(2000);
+			String v = (r.nextInt(4) == 0)?null:Integer.toString(n);
+			i = i.with(id, v);
+			if(v == null){
+				expected.remove(id);
+			}else{
+				expected.put(id, v);
+			}
+		}
+		assertEquals(expected.size(), i.size());
+		for(int n = 0; n < 2000; n++){
+			String id = "urn:policy:" + n;
+			assertEquals(expected.get(id), i.get(id));
+		}
+		assertEquals(new HashSet<String>(expected.values()),
+				new HashSet<String>(i.values()));
+		assertEquals(expected.size(), i.values().size());
+	}
+}
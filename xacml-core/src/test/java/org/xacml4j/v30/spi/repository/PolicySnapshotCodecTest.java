@@ -0,0 +1,119 @@
+package org.xacml4j.v30.spi.repository;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xacml4j.v30.CompositeDecisionRule;
+import org.xacml4j.v30.pdp.Versionable;
+import org.xacml4j.v30.spi.combine.DecisionCombiningAlgorithmProvider;
+import org.xacml4j.v30.spi.combine.DecisionCombiningAlgorithmProviderBuilder;
+import org.xacml4j.v30.spi.function.FunctionProvider;
+import org.xacml4j.v30.spi.function.FunctionProviderBuilder;
+
+import com.google.common.base.Supplier;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+
+public class PolicySnapshotCodecTest
+{
+	private FunctionProvider functions;
+	private DecisionCombiningAlgorithmProvider decisionAlgorithms;
+	private Path directory;
+
+	@Before
+	public void init() throws Exception
+	{
+		this.functions = FunctionProviderBuilder.builder()
+				.defaultFunctions()
+				.build();
+		this.decisionAlgorithms = DecisionCombiningAlgorithmProviderBuilder.builder()
+				.withDefaultAlgorithms()
+				.create();
+		this.directory = Files.createTempDirectory("xacml4j-snapshots");
+	}
+
+	@After
+	public void destroy() throws Exception
+	{
+		MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+	}
+
+	private static Supplier<InputStream> resource(final String name)
+	{
+		return new Supplier<InputStream>() {
+			@Override
+			public InputStream get() {
+				return Thread.currentThread().getContextClassLoader().getResourceAsStream(name);
+			}
+		};
+	}
+
+	@Test
+	public void testWriteAndLoadSnapshot() throws Exception
+	{
+		InMemoryPolicyRepository r = new InMemoryPolicyRepository("testId", functions, decisionAlgorithms);
+		CompositeDecisionRule p1 = r.importPolicy(resource("Policy1.xml"));
+		CompositeDecisionRule p2 = r.importPolicy(resource("v30-policy-with-variables-1.xml"));
+		CompositeDecisionRule ps1 = r.importPolicy(resource("PolicySet1.xml"));
+		Path file = directory.resolve("policies.snapshot");
+		r.writeSnapshot(file);
+
+		InMemoryPolicyRepository loaded = new InMemoryPolicyRepository("testId", functions, decisionAlgorithms);
+		assertEquals(3, loaded.loadSnapshot(file));
+		for(CompositeDecisionRule expected : Arrays.asList(p1, p2, ps1)){
+			assertEquals(expected, loaded.get(expected.getId(),
+					((Versionable)expected).getVersion()));
+		}
+	}
+
+	@Test
+	public void testLoadTruncatedSnapshot() throws Exception
+	{
+		InMemoryPolicyRepository r = new InMemoryPolicyRepository("testId", functions, decisionAlgorithms);
+		CompositeDecisionRule p1 = r.importPolicy(resource("Policy1.xml"));
+		Path file = directory.resolve("policies.snapshot");
+		r.writeSnapshot(file);
+		byte[] content = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(content, content.length / 2));
+
+		InMemoryPolicyRepository loaded = new InMemoryPolicyRepository("testId", functions, decisionAlgorithms);
+		try{
+			loaded.loadSnapshot(file);
+			fail();
+		}catch(IOException e){
+		}
+		assertTrue(loaded.getPolicies(p1.getId()).isEmpty());
+	}
+}
@@ -0,0 +1,123 @@
+package org.xacml4j.v30.spi.xpath;
+
+/*
+ * #%L
+ * Xacml4J Core Engine Implementation
+ * %%
+ * Copyright (C) 2009 - 2014 Xacml4J.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.xacml4j.util.DOMUtil;
+
+import com.google.common.collect.ImmutableList;
+
+public class StreamingXPathEvaluatorTest
+{
+	private String testXml = "<md:record xmlns:md=\"urn:example:med:schemas:record\" id=\"r1\">" +
+			"<md:patient type=\"inpatient\">" +
+			"<md:patient-number>555555</md:patient-number>" +
+			"<md:patient-number>55<!-- comment -->66<![CDATA[77]]></md:patient-number>" +
+			"</md:patient>" +
+			"<md:patient type=\"outpatient\">" +
+			"<md:patient-number>123</md:patient-number>" +
+			"</md:patient>" +
+			"</md:record>";
+
+	@Test
+	public void testParseSimplePaths()
+	{
+		assertTrue(SimpleXPath.parse("/md:record/md:patient/md:patient-number/text()").isPresent());
+		assertTrue(SimpleXPath.parse("md:record/*[@type='inpatient']/@id").isPresent());
+		assertFalse(SimpleXPath.parse("//md:patient-number/text()").isPresent());
+		assertFalse(SimpleXPath.parse("/md:record/md:patient[1]/text()").isPresent());
+		assertFalse(SimpleXPath.parse("/md:record/md:patient").isPresent());
+		assertFalse(SimpleXPath.parse("count(/md:record)").isPresent());
+	}
+
+	@Test
+	public void testEvaluateInSinglePass() throws XPathEvaluationException
+	{
+		SimpleXPath p0 = SimpleXPath.parse("/md:record/md:patient/md:patient-number/text()").get();
+		SimpleXPath p1 = SimpleXPath.parse("/md:record/md:patient[@type='outpatient']/md:patient-number/text()").get();
+		SimpleXPath p2 = SimpleXPath.parse("/md:record/@id").get();
+		SimpleXPath p3 = SimpleXPath.parse("/md:record/*/@type").get();
+		SimpleXPath p4 = SimpleXPath.parse("/xx:record/@id").get();
+		Map<SimpleXPath, List<String>> v = StreamingXPathEvaluator.evaluate(
+				new StringReader(testXml), ImmutableList.of(p0, p1, p2, p3, p4));
+		assertEquals(ImmutableList.of("555555", "55", "6677", "123"), v.get(p0));
+		assertEquals(ImmutableList.of("123"), v.get(p1));
+		assertEquals(ImmutableList.of("r1"), v.get(p2));
+		assertEquals(ImmutableList.of("inpatient", "outpatient"), v.get(p3));
+		assertTrue(v.containsKey(p4));
+		assertNull(v.get(p4));
+	}
+
+	@Test
+	public void testEvaluateOverContentDOM() throws XPathEvaluationException
+	{
+		SimpleXPath p0 = SimpleXPath.parse("/md:record/md:patient/md:patient-number/text()").get();
+		SimpleXPath p1 = SimpleXPath.parse("/md:record/md:patient[@type='outpatient']/md:patient-number/text()").get();
+		SimpleXPath p2 = SimpleXPath.parse("/md:record/@id").get();
+		SimpleXPath p3 = SimpleXPath.parse("/xx:record/@id").get();
+		Collection<SimpleXPath> paths = ImmutableList.of(p0, p1, p2, p3);
+		Map<SimpleXPath, List<String>> v = StreamingXPathEvaluator.evaluate(
+				DOMUtil.parseContent(testXml), paths);
+		assertEquals(StreamingXPathEvaluator.evaluate(new StringReader(testXml), paths), v);
+		assertEquals(ImmutableList.of("555555", "55", "6677", "123"), v.get(p0));
+		assertEquals(ImmutableList.of("123"), v.get(p1));
+		assertEquals(ImmutableList.of("r1"), v.get(p2));
+		assertNull(v.get(p3));
+	}
+
+	@Test
+	public void testIsNamespaceAware()
+	{
+		assertTrue(StreamingXPathEvaluator.isNamespaceAware(DOMUtil.parseContent(testXml)));
+		assertFalse(StreamingXPathEvaluator.isNamespaceAware(DOMUtil.stringToNode(testXml)));
+	}
+
+	@Test(expected=XPathEvaluationException.class)
+	public void testEvaluateMalformedDocument() throws XPathEvaluationException
+	{
+		StreamingXPathEvaluator.evaluate(new StringReader("<a><b></a>"),
+				ImmutableList.of(SimpleXPath.parse("/a/b/text()").get()));
+	}
+
+	@Test
+	public void testCheckWellFormed()
+	{
+		StreamingXPathEvaluator.checkWellFormed("<a xmlns:x=\"urn:x\"><x:b>v</x:b></a>");
+		try{
+			StreamingXPathEvaluator.checkWellFormed("<a><b></a>");
+			fail();
+		}catch(IllegalArgumentException e){
+		}
+	}
+}
@@ -24,6 +24,8 @@ package org.xacml4j.v30.types;
 
 import static org.junit.Assert.assertEquals;
 
+import javax.xml.datatype.DatatypeFactory;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -68,6 +70,11 @@ public class DateTimeTypeTest
 		toString.fromString("2002-09-24Z");
 	}
 
+	@Test(expected=IllegalArgumentException.class)
+	public void testFromXacmlStringInvalidMinute(){
+		DateTimeExp.of("2002-09-24T09:61:00Z");
+	}
+
 	@Test
 	public void addDayTimeDurationTest()
 	{
@@ -108,4 +115,34 @@ public class DateTimeTypeTest
 		assertEquals(dateTime2, dateTime1.subtract(duration));
 	}
 
+
+	@Test
+	public void testEqualsAcrossTimezones()
+	{
+		DateTimeExp dateTime1 = DateTimeExp.of("2002-05-30T09:30:10-06:00");
+		DateTimeExp dateTime2 = DateTimeExp.of("2002-05-30T15:30:10Z");
+		assertEquals(dateTime1, dateTime2);
+		assertEquals(dateTime1.hashCode(), dateTime2.hashCode());
+		assertEquals(0, dateTime1.compareTo(dateTime2));
+		assertEquals("2002-05-30T09:30:10-06:00", dateTime1.getValue().toXacmlString());
+	}
+
+	@Test
+	public void testFractionalSeconds()
+	{
+		DateTimeExp dateTime = DateTimeExp.of("2002-05-30T09:30:10.500Z");
+		assertEquals(500, dateTime.getValue().getMillisecond());
+		assertEquals("2002-05-30T09:30:10.500Z", dateTime.getValue().toXacmlString());
+		assertEquals(1, dateTime.compareTo(DateTimeExp.of("2002-05-30T09:30:10Z")));
+	}
+
+	@Test
+	public void testToXmlCalendar() throws Exception
+	{
+		DateTimeExp dateTime = DateTimeExp.of("2002-05-30T09:30:10-06:00");
+		assertEquals(DatatypeFactory.newInstance().newXMLGregorianCalendar("2002-05-30T09:30:10-06:00"),
+				dateTime.getValue().toCalendar());
+		assertEquals(dateTime, DateTimeExp.of(dateTime.getValue().toCalendar()));
+	}
+
 }
@@ -47,6 +47,16 @@ public class DateTypeTest
 		DateExp.of("2002-05-30T09:30:10-06:00");
 	}
 
+	@Test(expected=IllegalArgumentException.class)
+	public void testFromXacmlStringInvalidDayOfMonth(){
+		DateExp.of("2002-02-30Z");
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testFromXacmlStringYearZero(){
+		DateExp.of("0000-01-01Z");
+	}
+
 	@Test
 	public void testCreateFromCalendar()
 	{
@@ -60,5 +70,21 @@ public class DateTypeTest
 		assertEquals(d1.getValue().getYear(), now.get(Calendar.YEAR));
 		assertEquals(d1.getValue().getMonth(), now.get(Calendar.MONTH) + 1);
 	}
-}
 
+	@Test
+	public void testAddYearMonthDurationEndOfMonth()
+	{
+		DateExp date = DateExp.of("2002-01-31Z");
+		assertEquals(DateExp.of("2002-02-28Z"), date.add(YearMonthDurationExp.of("P1M")));
+		assertEquals(DateExp.of("2001-12-31Z"), date.subtract(YearMonthDurationExp.of("P1M")));
+	}
+
+	@Test
+	public void testCompareUsesStartingInstant()
+	{
+		DateExp d1 = DateExp.of("2002-05-30-05:00");
+		DateExp d2 = DateExp.of("2002-05-30Z");
+		assertEquals(1, d1.compareTo(d2));
+		assertEquals(-1, d2.compareTo(d1));
+	}
+}
@@ -50,4 +50,14 @@ public class TimeTypeTest
 		TimeExp t2 = TimeExp.of(now);
 		assertEquals(t1, t2);
 	}
+
+	@Test
+	public void testCompareAcrossTimezones()
+	{
+		TimeExp t1 = TimeExp.of("08:23:47-05:00");
+		TimeExp t2 = TimeExp.of("13:23:47Z");
+		assertEquals(0, t1.compareTo(t2));
+		assertEquals(t1, t2);
+		assertEquals("08:23:47-05:00", t1.getValue().toXacmlString());
+	}
 }
@@ -25,7 +25,6 @@ package org.xacml4j.v30.marshal.json;
 import java.lang.reflect.Type;
 import java.util.Collection;
 
-import org.w3c.dom.Node;
 import org.xacml4j.util.DOMUtil;
 import org.xacml4j.v30.Attribute;
 import org.xacml4j.v30.Categories;
@@ -33,6 +32,7 @@ import org.xacml4j.v30.Category;
 import org.xacml4j.v30.CategoryId;
 import org.xacml4j.v30.Entity;
 import org.xacml4j.v30.XacmlSyntaxException;
+import org.xacml4j.v30.spi.xpath.StreamingXPathEvaluator;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableBiMap;
@@ -75,13 +75,16 @@ class CategoryAdapter implements JsonDeserializer<Category>, JsonSerializer<Cate
 			Collection<Attribute> attr = context.deserialize(o.getAsJsonArray(JsonProperties.ATTRIBUTE_PROPERTY),
 					new TypeToken<Collection<Attribute>>() {
 					}.getType());
-			Node content = DOMUtil.stringToNode(GsonUtil.getAsString(o, JsonProperties.CONTENT_PROPERTY, null));
+			String content = GsonUtil.getAsString(o, JsonProperties.CONTENT_PROPERTY, null);
+			if (content != null) {
+				StreamingXPathEvaluator.checkWellFormed(content);
+			}
 			return Category.builder(category)
 					.id(id)
 					.entity(Entity
 							.builder()
 							.attributes(attr)
-							.content(content)
+							.xmlContent(content)
 							.build())
 					.build();
 		} catch (XacmlSyntaxException e) {
@@ -99,7 +102,8 @@ class CategoryAdapter implements JsonDeserializer<Category>, JsonSerializer<Cate
 		Entity e = src.getEntity();
 		String categoryId = SHORT_NAMES.inverse().get(src.getCategoryId());
 		o.addProperty(JsonProperties.CATEGORY_ID_PROPERTY, (categoryId == null)?src.getCategoryId().getId():categoryId);
-		o.addProperty(JsonProperties.CONTENT_PROPERTY, DOMUtil.nodeToString(e.getContent()));
+		o.addProperty(JsonProperties.CONTENT_PROPERTY, (e.getXmlContent() != null)?
+				e.getXmlContent():DOMUtil.nodeToString(e.getContent()));
 		o.add(JsonProperties.ATTRIBUTE_PROPERTY, context.serialize(e.getAttributes()));
 		return o;
 	}
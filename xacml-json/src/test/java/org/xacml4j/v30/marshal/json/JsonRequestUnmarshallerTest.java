@@ -73,6 +73,21 @@ public class JsonRequestUnmarshallerTest {
 		assertThat(reqOut, is(equalTo(reqIn)));
 	}
 
+	@Test(expected=IllegalArgumentException.class)
+	public void testMalformedContentIsRejected() throws Exception {
+		RequestContext reqIn = RequestContext
+				.builder()
+				.attributes(Category
+						.builder(Categories.RESOURCE)
+						.entity(Entity
+								.builder()
+								.xmlContent("<security><through></security>")
+								.build())
+						.build())
+				.build();
+		unmarshaller.unmarshal(marshaller.marshal(reqIn));
+	}
+
 	private RequestContext createTestRequest() throws Exception {
 		Category subjectAttributes = Category
 				.builder(Categories.SUBJECT_ACCESS)